@@ -0,0 +1,339 @@
+package com.tecno.web_sec.bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.tecno.web_sec.WebSecApplication;
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Usuario;
+import com.tecno.web_sec.service.CuentaService;
+import com.tecno.web_sec.service.UsuarioService;
+
+/**
+ * Prueba de carga de extremo a extremo del recorrido de un cliente: inicio de
+ * sesión por formulario, {@code POST /transacciones}, {@code GET /transacciones}
+ * y {@code GET /consultas}, con la cadena de filtros de seguridad y las vistas
+ * Thymeleaf incluidas.
+ *
+ * Arranca la aplicación en un puerto local aleatorio con los usuarios de
+ * {@code GeneradorDatos} y, para cada nivel de concurrencia, lanza una sesión
+ * por hilo virtual con su propia cookie sobre un único {@link HttpClient}.
+ * Cada sesión repite el recorrido sin pausas (modelo cerrado), así que el
+ * throughput deja de crecer al llegar a la saturación; a partir de ahí solo
+ * crecen las latencias. Las latencias por endpoint se registran en
+ * histogramas HdrHistogram después del calentamiento.
+ *
+ * Los argumentos son pares {@code clave=valor}:
+ * <ul>
+ * <li>{@code sesiones}: niveles de concurrencia, separados por comas
+ * (por defecto {@code 1,8,32,128})</li>
+ * <li>{@code calentamiento} y {@code duracion}: duración de cada fase por nivel
+ * (por defecto {@code PT5S} y {@code PT20S})</li>
+ * <li>{@code transacciones}: historial generado antes de empezar (por defecto
+ * {@code 100000})</li>
+ * <li>{@code hilos}: {@code plataforma}, {@code virtuales} o ambos separados
+ * por comas; con ambos se arranca la aplicación una vez por modo, con
+ * {@code spring.threads.virtual.enabled}, y se comparan al final (por defecto
+ * {@code plataforma})</li>
+ * </ul>
+ */
+public class CargaHttp {
+
+    private static final String PASSWORD = "123"; // La de los usuarios de GeneradorDatos
+    private static final String MONTO = "0.01";
+    private static final long LATENCIA_MAXIMA = TimeUnit.MINUTES.toMicros(1);
+
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER) // Las redirecciones indican el resultado
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final String base;
+    private final Map<String, Cuenta[]> cuentasPorUsuario;
+    private final Cuenta[] todas;
+
+    private CargaHttp(int puerto, Map<String, Cuenta[]> cuentasPorUsuario, Cuenta[] todas) {
+        this.base = "http://localhost:" + puerto;
+        this.cuentasPorUsuario = cuentasPorUsuario;
+        this.todas = todas;
+    }
+
+    /**
+     * Latencias y errores de un endpoint durante la medición.
+     */
+    private static final class Endpoint {
+
+        final String nombre;
+        final Histogram latencias = new ConcurrentHistogram(LATENCIA_MAXIMA, 3);
+        final LongAdder errores = new LongAdder();
+
+        Endpoint(String nombre) {
+            this.nombre = nombre;
+        }
+    }
+
+    /**
+     * Los endpoints de un nivel de concurrencia y el fin del calentamiento.
+     */
+    private static final class Nivel {
+
+        final Endpoint login = new Endpoint("POST /login");
+        final Endpoint transferir = new Endpoint("POST /transacciones");
+        final Endpoint historial = new Endpoint("GET /transacciones");
+        final Endpoint consultas = new Endpoint("GET /consultas");
+        final LongAdder recorridos = new LongAdder();
+        final long inicioMedicion;
+        final long fin;
+
+        Nivel(Duration calentamiento, Duration duracion) {
+            inicioMedicion = System.nanoTime() + calentamiento.toNanos();
+            fin = inicioMedicion + duracion.toNanos();
+        }
+
+        boolean midiendo() {
+            return System.nanoTime() - inicioMedicion >= 0;
+        }
+
+        List<Endpoint> endpoints() {
+            return List.of(login, transferir, historial, consultas);
+        }
+    }
+
+    /**
+     * Resultado de un nivel de concurrencia.
+     */
+    private record Resultado(String modo, int sesiones, double throughput, double p99Transferir,
+            double p99Historial, long errores) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = new LinkedHashMap<>(Map.of(
+                "sesiones", "1,8,32,128",
+                "calentamiento", "PT5S",
+                "duracion", "PT20S",
+                "transacciones", "100000",
+                "hilos", "plataforma"));
+        for (String arg : args) {
+            String[] par = arg.split("=", 2);
+            if (par.length != 2 || !opciones.containsKey(par[0])) {
+                throw new IllegalArgumentException("Argumento desconocido: " + arg + "; se admiten "
+                        + opciones.keySet());
+            }
+            opciones.put(par[0], par[1]);
+        }
+        int[] niveles = Arrays.stream(opciones.get("sesiones").split(","))
+                .mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+        int usuarios = Math.max(2, Arrays.stream(niveles).max().orElse(1));
+
+        System.setProperty("spring.devtools.restart.enabled", "false"); // Un solo contexto, en este hilo
+        List<Resultado> resultados = new ArrayList<>();
+        for (String modo : opciones.get("hilos").split(",")) {
+            boolean virtuales = switch (modo.trim()) {
+                case "plataforma" -> false;
+                case "virtuales" -> true;
+                default -> throw new IllegalArgumentException("hilos: plataforma o virtuales, no " + modo);
+            };
+            // Como argumentos de línea de comandos, para que prevalezcan sobre application.properties
+            try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(WebSecApplication.class).run(
+                    "--server.port=0",
+                    "--logging.level.root=WARN",
+                    "--spring.threads.virtual.enabled=" + virtuales,
+                    "--server.tomcat.max-connections=" + (usuarios + 1000), // Una conexión por sesión
+                    "--banco.datos.usuarios=" + usuarios,
+                    "--banco.datos.transacciones=" + opciones.get("transacciones"))) {
+                int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+                UsuarioService usuarioService = contexto.getBean(UsuarioService.class);
+                Map<String, Cuenta[]> cuentasPorUsuario = new LinkedHashMap<>();
+                for (int i = 1; i <= usuarios; i++) {
+                    Usuario usuario = usuarioService.findByUsername("cliente" + i);
+                    cuentasPorUsuario.put(usuario.getUsername(), usuario.getCuentas().toArray(new Cuenta[0]));
+                }
+                Cuenta[] todas = contexto.getBean(CuentaService.class).findAll().toArray(new Cuenta[0]);
+                CargaHttp carga = new CargaHttp(puerto, cuentasPorUsuario, todas);
+
+                System.out.printf("%nAplicación en el puerto %d con hilos %s, %d usuarios y %s transacciones%n",
+                        puerto, modo.trim(), usuarios, opciones.get("transacciones"));
+                for (int sesiones : niveles) {
+                    resultados.add(carga.ejecutar(modo.trim(), sesiones,
+                            Duration.parse(opciones.get("calentamiento")), Duration.parse(opciones.get("duracion"))));
+                }
+            }
+        }
+
+        System.out.printf("%n%-11s %9s %12s %18s %18s %8s%n", "hilos", "sesiones", "recorridos/s",
+                "p99 POST transf.", "p99 GET historial", "errores");
+        for (Resultado r : resultados) {
+            System.out.printf("%-11s %9d %12.1f %15.2f ms %15.2f ms %8d%n", r.modo(), r.sesiones(), r.throughput(),
+                    r.p99Transferir(), r.p99Historial(), r.errores());
+        }
+        Resultado maximo = resultados.stream().max(Comparator.comparingDouble(Resultado::throughput)).orElseThrow();
+        System.out.printf("%nThroughput máximo: %.1f recorridos/s (%.1f peticiones/s) con hilos %s y %d sesiones%n",
+                maximo.throughput(), maximo.throughput() * 3, maximo.modo(), maximo.sesiones());
+    }
+
+    /**
+     * Ejecuta un nivel de concurrencia e imprime sus resultados.
+     *
+     * @return el throughput y las latencias del nivel
+     */
+    private Resultado ejecutar(String modo, int sesiones, Duration calentamiento, Duration duracion)
+            throws InterruptedException {
+        Nivel nivel = new Nivel(calentamiento, duracion);
+        List<String> usernames = new ArrayList<>(cuentasPorUsuario.keySet()).subList(0, sesiones);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sesiones; i++) {
+                String username = usernames.get(i);
+                long semilla = i;
+                executor.submit(() -> sesion(nivel, username, new SplittableRandom(semilla)));
+            }
+        } // close() espera a que terminen todas las sesiones
+
+        double segundos = duracion.toNanos() / 1e9;
+        double throughput = nivel.recorridos.sum() / segundos;
+        long errores = 0;
+        System.out.printf("%n%d sesiones: %.1f recorridos/s%n", sesiones, throughput);
+        System.out.printf("  %-22s %9s %9s %9s %9s %9s %9s %8s%n", "endpoint", "peticiones", "p50 ms", "p90 ms",
+                "p99 ms", "p99.9 ms", "max ms", "errores");
+        for (Endpoint endpoint : nivel.endpoints()) {
+            Histogram h = endpoint.latencias;
+            System.out.printf("  %-22s %9d %9.2f %9.2f %9.2f %9.2f %9.2f %8d%n", endpoint.nombre,
+                    h.getTotalCount(), ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(90)),
+                    ms(h.getValueAtPercentile(99)), ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue()),
+                    endpoint.errores.sum());
+            errores += endpoint.errores.sum();
+        }
+        return new Resultado(modo, sesiones, throughput, ms(nivel.transferir.latencias.getValueAtPercentile(99)),
+                ms(nivel.historial.latencias.getValueAtPercentile(99)), errores);
+    }
+
+    /**
+     * Una sesión: inicia sesión y repite el recorrido hasta el final del nivel.
+     * Si la sesión se pierde, vuelve a iniciarla.
+     */
+    private void sesion(Nivel nivel, String username, SplittableRandom random) {
+        Cuenta[] propias = cuentasPorUsuario.get(username);
+        String cookie = null;
+        while (System.nanoTime() - nivel.fin < 0) {
+            try {
+                if (cookie == null) {
+                    cookie = login(nivel, username);
+                    continue;
+                }
+                Cuenta origen = propias[random.nextInt(propias.length)];
+                Cuenta destino = todas[random.nextInt(todas.length)];
+                if (destino == origen) {
+                    continue;
+                }
+                boolean ok = medir(nivel, nivel.transferir, cookie, HttpRequest.newBuilder(uri("/transacciones"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(formulario(Map.of("monto", MONTO, "cuentaOrigen.id", origen.getId().toString(),
+                                "cuentaDestino.id", destino.getId().toString()))),
+                        302) != null;
+                ok &= medir(nivel, nivel.historial, cookie, HttpRequest.newBuilder(uri("/transacciones")).GET(),
+                        200) != null;
+                ok &= medir(nivel, nivel.consultas, cookie, HttpRequest.newBuilder(uri("/consultas")).GET(),
+                        200) != null;
+                if (ok && nivel.midiendo()) {
+                    nivel.recorridos.increment();
+                } else if (!ok) {
+                    cookie = null; // Sesión perdida o error: se vuelve a iniciar
+                }
+            } catch (IOException e) {
+                cookie = null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private String login(Nivel nivel, String username) throws IOException, InterruptedException {
+        HttpResponse<Void> respuesta = medir(nivel, nivel.login, null, HttpRequest.newBuilder(uri("/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(formulario(Map.of("username", username, "password", PASSWORD))), 302);
+        if (respuesta == null || respuesta.headers().firstValue("Location").orElse("").contains("error")) {
+            return null;
+        }
+        return respuesta.headers().allValues("Set-Cookie").stream()
+                .filter(c -> c.startsWith("JSESSIONID="))
+                .map(c -> c.substring(0, c.indexOf(';') < 0 ? c.length() : c.indexOf(';')))
+                .findFirst().orElse(null);
+    }
+
+    /**
+     * Envía la petición, descarta el cuerpo y registra la latencia si la
+     * medición empezó o si es un inicio de sesión.
+     *
+     * @return la respuesta, o {@code null} si el estado no es el esperado
+     */
+    private HttpResponse<Void> medir(Nivel nivel, Endpoint endpoint, String cookie, HttpRequest.Builder peticion,
+            int estadoEsperado) throws IOException, InterruptedException {
+        if (cookie != null) {
+            peticion.header("Cookie", cookie);
+        }
+        // Los inicios de sesión caen casi todos en el calentamiento; se miden siempre
+        boolean registrar = endpoint == nivel.login || nivel.midiendo();
+        long inicio = System.nanoTime();
+        HttpResponse<Void> respuesta;
+        try {
+            respuesta = cliente.send(peticion.build(), HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            if (registrar) {
+                endpoint.errores.increment();
+            }
+            throw e;
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio);
+        boolean ok = respuesta.statusCode() == estadoEsperado;
+        if (registrar) {
+            endpoint.latencias.recordValue(Math.min(micros, LATENCIA_MAXIMA));
+            if (!ok) {
+                endpoint.errores.increment();
+            }
+        }
+        return ok ? respuesta : null;
+    }
+
+    private URI uri(String ruta) {
+        return URI.create(base + ruta);
+    }
+
+    private static HttpRequest.BodyPublisher formulario(Map<String, String> campos) {
+        StringBuilder cuerpo = new StringBuilder();
+        campos.forEach((clave, valor) -> {
+            if (cuerpo.length() > 0) {
+                cuerpo.append('&');
+            }
+            cuerpo.append(URLEncoder.encode(clave, StandardCharsets.UTF_8)).append('=')
+                    .append(URLEncoder.encode(valor, StandardCharsets.UTF_8));
+        });
+        return HttpRequest.BodyPublishers.ofString(cuerpo.toString());
+    }
+
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,171 @@
+package com.tecno.web_sec.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.tecno.web_sec.WebSecApplication;
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.service.CuentaService;
+import com.tecno.web_sec.service.TransaccionService;
+import com.tecno.web_sec.service.UsuarioService;
+
+/**
+ * Compara cada página Thymeleaf con su equivalente de {@code /api/v1}: tamaño
+ * del cuerpo, sin comprimir y con gzip, y latencia de una sesión que repite
+ * la petición sin pausas.
+ *
+ * Arranca la aplicación en un puerto local aleatorio con los usuarios de
+ * {@code GeneradorDatos}, inicia sesión con {@code cliente1} por el formulario
+ * y usa la misma cookie para ambas versiones, así que las dos pasan por la
+ * misma cadena de seguridad. Las peticiones son secuenciales: la diferencia
+ * de latencia es la del trabajo del servidor (vista o serialización JSON) y
+ * no la de la cola.
+ *
+ * Los argumentos son pares {@code clave=valor}:
+ * <ul>
+ * <li>{@code calentamiento} e {@code iteraciones}: peticiones por endpoint
+ * antes y durante la medición (por defecto {@code 500} y {@code 2000})</li>
+ * <li>{@code transacciones}: historial generado antes de empezar (por defecto
+ * {@code 100000})</li>
+ * </ul>
+ */
+public class ComparacionApi {
+
+    private static final long LATENCIA_MAXIMA = TimeUnit.MINUTES.toMicros(1);
+
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final String base;
+    private String cookie;
+
+    private ComparacionApi(int puerto) {
+        this.base = "http://localhost:" + puerto;
+    }
+
+    /**
+     * Tamaño y latencias de un endpoint.
+     */
+    private record Medicion(String ruta, int bytes, int bytesGzip, Histogram latencias) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = new LinkedHashMap<>(Map.of(
+                "calentamiento", "500",
+                "iteraciones", "2000",
+                "transacciones", "100000"));
+        for (String arg : args) {
+            String[] par = arg.split("=", 2);
+            if (par.length != 2 || !opciones.containsKey(par[0])) {
+                throw new IllegalArgumentException("Argumento desconocido: " + arg + "; se admiten "
+                        + opciones.keySet());
+            }
+            opciones.put(par[0], par[1]);
+        }
+        int calentamiento = Integer.parseInt(opciones.get("calentamiento"));
+        int iteraciones = Integer.parseInt(opciones.get("iteraciones"));
+
+        System.setProperty("spring.devtools.restart.enabled", "false"); // Un solo contexto, en este hilo
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(WebSecApplication.class).run(
+                "--server.port=0",
+                "--logging.level.root=WARN",
+                "--banco.datos.usuarios=100",
+                "--banco.datos.transacciones=" + opciones.get("transacciones"))) {
+            int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            Long usuarioId = contexto.getBean(UsuarioService.class).findByUsername("cliente1").getId();
+            Cuenta cuenta = contexto.getBean(CuentaService.class).findByUsuarioId(usuarioId).get(0);
+            Transaccion transaccion = contexto.getBean(TransaccionService.class).findByCuentaId(cuenta.getId()).get(0);
+
+            ComparacionApi comparacion = new ComparacionApi(puerto);
+            comparacion.login("cliente1", "123");
+            List<String[]> pares = List.of(
+                    new String[] { "/consultas", "/api/v1/cuentas" },
+                    new String[] { "/consultas/" + cuenta.getId(), "/api/v1/cuentas/" + cuenta.getId() },
+                    new String[] { "/transacciones", "/api/v1/transacciones" },
+                    new String[] { "/transacciones/" + transaccion.getId(),
+                            "/api/v1/transacciones/" + transaccion.getId() });
+
+            System.out.printf("%nAplicación en el puerto %d; %d peticiones secuenciales por endpoint%n", puerto,
+                    iteraciones);
+            System.out.printf("%-38s %9s %9s %9s %9s %9s%n", "endpoint", "bytes", "gzip", "p50 ms", "p99 ms",
+                    "pet./s");
+            for (String[] par : pares) {
+                Medicion html = comparacion.medir(par[0], calentamiento, iteraciones);
+                Medicion json = comparacion.medir(par[1], calentamiento, iteraciones);
+                imprimir(html);
+                imprimir(json);
+                System.out.printf("%-38s %8.1fx %8.1fx %8.1fx%n%n", "  HTML / JSON", (double) html.bytes() / json.bytes(),
+                        (double) html.bytesGzip() / json.bytesGzip(), html.latencias().getValueAtPercentile(50)
+                                / (double) json.latencias().getValueAtPercentile(50));
+            }
+        }
+    }
+
+    private void login(String username, String password) throws IOException, InterruptedException {
+        HttpResponse<Void> respuesta = cliente.send(HttpRequest.newBuilder(URI.create(base + "/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("username=" + URLEncoder.encode(username,
+                        StandardCharsets.UTF_8) + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8)))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        cookie = respuesta.headers().allValues("Set-Cookie").stream()
+                .filter(c -> c.startsWith("JSESSIONID="))
+                .map(c -> c.substring(0, c.indexOf(';') < 0 ? c.length() : c.indexOf(';')))
+                .findFirst().orElseThrow(() -> new IllegalStateException("No se pudo iniciar sesión"));
+    }
+
+    private Medicion medir(String ruta, int calentamiento, int iteraciones) throws IOException, InterruptedException {
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create(base + ruta)).header("Cookie", cookie).GET().build();
+        Histogram latencias = new Histogram(LATENCIA_MAXIMA, 3);
+        byte[] cuerpo = null;
+        for (int i = 0; i < calentamiento + iteraciones; i++) {
+            long inicio = System.nanoTime();
+            HttpResponse<byte[]> respuesta = cliente.send(peticion, HttpResponse.BodyHandlers.ofByteArray());
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio);
+            if (respuesta.statusCode() != 200) {
+                throw new IllegalStateException(ruta + " respondió " + respuesta.statusCode());
+            }
+            if (i >= calentamiento) {
+                latencias.recordValue(Math.min(micros, LATENCIA_MAXIMA));
+            }
+            cuerpo = respuesta.body();
+        }
+        return new Medicion(ruta, cuerpo.length, gzip(cuerpo), latencias);
+    }
+
+    private static void imprimir(Medicion medicion) {
+        Histogram h = medicion.latencias();
+        System.out.printf("%-38s %9d %9d %9.3f %9.3f %9.0f%n", "GET " + medicion.ruta(), medicion.bytes(),
+                medicion.bytesGzip(), h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(99) / 1000.0,
+                1e6 / h.getMean());
+    }
+
+    private static int gzip(byte[] cuerpo) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            gzip.write(cuerpo);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return salida.size();
+    }
+}
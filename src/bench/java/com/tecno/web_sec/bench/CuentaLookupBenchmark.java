@@ -0,0 +1,56 @@
+package com.tecno.web_sec.bench;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.service.impl.CuentaServiceImpl;
+
+/**
+ * Mide el costo de {@link CuentaServiceImpl#findById(Long)} a medida que crece
+ * el número de cuentas. Con el índice primario el tiempo por búsqueda debe
+ * mantenerse constante entre 10 y 1.000.000 de cuentas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CuentaLookupBenchmark {
+
+    @Param({ "10", "1000", "100000", "1000000" })
+    private int cuentas;
+
+    private CuentaServiceImpl cuentaService;
+    private long[] ids;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cuentaService = new CuentaServiceImpl();
+        for (long id = 1; id <= cuentas; id++) {
+            cuentaService.addCuenta(new Cuenta(id, "Cuenta " + id, new BigDecimal("100.00"), null));
+        }
+        // Las búsquedas recorren IDs aleatorios para no favorecer la caché
+        SplittableRandom random = new SplittableRandom(42);
+        ids = new long[4096];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = random.nextLong(1, cuentas + 1L);
+        }
+    }
+
+    @Benchmark
+    public Cuenta findById() {
+        cursor = (cursor + 1) & (ids.length - 1);
+        return cuentaService.findById(ids[cursor]);
+    }
+}
@@ -0,0 +1,128 @@
+package com.tecno.web_sec.bench;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Dinero;
+import com.tecno.web_sec.models.Usuario;
+
+/**
+ * Costo de mover saldo entre dos cuentas y de sumar el saldo de un usuario,
+ * con los saldos en {@link BigDecimal} (implementación anterior de
+ * {@link Cuenta}, reproducida aquí) y en centavos. La tasa de asignación se
+ * ve con {@code -prof gc}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DineroBenchmark {
+
+    private static final BigDecimal MONTO = new BigDecimal("1.00");
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("1000000.00");
+    private static final int CUENTAS_POR_USUARIO = 8;
+
+    private CuentaDecimal decimalA;
+    private CuentaDecimal decimalB;
+    private Cuenta centavosA;
+    private Cuenta centavosB;
+    private List<CuentaDecimal> cuentasDecimal;
+    private Usuario usuario;
+    private boolean ida;
+
+    @Setup
+    public void setup() {
+        decimalA = new CuentaDecimal(SALDO_INICIAL);
+        decimalB = new CuentaDecimal(SALDO_INICIAL);
+        centavosA = new Cuenta(1L, "Cuenta A", SALDO_INICIAL, null);
+        centavosB = new Cuenta(2L, "Cuenta B", SALDO_INICIAL, null);
+        cuentasDecimal = new ArrayList<>();
+        usuario = new Usuario(1L, "usuario", "123", "USER", new ArrayList<>());
+        for (long id = 1; id <= CUENTAS_POR_USUARIO; id++) {
+            cuentasDecimal.add(new CuentaDecimal(new BigDecimal(id * 1000).setScale(2)));
+            usuario.getCuentas().add(new Cuenta(id, "Cuenta " + id, new BigDecimal(id * 1000).setScale(2), usuario));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal transferirBigDecimal() {
+        // Lo que hacía transferirDirecto: comparar, retirar y depositar
+        CuentaDecimal origen = (ida = !ida) ? decimalA : decimalB;
+        CuentaDecimal destino = (origen == decimalA) ? decimalB : decimalA;
+        if (origen.saldo.compareTo(MONTO) < 0) {
+            throw new IllegalStateException("Saldo insuficiente");
+        }
+        origen.retirar(MONTO);
+        destino.depositar(MONTO);
+        return origen.saldo;
+    }
+
+    @Benchmark
+    public long transferirCentavos() {
+        // El monto llega como BigDecimal y se convierte una vez, como en el servicio
+        long monto = Dinero.aCentavos(MONTO);
+        Cuenta origen = (ida = !ida) ? centavosA : centavosB;
+        Cuenta destino = (origen == centavosA) ? centavosB : centavosA;
+        if (origen.getSaldoCentavos() < monto) {
+            throw new IllegalStateException("Saldo insuficiente");
+        }
+        long saldo = origen.retirar(monto);
+        destino.depositar(monto);
+        return saldo;
+    }
+
+    @Benchmark
+    public BigDecimal saldoUsuarioBigDecimal() {
+        return cuentasDecimal.stream()
+                .map(cuenta -> cuenta.saldo)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public BigDecimal saldoUsuarioCentavos() {
+        return usuario.getSaldo();
+    }
+
+    /**
+     * Saldo en {@link BigDecimal} como lo guardaba {@link Cuenta} antes de
+     * pasar a centavos.
+     */
+    private static final class CuentaDecimal {
+
+        private volatile BigDecimal saldo;
+
+        CuentaDecimal(BigDecimal saldo) {
+            this.saldo = saldo;
+        }
+
+        void depositar(BigDecimal monto) {
+            if (monto != null && monto.compareTo(BigDecimal.ZERO) > 0) {
+                saldo = saldo.add(monto);
+            } else {
+                throw new IllegalArgumentException("El monto debe ser mayor que cero.");
+            }
+        }
+
+        void retirar(BigDecimal monto) {
+            if (monto != null && monto.compareTo(BigDecimal.ZERO) > 0) {
+                if (saldo.compareTo(monto) >= 0) {
+                    saldo = saldo.subtract(monto);
+                } else {
+                    throw new IllegalArgumentException("Saldo insuficiente.");
+                }
+            } else {
+                throw new IllegalArgumentException("El monto debe ser mayor que cero.");
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.tecno.web_sec.bench;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.tecno.web_sec.idempotencia.CacheIdempotencia;
+
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Mide {@link CacheIdempotencia} con cuatro hilos: {@code repetida} es una
+ * tormenta de reintentos sobre 1024 claves ya respondidas, y {@code nueva}
+ * reserva y completa una clave distinta en cada operación con el límite de
+ * bytes lleno, así que cada una desaloja la más antigua.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class IdempotenciaBenchmark {
+
+    private static final byte[] HUELLA = new byte[32];
+    private static final CacheIdempotencia.Respuesta RESPUESTA = new CacheIdempotencia.Respuesta(201, null,
+            "application/json", List.of(), new byte[128]);
+
+    private CacheIdempotencia cache;
+    private String[] claves;
+    private final AtomicLong siguiente = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Unas 16.000 respuestas de 128 bytes
+        cache = new CacheIdempotencia(Duration.ofHours(24), 4 << 20, new CompositeMeterRegistry());
+        for (int i = 0; i < 20_000; i++) {
+            nueva(); // Llena el límite para medir con desalojos
+        }
+        claves = new String[1024];
+        for (int i = 0; i < claves.length; i++) {
+            claves[i] = "usuario1\n" + i;
+            CacheIdempotencia.Entrada entrada = new CacheIdempotencia.Entrada(claves[i], HUELLA);
+            cache.reservar(entrada);
+            cache.completar(entrada, RESPUESTA);
+        }
+    }
+
+    @Benchmark
+    public CacheIdempotencia.Entrada repetida() {
+        int i = (int) (siguiente.getAndIncrement() & (claves.length - 1));
+        return cache.reservar(new CacheIdempotencia.Entrada(claves[i], HUELLA));
+    }
+
+    @Benchmark
+    public CacheIdempotencia.Entrada nueva() {
+        CacheIdempotencia.Entrada entrada = new CacheIdempotencia.Entrada("usuario2\n" + siguiente.getAndIncrement(),
+                HUELLA);
+        cache.reservar(entrada);
+        cache.completar(entrada, RESPUESTA);
+        return entrada;
+    }
+}
@@ -0,0 +1,245 @@
+package com.tecno.web_sec.bench;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import com.tecno.web_sec.WebSecApplication;
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.ResultadoTransferencia;
+import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.service.CuentaService;
+
+/**
+ * Compara el rendimiento de {@code POST /api/v1/transacciones}, una
+ * transferencia por petición, con {@code POST /api/v1/transacciones/lote}, y lo
+ * mismo dentro del proceso: {@code registrarTransferencia} fila por fila contra
+ * {@code transferirLote}.
+ *
+ * Arranca la aplicación en un puerto local aleatorio con los usuarios de
+ * {@code GeneradorDatos} y el write-ahead log en un directorio temporal, con
+ * fsync, e inicia sesión como {@code admin} para poder transferir desde
+ * cualquier cuenta. Las filas tienen origen y destino al azar y montos
+ * pequeños, así que casi todas se aplican.
+ *
+ * Los argumentos son pares {@code clave=valor}:
+ * <ul>
+ * <li>{@code filas}: transferencias de cada medición (por defecto
+ * {@code 20000})</li>
+ * <li>{@code sesiones}: clientes concurrentes del camino individual (por
+ * defecto {@code 16})</li>
+ * <li>{@code filas-por-lote}: filas de cada petición de lote (por defecto
+ * {@code 10000})</li>
+ * <li>{@code wal}: {@code true} para escribir el log con fsync (por
+ * defecto)</li>
+ * </ul>
+ */
+public class LoteHttp {
+
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final String base;
+    private String cookie;
+
+    private LoteHttp(int puerto) {
+        this.base = "http://localhost:" + puerto;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = new LinkedHashMap<>(Map.of(
+                "filas", "20000",
+                "sesiones", "16",
+                "filas-por-lote", "10000",
+                "wal", "true"));
+        for (String arg : args) {
+            String[] par = arg.split("=", 2);
+            if (par.length != 2 || !opciones.containsKey(par[0])) {
+                throw new IllegalArgumentException("Argumento desconocido: " + arg + "; se admiten "
+                        + opciones.keySet());
+            }
+            opciones.put(par[0], par[1]);
+        }
+        int filas = Integer.parseInt(opciones.get("filas"));
+        int sesiones = Integer.parseInt(opciones.get("sesiones"));
+        int filasPorLote = Integer.parseInt(opciones.get("filas-por-lote"));
+
+        Path directorio = Files.createTempDirectory("banco-lote-wal");
+        System.setProperty("spring.devtools.restart.enabled", "false"); // Un solo contexto, en este hilo
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(WebSecApplication.class).run(
+                "--server.port=0",
+                "--logging.level.root=WARN",
+                "--banco.datos.usuarios=1000",
+                "--banco.wal.habilitado=" + opciones.get("wal"),
+                "--banco.wal.directorio=" + directorio,
+                "--banco.wal.snapshot.habilitado=false")) {
+            int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            CuentaService cuentaService = contexto.getBean(CuentaService.class);
+            long[] ids = cuentaService.findAll().stream().mapToLong(Cuenta::getId).toArray();
+
+            LoteHttp carga = new LoteHttp(puerto);
+            carga.login("admin", "123");
+            System.out.printf("%nAplicación en el puerto %d, %d cuentas, write-ahead log %s; %d filas%n", puerto,
+                    ids.length, Boolean.parseBoolean(opciones.get("wal")) ? "con fsync" : "deshabilitado", filas);
+            System.out.printf("%-52s %10s %12s%n", "camino", "seg.", "filas/s");
+
+            // Calentamiento de ambos caminos antes de medir
+            carga.individuales(filas(ids, 2000, 1), sesiones);
+            carga.lotes(filas(ids, 2000, 2), filasPorLote);
+            cuentaService.transferirLote(transacciones(filas(ids, 2000, 3)));
+
+            double http = imprimir("HTTP, una por petición (" + sesiones + " sesiones)",
+                    filas, carga.individuales(filas(ids, filas, 4), sesiones));
+            double httpLote = imprimir("HTTP, lote (" + filasPorLote + " filas por petición)",
+                    filas, carga.lotes(filas(ids, filas, 5), filasPorLote));
+            double servicio = imprimir("Servicio, registrarTransferencia (1 hilo)",
+                    filas, registrarUnaPorUna(cuentaService, transacciones(filas(ids, filas, 6))));
+            double servicioLote = imprimir("Servicio, transferirLote",
+                    filas, medirLote(cuentaService, transacciones(filas(ids, filas, 7))));
+            System.out.printf("%-52s %10s %11.1fx%n", "Lote / individual, HTTP", "", httpLote / http);
+            System.out.printf("%-52s %10s %11.1fx%n", "Lote / individual, servicio", "", servicioLote / servicio);
+        } finally {
+            FileSystemUtils.deleteRecursively(directorio);
+        }
+    }
+
+    /**
+     * Filas al azar: origen y destino distintos, montos de 0,01 a 1,00.
+     */
+    private static long[][] filas(long[] ids, int filas, long semilla) {
+        SplittableRandom random = new SplittableRandom(semilla);
+        long[][] resultado = new long[filas][];
+        for (int i = 0; i < filas; i++) {
+            long origen = ids[random.nextInt(ids.length)];
+            long destino;
+            do {
+                destino = ids[random.nextInt(ids.length)];
+            } while (destino == origen);
+            resultado[i] = new long[] { origen, destino, random.nextLong(1, 101) };
+        }
+        return resultado;
+    }
+
+    private static List<Transaccion> transacciones(long[][] filas) {
+        List<Transaccion> transacciones = new ArrayList<>(filas.length);
+        for (long[] fila : filas) {
+            transacciones.add(new Transaccion(null, BigDecimal.valueOf(fila[2], 2), null,
+                    new Cuenta(fila[0], null, null, null), new Cuenta(fila[1], null, null, null)));
+        }
+        return transacciones;
+    }
+
+    private static String json(long[] fila) {
+        return "{\"cuentaOrigenId\":" + fila[0] + ",\"cuentaDestinoId\":" + fila[1] + ",\"monto\":"
+                + BigDecimal.valueOf(fila[2], 2) + "}";
+    }
+
+    private long individuales(long[][] filas, int sesiones) throws Exception {
+        AtomicInteger siguiente = new AtomicInteger();
+        long inicio = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(sesiones)) {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int s = 0; s < sesiones; s++) {
+                tareas.add(executor.submit(() -> {
+                    for (int i = siguiente.getAndIncrement(); i < filas.length; i = siguiente.getAndIncrement()) {
+                        int estado = enviar("/api/v1/transacciones", json(filas[i])).statusCode();
+                        if (estado != 201 && estado != 422) {
+                            throw new IllegalStateException("La transferencia respondió " + estado);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        }
+        return System.nanoTime() - inicio;
+    }
+
+    private long lotes(long[][] filas, int filasPorLote) throws IOException, InterruptedException {
+        long inicio = System.nanoTime();
+        for (int desde = 0; desde < filas.length; desde += filasPorLote) {
+            StringBuilder cuerpo = new StringBuilder(filasPorLote * 64).append('[');
+            for (int i = desde; i < Math.min(filas.length, desde + filasPorLote); i++) {
+                cuerpo.append((i > desde) ? "," : "").append(json(filas[i]));
+            }
+            HttpResponse<String> respuesta = enviar("/api/v1/transacciones/lote", cuerpo.append(']').toString());
+            if (respuesta.statusCode() != 200) {
+                throw new IllegalStateException("El lote respondió " + respuesta.statusCode());
+            }
+        }
+        return System.nanoTime() - inicio;
+    }
+
+    private static long registrarUnaPorUna(CuentaService cuentaService, List<Transaccion> transacciones) {
+        long inicio = System.nanoTime();
+        for (Transaccion transaccion : transacciones) {
+            try {
+                cuentaService.registrarTransferencia(transaccion);
+            } catch (RuntimeException e) {
+                // Saldo insuficiente: la fila se rechaza, igual que en el lote
+            }
+        }
+        return System.nanoTime() - inicio;
+    }
+
+    private static long medirLote(CuentaService cuentaService, List<Transaccion> transacciones) {
+        long inicio = System.nanoTime();
+        List<ResultadoTransferencia> resultados = cuentaService.transferirLote(transacciones);
+        long nanos = System.nanoTime() - inicio;
+        if (resultados.size() != transacciones.size()) {
+            throw new IllegalStateException("El lote devolvió " + resultados.size() + " resultados");
+        }
+        return nanos;
+    }
+
+    private static double imprimir(String camino, int filas, long nanos) {
+        double porSegundo = filas / (nanos / 1e9);
+        System.out.printf("%-52s %10.2f %12.0f%n", camino, nanos / 1e9, porSegundo);
+        return porSegundo;
+    }
+
+    private HttpResponse<String> enviar(String ruta, String cuerpo) throws IOException, InterruptedException {
+        return cliente.send(HttpRequest.newBuilder(URI.create(base + ruta))
+                .header("Cookie", cookie)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void login(String username, String password) throws IOException, InterruptedException {
+        HttpResponse<Void> respuesta = cliente.send(HttpRequest.newBuilder(URI.create(base + "/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("username=" + URLEncoder.encode(username,
+                        StandardCharsets.UTF_8) + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8)))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        cookie = respuesta.headers().allValues("Set-Cookie").stream()
+                .filter(c -> c.startsWith("JSESSIONID="))
+                .map(c -> c.substring(0, c.indexOf(';') < 0 ? c.length() : c.indexOf(';')))
+                .findFirst().orElseThrow(() -> new IllegalStateException("No se pudo iniciar sesión"));
+    }
+}
@@ -0,0 +1,152 @@
+package com.tecno.web_sec.bench;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.persistence.RecuperacionWal;
+import com.tecno.web_sec.persistence.RegistroWal;
+import com.tecno.web_sec.persistence.Restaurable;
+import com.tecno.web_sec.persistence.SnapshotWal;
+import com.tecno.web_sec.persistence.WriteAheadLog;
+import com.tecno.web_sec.repository.CuentaRepository;
+import com.tecno.web_sec.service.impl.CuentaServiceImpl;
+import com.tecno.web_sec.service.impl.TransaccionServiceImpl;
+
+/**
+ * Tiempo de arranque con historial: recupera un snapshot con el 90 % de las
+ * transacciones más un log posterior con el 10 % restante (transferencias
+ * completas: saldos y transacción), con uno o varios hilos de recuperación.
+ *
+ * Con 10 millones de transacciones el estado en memoria ocupa varios GB; en
+ * máquinas pequeñas puede reducirse con
+ * {@code -p transacciones=1000000 -jvmArgsAppend -Xmx3g}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class RecuperacionBenchmark {
+
+    private static final int CUENTAS = 100_000;
+
+    @Param({ "10000000" })
+    private int transacciones;
+
+    @Param({ "1", "4" })
+    private int hilos;
+
+    private Path directorio;
+    private Banco recuperado;
+
+    @Setup(Level.Trial)
+    public void generar() throws IOException {
+        directorio = Files.createTempDirectory("recuperacion");
+        WriteAheadLog wal = new WriteAheadLog(true, directorio, false, 64L << 20);
+        wal.abrir();
+        Banco banco = new Banco(wal);
+
+        // Historial anterior al snapshot: se carga sin pasar por el log
+        SplittableRandom random = new SplittableRandom(42);
+        for (long id = 1; id <= CUENTAS; id++) {
+            banco.cuentas.restaurar(new RegistroWal.CuentaGuardada(id, "Cuenta " + id,
+                    new BigDecimal("1000000.00"), null));
+        }
+        int enSnapshot = transacciones / 10 * 9;
+        LocalDateTime fecha = LocalDateTime.of(2020, 1, 1, 0, 0);
+        for (long id = 1; id <= enSnapshot; id++) {
+            banco.transacciones.restaurar(new RegistroWal.TransaccionGuardada(id, new BigDecimal("1.00"),
+                    fecha.plusSeconds(id), random.nextLong(1, CUENTAS + 1L), random.nextLong(1, CUENTAS + 1L)));
+        }
+        banco.transacciones.completarRestauracion();
+        new SnapshotWal(wal, banco.almacenes(), false).tomar();
+
+        // Historial posterior: transferencias normales que quedan en el log
+        for (int i = enSnapshot; i < transacciones; i++) {
+            long origen = random.nextLong(1, CUENTAS + 1L);
+            long destino = random.nextLong(1, CUENTAS + 1L);
+            banco.cuentas.registrarTransferencia(new Transaccion(null, new BigDecimal("1.00"), null,
+                    new Cuenta(origen, null, null, null), new Cuenta(destino, null, null, null)));
+        }
+        wal.cerrar();
+        System.gc();
+    }
+
+    @Setup(Level.Invocation)
+    public void prepararInvocacion() {
+        recuperado = new Banco(WriteAheadLog.deshabilitado());
+    }
+
+    @TearDown(Level.Invocation)
+    public void liberarInvocacion() {
+        recuperado = null;
+        System.gc();
+    }
+
+    @Benchmark
+    public int recuperar() throws IOException {
+        WriteAheadLog wal = new WriteAheadLog(true, directorio, false, 64L << 20);
+        wal.abrir();
+        new RecuperacionWal(wal, recuperado.almacenes(), hilos).recuperar();
+        wal.cerrar();
+        return recuperado.transacciones.findAll().size();
+    }
+
+    @TearDown(Level.Trial)
+    public void borrar() throws IOException {
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            for (Path archivo : archivos.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(archivo);
+            }
+        }
+    }
+
+    /**
+     * Servicios de cuentas y transacciones conectados como en el contexto de
+     * Spring.
+     */
+    private static final class Banco {
+
+        final CuentaServiceImpl cuentas = new CuentaServiceImpl();
+        final TransaccionServiceImpl transacciones = new TransaccionServiceImpl();
+
+        Banco(WriteAheadLog wal) {
+            CuentaRepository repositorio = new CuentaRepository(); // Compartido, como en el contexto de Spring
+            ReflectionTestUtils.setField(cuentas, "cuentas", repositorio);
+            ReflectionTestUtils.setField(cuentas, "wal", wal);
+            ReflectionTestUtils.setField(cuentas, "transaccionService", transacciones);
+            ReflectionTestUtils.setField(transacciones, "wal", wal);
+            ReflectionTestUtils.setField(transacciones, "cuentas", repositorio);
+        }
+
+        List<Restaurable> almacenes() {
+            return List.of(cuentas, transacciones);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.tecno.web_sec.bench;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.models.Usuario;
+import com.tecno.web_sec.repository.CuentaRepository;
+import com.tecno.web_sec.service.impl.CuentaServiceImpl;
+import com.tecno.web_sec.service.impl.GeneradorDatos;
+import com.tecno.web_sec.service.impl.TransaccionServiceImpl;
+import com.tecno.web_sec.service.impl.UsuarioServiceImpl;
+
+/**
+ * Caminos críticos de la capa de servicios sobre un banco generado con
+ * {@link GeneradorDatos}: búsquedas de cuentas, usuarios y transacciones,
+ * depósitos, transferencias, altas de transacciones y el saldo de un usuario.
+ *
+ * El tamaño de los datos es un {@code @Param}; el número de hilos no puede
+ * serlo en JMH, así que {@link #main} repite la ejecución para cada valor de
+ * {@code -Dbench.hilos} (por defecto 1, 4 y 8) y agrega siempre el perfilador
+ * de GC, que reporta los bytes asignados por operación
+ * ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ServiciosBenchmark {
+
+    private static final BigDecimal MONTO = new BigDecimal("0.01");
+    private static final LocalDateTime HASTA = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Param({ "1000", "100000" })
+    private int usuarios;
+
+    // Transacciones históricas por usuario, repartidas entre todas las cuentas
+    @Param({ "10" })
+    private int transaccionesPorUsuario;
+
+    private UsuarioServiceImpl usuarioService;
+    private CuentaServiceImpl cuentaService;
+    private TransaccionServiceImpl transaccionService;
+    private Usuario[] generados;
+    private Cuenta[] cuentas;
+
+    @State(Scope.Thread)
+    public static class Hilo {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        CuentaRepository repositorio = new CuentaRepository(); // Compartido, como en el contexto de Spring
+        usuarioService = new UsuarioServiceImpl();
+        cuentaService = new CuentaServiceImpl();
+        transaccionService = new TransaccionServiceImpl();
+        ReflectionTestUtils.setField(usuarioService, "cuentas", repositorio);
+        ReflectionTestUtils.setField(usuarioService, "passwordEncoder", NoOpPasswordEncoder.getInstance());
+        usuarioService.init();
+        ReflectionTestUtils.setField(cuentaService, "cuentas", repositorio);
+        ReflectionTestUtils.setField(cuentaService, "usuarioService", usuarioService);
+        ReflectionTestUtils.setField(cuentaService, "transaccionService", transaccionService);
+        ReflectionTestUtils.setField(transaccionService, "cuentas", repositorio);
+
+        GeneradorDatos generador = new GeneradorDatos();
+        ReflectionTestUtils.setField(generador, "usuarioService", usuarioService);
+        ReflectionTestUtils.setField(generador, "cuentaService", cuentaService);
+        ReflectionTestUtils.setField(generador, "transaccionService", transaccionService);
+        generador.generar(new GeneradorDatos.Parametros(usuarios, 2, (long) usuarios * transaccionesPorUsuario,
+                42L, 0, HASTA.minusDays(365), HASTA));
+
+        List<Usuario> todos = usuarioService.findAll();
+        generados = todos.toArray(new Usuario[0]);
+        cuentas = cuentaService.findAll().toArray(new Cuenta[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        cuentaService.shutdown();
+    }
+
+    @Benchmark
+    public Cuenta cuentaFindById(Hilo hilo) {
+        return cuentaService.findById(cuenta(hilo).getId());
+    }
+
+    @Benchmark
+    public void cuentaDepositar(Hilo hilo) {
+        cuentaService.depositar(cuenta(hilo).getId(), MONTO);
+    }
+
+    @Benchmark
+    public void cuentaTransferir(Hilo hilo) {
+        try {
+            cuentaService.transferir(cuenta(hilo).getId(), cuenta(hilo).getId(), MONTO);
+        } catch (RuntimeException e) {
+            // Saldo insuficiente o la misma cuenta
+        }
+    }
+
+    @Benchmark
+    public List<Transaccion> transaccionFindByCuentaId(Hilo hilo) {
+        return transaccionService.findByCuentaId(cuenta(hilo).getId());
+    }
+
+    @Benchmark
+    public void transaccionAdd(Hilo hilo) {
+        transaccionService.addTransaccion(new Transaccion(null, MONTO, null, cuenta(hilo), cuenta(hilo)));
+    }
+
+    @Benchmark
+    public Usuario usuarioFindByUsername(Hilo hilo) {
+        return usuarioService.findByUsername(usuario(hilo).getUsername());
+    }
+
+    @Benchmark
+    public BigDecimal usuarioGetSaldo(Hilo hilo) {
+        return usuario(hilo).getSaldo();
+    }
+
+    private Cuenta cuenta(Hilo hilo) {
+        return cuentas[hilo.random.nextInt(cuentas.length)];
+    }
+
+    private Usuario usuario(Hilo hilo) {
+        return generados[hilo.random.nextInt(generados.length)];
+    }
+
+    /**
+     * Ejecuta el benchmark una vez por cada número de hilos de
+     * {@code -Dbench.hilos}, con el perfilador de GC. Acepta las demás
+     * opciones de la línea de comandos de JMH.
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions opciones = new CommandLineOptions(args);
+        for (String hilos : System.getProperty("bench.hilos", "1,4,8").split(",")) {
+            ChainedOptionsBuilder builder = new OptionsBuilder()
+                    .parent(opciones)
+                    .threads(Integer.parseInt(hilos.trim()))
+                    .addProfiler(GCProfiler.class);
+            if (opciones.getIncludes().isEmpty()) {
+                builder.include(ServiciosBenchmark.class.getSimpleName());
+            }
+            new Runner(builder.build()).run();
+        }
+    }
+}
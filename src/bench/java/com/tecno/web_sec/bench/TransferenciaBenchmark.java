@@ -0,0 +1,93 @@
+package com.tecno.web_sec.bench;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.service.impl.CuentaServiceImpl;
+
+/**
+ * Throughput de {@link CuentaServiceImpl#transferir} con varios hilos
+ * transfiriendo entre cuentas aleatorias, en modo directo (candados por
+ * cuenta) y con el ledger secuenciado. Al terminar cada iteración verifica
+ * que el dinero total del banco no haya cambiado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class TransferenciaBenchmark {
+
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("1000000.00");
+    private static final BigDecimal MONTO = new BigDecimal("1.00");
+
+    @Param({ "16", "10000" })
+    private int cuentas;
+
+    @Param({ "directo", "ledger" })
+    private String modo;
+
+    private CuentaServiceImpl cuentaService;
+    private BigDecimal totalInicial;
+
+    @State(Scope.Thread)
+    public static class Hilo {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        cuentaService = new CuentaServiceImpl();
+        if ("ledger".equals(modo)) {
+            ReflectionTestUtils.setField(cuentaService, "ledgerSecuenciado", true);
+            ReflectionTestUtils.setField(cuentaService, "ledgerParticiones", 1);
+            ReflectionTestUtils.setField(cuentaService, "ledgerCapacidad", 65536);
+            cuentaService.init();
+        }
+        for (long id = 101; id <= 100 + cuentas; id++) {
+            cuentaService.addCuenta(new Cuenta(id, "Cuenta " + id, SALDO_INICIAL, null));
+        }
+        totalInicial = total();
+    }
+
+    @TearDown(Level.Iteration)
+    public void verificarTotal() {
+        cuentaService.shutdown();
+        BigDecimal totalFinal = total();
+        if (totalFinal.compareTo(totalInicial) != 0) {
+            throw new IllegalStateException("El total del banco cambió: " + totalInicial + " -> " + totalFinal);
+        }
+    }
+
+    @Benchmark
+    public void transferir(Hilo hilo) {
+        long origen = hilo.random.nextLong(101, 101L + cuentas);
+        long destino = hilo.random.nextLong(101, 101L + cuentas);
+        try {
+            cuentaService.transferir(origen, destino, MONTO);
+        } catch (RuntimeException e) {
+            // Saldo insuficiente
+        }
+    }
+
+    private BigDecimal total() {
+        return cuentaService.findAll().stream()
+                .map(Cuenta::getSaldo)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
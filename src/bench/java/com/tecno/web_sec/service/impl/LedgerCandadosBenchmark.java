@@ -0,0 +1,88 @@
+package com.tecno.web_sec.service.impl;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tecno.web_sec.models.Cuenta;
+
+/**
+ * Costo de los candados de {@link CuentaLocks} en el hilo escritor del ledger
+ * secuenciado. Con un solo hilo, como el escritor, compara mover el saldo
+ * entre dos cuentas con y sin tomar sus franjas, y lo pone al lado de una
+ * transferencia completa por el ledger (publicar, aplicar y esperar el
+ * resultado). Vive en el paquete de los servicios porque
+ * {@link CuentaLocks} no es público.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LedgerCandadosBenchmark {
+
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("1000000.00");
+
+    @Param({ "16", "10000" })
+    private int cuentas;
+
+    private final CuentaLocks locks = new CuentaLocks(1024);
+    private final SplittableRandom random = new SplittableRandom(42);
+    private Cuenta[] saldos;
+    private CuentaServiceImpl cuentaService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        saldos = new Cuenta[cuentas];
+        cuentaService = new CuentaServiceImpl();
+        ReflectionTestUtils.setField(cuentaService, "ledgerSecuenciado", true);
+        cuentaService.init();
+        for (int i = 0; i < cuentas; i++) {
+            saldos[i] = new Cuenta(101L + i, "Cuenta " + i, SALDO_INICIAL, null);
+            cuentaService.addCuenta(new Cuenta(101L + i, "Cuenta " + i, SALDO_INICIAL, null));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() {
+        cuentaService.shutdown();
+    }
+
+    @Benchmark
+    public long sinCandados() {
+        return mover(random.nextInt(cuentas), random.nextInt(cuentas));
+    }
+
+    @Benchmark
+    public long conCandados() {
+        int origen = random.nextInt(cuentas);
+        int destino = random.nextInt(cuentas);
+        ReentrantLock[] candados = locks.lock(101L + origen, 101L + destino);
+        try {
+            return mover(origen, destino);
+        } finally {
+            CuentaLocks.unlock(candados);
+        }
+    }
+
+    @Benchmark
+    public void transferenciaPorElLedger() {
+        cuentaService.transferir(101L + random.nextInt(cuentas), 101L + random.nextInt(cuentas), BigDecimal.ONE);
+    }
+
+    private long mover(int origen, int destino) {
+        saldos[origen].retirar(1L);
+        return saldos[destino].depositar(1L);
+    }
+}
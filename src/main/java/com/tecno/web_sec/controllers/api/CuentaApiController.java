@@ -0,0 +1,118 @@
+package com.tecno.web_sec.controllers.api;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.tecno.web_sec.controllers.api.dto.CuentaDto;
+import com.tecno.web_sec.controllers.api.dto.PaginaDto;
+import com.tecno.web_sec.controllers.api.dto.TransaccionDto;
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.CursorTransaccion;
+import com.tecno.web_sec.security.UsuarioAutenticado;
+import com.tecno.web_sec.service.CuentaService;
+import com.tecno.web_sec.service.TransaccionService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * API JSON de las cuentas: las del usuario autenticado, el detalle y el
+ * historial de una cuenta, y el listado completo para administradores.
+ */
+@RestController
+@RequestMapping("/api/v1/cuentas")
+public class CuentaApiController {
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    /**
+     * Lista las cuentas del usuario autenticado, como {@code GET /consultas}.
+     *
+     * @param usuario el usuario autenticado
+     * @return sus cuentas
+     */
+    @GetMapping
+    public List<CuentaDto> findPropias(UsuarioAutenticado usuario) {
+        return cuentaService.findByUsuarioId(usuario.getUsuarioId()).stream().map(CuentaDto::de).toList();
+    }
+
+    /**
+     * Lista todas las cuentas del banco en orden de ID. Solo para
+     * administradores (ver {@code SecurityConfig}).
+     *
+     * @param despues ID de la última cuenta de la página anterior
+     * @param tamano  número de cuentas por página
+     * @return la página de cuentas
+     */
+    @GetMapping("/todas")
+    public PaginaDto<CuentaDto> findAll(@RequestParam(value = "despues", required = false) Long despues,
+            @RequestParam(value = "tamano", defaultValue = "" + PaginaDto.TAMANO_PAGINA) int tamano) {
+        int limite = PaginaDto.tamano(tamano);
+        return PaginaDto.de(cuentaService.findPagina(despues, limite + 1), limite, CuentaDto::de,
+                cuenta -> cuenta.getId().toString());
+    }
+
+    /**
+     * Muestra una cuenta del usuario autenticado; un administrador puede ver
+     * cualquiera.
+     *
+     * @param id      el ID de la cuenta
+     * @param usuario el usuario autenticado
+     * @param request la petición, para consultar el rol
+     * @return la cuenta
+     */
+    @GetMapping("/{id}")
+    public CuentaDto findById(@PathVariable("id") Long id, UsuarioAutenticado usuario, HttpServletRequest request) {
+        return CuentaDto.de(cuenta(id, usuario, request));
+    }
+
+    /**
+     * Una página del historial de una cuenta, de la transacción más reciente a
+     * la más antigua.
+     *
+     * @param id      el ID de la cuenta
+     * @param despues cursor de la última transacción de la página anterior
+     * @param tamano  número de transacciones por página
+     * @param usuario el usuario autenticado
+     * @param request la petición, para consultar el rol
+     * @return la página de transacciones
+     */
+    @GetMapping("/{id}/transacciones")
+    public PaginaDto<TransaccionDto> findTransacciones(@PathVariable("id") Long id,
+            @RequestParam(value = "despues", required = false) String despues,
+            @RequestParam(value = "tamano", defaultValue = "" + PaginaDto.TAMANO_PAGINA) int tamano,
+            UsuarioAutenticado usuario, HttpServletRequest request) {
+        Cuenta cuenta = cuenta(id, usuario, request);
+        return TransaccionDto.pagina(transaccionService.findPageByCuentaId(cuenta.getId(),
+                CursorTransaccion.parse(despues), PaginaDto.tamano(tamano)));
+    }
+
+    /**
+     * Busca la cuenta verificando el propietario, salvo para administradores.
+     *
+     * @throws ResponseStatusException 404 si la cuenta no existe
+     */
+    private Cuenta cuenta(Long id, UsuarioAutenticado usuario, HttpServletRequest request) {
+        if (request.isUserInRole("ADMIN")) {
+            try {
+                return cuentaService.findById(id);
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Cuenta no encontrada");
+            }
+        }
+        // AccessDeniedException (403) si existe y es de otro usuario
+        return cuentaService.findByIdForUsuario(id, usuario.getUsuarioId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cuenta no encontrada"));
+    }
+}
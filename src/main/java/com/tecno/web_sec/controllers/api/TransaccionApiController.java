@@ -0,0 +1,198 @@
+package com.tecno.web_sec.controllers.api;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.tecno.web_sec.controllers.api.dto.PaginaDto;
+import com.tecno.web_sec.controllers.api.dto.ResultadoLoteDto;
+import com.tecno.web_sec.controllers.api.dto.TransaccionDto;
+import com.tecno.web_sec.controllers.api.dto.TransferenciaDto;
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.CursorTransaccion;
+import com.tecno.web_sec.models.ResultadoTransferencia;
+import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.security.UsuarioAutenticado;
+import com.tecno.web_sec.service.CuentaService;
+import com.tecno.web_sec.service.TransaccionService;
+import com.tecno.web_sec.service.TransferenciaRechazadaException;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * API JSON de las transacciones del usuario autenticado: el historial
+ * combinado de sus cuentas, el detalle y las transferencias nuevas.
+ */
+@RestController
+@RequestMapping("/api/v1/transacciones")
+public class TransaccionApiController {
+
+    static final int FILAS_MAXIMAS_LOTE = 100_000; // Límite de filas de un lote
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    /**
+     * Una página del historial de las cuentas del usuario, como
+     * {@code GET /transacciones}.
+     *
+     * @param despues cursor de la última transacción de la página anterior
+     * @param tamano  número de transacciones por página
+     * @param usuario el usuario autenticado, con sus cuentas
+     * @return la página de transacciones
+     */
+    @GetMapping
+    public PaginaDto<TransaccionDto> findAll(@RequestParam(value = "despues", required = false) String despues,
+            @RequestParam(value = "tamano", defaultValue = "" + PaginaDto.TAMANO_PAGINA) int tamano,
+            UsuarioAutenticado usuario) {
+        return TransaccionDto.pagina(transaccionService.findPageByCuentaIds(usuario.getCuentaIds(),
+                CursorTransaccion.parse(despues), PaginaDto.tamano(tamano)));
+    }
+
+    /**
+     * Muestra una transacción en la que participa una cuenta del usuario; un
+     * administrador puede ver cualquiera.
+     *
+     * @param id      el ID de la transacción
+     * @param usuario el usuario autenticado, con sus cuentas
+     * @param request la petición, para consultar el rol
+     * @return la transacción
+     */
+    @GetMapping("/{id}")
+    public TransaccionDto findById(@PathVariable("id") Long id, UsuarioAutenticado usuario,
+            HttpServletRequest request) {
+        Transaccion transaccion;
+        try {
+            transaccion = transaccionService.findById(id);
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Transacción no encontrada");
+        }
+        if (!request.isUserInRole("ADMIN") && !participa(usuario, transaccion.getCuentaOrigen())
+                && !participa(usuario, transaccion.getCuentaDestino())) {
+            throw new AccessDeniedException("La transacción no pertenece al usuario");
+        }
+        return TransaccionDto.de(transaccion);
+    }
+
+    /**
+     * Transfiere desde una cuenta del usuario, con las mismas validaciones que
+     * el formulario de {@code POST /transacciones}.
+     *
+     * @param transferencia las cuentas y el monto
+     * @param usuario       el usuario autenticado, con sus cuentas
+     * @param request       la petición, para consultar el rol
+     * @return 201 con la transacción registrada
+     */
+    @PostMapping
+    public ResponseEntity<TransaccionDto> transferir(@RequestBody TransferenciaDto transferencia,
+            UsuarioAutenticado usuario, HttpServletRequest request) {
+        if (transferencia.cuentaOrigenId() == null || transferencia.cuentaDestinoId() == null) {
+            throw new IllegalArgumentException("Ambas cuentas deben ser seleccionadas.");
+        }
+        if (transferencia.monto() == null || transferencia.monto().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("El monto debe ser un número positivo.");
+        }
+        if (!request.isUserInRole("ADMIN")) {
+            // 403 si la cuenta de origen es de otro usuario, 404 si no existe
+            cuentaService.findByIdForUsuario(transferencia.cuentaOrigenId(), usuario.getUsuarioId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cuenta not found"));
+        }
+
+        Transaccion registrada;
+        try {
+            registrada = cuentaService.registrarTransferencia(new Transaccion(null, transferencia.monto(), null,
+                    new Cuenta(transferencia.cuentaOrigenId(), null, null, null),
+                    new Cuenta(transferencia.cuentaDestinoId(), null, null, null)));
+        } catch (TransferenciaRechazadaException | IllegalArgumentException e) {
+            // Saldo insuficiente, cuenta inexistente o monto inválido: la transferencia no se aplicó.
+            // Las fallas del log o del ledger siguen como 5xx: el movimiento pudo aplicarse y
+            // FiltroIdempotencia no guarda esas respuestas
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage());
+        }
+        return ResponseEntity.created(URI.create("/api/v1/transacciones/" + registrada.getId()))
+                .body(TransaccionDto.de(registrada));
+    }
+
+    /**
+     * Aplica un lote de transferencias en orden. Cada fila se valida y se
+     * aplica por separado: las rechazadas no impiden las demás. Sin el rol
+     * administrador, se rechazan las filas cuya cuenta de origen no es del
+     * usuario según el índice de propietarios, igual que en
+     * {@link #transferir}.
+     *
+     * @param transferencias las filas, a lo sumo {@link #FILAS_MAXIMAS_LOTE}
+     * @param usuario        el usuario autenticado, con sus cuentas
+     * @param request        la petición, para consultar el rol
+     * @return el resultado de cada fila, en el mismo orden
+     */
+    @PostMapping("/lote")
+    public ResultadoLoteDto transferirLote(@RequestBody List<TransferenciaDto> transferencias,
+            UsuarioAutenticado usuario, HttpServletRequest request) {
+        if (transferencias.size() > FILAS_MAXIMAS_LOTE) {
+            throw new IllegalArgumentException("El lote no puede tener más de " + FILAS_MAXIMAS_LOTE + " filas.");
+        }
+        boolean admin = request.isUserInRole("ADMIN");
+        List<Transaccion> validas = new ArrayList<>(transferencias.size());
+        ResultadoTransferencia[] resultados = new ResultadoTransferencia[transferencias.size()];
+        for (int i = 0; i < resultados.length; i++) {
+            TransferenciaDto transferencia = transferencias.get(i);
+            if (transferencia == null || transferencia.cuentaOrigenId() == null
+                    || transferencia.cuentaDestinoId() == null) {
+                resultados[i] = ResultadoTransferencia.rechazada("Ambas cuentas deben ser seleccionadas.");
+            } else if (!admin) {
+                resultados[i] = titular(transferencia.cuentaOrigenId(), usuario);
+            }
+            if (resultados[i] == null) {
+                validas.add(new Transaccion(null, transferencia.monto(), null,
+                        new Cuenta(transferencia.cuentaOrigenId(), null, null, null),
+                        new Cuenta(transferencia.cuentaDestinoId(), null, null, null)));
+            }
+        }
+
+        // El servicio valida los montos y aplica las filas restantes en orden
+        List<ResultadoTransferencia> aplicadas = cuentaService.transferirLote(validas);
+        int siguiente = 0;
+        for (int i = 0; i < resultados.length; i++) {
+            if (resultados[i] == null) {
+                resultados[i] = aplicadas.get(siguiente++);
+            }
+        }
+        return ResultadoLoteDto.de(List.of(resultados));
+    }
+
+    /**
+     * @return el rechazo de la fila si la cuenta no existe o es de otro
+     *         usuario, o {@code null} si es del usuario
+     */
+    private ResultadoTransferencia titular(Long cuentaId, UsuarioAutenticado usuario) {
+        try {
+            if (cuentaService.findByIdForUsuario(cuentaId, usuario.getUsuarioId()).isEmpty()) {
+                return ResultadoTransferencia.rechazada("Cuenta not found");
+            }
+        } catch (AccessDeniedException e) {
+            return ResultadoTransferencia.rechazada(e.getMessage());
+        }
+        return null;
+    }
+
+    private static boolean participa(UsuarioAutenticado usuario, Cuenta cuenta) {
+        return cuenta != null && usuario.esTitularDe(cuenta.getId());
+    }
+}
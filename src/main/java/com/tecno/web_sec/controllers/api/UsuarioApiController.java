@@ -0,0 +1,83 @@
+package com.tecno.web_sec.controllers.api;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.tecno.web_sec.controllers.api.dto.PaginaDto;
+import com.tecno.web_sec.controllers.api.dto.UsuarioDto;
+import com.tecno.web_sec.models.Usuario;
+import com.tecno.web_sec.security.UsuarioAutenticado;
+import com.tecno.web_sec.service.CuentaService;
+import com.tecno.web_sec.service.UsuarioService;
+
+/**
+ * API JSON de los usuarios: el usuario autenticado y, para administradores,
+ * el listado y el detalle de cualquiera (ver {@code SecurityConfig}).
+ */
+@RestController
+@RequestMapping("/api/v1/usuarios")
+public class UsuarioApiController {
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    /**
+     * Muestra el usuario autenticado con sus cuentas y su saldo total.
+     *
+     * @param usuario el usuario autenticado
+     * @return el usuario
+     */
+    @GetMapping("/yo")
+    public UsuarioDto findActual(UsuarioAutenticado usuario) {
+        return dto(usuario(usuario.getUsuarioId()));
+    }
+
+    /**
+     * Lista los usuarios en orden de ID.
+     *
+     * @param despues ID del último usuario de la página anterior
+     * @param tamano  número de usuarios por página
+     * @return la página de usuarios
+     */
+    @GetMapping
+    public PaginaDto<UsuarioDto> findAll(@RequestParam(value = "despues", required = false) Long despues,
+            @RequestParam(value = "tamano", defaultValue = "" + PaginaDto.TAMANO_PAGINA) int tamano) {
+        int limite = PaginaDto.tamano(tamano);
+        return PaginaDto.de(usuarioService.findPagina(despues, limite + 1), limite, this::dto,
+                usuario -> usuario.getId().toString());
+    }
+
+    /**
+     * Muestra un usuario con sus cuentas.
+     *
+     * @param id el ID del usuario
+     * @return el usuario
+     */
+    @GetMapping("/{id}")
+    public UsuarioDto findById(@PathVariable("id") Long id) {
+        return dto(usuario(id));
+    }
+
+    private Usuario usuario(Long id) {
+        try {
+            return usuarioService.findById(id);
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuario no encontrado");
+        }
+    }
+
+    private UsuarioDto dto(Usuario usuario) {
+        return UsuarioDto.de(usuario, cuentaService.findByUsuarioId(usuario.getId()));
+    }
+}
@@ -0,0 +1,22 @@
+package com.tecno.web_sec.controllers.api.dto;
+
+import java.math.BigDecimal;
+
+import com.tecno.web_sec.models.Cuenta;
+
+/**
+ * Cuenta en las respuestas de la API. El propietario va solo por ID, así que
+ * no hay referencias cíclicas entre usuarios y cuentas.
+ *
+ * @param id        el ID de la cuenta
+ * @param nombre    el nombre de la cuenta
+ * @param saldo     el saldo actual
+ * @param usuarioId el ID del propietario, o {@code null} si no tiene
+ */
+public record CuentaDto(Long id, String nombre, BigDecimal saldo, Long usuarioId) {
+
+    public static CuentaDto de(Cuenta cuenta) {
+        return new CuentaDto(cuenta.getId(), cuenta.getNombre(), cuenta.getSaldo(),
+                (cuenta.getUsuario() != null) ? cuenta.getUsuario().getId() : null);
+    }
+}
@@ -0,0 +1,47 @@
+package com.tecno.web_sec.controllers.api.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Una página de resultados. Para pedir la siguiente se pasa {@code siguiente}
+ * como parámetro {@code despues}; es {@code null} en la última página.
+ *
+ * @param <T>       el tipo de los elementos
+ * @param elementos los elementos de la página
+ * @param siguiente cursor de la siguiente página, o {@code null}
+ */
+public record PaginaDto<T>(List<T> elementos, String siguiente) {
+
+    public static final int TAMANO_PAGINA = 20; // Elementos por página por defecto
+    public static final int TAMANO_MAXIMO = 100; // Límite de elementos por página
+
+    /**
+     * Ajusta el tamaño pedido por el cliente al rango permitido.
+     *
+     * @param tamano el tamaño pedido
+     * @return un tamaño entre 1 y {@link #TAMANO_MAXIMO}
+     */
+    public static int tamano(int tamano) {
+        return Math.max(1, Math.min(tamano, TAMANO_MAXIMO));
+    }
+
+    /**
+     * Arma una página a partir de hasta {@code tamano + 1} elementos ordenados:
+     * si sobra uno, hay página siguiente y su cursor es el del último elemento
+     * incluido.
+     *
+     * @param elementos los elementos leídos, a lo sumo {@code tamano + 1}
+     * @param tamano    el tamaño de la página
+     * @param dto       conversión de cada elemento
+     * @param cursor    cursor de un elemento
+     * @return la página
+     */
+    public static <E, T> PaginaDto<T> de(List<E> elementos, int tamano, Function<E, T> dto,
+            Function<E, String> cursor) {
+        boolean hayMas = elementos.size() > tamano;
+        List<E> pagina = hayMas ? elementos.subList(0, tamano) : elementos;
+        return new PaginaDto<>(pagina.stream().map(dto).toList(),
+                hayMas ? cursor.apply(pagina.get(tamano - 1)) : null);
+    }
+}
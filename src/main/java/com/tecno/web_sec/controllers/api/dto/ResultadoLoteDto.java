@@ -0,0 +1,41 @@
+package com.tecno.web_sec.controllers.api.dto;
+
+import java.util.List;
+
+import com.tecno.web_sec.models.ResultadoTransferencia;
+
+/**
+ * Respuesta de {@code POST /api/v1/transacciones/lote}: un resultado por fila,
+ * en el orden del cuerpo.
+ *
+ * @param aplicadas  número de filas aplicadas
+ * @param rechazadas número de filas rechazadas
+ * @param filas      el resultado de cada fila
+ */
+public record ResultadoLoteDto(int aplicadas, int rechazadas, List<Fila> filas) {
+
+    /**
+     * Resultado de una fila: el ID de la transacción registrada o el motivo del
+     * rechazo.
+     *
+     * @param transaccionId el ID de la transacción, o {@code null}
+     * @param error         el motivo del rechazo, o {@code null}
+     */
+    public record Fila(Long transaccionId, String error) {
+    }
+
+    public static ResultadoLoteDto de(List<ResultadoTransferencia> resultados) {
+        int aplicadas = 0;
+        Fila[] filas = new Fila[resultados.size()];
+        for (int i = 0; i < filas.length; i++) {
+            ResultadoTransferencia resultado = resultados.get(i);
+            if (resultado.isAplicada()) {
+                aplicadas++;
+                filas[i] = new Fila(resultado.transaccion().getId(), null);
+            } else {
+                filas[i] = new Fila(null, resultado.error());
+            }
+        }
+        return new ResultadoLoteDto(aplicadas, filas.length - aplicadas, List.of(filas));
+    }
+}
@@ -0,0 +1,35 @@
+package com.tecno.web_sec.controllers.api.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.tecno.web_sec.models.PaginaTransacciones;
+import com.tecno.web_sec.models.Transaccion;
+
+/**
+ * Transacción en las respuestas de la API, con las cuentas solo por ID.
+ *
+ * @param id              el ID de la transacción
+ * @param monto           el monto transferido
+ * @param fecha           la fecha y hora de la transacción
+ * @param cuentaOrigenId  el ID de la cuenta de origen
+ * @param cuentaDestinoId el ID de la cuenta de destino
+ */
+public record TransaccionDto(Long id, BigDecimal monto, LocalDateTime fecha, Long cuentaOrigenId,
+        Long cuentaDestinoId) {
+
+    public static TransaccionDto de(Transaccion transaccion) {
+        return new TransaccionDto(transaccion.getId(), transaccion.getMonto(), transaccion.getFecha(),
+                (transaccion.getCuentaOrigen() != null) ? transaccion.getCuentaOrigen().getId() : null,
+                (transaccion.getCuentaDestino() != null) ? transaccion.getCuentaDestino().getId() : null);
+    }
+
+    /**
+     * Convierte una página del servicio; el cursor es el mismo que usan los
+     * enlaces de las páginas HTML.
+     */
+    public static PaginaDto<TransaccionDto> pagina(PaginaTransacciones pagina) {
+        return new PaginaDto<>(pagina.transacciones().stream().map(TransaccionDto::de).toList(),
+                (pagina.siguiente() != null) ? pagina.siguiente().toString() : null);
+    }
+}
@@ -0,0 +1,13 @@
+package com.tecno.web_sec.controllers.api.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Cuerpo de {@code POST /api/v1/transacciones}.
+ *
+ * @param cuentaOrigenId  el ID de la cuenta de origen, del usuario autenticado
+ * @param cuentaDestinoId el ID de la cuenta de destino
+ * @param monto           el monto a transferir, positivo
+ */
+public record TransferenciaDto(Long cuentaOrigenId, Long cuentaDestinoId, BigDecimal monto) {
+}
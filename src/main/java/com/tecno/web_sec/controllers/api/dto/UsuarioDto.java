@@ -0,0 +1,25 @@
+package com.tecno.web_sec.controllers.api.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Usuario;
+
+/**
+ * Usuario en las respuestas de la API, sin la contraseña y con sus cuentas
+ * como {@link CuentaDto}.
+ *
+ * @param id         el ID del usuario
+ * @param username   el nombre de usuario
+ * @param role       el rol del usuario
+ * @param saldoTotal la suma de los saldos de sus cuentas
+ * @param cuentas    sus cuentas
+ */
+public record UsuarioDto(Long id, String username, String role, BigDecimal saldoTotal, List<CuentaDto> cuentas) {
+
+    public static UsuarioDto de(Usuario usuario, List<Cuenta> cuentas) {
+        return new UsuarioDto(usuario.getId(), usuario.getUsername(), usuario.getRole(), usuario.getSaldo(),
+                cuentas.stream().map(CuentaDto::de).toList());
+    }
+}
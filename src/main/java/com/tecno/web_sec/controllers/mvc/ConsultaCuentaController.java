@@ -4,8 +4,7 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,9 +12,8 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 
 import com.tecno.web_sec.models.Cuenta;
-import com.tecno.web_sec.models.Usuario;
+import com.tecno.web_sec.security.UsuarioAutenticado;
 import com.tecno.web_sec.service.CuentaService;
-import com.tecno.web_sec.service.UsuarioService;
 
 /**
  * Controlador para consultar cuentas de usuario.
@@ -30,13 +28,11 @@ public class ConsultaCuentaController {
     @Autowired
     private CuentaService cuentaService; // Servicio para manejar las operaciones de la entidad Cuenta.
 
-    @Autowired
-    private UsuarioService usuarioService; // Servicio para manejar las operaciones de la entidad Usuario.
-
     /**
      * Lista todas las cuentas asociadas al usuario autenticado.
      *
-     * @param model Objeto Model que se utiliza para añadir atributos a la vista.
+     * @param model   Objeto Model que se utiliza para añadir atributos a la vista.
+     * @param usuario Usuario autenticado, con los IDs de sus cuentas.
      * @return El nombre de la vista que muestra la lista de cuentas.
      *         El Model es una interfaz en
      *         Spring MVC que actúa como un c
@@ -47,17 +43,10 @@ public class ConsultaCuentaController {
      *         datos a la vista sin acoplamiento directo.
      */
     @GetMapping
-    public String listCuentas(Model model) {
-        // Obtiene la autenticación actual del usuario.
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName(); // Obtiene el nombre de usuario autenticado.
-        Usuario usuario = usuarioService.findByUsername(username); // Busca al usuario por su nombre de usuario.
-
-        // Filtra las cuentas para obtener solo aquellas que pertenecen al usuario
-        // autenticado.
-        List<Cuenta> cuentas = cuentaService.findAll().stream()
-                .filter(cuenta -> cuenta.getUsuario().getId().equals(usuario.getId()))
-                .toList();
+    public String listCuentas(Model model, UsuarioAutenticado usuario) {
+        // Busca solo las cuentas que pertenecen al usuario autenticado, en el
+        // índice por propietario.
+        List<Cuenta> cuentas = cuentaService.findByUsuarioId(usuario.getUsuarioId());
 
         model.addAttribute("cuentas", cuentas); // Añade la lista de cuentas al modelo.
         return "user/consultarcuenta/listar-cuentas"; // Devuelve el nombre de la vista.
@@ -66,32 +55,27 @@ public class ConsultaCuentaController {
     /**
      * Muestra los detalles de una cuenta específica.
      *
-     * @param id    Identificador de la cuenta a mostrar.
-     * @param model Objeto Model para añadir atributos a la vista.
+     * @param id      Identificador de la cuenta a mostrar.
+     * @param model   Objeto Model para añadir atributos a la vista.
+     * @param usuario Usuario autenticado, con los IDs de sus cuentas.
      * @return El nombre de la vista de detalle de la cuenta o un mensaje de error.
      */
     @GetMapping("/{id}")
-    public String viewCuenta(@PathVariable("id") Long id, Model model) {
-        // Obtiene la autenticación actual del usuario.
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName(); // Obtiene el nombre de usuario autenticado.
-        Usuario usuario = usuarioService.findByUsername(username); // Busca al usuario por su nombre de usuario.
-
-        // Busca la cuenta con el ID especificado.
-        Optional<Cuenta> optionalCuenta = cuentaService.findAll().stream()
-                .filter(cuenta -> cuenta.getId().equals(id)) // Filtra por ID de la cuenta.
-                .findFirst();
+    public String viewCuenta(@PathVariable("id") Long id, Model model, UsuarioAutenticado usuario) {
+        // Busca la cuenta con el ID especificado, verificando que pertenezca al
+        // usuario autenticado.
+        Optional<Cuenta> optionalCuenta;
+        try {
+            optionalCuenta = cuentaService.findByIdForUsuario(id, usuario.getUsuarioId());
+        } catch (AccessDeniedException e) {
+            return "error/access-denied"; // Si el usuario no es el propietario de la cuenta, muestra acceso
+                                          // denegado.
+        }
 
-        // Si se encuentra la cuenta y pertenece al usuario autenticado:
+        // Si se encuentra la cuenta:
         if (optionalCuenta.isPresent()) {
-            Cuenta cuenta = optionalCuenta.get();
-            if (cuenta.getUsuario().getId().equals(usuario.getId())) {
-                model.addAttribute("cuenta", cuenta); // Añade la cuenta al modelo.
-                return "user/consultarcuenta/detalle-cuenta"; // Devuelve la vista de detalle.
-            } else {
-                return "error/access-denied"; // Si el usuario no es el propietario de la cuenta, muestra acceso
-                                              // denegado.
-            }
+            model.addAttribute("cuenta", optionalCuenta.get()); // Añade la cuenta al modelo.
+            return "user/consultarcuenta/detalle-cuenta"; // Devuelve la vista de detalle.
         } else {
             return "error/cuenta-not-found"; // Si la cuenta no se encuentra, muestra error de cuenta no encontrada.
         }
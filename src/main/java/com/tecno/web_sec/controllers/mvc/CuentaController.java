@@ -1,9 +1,24 @@
 package com.tecno.web_sec.controllers.mvc;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,13 +27,19 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.CursorTransaccion;
+import com.tecno.web_sec.models.PaginaTransacciones;
 import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.security.UsuarioAutenticado;
 import com.tecno.web_sec.service.CuentaService;
 import com.tecno.web_sec.service.TransaccionService;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 /**
  * Controlador para gestionar las cuentas de usuario.
  */
@@ -26,6 +47,9 @@ import com.tecno.web_sec.service.TransaccionService;
 @RequestMapping("/cuentas")
 public class CuentaController {
 
+    private static final int BUFFER_EXPORTACION = 64 * 1024; // Buffer del texto y del compresor
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
     @Autowired
     private CuentaService cuentaService;
 
@@ -46,21 +70,127 @@ public class CuentaController {
     }
 
     /**
-     * Muestra los detalles de una cuenta específica.
+     * Muestra los detalles de una cuenta específica y una página de sus
+     * transacciones, de la más reciente a la más antigua.
      *
-     * @param id    Identificador de la cuenta.
-     * @param model Modelo para añadir atributos.
+     * @param id     Identificador de la cuenta.
+     * @param cursor Cursor de la última transacción de la página anterior.
+     * @param tamano Número de transacciones por página.
+     * @param model  Modelo para añadir atributos.
      * @return Nombre de la vista de detalle de cuenta.
      */
     @GetMapping("/{id}")
-    public String findById(@PathVariable("id") Long id, Model model) {
+    public String findById(@PathVariable("id") Long id,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "tamano", defaultValue = "" + TransaccionController.TAMANO_PAGINA) int tamano,
+            Model model) {
+        tamano = TransaccionController.tamano(tamano); // El enlace a la página siguiente lleva el tamaño usado
         Cuenta cuenta = cuentaService.findById(id);
-        List<Transaccion> transacciones = transaccionService.findByCuentaId(id);
+        PaginaTransacciones pagina = transaccionService.findPageByCuentaId(id, CursorTransaccion.parse(cursor), tamano);
         model.addAttribute("cuenta", cuenta);
-        model.addAttribute("transacciones", transacciones);
+        model.addAttribute("transacciones", pagina.transacciones());
+        model.addAttribute("siguiente", pagina.siguiente());
+        model.addAttribute("tamano", tamano);
         return "admin/cuenta/detalle-cuenta";
     }
 
+    /**
+     * Exporta el historial de una cuenta en orden cronológico, comprimido con
+     * gzip. Las filas se escriben a medida que se leen del almacén, así que la
+     * memoria usada no depende del largo del historial. Solo el titular o un
+     * administrador pueden exportarla.
+     *
+     * @param id      Identificador de la cuenta.
+     * @param formato {@code csv} (por defecto) o {@code ndjson}.
+     * @param desde   Inicio del intervalo, inclusive; sin límite si falta.
+     * @param hasta   Fin del intervalo, inclusive; sin límite si falta.
+     * @param usuario Usuario autenticado.
+     * @param request Petición, para consultar el rol.
+     * @return El archivo comprimido, o 403/404 si la cuenta no se puede exportar.
+     */
+    @GetMapping("/{id}/export")
+    public ResponseEntity<StreamingResponseBody> exportar(@PathVariable("id") Long id,
+            @RequestParam(value = "formato", defaultValue = "csv") String formato,
+            @RequestParam(value = "desde", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(value = "hasta", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            UsuarioAutenticado usuario, HttpServletRequest request) {
+        if (request.isUserInRole("ADMIN")) {
+            try {
+                cuentaService.findById(id);
+            } catch (RuntimeException e) {
+                return ResponseEntity.notFound().build();
+            }
+        } else {
+            try {
+                if (cuentaService.findByIdForUsuario(id, usuario.getUsuarioId()).isEmpty()) {
+                    return ResponseEntity.notFound().build();
+                }
+            } catch (AccessDeniedException e) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build(); // La cuenta es de otro usuario
+            }
+        }
+        return exportacion(id, "cuenta-" + id, formato, desde, hasta);
+    }
+
+    /**
+     * Exporta el historial de todo el banco, igual que {@link #exportar}. Solo
+     * para administradores (ver {@code SecurityConfig}).
+     *
+     * @param formato {@code csv} (por defecto) o {@code ndjson}.
+     * @param desde   Inicio del intervalo, inclusive; sin límite si falta.
+     * @param hasta   Fin del intervalo, inclusive; sin límite si falta.
+     * @return El archivo comprimido.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportarTodas(
+            @RequestParam(value = "formato", defaultValue = "csv") String formato,
+            @RequestParam(value = "desde", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(value = "hasta", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        return exportacion(null, "banco", formato, desde, hasta);
+    }
+
+    /**
+     * Arma la respuesta de una exportación. El cuerpo se escribe después de
+     * devolver el controlador, en un hilo del ejecutor asíncrono de Spring MVC.
+     */
+    private ResponseEntity<StreamingResponseBody> exportacion(Long cuentaId, String nombre, String formato,
+            LocalDateTime desde, LocalDateTime hasta) {
+        FormatoExportacion salida;
+        try {
+            salida = FormatoExportacion.de(formato);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody cuerpo = respuesta -> {
+            GZIPOutputStream gzip = new GZIPOutputStream(respuesta, BUFFER_EXPORTACION);
+            Writer escritor = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8),
+                    BUFFER_EXPORTACION);
+            salida.encabezado(escritor);
+            try {
+                transaccionService.forEachByCuentaIdAndFechaBetween(cuentaId, desde, hasta, transaccion -> {
+                    try {
+                        salida.fila(escritor, transaccion);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e); // Cliente desconectado: corta el recorrido
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            escritor.flush();
+            gzip.finish(); // El contenedor cierra el flujo de la respuesta
+        };
+        return ResponseEntity.ok()
+                .contentType(GZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(nombre + salida.getExtension() + ".gz").build().toString())
+                .body(cuerpo);
+    }
+
     /**
      * Muestra el formulario para crear una nueva cuenta.
      *
@@ -0,0 +1,86 @@
+package com.tecno.web_sec.controllers.mvc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Transaccion;
+
+/**
+ * Formatos de la exportación del historial. Cada fila se escribe directo al
+ * {@link Writer}, sin armar un objeto intermedio por transacción. Los campos
+ * son los mismos que los de {@code TransaccionDto} en la API.
+ */
+enum FormatoExportacion {
+
+    CSV(".csv") {
+        @Override
+        void encabezado(Writer salida) throws IOException {
+            salida.write("id,fecha,monto,cuentaOrigenId,cuentaDestinoId\n");
+        }
+
+        @Override
+        void fila(Writer salida, Transaccion transaccion) throws IOException {
+            // Ningún campo lleva comas ni comillas: no hace falta escapar
+            salida.write(String.valueOf(transaccion.getId()));
+            salida.write(',');
+            salida.write(String.valueOf(transaccion.getFecha()));
+            salida.write(',');
+            salida.write(transaccion.getMonto().toPlainString());
+            salida.write(',');
+            salida.write(id(transaccion.getCuentaOrigen()));
+            salida.write(',');
+            salida.write(id(transaccion.getCuentaDestino()));
+            salida.write('\n');
+        }
+    },
+
+    NDJSON(".ndjson") {
+        @Override
+        void fila(Writer salida, Transaccion transaccion) throws IOException {
+            salida.write("{\"id\":");
+            salida.write(String.valueOf(transaccion.getId()));
+            salida.write(",\"fecha\":\"");
+            salida.write(String.valueOf(transaccion.getFecha()));
+            salida.write("\",\"monto\":");
+            salida.write(transaccion.getMonto().toPlainString());
+            salida.write(",\"cuentaOrigenId\":");
+            salida.write(id(transaccion.getCuentaOrigen()));
+            salida.write(",\"cuentaDestinoId\":");
+            salida.write(id(transaccion.getCuentaDestino()));
+            salida.write("}\n");
+        }
+    };
+
+    private final String extension;
+
+    FormatoExportacion(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @param nombre {@code csv} o {@code ndjson}, sin distinguir mayúsculas
+     * @return el formato
+     * @throws IllegalArgumentException si el formato no existe
+     */
+    static FormatoExportacion de(String nombre) {
+        return valueOf(nombre.trim().toUpperCase(Locale.ROOT));
+    }
+
+    String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Escribe lo que va antes de la primera fila; NDJSON no lleva nada.
+     */
+    void encabezado(Writer salida) throws IOException {
+    }
+
+    abstract void fila(Writer salida, Transaccion transaccion) throws IOException;
+
+    private static String id(Cuenta cuenta) {
+        return (cuenta != null) ? String.valueOf(cuenta.getId()) : "null";
+    }
+}
@@ -1,7 +1,6 @@
 package com.tecno.web_sec.controllers.mvc;
 
 import java.math.BigDecimal;
-import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -14,13 +13,15 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.CursorTransaccion;
+import com.tecno.web_sec.models.PaginaTransacciones;
 import com.tecno.web_sec.models.Transaccion;
-import com.tecno.web_sec.models.Usuario;
+import com.tecno.web_sec.security.UsuarioAutenticado;
 import com.tecno.web_sec.service.CuentaService;
 import com.tecno.web_sec.service.TransaccionService;
-import com.tecno.web_sec.service.UsuarioService;
 
 /**
  * Controlador para gestionar las transacciones de los usuarios.
@@ -30,33 +31,49 @@ import com.tecno.web_sec.service.UsuarioService;
 @RequestMapping("/transacciones")
 public class TransaccionController {
 
-    @Autowired
-    private TransaccionService transaccionService;
+    static final int TAMANO_PAGINA = 20; // Transacciones por página por defecto
+    static final int TAMANO_MAXIMO = 100; // Límite de transacciones por página
 
     @Autowired
-    private UsuarioService usuarioService;
+    private TransaccionService transaccionService;
 
     @Autowired
     private CuentaService cuentaService;
 
     /**
-     * Lista todas las transacciones del usuario actual.
+     * Lista las transacciones del usuario actual, paginadas de la más reciente a
+     * la más antigua.
      *
+     * @param cursor    cursor de la última transacción de la página anterior
+     * @param tamano    número de transacciones por página
      * @param model     el modelo que se pasará a la vista
-     * @param principal el usuario actualmente autenticado
+     * @param usuario   el usuario actualmente autenticado, con sus cuentas
      * @return la vista de lista de transacciones
      */
     @GetMapping
-    public String findAll(Model model, Principal principal) {
-        Usuario usuarioActual = usuarioService.findByUsername(principal.getName());
-        List<Transaccion> transacciones = usuarioActual.getCuentas().stream()
-                .flatMap(cuenta -> transaccionService.findByCuentaId(cuenta.getId()).stream())
-                .toList();
-
-        model.addAttribute("transacciones", transacciones);
+    public String findAll(@RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "tamano", defaultValue = "" + TAMANO_PAGINA) int tamano,
+            Model model, UsuarioAutenticado usuario) {
+        tamano = tamano(tamano); // El enlace a la página siguiente lleva el tamaño usado
+        PaginaTransacciones pagina = transaccionService.findPageByCuentaIds(usuario.getCuentaIds(),
+                CursorTransaccion.parse(cursor), tamano);
+
+        model.addAttribute("transacciones", pagina.transacciones());
+        model.addAttribute("siguiente", pagina.siguiente());
+        model.addAttribute("tamano", tamano);
         return "user/Transaccion/transacciones";
     }
 
+    /**
+     * Ajusta el tamaño de página pedido al rango permitido.
+     *
+     * @param tamano el tamaño pedido
+     * @return un tamaño entre 1 y {@link #TAMANO_MAXIMO}
+     */
+    static int tamano(int tamano) {
+        return Math.max(1, Math.min(tamano, TAMANO_MAXIMO));
+    }
+
     /**
      * Muestra los detalles de una transacción específica.
      *
@@ -75,23 +92,21 @@ public class TransaccionController {
      * Muestra el formulario para crear una nueva transacción.
      * Solo accesible para usuarios con rol de ADMIN.
      *
-     * @param model     el modelo que se pasará a la vista
-     * @param principal el usuario actualmente autenticado
+     * @param model   el modelo que se pasará a la vista
+     * @param usuario el usuario actualmente autenticado, con sus cuentas
      * @return la vista del formulario para nueva transacción
      */
     @GetMapping("/nuevo")
     @PreAuthorize("hasRole('ADMIN')")
-    public String showAddForm(Model model, Principal principal) {
+    public String showAddForm(Model model, UsuarioAutenticado usuario) {
         Transaccion transaccion = new Transaccion();
 
-        Usuario usuarioActual = usuarioService.findByUsername(principal.getName());
-
-        if (usuarioActual.getCuentas().isEmpty()) {
+        if (usuario.getCuentaIds().isEmpty()) {
             model.addAttribute("errorMessage", "El usuario no tiene cuentas.");
             return "user/Transaccion/nueva-transaccion";
         }
 
-        Cuenta cuentaOrigen = usuarioActual.getCuentas().get(0);
+        Cuenta cuentaOrigen = cuentaService.findById(usuario.getCuentaIds().get(0));
         transaccion.setCuentaOrigen(cuentaOrigen);
         transaccion.setFecha(LocalDateTime.now());
 
@@ -125,12 +140,7 @@ public class TransaccionController {
         }
 
         try {
-            cuentaService.transferir(
-                    transaccion.getCuentaOrigen().getId(),
-                    transaccion.getCuentaDestino().getId(),
-                    transaccion.getMonto());
-
-            transaccionService.addTransaccion(transaccion);
+            cuentaService.registrarTransferencia(transaccion);
         } catch (RuntimeException e) {
             model.addAttribute("errorMessage", e.getMessage());
             List<Cuenta> cuentas = cuentaService.findAll();
@@ -0,0 +1,258 @@
+package com.tecno.web_sec.idempotencia;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Respuestas de las peticiones con {@code Idempotency-Key}, por clave. Una
+ * entrada se crea al llegar la primera petición y se completa con su
+ * respuesta; las peticiones repetidas reciben esa respuesta, y las que llegan
+ * mientras la primera sigue en curso esperan la misma.
+ *
+ * Las búsquedas son lecturas de un {@link ConcurrentHashMap}. Las entradas
+ * completas se encolan en orden de llegada bajo un candado; como todas viven
+ * lo mismo, la cabeza de la cola es siempre la próxima en vencer y también la
+ * más antigua, así que al completar una entrada se desalojan desde la cabeza
+ * las vencidas y, si los bytes estimados superan el límite, las más antiguas.
+ * Una respuesta que por sí sola supera el límite se entrega a quienes la
+ * esperan pero no se guarda.
+ */
+@Component
+public final class CacheIdempotencia {
+
+    private final ConcurrentHashMap<String, Entrada> entradas = new ConcurrentHashMap<>();
+    private final ArrayDeque<Entrada> cola = new ArrayDeque<>(); // Entradas completas, de la más antigua a la más nueva
+    private final ReentrantLock candado = new ReentrantLock(); // Protege la cola y los bytes
+    private final long ttlNanos;
+    private final long bytesMaximos;
+    private final LongSupplier reloj;
+    private long bytes; // Bytes estimados de las entradas de la cola
+
+    private final Counter nuevas;
+    private final Counter repetidas;
+    private final Counter coalescidas;
+    private final Counter conflictos;
+    private final Counter vencidas;
+    private final Counter desalojadasPorCapacidad;
+    private final Counter descartadasPorTamano;
+
+    @Autowired
+    public CacheIdempotencia(@Value("${banco.idempotencia.ttl:PT24H}") Duration ttl,
+            @Value("${banco.idempotencia.bytes-maximos:67108864}") long bytesMaximos, MeterRegistry registry) {
+        this(ttl, bytesMaximos, registry, System::nanoTime);
+    }
+
+    CacheIdempotencia(Duration ttl, long bytesMaximos, MeterRegistry registry, LongSupplier reloj) {
+        this.ttlNanos = ttl.toNanos();
+        this.bytesMaximos = bytesMaximos;
+        this.reloj = reloj;
+        nuevas = peticiones(registry, "nueva");
+        repetidas = peticiones(registry, "repetida");
+        coalescidas = peticiones(registry, "coalescida");
+        conflictos = peticiones(registry, "conflicto");
+        vencidas = desalojos(registry, "vencida");
+        desalojadasPorCapacidad = desalojos(registry, "capacidad");
+        descartadasPorTamano = desalojos(registry, "tamano");
+        Gauge.builder("banco.idempotencia.entradas", entradas, Map::size)
+                .description("Claves de idempotencia guardadas o en curso")
+                .register(registry);
+        Gauge.builder("banco.idempotencia.bytes", this, CacheIdempotencia::getBytes)
+                .description("Bytes estimados de las respuestas guardadas")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Respuesta guardada de una petición.
+     *
+     * @param estado       el código de estado HTTP
+     * @param error        el mensaje de {@code sendError}, o {@code null} si la
+     *                     respuesta tiene cuerpo propio
+     * @param tipo         el tipo de contenido, o {@code null}
+     * @param encabezados  los encabezados que se repiten, como {@code Location}
+     * @param cuerpo       el cuerpo de la respuesta
+     */
+    public record Respuesta(int estado, String error, String tipo, List<Map.Entry<String, String>> encabezados,
+            byte[] cuerpo) {
+
+        int bytes() {
+            int total = cuerpo.length + 64;
+            for (Map.Entry<String, String> encabezado : encabezados) {
+                total += 2 * (encabezado.getKey().length() + encabezado.getValue().length());
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Una clave y la respuesta de la primera petición que la usó.
+     */
+    public static final class Entrada {
+
+        private final String clave;
+        private final byte[] huella;
+        private final CompletableFuture<Respuesta> respuesta = new CompletableFuture<>();
+        private volatile long vence = Long.MAX_VALUE; // Las entradas en curso no vencen
+        private int bytes;
+
+        public Entrada(String clave, byte[] huella) {
+            this.clave = clave;
+            this.huella = huella;
+        }
+
+        /**
+         * @return el resumen de la petición que creó la entrada
+         */
+        public byte[] getHuella() {
+            return huella;
+        }
+
+        /**
+         * @return la respuesta, que se completa cuando termina la primera
+         *         petición o falla si la entrada se abandona
+         */
+        public CompletableFuture<Respuesta> getRespuesta() {
+            return respuesta;
+        }
+    }
+
+    /**
+     * Registra la entrada si su clave no tiene otra vigente.
+     *
+     * @param nueva la entrada de la petición que llega
+     * @return {@code null} si la entrada quedó registrada y la petición debe
+     *         ejecutarse, o la entrada vigente con la misma clave
+     */
+    public Entrada reservar(Entrada nueva) {
+        while (true) {
+            Entrada existente = entradas.putIfAbsent(nueva.clave, nueva);
+            if (existente == null) {
+                nuevas.increment();
+                return null;
+            }
+            if (reloj.getAsLong() - existente.vence < 0) {
+                if (existente.respuesta.isDone()) {
+                    repetidas.increment();
+                } else {
+                    coalescidas.increment();
+                }
+                return existente;
+            }
+            if (entradas.remove(nueva.clave, existente)) {
+                vencidas.increment(); // Queda en la cola hasta que llegue a la cabeza
+            }
+        }
+    }
+
+    /**
+     * Cuenta una petición que reutilizó una clave con otro contenido.
+     */
+    public void conflicto() {
+        conflictos.increment();
+    }
+
+    /**
+     * Guarda la respuesta de una entrada reservada y la entrega a las
+     * peticiones que la esperan.
+     *
+     * @param entrada   la entrada devuelta a {@link #reservar}
+     * @param respuesta la respuesta de la petición
+     */
+    public void completar(Entrada entrada, Respuesta respuesta) {
+        entrada.bytes = respuesta.bytes() + 2 * entrada.clave.length() + entrada.huella.length;
+        if (entrada.bytes > bytesMaximos) {
+            entradas.remove(entrada.clave, entrada);
+            descartadasPorTamano.increment();
+        } else {
+            long ahora = reloj.getAsLong();
+            entrada.vence = ahora + ttlNanos;
+            candado.lock();
+            try {
+                cola.addLast(entrada);
+                bytes += entrada.bytes;
+                desalojar(ahora);
+            } finally {
+                candado.unlock();
+            }
+        }
+        entrada.respuesta.complete(respuesta);
+    }
+
+    /**
+     * Libera la clave de una petición que terminó sin una respuesta que
+     * guardar; las peticiones que la esperaban vuelven a intentar.
+     *
+     * @param entrada la entrada devuelta a {@link #reservar}
+     * @param causa   el motivo
+     */
+    public void abandonar(Entrada entrada, Throwable causa) {
+        entradas.remove(entrada.clave, entrada);
+        entrada.respuesta.completeExceptionally(causa);
+    }
+
+    /**
+     * Quita desde la cabeza las entradas vencidas y, mientras se supere el
+     * límite, las más antiguas. Se llama con el candado tomado.
+     */
+    private void desalojar(long ahora) {
+        Entrada cabeza;
+        while ((cabeza = cola.peekFirst()) != null && (bytes > bytesMaximos || ahora - cabeza.vence >= 0)) {
+            cola.pollFirst();
+            bytes -= cabeza.bytes;
+            if (entradas.remove(cabeza.clave, cabeza)) {
+                if (ahora - cabeza.vence >= 0) {
+                    vencidas.increment();
+                } else {
+                    desalojadasPorCapacidad.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return el límite de bytes estimados de las respuestas guardadas
+     */
+    public long getBytesMaximos() {
+        return bytesMaximos;
+    }
+
+    /**
+     * @return los bytes estimados de las respuestas guardadas
+     */
+    public long getBytes() {
+        candado.lock();
+        try {
+            return bytes;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    private static Counter peticiones(MeterRegistry registry, String resultado) {
+        return Counter.builder("banco.idempotencia.peticiones")
+                .description("Peticiones con clave de idempotencia por resultado")
+                .tag("resultado", resultado)
+                .register(registry);
+    }
+
+    private static Counter desalojos(MeterRegistry registry, String causa) {
+        return Counter.builder("banco.idempotencia.desalojos")
+                .description("Entradas quitadas de la caché de idempotencia por causa")
+                .tag("causa", causa)
+                .register(registry);
+    }
+}
@@ -0,0 +1,327 @@
+package com.tecno.web_sec.idempotencia;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Hace idempotentes los {@code POST} que traen el encabezado
+ * {@code Idempotency-Key}: la primera petición con una clave se ejecuta y su
+ * respuesta se guarda en {@link CacheIdempotencia}; las repeticiones con la
+ * misma clave reciben esa respuesta, con {@code Idempotent-Replayed: true},
+ * sin volver a ejecutar el controlador. Las que llegan mientras la primera
+ * sigue en curso esperan su respuesta.
+ *
+ * Va en la cadena de Spring Security después de la autorización, así que las
+ * claves son de cada usuario y las peticiones rechazadas no ocupan la caché.
+ * Reutilizar una clave con otra ruta u otro contenido responde 422. Las
+ * respuestas 5xx y las excepciones no se guardan: la operación no se aplicó y
+ * la siguiente repetición vuelve a ejecutarla.
+ *
+ * El cuerpo se lee entero para calcular la huella, así que se acota con el
+ * mismo límite de la caché ({@code banco.idempotencia.bytes-maximos}): un
+ * cuerpo mayor responde 413 sin leerse más allá del límite.
+ */
+public class FiltroIdempotencia extends OncePerRequestFilter {
+
+    public static final String ENCABEZADO = "Idempotency-Key";
+    static final String REPETIDA = "Idempotent-Replayed";
+    private static final int LONGITUD_MAXIMA = 255;
+    private static final List<String> ENCABEZADOS_GUARDADOS = List.of(HttpHeaders.LOCATION,
+            HttpHeaders.CONTENT_DISPOSITION);
+
+    private final CacheIdempotencia cache;
+    private final RequestMatcher api; // Peticiones que reciben los errores como problem+json
+    private final Duration espera;
+    private final int cuerpoMaximo; // Bytes que se leen como máximo para la huella
+
+    public FiltroIdempotencia(CacheIdempotencia cache, RequestMatcher api, Duration espera) {
+        this.cache = cache;
+        this.api = api;
+        this.espera = espera;
+        this.cuerpoMaximo = (int) Math.min(cache.getBytesMaximos(), Integer.MAX_VALUE - 8);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || request.getHeader(ENCABEZADO) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String valor = request.getHeader(ENCABEZADO);
+        if (valor.isBlank() || valor.length() > LONGITUD_MAXIMA) {
+            error(request, response, HttpStatus.BAD_REQUEST,
+                    "El encabezado " + ENCABEZADO + " debe tener entre 1 y " + LONGITUD_MAXIMA + " caracteres");
+            return;
+        }
+        Authentication autenticacion = SecurityContextHolder.getContext().getAuthentication();
+        String clave = ((autenticacion != null) ? autenticacion.getName() : "") + '\n' + valor;
+
+        // El cuerpo se lee una vez para la huella y se vuelve a entregar al controlador
+        HttpServletRequest peticion = request;
+        byte[] cuerpo = null;
+        if (!esFormulario(request)) {
+            // Content-Length puede faltar (chunked): se lee a lo sumo un byte más que el límite
+            if (request.getContentLengthLong() > cuerpoMaximo
+                    || (cuerpo = request.getInputStream().readNBytes(cuerpoMaximo + 1)).length > cuerpoMaximo) {
+                error(request, response, HttpStatus.PAYLOAD_TOO_LARGE,
+                        "El cuerpo supera los " + cuerpoMaximo + " bytes admitidos con " + ENCABEZADO);
+                return;
+            }
+            peticion = new CuerpoLeido(request, cuerpo);
+        }
+        byte[] huella = huella(request, cuerpo);
+
+        while (true) {
+            CacheIdempotencia.Entrada nueva = new CacheIdempotencia.Entrada(clave, huella);
+            CacheIdempotencia.Entrada existente = cache.reservar(nueva);
+            if (existente == null) {
+                ejecutar(peticion, response, chain, nueva);
+                return;
+            }
+            if (!Arrays.equals(existente.getHuella(), huella)) {
+                cache.conflicto();
+                error(request, response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        "La clave de idempotencia ya se usó con otra petición");
+                return;
+            }
+            CacheIdempotencia.Respuesta guardada;
+            try {
+                guardada = existente.getRespuesta().get(espera.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                error(request, response, HttpStatus.CONFLICT,
+                        "Una petición con la misma clave de idempotencia sigue en curso");
+                return;
+            } catch (ExecutionException e) {
+                continue; // La primera petición falló sin aplicarse: se vuelve a intentar
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            }
+            repetir(guardada, response);
+            return;
+        }
+    }
+
+    private void ejecutar(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+            CacheIdempotencia.Entrada entrada) throws ServletException, IOException {
+        Captura captura = new Captura(response);
+        try {
+            chain.doFilter(request, captura);
+        } catch (ServletException | IOException | RuntimeException | Error e) {
+            cache.abandonar(entrada, e);
+            throw e;
+        }
+        int estado = captura.getStatus();
+        if (estado >= 500) {
+            cache.abandonar(entrada, new IllegalStateException("La petición respondió " + estado));
+        } else {
+            List<Map.Entry<String, String>> encabezados = new ArrayList<>();
+            for (String nombre : ENCABEZADOS_GUARDADOS) {
+                String valor = captura.getHeader(nombre);
+                if (valor != null) {
+                    encabezados.add(Map.entry(nombre, valor));
+                }
+            }
+            cache.completar(entrada, new CacheIdempotencia.Respuesta(estado, captura.error,
+                    captura.getContentType(), encabezados, captura.getContentAsByteArray()));
+        }
+        captura.copyBodyToResponse();
+    }
+
+    private static void repetir(CacheIdempotencia.Respuesta guardada, HttpServletResponse response)
+            throws IOException {
+        response.setHeader(REPETIDA, "true");
+        for (Map.Entry<String, String> encabezado : guardada.encabezados()) {
+            response.setHeader(encabezado.getKey(), encabezado.getValue());
+        }
+        if (guardada.error() != null) {
+            response.sendError(guardada.estado(), guardada.error());
+            return;
+        }
+        response.setStatus(guardada.estado());
+        if (guardada.tipo() != null) {
+            response.setContentType(guardada.tipo());
+        }
+        response.setContentLength(guardada.cuerpo().length);
+        response.getOutputStream().write(guardada.cuerpo());
+    }
+
+    private void error(HttpServletRequest request, HttpServletResponse response, HttpStatus estado, String detalle)
+            throws IOException {
+        if (!api.matches(request)) {
+            response.sendError(estado.value(), detalle);
+            return;
+        }
+        response.setStatus(estado.value()); // Mismo formato que ApiExceptionHandler
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"type\":\"about:blank\",\"title\":\"" + estado.getReasonPhrase()
+                + "\",\"status\":" + estado.value() + ",\"detail\":\"" + detalle + "\"}");
+    }
+
+    private static boolean esFormulario(HttpServletRequest request) {
+        String tipo = request.getContentType();
+        return tipo != null && tipo.startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE);
+    }
+
+    /**
+     * Resumen SHA-256 de la ruta y el contenido: el cuerpo o, en un
+     * formulario, sus parámetros ordenados.
+     */
+    private static byte[] huella(HttpServletRequest request, byte[] cuerpo) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+        if (request.getQueryString() != null) {
+            digest.update(request.getQueryString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (cuerpo != null) {
+            digest.update(cuerpo);
+        } else {
+            for (Map.Entry<String, String[]> parametro : new TreeMap<>(request.getParameterMap()).entrySet()) {
+                digest.update((byte) 0);
+                digest.update(parametro.getKey().getBytes(StandardCharsets.UTF_8));
+                for (String valor : parametro.getValue()) {
+                    digest.update((byte) 1);
+                    digest.update(valor.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Guarda el cuerpo y, si la petición terminó con {@code sendError}, el
+     * mensaje, para repetirlo igual.
+     */
+    private static final class Captura extends ContentCachingResponseWrapper {
+
+        private String error;
+
+        Captura(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            error = "";
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            error = (msg != null) ? msg : "";
+            super.sendError(sc, msg);
+        }
+    }
+
+    /**
+     * Entrega al controlador el cuerpo que ya se leyó para la huella.
+     */
+    private static final class CuerpoLeido extends HttpServletRequestWrapper {
+
+        private final byte[] cuerpo;
+
+        CuerpoLeido(HttpServletRequest request, byte[] cuerpo) {
+            super(request);
+            this.cuerpo = cuerpo;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream entrada = new ByteArrayInputStream(cuerpo);
+            return new ServletInputStream() {
+
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return entrada.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * El cuerpo ya está en memoria: todo está disponible de
+                 * inmediato y la lectura termina en la misma llamada.
+                 */
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        listener.onAllDataRead();
+                    } catch (IOException | RuntimeException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String codificacion = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    (codificacion != null) ? codificacion : StandardCharsets.UTF_8.name()));
+        }
+
+        @Override
+        public int getContentLength() {
+            return cuerpo.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return cuerpo.length;
+        }
+    }
+}
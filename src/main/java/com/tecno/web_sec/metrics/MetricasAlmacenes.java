@@ -0,0 +1,46 @@
+package com.tecno.web_sec.metrics;
+
+import org.springframework.stereotype.Component;
+
+import com.tecno.web_sec.repository.CuentaRepository;
+import com.tecno.web_sec.repository.TransaccionRepository;
+import com.tecno.web_sec.repository.UsuarioRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Tamaño de los almacenes en memoria. Los gauges leen los contadores de los
+ * almacenes al publicar las métricas, sin costo para las escrituras.
+ */
+@Component
+public class MetricasAlmacenes implements MeterBinder {
+
+    private final UsuarioRepository usuarios;
+    private final CuentaRepository cuentas;
+    private final TransaccionRepository transacciones;
+
+    public MetricasAlmacenes(UsuarioRepository usuarios, CuentaRepository cuentas,
+            TransaccionRepository transacciones) {
+        this.usuarios = usuarios;
+        this.cuentas = cuentas;
+        this.transacciones = transacciones;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banco.almacen.tamano", usuarios, UsuarioRepository::count)
+                .description("Elementos en memoria por almacén")
+                .tag("almacen", "usuarios")
+                .register(registry);
+        Gauge.builder("banco.almacen.tamano", cuentas, CuentaRepository::count)
+                .description("Elementos en memoria por almacén")
+                .tag("almacen", "cuentas")
+                .register(registry);
+        Gauge.builder("banco.almacen.tamano", transacciones, TransaccionRepository::count)
+                .description("Elementos en memoria por almacén")
+                .tag("almacen", "transacciones")
+                .register(registry);
+    }
+}
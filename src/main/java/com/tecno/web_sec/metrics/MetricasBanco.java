@@ -0,0 +1,93 @@
+package com.tecno.web_sec.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Contadores y timers del negocio que se actualizan desde el camino de las
+ * transferencias y del inicio de sesión. Todos se registran una sola vez al
+ * crear el objeto, así que actualizarlos no busca nada en el registro: un
+ * incremento de contador es una suma atómica.
+ */
+@Component
+public class MetricasBanco {
+
+    private static final MetricasBanco DESHABILITADAS = new MetricasBanco(new CompositeMeterRegistry());
+
+    private final Counter transferenciasOk;
+    private final Counter transferenciasSaldoInsuficiente;
+    private final Counter transferenciasNoEncontrada;
+    private final Counter loginsOk;
+    private final Counter loginsFallidos;
+    private final Timer esperaCandados;
+
+    public MetricasBanco(MeterRegistry registry) {
+        transferenciasOk = transferencias(registry, "ok");
+        transferenciasSaldoInsuficiente = transferencias(registry, "saldo_insuficiente");
+        transferenciasNoEncontrada = transferencias(registry, "no_encontrada");
+        loginsOk = logins(registry, "ok");
+        loginsFallidos = logins(registry, "fallo");
+        esperaCandados = Timer.builder("banco.cuentas.candados.espera")
+                .description("Espera por el candado de una cuenta cuando otro hilo lo tiene")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Métricas que no se publican en ningún lado, para los servicios creados
+     * fuera de Spring. Un registro compuesto sin registros hijos entrega
+     * medidores que no hacen nada.
+     */
+    public static MetricasBanco deshabilitadas() {
+        return DESHABILITADAS;
+    }
+
+    public void transferenciaOk() {
+        transferenciasOk.increment();
+    }
+
+    public void transferenciaSaldoInsuficiente() {
+        transferenciasSaldoInsuficiente.increment();
+    }
+
+    public void transferenciaNoEncontrada() {
+        transferenciasNoEncontrada.increment();
+    }
+
+    public void loginOk() {
+        loginsOk.increment();
+    }
+
+    public void loginFallido() {
+        loginsFallidos.increment();
+    }
+
+    /**
+     * Registra cuánto esperó un hilo por un candado de saldo ocupado.
+     *
+     * @param nanos la espera, en nanosegundos
+     */
+    public void esperaCandado(long nanos) {
+        esperaCandados.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Counter transferencias(MeterRegistry registry, String resultado) {
+        return Counter.builder("banco.transferencias")
+                .description("Transferencias por resultado")
+                .tag("resultado", resultado)
+                .register(registry);
+    }
+
+    private static Counter logins(MeterRegistry registry, String resultado) {
+        return Counter.builder("banco.logins")
+                .description("Inicios de sesión por resultado")
+                .tag("resultado", resultado)
+                .register(registry);
+    }
+}
@@ -0,0 +1,130 @@
+package com.tecno.web_sec.metrics;
+
+import java.util.Locale;
+
+/**
+ * Tiempos de las fases de una petición HTTP: filtros (sobre todo Spring
+ * Security), controlador, servicios y vista. El filtro
+ * {@link TiemposPeticionFiltro} la crea y la deja en el hilo de la petición;
+ * el interceptor de MVC marca el fin de cada fase y el aspecto de los
+ * servicios suma el tiempo de las llamadas.
+ *
+ * Solo la usa el hilo de su petición, así que no necesita sincronización.
+ */
+public final class TiemposPeticion {
+
+    private static final ThreadLocal<TiemposPeticion> ACTUAL = new ThreadLocal<>();
+
+    private final long inicio = System.nanoTime();
+    private long finSeguridad; // Llegada al controlador; 0 si la petición no llegó
+    private long finControlador; // Salida del controlador, antes de la vista
+    private long finVista;
+    private long fin;
+    private long servicioNanos; // Tiempo dentro de los servicios, sin contar llamadas anidadas
+    private int profundidad; // Llamadas a servicios en curso
+    private long entradaServicio;
+
+    TiemposPeticion() {
+    }
+
+    /**
+     * @return los tiempos de la petición del hilo actual, o {@code null} si no
+     *         hay una petición medida
+     */
+    public static TiemposPeticion actual() {
+        return ACTUAL.get();
+    }
+
+    static TiemposPeticion iniciar() {
+        TiemposPeticion tiempos = new TiemposPeticion();
+        ACTUAL.set(tiempos);
+        return tiempos;
+    }
+
+    void terminar() {
+        fin = System.nanoTime();
+        ACTUAL.remove();
+    }
+
+    void marcarFinSeguridad() {
+        finSeguridad = System.nanoTime();
+    }
+
+    void marcarFinControlador() {
+        finControlador = System.nanoTime();
+    }
+
+    void marcarFinVista() {
+        finVista = System.nanoTime();
+    }
+
+    /**
+     * Registra la entrada a un método de servicio. Las llamadas anidadas (un
+     * servicio que llama a otro) no se cuentan dos veces.
+     */
+    void entrarServicio() {
+        if (profundidad++ == 0) {
+            entradaServicio = System.nanoTime();
+        }
+    }
+
+    void salirServicio() {
+        if (--profundidad == 0) {
+            servicioNanos += System.nanoTime() - entradaServicio;
+        }
+    }
+
+    long totalNanos() {
+        return ((fin != 0) ? fin : System.nanoTime()) - inicio;
+    }
+
+    /**
+     * Valor del encabezado {@code Server-Timing} con las fases terminadas
+     * hasta ahora. Si la vista sigue escribiéndose (la respuesta se envía
+     * antes de que termine), su duración es la transcurrida hasta este
+     * momento.
+     */
+    String serverTiming() {
+        long ahora = System.nanoTime();
+        StringBuilder valor = new StringBuilder(160);
+        fase(valor, "seguridad", "Filtros y seguridad", ((finSeguridad != 0) ? finSeguridad : ahora) - inicio);
+        if (finSeguridad != 0) {
+            fase(valor, "controlador", "Controlador, incluye servicios",
+                    ((finControlador != 0) ? finControlador : ahora) - finSeguridad);
+            fase(valor, "servicio", "Servicios", servicioNanos);
+        }
+        if (finControlador != 0) {
+            fase(valor, "vista", "Vista", ((finVista != 0) ? finVista : ahora) - finControlador);
+        }
+        fase(valor, "total", null, ahora - inicio);
+        return valor.toString();
+    }
+
+    /**
+     * Fases en formato {@code clave=valor}, en milisegundos, para el log.
+     */
+    String registro() {
+        long total = totalNanos();
+        long seguridad = ((finSeguridad != 0) ? finSeguridad : inicio + total) - inicio;
+        long controlador = (finSeguridad != 0 && finControlador != 0) ? finControlador - finSeguridad : 0;
+        long vista = (finControlador != 0 && finVista != 0) ? finVista - finControlador : 0;
+        return String.format(Locale.ROOT,
+                "total_ms=%.3f seguridad_ms=%.3f controlador_ms=%.3f servicio_ms=%.3f vista_ms=%.3f",
+                ms(total), ms(seguridad), ms(controlador), ms(servicioNanos), ms(vista));
+    }
+
+    private static void fase(StringBuilder valor, String nombre, String descripcion, long nanos) {
+        if (valor.length() > 0) {
+            valor.append(", ");
+        }
+        valor.append(nombre);
+        if (descripcion != null) {
+            valor.append(";desc=\"").append(descripcion).append('"');
+        }
+        valor.append(";dur=").append(String.format(Locale.ROOT, "%.3f", ms(nanos)));
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,98 @@
+package com.tecno.web_sec.metrics;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Mide las fases de cada petición y las publica en el encabezado
+ * {@code Server-Timing} y, para una muestra de las peticiones y para todas las
+ * lentas, en una línea de log {@code clave=valor} del logger
+ * {@code banco.tiempos}.
+ *
+ * Va antes de la cadena de Spring Security, así que la fase
+ * {@code seguridad} cubre desde que llega la petición hasta el controlador. El
+ * encabezado se escribe justo antes de enviar la respuesta; si la vista no
+ * cabe en el búfer, lleva la vista hasta ese momento y el log lleva el total.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+@ConditionalOnProperty(name = "banco.tiempos.habilitado", matchIfMissing = true)
+public class TiemposPeticionFiltro extends OncePerRequestFilter {
+
+    static final String SERVER_TIMING = "Server-Timing";
+
+    private static final Logger logger = LoggerFactory.getLogger("banco.tiempos");
+
+    @Value("${banco.tiempos.muestreo:0.01}")
+    private double muestreo; // Fracción de las peticiones que se registran en el log
+
+    @Value("${banco.tiempos.lentas:PT1S}")
+    private Duration lentas; // Las peticiones más lentas se registran siempre
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/actuator/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        TiemposPeticion tiempos = TiemposPeticion.iniciar();
+        Respuesta respuesta = new Respuesta(response, tiempos);
+        try {
+            chain.doFilter(request, respuesta);
+        } finally {
+            respuesta.escribirEncabezado(); // La respuesta entera cupo en el búfer
+            tiempos.terminar();
+            long total = tiempos.totalNanos();
+            if (total >= lentas.toNanos() || ThreadLocalRandom.current().nextDouble() < muestreo) {
+                Object ruta = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                logger.info("metodo={} ruta={} estado={} {}", request.getMethod(),
+                        (ruta != null) ? ruta : request.getRequestURI(), response.getStatus(), tiempos.registro());
+            }
+        }
+    }
+
+    /**
+     * Agrega el encabezado en el último momento en que todavía se puede.
+     */
+    private static final class Respuesta extends OnCommittedResponseWrapper {
+
+        private final TiemposPeticion tiempos;
+        private boolean escrito;
+
+        Respuesta(HttpServletResponse response, TiemposPeticion tiempos) {
+            super(response);
+            this.tiempos = tiempos;
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            escribirEncabezado();
+        }
+
+        void escribirEncabezado() {
+            if (!escrito && !isCommitted()) {
+                escrito = true;
+                setHeader(SERVER_TIMING, tiempos.serverTiming());
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.tecno.web_sec.metrics;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Marca en {@link TiemposPeticion} la llegada al controlador, su salida y el
+ * fin de la vista.
+ */
+@Component
+public class TiemposPeticionInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        TiemposPeticion tiempos = TiemposPeticion.actual();
+        if (tiempos != null) {
+            tiempos.marcarFinSeguridad();
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+            ModelAndView modelAndView) {
+        TiemposPeticion tiempos = TiemposPeticion.actual();
+        if (tiempos != null) {
+            tiempos.marcarFinControlador();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        TiemposPeticion tiempos = TiemposPeticion.actual();
+        if (tiempos != null) {
+            tiempos.marcarFinVista();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.tecno.web_sec.models; // Paquete donde se encuentra la clase Cuenta
 import java.math.BigDecimal; // Importación para manejar cantidades monetarias
 import java.util.ArrayList; // Importación para utilizar listas dinámicas
 import java.util.List; // Importación para trabajar con listas
+import java.util.concurrent.atomic.AtomicLongFieldUpdater; // Importación para actualizar el saldo con CAS
 
 /**
  * Clase que representa una cuenta bancaria.
@@ -11,11 +12,22 @@ import java.util.List; // Importación para trabajar con listas
  */
 public class Cuenta {
 
+    /**
+     * Valor de {@link #getSaldoCentavos()} para una cuenta sin saldo, como las
+     * referencias que solo conservan el ID.
+     */
+    public static final long SIN_SALDO = Long.MIN_VALUE;
+
+    private static final AtomicLongFieldUpdater<Cuenta> SALDO = AtomicLongFieldUpdater.newUpdater(Cuenta.class,
+            "saldo"); // Compare-and-set sobre el campo, sin un objeto AtomicLong por cuenta
+
     // Atributos de la clase
     private Long id; // Identificador único de la cuenta
     private String nombre; // Nombre de la cuenta
-    private BigDecimal saldo = BigDecimal.ZERO; // Saldo de la cuenta, inicializado en cero
+    private volatile long saldo; // Saldo de la cuenta en centavos, inicializado en cero; volatile para leerlo
+                                 // sin tomar el candado de la cuenta
     private Usuario usuario; // Usuario asociado a la cuenta
+    private volatile Usuario totalDe; // Usuario cuyo saldo total incluye esta cuenta (la tiene en su lista)
     private List<Transaccion> transacciones = new ArrayList<>(); // Lista de transacciones asociadas a la cuenta
 
     /**
@@ -29,7 +41,7 @@ public class Cuenta {
     public Cuenta(Long id, String nombre, BigDecimal saldo, Usuario usuario) {
         this.id = id; // Inicializa el id de la cuenta
         this.nombre = nombre; // Inicializa el nombre de la cuenta
-        this.saldo = saldo; // Inicializa el saldo de la cuenta
+        this.saldo = (saldo != null) ? Dinero.aCentavos(saldo) : SIN_SALDO; // Aún no suma a ningún total
         this.usuario = usuario; // Inicializa el usuario asociado a la cuenta
     }
 
@@ -78,19 +90,39 @@ public class Cuenta {
     /**
      * Obtiene el saldo de la cuenta.
      * 
-     * @return El saldo de la cuenta
+     * @return El saldo de la cuenta, o {@code null} si no tiene
      */
     public BigDecimal getSaldo() {
-        return saldo; // Retorna el saldo
+        long centavos = saldo;
+        return (centavos != SIN_SALDO) ? Dinero.aBigDecimal(centavos) : null; // Convierte solo para la vista
     }
 
     /**
      * Establece el saldo de la cuenta.
      * 
-     * @param saldo El saldo a establecer
+     * @param saldo El saldo a establecer, con a lo sumo dos decimales
      */
     public void setSaldo(BigDecimal saldo) {
-        this.saldo = saldo; // Asigna el nuevo saldo
+        setSaldoCentavos((saldo != null) ? Dinero.aCentavos(saldo) : SIN_SALDO); // Asigna el nuevo saldo
+    }
+
+    /**
+     * Obtiene el saldo de la cuenta en centavos.
+     * 
+     * @return El saldo en centavos, o {@link #SIN_SALDO}
+     */
+    public long getSaldoCentavos() {
+        return saldo; // Retorna el saldo sin crear objetos
+    }
+
+    /**
+     * Establece el saldo de la cuenta en centavos.
+     * 
+     * @param saldo El saldo en centavos
+     */
+    public void setSaldoCentavos(long saldo) {
+        long anterior = SALDO.getAndSet(this, saldo); // Asigna el nuevo saldo
+        informar(anterior, saldo);
     }
 
     /**
@@ -136,14 +168,41 @@ public class Cuenta {
      * @throws IllegalArgumentException Si el monto es nulo o menor o igual a cero
      */
     public void depositar(BigDecimal monto) {
-        if (monto != null && monto.compareTo(BigDecimal.ZERO) > 0) {
-            saldo = saldo.add(monto); // Suma el monto al saldo
+        if (monto != null && monto.signum() > 0) {
+            depositar(Dinero.aCentavos(monto)); // Suma el monto al saldo
         } else {
             throw new IllegalArgumentException("El monto debe ser mayor que cero."); // Lanza excepción si el monto no
                                                                                      // es válido
         }
     }
 
+    /**
+     * Realiza un depósito en la cuenta.
+     * 
+     * @param centavos Monto a depositar en centavos
+     * @return El nuevo saldo en centavos
+     * @throws IllegalArgumentException Si el monto es menor o igual a cero, o si
+     *                                  el saldo se desborda
+     */
+    public long depositar(long centavos) {
+        if (centavos <= 0) {
+            throw new IllegalArgumentException("El monto debe ser mayor que cero.");
+        }
+        while (true) {
+            long actual = saldoDisponible();
+            long nuevo;
+            try {
+                nuevo = Math.addExact(actual, centavos); // Suma con control de desborde
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("El saldo excede el máximo permitido.");
+            }
+            if (SALDO.compareAndSet(this, actual, nuevo)) {
+                informar(actual, nuevo);
+                return nuevo;
+            }
+        }
+    }
+
     /**
      * Realiza un retiro de la cuenta.
      * 
@@ -152,18 +211,92 @@ public class Cuenta {
      *                                  o si hay saldo insuficiente
      */
     public void retirar(BigDecimal monto) {
-        if (monto != null && monto.compareTo(BigDecimal.ZERO) > 0) {
-            if (saldo.compareTo(monto) >= 0) {
-                saldo = saldo.subtract(monto); // Resta el monto del saldo
-            } else {
-                throw new IllegalArgumentException("Saldo insuficiente."); // Lanza excepción si hay saldo insuficiente
-            }
+        if (monto != null && monto.signum() > 0) {
+            retirar(Dinero.aCentavos(monto)); // Resta el monto del saldo
         } else {
             throw new IllegalArgumentException("El monto debe ser mayor que cero."); // Lanza excepción si el monto no
                                                                                      // es válido
         }
     }
 
+    /**
+     * Realiza un retiro de la cuenta.
+     * 
+     * @param centavos Monto a retirar en centavos
+     * @return El nuevo saldo en centavos
+     * @throws IllegalArgumentException Si el monto es menor o igual a cero, o si
+     *                                  hay saldo insuficiente
+     */
+    public long retirar(long centavos) {
+        if (centavos <= 0) {
+            throw new IllegalArgumentException("El monto debe ser mayor que cero.");
+        }
+        while (true) {
+            long actual = saldoDisponible();
+            if (actual < centavos) {
+                throw new IllegalArgumentException("Saldo insuficiente."); // Lanza excepción si hay saldo insuficiente
+            }
+            if (SALDO.compareAndSet(this, actual, actual - centavos)) { // No desborda: ambos son no negativos
+                informar(actual, actual - centavos);
+                return actual - centavos;
+            }
+        }
+    }
+
+    /**
+     * Empieza a sumar el saldo de la cuenta al total de un usuario, dejando de
+     * sumarlo al anterior. Lo invoca la lista de cuentas del usuario.
+     * 
+     * @param usuario El usuario, o {@code null}
+     */
+    void sumarA(Usuario usuario) {
+        Usuario anterior = totalDe;
+        if (anterior == usuario) {
+            return;
+        }
+        long aporte = aporte(saldo);
+        if (anterior != null) {
+            anterior.ajustarSaldo(-aporte);
+        }
+        totalDe = usuario;
+        if (usuario != null) {
+            usuario.ajustarSaldo(aporte);
+        }
+    }
+
+    /**
+     * Deja de sumar el saldo de la cuenta al total del usuario, si se lo sumaba.
+     * 
+     * @param usuario El usuario que quita la cuenta de su lista
+     */
+    void dejarDeSumarA(Usuario usuario) {
+        if (totalDe == usuario) {
+            sumarA(null);
+        }
+    }
+
+    /**
+     * Traslada un cambio de saldo al total del usuario.
+     */
+    private void informar(long anterior, long nuevo) {
+        Usuario usuario = totalDe;
+        if (usuario != null) {
+            usuario.ajustarSaldo(Math.subtractExact(aporte(nuevo), aporte(anterior)));
+        }
+    }
+
+    private static long aporte(long saldo) {
+        return (saldo != SIN_SALDO) ? saldo : 0L; // Una cuenta sin saldo no suma
+    }
+
+    private long saldoDisponible() {
+        long actual = saldo;
+        if (actual == SIN_SALDO) {
+            throw new IllegalStateException("La cuenta no tiene saldo."); // Referencia que solo conserva el ID
+        }
+        return actual;
+    }
+
     /**
      * Agrega una transacción a la lista de transacciones de la cuenta.
      * 
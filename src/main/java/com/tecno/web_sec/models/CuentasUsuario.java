@@ -0,0 +1,207 @@
+package com.tecno.web_sec.models; // Paquete donde se encuentra la clase CuentasUsuario
+
+import java.util.AbstractList; // Importación para implementar la lista sobre un arreglo
+import java.util.Arrays; // Importación para copiar el arreglo de cuentas
+import java.util.Iterator; // Importación para recorrer una vista de la lista
+import java.util.List; // Importación para trabajar con listas
+import java.util.Objects; // Importación para validar posiciones
+import java.util.RandomAccess; // Importación para indicar acceso por posición en O(1)
+import java.util.Spliterator; // Importación para los streams sobre la lista
+import java.util.Spliterators; // Importación para recorrer un tramo del arreglo
+import java.util.concurrent.locks.ReentrantLock; // Importación para serializar los cambios
+import java.util.function.Predicate; // Importación para quitar cuentas por condición
+
+/**
+ * Lista de cuentas de un usuario. Cada vez que una cuenta entra o sale, suma
+ * o resta su saldo del total del usuario.
+ *
+ * Los lectores no toman candados: leen una {@link Vista} inmutable, un
+ * arreglo y la cantidad de posiciones ocupadas, publicada en un campo
+ * volátil. Los recorridos, como el que arma el usuario autenticado al iniciar
+ * sesión, no fallan si otra petición agrega o quita una cuenta mientras tanto.
+ *
+ * Los cambios toman un candado propio de la lista, porque los servicios solo
+ * bloquean la cuenta que cambia y dos altas del mismo usuario pueden llegar a
+ * la vez; el candado también mantiene juntos el cambio de la lista y el del
+ * total. Agregar al final escribe en una posición libre del arreglo, que
+ * ninguna vista publicada alcanza, y publica una vista nueva con una posición
+ * más; el arreglo solo se copia al crecer, así que N altas cuestan O(N) en
+ * total. Insertar en medio, reemplazar o quitar sí copia el arreglo, para no
+ * cambiar lo que ven las vistas anteriores. Los iteradores no admiten
+ * {@code remove}; {@link #removeIf} y {@link #remove(Object)} sí ajustan el
+ * total.
+ */
+final class CuentasUsuario extends AbstractList<Cuenta> implements RandomAccess {
+
+    private static final Cuenta[] VACIO = new Cuenta[0]; // Arreglo de una lista sin cuentas
+    private static final int CAPACIDAD_MINIMA = 4; // Posiciones al crecer desde una lista vacía
+
+    /**
+     * Estado publicado de la lista: las primeras {@code tamano} posiciones de
+     * {@code cuentas}, que no vuelven a cambiar.
+     */
+    private record Vista(Cuenta[] cuentas, int tamano) {
+    }
+
+    private final Usuario usuario; // Usuario cuyo total se mantiene
+    private final ReentrantLock escritura = new ReentrantLock(); // Serializa los cambios de la lista
+    private volatile Vista vista; // Última vista publicada; solo se reemplaza con el candado tomado
+
+    CuentasUsuario(Usuario usuario, List<Cuenta> cuentas) {
+        this.usuario = usuario;
+        Cuenta[] iniciales = cuentas.toArray(VACIO);
+        for (Cuenta cuenta : iniciales) {
+            vincular(cuenta); // Las cuentas iniciales también cuentan en el total
+        }
+        this.vista = new Vista(iniciales, iniciales.length);
+    }
+
+    @Override
+    public Cuenta get(int indice) {
+        Vista actual = vista;
+        return actual.cuentas()[Objects.checkIndex(indice, actual.tamano())];
+    }
+
+    @Override
+    public int size() {
+        return vista.tamano();
+    }
+
+    @Override
+    public Iterator<Cuenta> iterator() {
+        return Spliterators.iterator(spliterator()); // Recorre la vista tomada al crear el iterador
+    }
+
+    @Override
+    public Spliterator<Cuenta> spliterator() {
+        Vista actual = vista;
+        return Spliterators.spliterator(actual.cuentas(), 0, actual.tamano(),
+                Spliterator.ORDERED | Spliterator.IMMUTABLE);
+    }
+
+    @Override
+    public void add(int indice, Cuenta cuenta) {
+        escritura.lock();
+        try {
+            Vista actual = vista;
+            int tamano = actual.tamano();
+            Objects.checkIndex(indice, tamano + 1);
+            Cuenta[] cuentas = actual.cuentas();
+            if (indice == tamano && tamano < cuentas.length) {
+                cuentas[tamano] = cuenta; // Posición libre: ninguna vista publicada la ve
+            } else {
+                Cuenta[] nuevas = new Cuenta[indice == tamano ? Math.max(CAPACIDAD_MINIMA, tamano * 2) : tamano + 1];
+                System.arraycopy(cuentas, 0, nuevas, 0, indice);
+                System.arraycopy(cuentas, indice, nuevas, indice + 1, tamano - indice);
+                nuevas[indice] = cuenta;
+                cuentas = nuevas;
+            }
+            vincular(cuenta);
+            vista = new Vista(cuentas, tamano + 1);
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    @Override
+    public Cuenta set(int indice, Cuenta cuenta) {
+        escritura.lock();
+        try {
+            Vista actual = vista;
+            Objects.checkIndex(indice, actual.tamano());
+            Cuenta[] cuentas = Arrays.copyOf(actual.cuentas(), actual.tamano());
+            Cuenta anterior = cuentas[indice];
+            cuentas[indice] = cuenta;
+            desvincular(anterior);
+            vincular(cuenta);
+            vista = new Vista(cuentas, cuentas.length);
+            return anterior;
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    @Override
+    public Cuenta remove(int indice) {
+        escritura.lock();
+        try {
+            Vista actual = vista;
+            Objects.checkIndex(indice, actual.tamano());
+            return quitar(actual, indice);
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object objeto) {
+        escritura.lock();
+        try {
+            int indice = indexOf(objeto);
+            if (indice < 0) {
+                return false;
+            }
+            quitar(vista, indice);
+            return true;
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super Cuenta> filtro) {
+        escritura.lock();
+        try {
+            Vista actual = vista;
+            Cuenta[] quedan = new Cuenta[actual.tamano()];
+            int tamano = 0;
+            for (int i = 0; i < actual.tamano(); i++) { // Una sola pasada; solo este hilo cambia la lista
+                Cuenta cuenta = actual.cuentas()[i];
+                if (filtro.test(cuenta)) {
+                    desvincular(cuenta);
+                } else {
+                    quedan[tamano++] = cuenta;
+                }
+            }
+            if (tamano == actual.tamano()) {
+                return false;
+            }
+            vista = new Vista(quedan, tamano);
+            return true;
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        removeIf(cuenta -> true);
+    }
+
+    /**
+     * Publica una copia de la vista sin la posición indicada. Se llama con el
+     * candado tomado.
+     */
+    private Cuenta quitar(Vista actual, int indice) {
+        int tamano = actual.tamano();
+        Cuenta[] cuentas = new Cuenta[tamano - 1];
+        System.arraycopy(actual.cuentas(), 0, cuentas, 0, indice);
+        System.arraycopy(actual.cuentas(), indice + 1, cuentas, indice, tamano - indice - 1);
+        Cuenta anterior = actual.cuentas()[indice];
+        desvincular(anterior);
+        vista = new Vista(cuentas, cuentas.length);
+        return anterior;
+    }
+
+    private void vincular(Cuenta cuenta) {
+        if (cuenta != null) {
+            cuenta.sumarA(usuario);
+        }
+    }
+
+    private void desvincular(Cuenta cuenta) {
+        if (cuenta != null) {
+            cuenta.dejarDeSumarA(usuario);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.tecno.web_sec.models; // Paquete donde se encuentra la clase CursorTransaccion
+
+import java.time.LocalDateTime; // Importación para manejar fechas y horas
+import java.time.format.DateTimeParseException; // Importación para validar cursores recibidos
+
+/**
+ * Posición dentro de un historial de transacciones ordenado por fecha e ID.
+ * Una página "después" de un cursor contiene las transacciones anteriores a
+ * él, de la más reciente a la más antigua.
+ *
+ * @param fecha Fecha de la última transacción mostrada
+ * @param id    ID de la última transacción mostrada
+ */
+public record CursorTransaccion(LocalDateTime fecha, Long id) {
+
+    /**
+     * Crea el cursor que apunta a una transacción.
+     * 
+     * @param transaccion La transacción
+     * @return El cursor
+     */
+    public static CursorTransaccion de(Transaccion transaccion) {
+        return new CursorTransaccion(transaccion.getFecha(), transaccion.getId());
+    }
+
+    /**
+     * Interpreta un cursor recibido como parámetro de la URL.
+     * 
+     * @param valor El cursor en formato {@code fecha_id}, o {@code null}
+     * @return El cursor, o {@code null} si no se indicó ninguno
+     * @throws IllegalArgumentException Si el cursor no tiene un formato válido
+     */
+    public static CursorTransaccion parse(String valor) {
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        int separador = valor.lastIndexOf('_');
+        try {
+            return new CursorTransaccion(LocalDateTime.parse(valor.substring(0, separador)),
+                    Long.valueOf(valor.substring(separador + 1)));
+        } catch (DateTimeParseException | IndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + valor);
+        }
+    }
+
+    /**
+     * Crea una transacción de referencia con la misma posición que el cursor,
+     * útil para acotar conjuntos ordenados cronológicamente.
+     * 
+     * @return Una transacción sin monto ni cuentas
+     */
+    public Transaccion comoReferencia() {
+        return new Transaccion(id, null, fecha, null, null);
+    }
+
+    @Override
+    public String toString() {
+        return fecha + "_" + id; // Formato usado en los enlaces de paginación
+    }
+}
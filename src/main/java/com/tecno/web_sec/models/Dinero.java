@@ -0,0 +1,45 @@
+package com.tecno.web_sec.models; // Paquete donde se encuentra la clase Dinero
+
+import java.math.BigDecimal; // Importación para convertir desde y hacia la representación de la vista
+
+/**
+ * Conversión entre montos en {@link BigDecimal}, usados por los formularios,
+ * las vistas y la API, y montos en centavos ({@code long}), usados
+ * internamente por los saldos de las cuentas.
+ */
+public final class Dinero {
+
+    public static final int ESCALA = 2; // Dígitos decimales de un monto (centavos)
+
+    private Dinero() {
+    }
+
+    /**
+     * Convierte un monto a centavos sin redondear.
+     *
+     * @param monto El monto
+     * @return El monto en centavos
+     * @throws IllegalArgumentException Si el monto es nulo, tiene más de dos
+     *                                  decimales o no cabe en un {@code long}
+     */
+    public static long aCentavos(BigDecimal monto) {
+        if (monto == null) {
+            throw new IllegalArgumentException("El monto es obligatorio.");
+        }
+        try {
+            return monto.movePointRight(ESCALA).longValueExact(); // Falla si quedan decimales o hay desborde
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Monto no representable en centavos: " + monto);
+        }
+    }
+
+    /**
+     * Convierte un monto en centavos a {@link BigDecimal} con dos decimales.
+     *
+     * @param centavos El monto en centavos
+     * @return El monto
+     */
+    public static BigDecimal aBigDecimal(long centavos) {
+        return BigDecimal.valueOf(centavos, ESCALA);
+    }
+}
@@ -0,0 +1,23 @@
+package com.tecno.web_sec.models; // Paquete donde se encuentra la clase PaginaTransacciones
+
+import java.util.List; // Importación para trabajar con listas
+
+/**
+ * Página de un historial de transacciones, de la más reciente a la más
+ * antigua.
+ *
+ * @param transacciones Las transacciones de la página
+ * @param siguiente     Cursor para pedir la página siguiente, o {@code null} si
+ *                      no hay más transacciones
+ */
+public record PaginaTransacciones(List<Transaccion> transacciones, CursorTransaccion siguiente) {
+
+    /**
+     * Indica si existen transacciones después de esta página.
+     * 
+     * @return {@code true} si hay una página siguiente
+     */
+    public boolean hayMas() {
+        return siguiente != null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.tecno.web_sec.models; // Paquete donde se encuentra la clase ResultadoTransferencia
+
+/**
+ * Resultado de una fila de un lote de transferencias.
+ *
+ * @param transaccion La transacción registrada, o {@code null} si la fila se
+ *                    rechazó
+ * @param error       El motivo del rechazo, o {@code null} si se aplicó
+ */
+public record ResultadoTransferencia(Transaccion transaccion, String error) {
+
+    public static ResultadoTransferencia aplicada(Transaccion transaccion) {
+        return new ResultadoTransferencia(transaccion, null);
+    }
+
+    public static ResultadoTransferencia rechazada(String error) {
+        return new ResultadoTransferencia(null, error);
+    }
+
+    /**
+     * Indica si la transferencia se aplicó.
+     * 
+     * @return {@code true} si la fila no se rechazó
+     */
+    public boolean isAplicada() {
+        return error == null;
+    }
+}
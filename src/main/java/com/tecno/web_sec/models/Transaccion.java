@@ -2,6 +2,7 @@ package com.tecno.web_sec.models; // Paquete donde se encuentra la clase Transac
 
 import java.math.BigDecimal; // Importación para manejar cantidades monetarias
 import java.time.LocalDateTime; // Importación para manejar fechas y horas
+import java.util.Comparator; // Importación para definir el orden cronológico
 
 /**
  * Clase que representa una transacción entre cuentas.
@@ -10,6 +11,17 @@ import java.time.LocalDateTime; // Importación para manejar fechas y horas
  */
 public class Transaccion {
 
+    /**
+     * Orden cronológico: por fecha y, a igual fecha, por ID. Es el orden de las
+     * listas de transacciones por cuenta; la fecha de una transacción no debe
+     * cambiar una vez registrada. Se escribe a mano porque es la comparación
+     * más frecuente de los índices y de la recuperación del log.
+     */
+    public static final Comparator<Transaccion> ORDEN_CRONOLOGICO = (a, b) -> {
+        int porFecha = a.fecha.compareTo(b.fecha);
+        return (porFecha != 0) ? porFecha : Long.compare(a.id, b.id);
+    };
+
     // Atributos de la clase
     private Long id; // Identificador único de la transacción
     private BigDecimal monto; // Monto de dinero involucrado en la transacción
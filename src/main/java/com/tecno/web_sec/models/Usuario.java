@@ -3,13 +3,24 @@ package com.tecno.web_sec.models; // Paquete donde se encuentra la clase Usuario
 import java.math.BigDecimal; // Importación para manejar cantidades monetarias
 import java.util.ArrayList; // Importación para utilizar listas dinámicas
 import java.util.List; // Importación para trabajar con listas
+import java.util.concurrent.atomic.AtomicLongFieldUpdater; // Importación para acumular el saldo total
 
 /**
  * Clase que representa un usuario en el sistema.
  * Un usuario tiene un identificador, nombre de usuario, contraseña,
  * rol y una lista de cuentas asociadas.
+ *
+ * El saldo total se mantiene acumulado: cada cuenta de la lista informa sus
+ * cambios de saldo y la lista suma o resta una cuenta al agregarla o
+ * quitarla. El total es exacto mientras el movimiento de saldo y el cambio de
+ * lista de una misma cuenta no se solapen, que es lo que garantizan los
+ * candados de {@code CuentaServiceImpl}; {@link #verificarSaldo()} lo
+ * compara periódicamente con la suma completa.
  */
-public class Usuario {
+public final class Usuario { // Final: el constructor entrega this a la lista de cuentas
+
+    private static final AtomicLongFieldUpdater<Usuario> SALDO_TOTAL = AtomicLongFieldUpdater
+            .newUpdater(Usuario.class, "saldoTotal"); // Suma atómica sin un objeto AtomicLong por usuario
 
     // Atributos de la clase
     private Long id; // Identificador único del usuario
@@ -17,10 +28,11 @@ public class Usuario {
     private String password; // Contraseña del usuario
     private String role; // Rol del usuario (por ejemplo, admin, cliente)
     private List<Cuenta> cuentas; // Lista de cuentas asociadas al usuario
+    private volatile long saldoTotal; // Suma de los saldos de las cuentas, en centavos
 
     // Constructor vacío
     public Usuario() {
-        this.cuentas = new ArrayList<>(); // Inicializa la lista de cuentas vacía
+        this.cuentas = new CuentasUsuario(this, new ArrayList<>()); // Inicializa la lista de cuentas vacía
     }
 
     /**
@@ -38,7 +50,7 @@ public class Usuario {
         this.password = password; // Inicializa la contraseña
         this.role = role; // Inicializa el rol
         // Si las cuentas son nulas, se inicializa con una lista vacía
-        this.cuentas = cuentas != null ? cuentas : new ArrayList<>();
+        this.cuentas = new CuentasUsuario(this, cuentas != null ? cuentas : new ArrayList<>());
     }
 
     // Métodos getter y setter para cada atributo
@@ -130,7 +142,12 @@ public class Usuario {
      * @param cuentas La lista de cuentas a establecer
      */
     public void setCuentas(List<Cuenta> cuentas) {
-        this.cuentas = cuentas; // Asigna la nueva lista de cuentas
+        if (this.cuentas != null) {
+            for (Cuenta cuenta : this.cuentas) {
+                cuenta.dejarDeSumarA(this); // Las cuentas anteriores dejan de sumar al total
+            }
+        }
+        this.cuentas = (cuentas != null) ? new CuentasUsuario(this, cuentas) : null; // Asigna la nueva lista
     }
 
     /**
@@ -139,9 +156,63 @@ public class Usuario {
      * @return El saldo total
      */
     public BigDecimal getSaldo() {
-        return cuentas.stream() // Crea un flujo de cuentas
-                .map(Cuenta::getSaldo) // Mapea cada cuenta a su saldo
-                .reduce(BigDecimal.ZERO, BigDecimal::add); // Suma todos los saldos
+        return Dinero.aBigDecimal(saldoTotal); // Lectura O(1) del total acumulado
+    }
+
+    /**
+     * Obtiene el saldo total de todas las cuentas asociadas al usuario en
+     * centavos.
+     * 
+     * @return El saldo total en centavos
+     */
+    public long getSaldoCentavos() {
+        return saldoTotal; // Retorna el total acumulado
+    }
+
+    /**
+     * Suma el saldo de todas las cuentas de la lista, sin usar el total
+     * acumulado.
+     * 
+     * @return El saldo total recalculado en centavos
+     */
+    public long recalcularSaldoCentavos() {
+        long total = 0L;
+        if (cuentas != null) {
+            for (Cuenta cuenta : cuentas) {
+                long saldo = cuenta.getSaldoCentavos(); // Suma en centavos, sin crear objetos por cuenta
+                if (saldo != Cuenta.SIN_SALDO) {
+                    total = Math.addExact(total, saldo);
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Compara el total acumulado con la suma de las cuentas. Una diferencia
+     * solo se corrige si se repite en dos recálculos sin que el total cambie
+     * entre medio, para no confundirla con un movimiento en curso.
+     * 
+     * @return La diferencia corregida en centavos, o cero si el total era
+     *         correcto
+     */
+    public long verificarSaldo() {
+        long acumulado = saldoTotal;
+        long calculado = recalcularSaldoCentavos();
+        if (calculado == acumulado || calculado != recalcularSaldoCentavos()
+                || !SALDO_TOTAL.compareAndSet(this, acumulado, calculado)) {
+            return 0L;
+        }
+        return calculado - acumulado;
+    }
+
+    /**
+     * Suma un cambio de saldo de una de las cuentas al total.
+     * 
+     * @param centavos El cambio en centavos
+     */
+    void ajustarSaldo(long centavos) {
+        SALDO_TOTAL.accumulateAndGet(this, centavos, Math::addExact); // Falla si el total desborda
     }
 
     /**
@@ -151,7 +222,7 @@ public class Usuario {
      */
     public void addCuenta(Cuenta cuenta) {
         if (cuentas == null) {
-            cuentas = new ArrayList<>(); // Inicializa la lista si es nula
+            cuentas = new CuentasUsuario(this, new ArrayList<>()); // Inicializa la lista si es nula
         }
         cuentas.add(cuenta); // Agrega la cuenta
     }
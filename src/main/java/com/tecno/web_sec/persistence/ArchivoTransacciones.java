@@ -0,0 +1,469 @@
+package com.tecno.web_sec.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.CursorTransaccion;
+import com.tecno.web_sec.models.Transaccion;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Archivo histórico de transacciones. Las transacciones antiguas salen de los
+ * índices en memoria y se guardan en lotes de columnas de ancho fijo
+ * ({@link LoteArchivado}) que se leen a través de un
+ * {@link java.nio.MappedByteBuffer}: el heap solo conserva los índices por ID
+ * y por cuenta de cada lote, y las filas se materializan al consultarlas.
+ *
+ * Los lotes son inmutables. Una transacción archivada que se elimina queda
+ * anotada en {@code eliminadas.bin}, que se sincroniza antes de responder.
+ *
+ * Cada consulta busca en todos los lotes, así que los lotes se fusionan como
+ * en un árbol LSM por niveles: al publicar uno nuevo, mientras el anterior no
+ * tenga más del doble de filas, ambos se reescriben en uno solo. Los tamaños
+ * crecen así en forma geométrica y el número de lotes es logarítmico en las
+ * filas archivadas (más uno por cada {@link LoteArchivado#MAX_FILAS} filas).
+ * Un lote fusionado se llama {@code lote-<primero>-<último>.col}, con el
+ * rango de lotes que reemplaza; si una caída deja también los originales, al
+ * abrir se borran.
+ *
+ * El formato guarda el monto en centavos y la fecha con precisión de
+ * milisegundos; las transacciones que no caben en él siguen en memoria.
+ */
+@Component
+public class ArchivoTransacciones {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivoTransacciones.class);
+
+    private static final String PREFIJO = "lote-";
+    private static final String EXTENSION = ".col";
+    private static final String ELIMINADAS = "eliminadas.bin";
+    private static final int FACTOR_FUSION = 2; // Un lote se fusiona con el siguiente si no lo supera en este factor
+
+    private static final ArchivoTransacciones DESHABILITADO = new ArchivoTransacciones(false, null);
+
+    private final boolean habilitado;
+    private final Path directorio;
+
+    // Lotes publicados; se reemplaza la lista completa al agregar uno
+    private volatile List<LoteArchivado> lotes = List.of();
+    private final Set<Long> eliminadas = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock escritura = new ReentrantLock();
+    private FileChannel canalEliminadas;
+    private long siguienteLote;
+
+    public ArchivoTransacciones(@Value("${banco.archivo.habilitado:false}") boolean habilitado,
+            @Value("${banco.archivo.directorio:data/archivo}") Path directorio) {
+        this.habilitado = habilitado;
+        this.directorio = directorio;
+    }
+
+    /**
+     * Archivo inactivo: no guarda ni contiene nada. Es el valor por defecto de
+     * los servicios creados fuera del contexto de Spring.
+     *
+     * @return el archivo deshabilitado compartido
+     */
+    public static ArchivoTransacciones deshabilitado() {
+        return DESHABILITADO;
+    }
+
+    /**
+     * Mapea los lotes existentes, reconstruye sus índices y carga las
+     * transacciones eliminadas.
+     *
+     * @throws IOException si no se puede leer el directorio
+     */
+    @PostConstruct
+    public void abrir() throws IOException {
+        if (!habilitado) {
+            return;
+        }
+        Files.createDirectories(directorio);
+        List<LoteArchivado> abiertos = new ArrayList<>();
+        List<Path> candidatos = new ArrayList<>();
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            for (Path archivo : archivos.toList()) {
+                String nombre = archivo.getFileName().toString();
+                if (nombre.endsWith(".tmp")) {
+                    Files.delete(archivo); // Lote a medio escribir de una caída
+                } else if (nombre.startsWith(PREFIJO) && nombre.endsWith(EXTENSION)) {
+                    candidatos.add(archivo);
+                }
+            }
+        }
+        // Por primer lote cubierto y, ante un empate, el rango más amplio primero
+        candidatos.sort(Comparator.comparingLong((Path archivo) -> rango(archivo)[0])
+                .thenComparing(archivo -> -rango(archivo)[1]));
+        for (Path archivo : candidatos) {
+            long[] rango = rango(archivo);
+            if (rango[1] < siguienteLote) {
+                Files.delete(archivo); // Ya fusionado en un lote anterior de la lista
+                continue;
+            }
+            abiertos.add(LoteArchivado.abrir(archivo));
+            siguienteLote = rango[1] + 1;
+        }
+        canalEliminadas = FileChannel.open(directorio.resolve(ELIMINADAS), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer buffer = ByteBuffer.allocate((int) canalEliminadas.size() & ~7);
+        while (buffer.hasRemaining() && canalEliminadas.read(buffer) >= 0) {
+            // Lee el archivo completo
+        }
+        buffer.flip();
+        while (buffer.remaining() >= Long.BYTES) {
+            eliminadas.add(buffer.getLong());
+        }
+        canalEliminadas.truncate(buffer.limit()); // Descarta un ID a medio escribir
+        canalEliminadas.position(buffer.limit());
+        lotes = List.copyOf(abiertos);
+        logger.info("Archivo de transacciones abierto en {} con {} lotes y {} filas", directorio, abiertos.size(),
+                abiertos.stream().mapToLong(LoteArchivado::tamano).sum());
+    }
+
+    @PreDestroy
+    public void cerrar() throws IOException {
+        if (canalEliminadas != null) {
+            canalEliminadas.close();
+        }
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Indica si la transacción puede archivarse sin perder información.
+     */
+    public boolean admite(Transaccion transaccion) {
+        return habilitado && LoteArchivado.representable(transaccion);
+    }
+
+    /**
+     * @return el mayor ID archivado, incluidas las transacciones eliminadas
+     */
+    public long idMaximo() {
+        long maximo = 0L;
+        for (LoteArchivado lote : lotes) {
+            maximo = Math.max(maximo, lote.idMaximo());
+        }
+        return maximo;
+    }
+
+    /**
+     * @return si la transacción está archivada y no fue eliminada
+     */
+    public boolean contiene(long id) {
+        return !eliminadas.contains(id) && lotes.stream().anyMatch(lote -> lote.buscarId(id) >= 0);
+    }
+
+    /**
+     * Busca una transacción archivada por su ID.
+     *
+     * @param id      el ID
+     * @param cuentas resuelve las cuentas de origen y destino
+     * @return la transacción, o {@code null} si no está archivada
+     */
+    public Transaccion buscar(long id, LongFunction<Cuenta> cuentas) {
+        if (eliminadas.contains(id)) {
+            return null;
+        }
+        for (LoteArchivado lote : lotes) {
+            int fila = lote.buscarId(id);
+            if (fila >= 0) {
+                return leer(lote, fila, cuentas);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return un iterador cronológico por lote con todas las transacciones
+     */
+    public List<Iterator<Transaccion>> todas(LongFunction<Cuenta> cuentas) {
+        List<Iterator<Transaccion>> iteradores = new ArrayList<>();
+        for (LoteArchivado lote : lotes) {
+            iteradores.add(new Recorrido(lote, 0, lote.tamano(), IntUnaryOperator.identity(), false, cuentas));
+        }
+        return iteradores;
+    }
+
+    /**
+     * Transacciones de una cuenta dentro de un intervalo, en orden
+     * cronológico.
+     *
+     * @param cuentaId la cuenta, o {@code null} para todo el banco
+     * @param desde    inicio del intervalo, incluido
+     * @param hasta    fin del intervalo, incluido
+     * @param cuentas  resuelve las cuentas de origen y destino
+     * @return un iterador por lote
+     */
+    public List<Iterator<Transaccion>> entre(Long cuentaId, LocalDateTime desde, LocalDateTime hasta,
+            LongFunction<Cuenta> cuentas) {
+        List<Iterator<Transaccion>> iteradores = new ArrayList<>();
+        for (LoteArchivado lote : lotes) {
+            Rango rango = rango(lote, cuentaId);
+            int inicio = (desde != null) ? primera(lote, rango, desde, Long.MIN_VALUE) : rango.desde();
+            int fin = (hasta != null) ? primera(lote, rango, hasta, Long.MAX_VALUE) : rango.hasta();
+            if (inicio < fin) {
+                iteradores.add(new Recorrido(lote, inicio, fin, rango.filas(), false, cuentas));
+            }
+        }
+        return iteradores;
+    }
+
+    /**
+     * Transacciones de una cuenta anteriores al cursor, de la más reciente a la
+     * más antigua.
+     *
+     * @param cuentaId la cuenta
+     * @param despues  el cursor, o {@code null} para empezar por la más reciente
+     * @param cuentas  resuelve las cuentas de origen y destino
+     * @return un iterador por lote
+     */
+    public List<Iterator<Transaccion>> anteriores(long cuentaId, CursorTransaccion despues,
+            LongFunction<Cuenta> cuentas) {
+        List<Iterator<Transaccion>> iteradores = new ArrayList<>();
+        for (LoteArchivado lote : lotes) {
+            Rango rango = rango(lote, cuentaId);
+            int fin = (despues != null) ? primera(lote, rango, despues.fecha(), despues.id()) : rango.hasta();
+            if (rango.desde() < fin) {
+                iteradores.add(new Recorrido(lote, rango.desde(), fin, rango.filas(), true, cuentas));
+            }
+        }
+        return iteradores;
+    }
+
+    /**
+     * Guarda las transacciones en uno o más lotes nuevos y los publica. Las
+     * transacciones deben cumplir {@link #admite(Transaccion)}.
+     *
+     * @param transacciones las transacciones a archivar
+     * @throws IOException si no se pudo escribir un lote
+     */
+    public void archivar(Collection<Transaccion> transacciones) throws IOException {
+        if (!habilitado) {
+            throw new IllegalStateException("El archivo de transacciones no está habilitado");
+        }
+        List<Transaccion> ordenadas = new ArrayList<>(transacciones);
+        ordenadas.sort(LoteArchivado::compararParaArchivo);
+        escritura.lock();
+        try {
+            for (int desde = 0; desde < ordenadas.size(); desde += LoteArchivado.MAX_FILAS) {
+                List<Transaccion> filas = ordenadas.subList(desde,
+                        Math.min(ordenadas.size(), desde + LoteArchivado.MAX_FILAS));
+                long numero = siguienteLote++;
+                Path destino = directorio.resolve(String.format("%s%010d%s", PREFIJO, numero, EXTENSION));
+                Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+                LoteArchivado.escribir(temporal, filas);
+                Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+                sincronizarDirectorio(); // El nombre nuevo también debe sobrevivir a una caída
+                List<LoteArchivado> nuevos = new ArrayList<>(lotes);
+                nuevos.add(LoteArchivado.abrir(destino));
+                lotes = List.copyOf(nuevos);
+                logger.info("Archivo de transacciones: {} filas guardadas en {}", filas.size(), destino);
+                compactar();
+            }
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    /**
+     * Fusiona el último lote con el anterior mientras el anterior no tenga
+     * más de {@link #FACTOR_FUSION} veces sus filas. El lote fusionado se
+     * publica antes de borrar los originales; las consultas en curso siguen
+     * leyendo los originales, que quedan mapeados hasta que nadie los usa. Se
+     * invoca con el candado de escritura tomado.
+     */
+    private void compactar() throws IOException {
+        List<LoteArchivado> actuales = lotes;
+        while (actuales.size() >= 2) {
+            LoteArchivado anterior = actuales.get(actuales.size() - 2);
+            LoteArchivado ultimo = actuales.get(actuales.size() - 1);
+            if (anterior.tamano() > FACTOR_FUSION * ultimo.tamano()
+                    || anterior.tamano() + ultimo.tamano() > LoteArchivado.MAX_FILAS) {
+                return;
+            }
+            Path destino = directorio.resolve(String.format("%s%010d-%010d%s", PREFIJO,
+                    rango(anterior.archivo())[0], rango(ultimo.archivo())[1], EXTENSION));
+            Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+            LoteArchivado.fusionar(temporal, anterior, ultimo);
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+            sincronizarDirectorio();
+            List<LoteArchivado> nuevos = new ArrayList<>(actuales.subList(0, actuales.size() - 2));
+            nuevos.add(LoteArchivado.abrir(destino));
+            actuales = List.copyOf(nuevos);
+            lotes = actuales;
+            Files.delete(anterior.archivo());
+            Files.delete(ultimo.archivo());
+            sincronizarDirectorio();
+            logger.info("Archivo de transacciones: {} y {} fusionados en {} con {} filas",
+                    anterior.archivo().getFileName(), ultimo.archivo().getFileName(), destino.getFileName(),
+                    anterior.tamano() + ultimo.tamano());
+        }
+    }
+
+    /**
+     * Sincroniza el directorio para que las altas y bajas de archivos sean
+     * durables.
+     */
+    private void sincronizarDirectorio() throws IOException {
+        try (FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        }
+    }
+
+    /**
+     * Marca como eliminada una transacción archivada y sincroniza la marca en
+     * disco.
+     *
+     * @param id el ID
+     * @return si la transacción estaba archivada y no eliminada
+     * @throws IOException si no se pudo guardar la marca
+     */
+    public boolean eliminar(long id) throws IOException {
+        escritura.lock();
+        try {
+            if (!contiene(id)) {
+                return false;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, id);
+            while (buffer.hasRemaining()) {
+                canalEliminadas.write(buffer);
+            }
+            canalEliminadas.force(false);
+            eliminadas.add(id);
+            return true;
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    private Transaccion leer(LoteArchivado lote, int fila, LongFunction<Cuenta> cuentas) {
+        return new Transaccion(lote.id(fila), lote.monto(fila), lote.fecha(fila), cuentas.apply(lote.origen(fila)),
+                cuentas.apply(lote.destino(fila)));
+    }
+
+    /**
+     * Filas recorridas por una consulta: todo el lote o las posiciones de una
+     * cuenta en su índice.
+     */
+    private record Rango(int desde, int hasta, IntUnaryOperator filas) {
+    }
+
+    private static Rango rango(LoteArchivado lote, Long cuentaId) {
+        if (cuentaId == null) {
+            return new Rango(0, lote.tamano(), IntUnaryOperator.identity());
+        }
+        int[] posiciones = lote.rangoCuenta(cuentaId);
+        return new Rango(posiciones[0], posiciones[1], lote::filaDeCuenta);
+    }
+
+    /**
+     * Búsqueda binaria de la primera posición cuya fila no es anterior a
+     * {@code (fecha, id)} en orden cronológico.
+     */
+    private static int primera(LoteArchivado lote, Rango rango, LocalDateTime fecha, long id) {
+        int bajo = rango.desde();
+        int alto = rango.hasta();
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            int fila = rango.filas().applyAsInt(medio);
+            int comparacion = lote.fecha(fila).compareTo(fecha);
+            if (comparacion < 0 || (comparacion == 0 && lote.id(fila) < id)) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    /**
+     * @return el primer y el último número de lote que cubre el archivo
+     */
+    private static long[] rango(Path archivo) {
+        String nombre = archivo.getFileName().toString();
+        String[] numeros = nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length()).split("-");
+        long primero = Long.parseLong(numeros[0]);
+        return new long[] { primero, (numeros.length > 1) ? Long.parseLong(numeros[1]) : primero };
+    }
+
+    /**
+     * Recorre posiciones consecutivas de un lote materializando cada fila.
+     * Omite las transacciones eliminadas y la segunda entrada de una
+     * transacción de una cuenta a sí misma.
+     */
+    private final class Recorrido implements Iterator<Transaccion> {
+
+        private final LoteArchivado lote;
+        private final int desde;
+        private final int hasta;
+        private final IntUnaryOperator filas;
+        private final boolean descendente;
+        private final LongFunction<Cuenta> cuentas;
+        private int posicion;
+        private int filaAnterior = -1;
+        private Transaccion siguiente;
+
+        Recorrido(LoteArchivado lote, int desde, int hasta, IntUnaryOperator filas, boolean descendente,
+                LongFunction<Cuenta> cuentas) {
+            this.lote = lote;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.filas = filas;
+            this.descendente = descendente;
+            this.cuentas = cuentas;
+            this.posicion = descendente ? hasta - 1 : desde;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (siguiente == null && posicion >= desde && posicion < hasta) {
+                int fila = filas.applyAsInt(posicion);
+                posicion += descendente ? -1 : 1;
+                if (fila != filaAnterior && !eliminadas.contains(lote.id(fila))) {
+                    siguiente = leer(lote, fila, cuentas);
+                }
+                filaAnterior = fila;
+            }
+            return siguiente != null;
+        }
+
+        @Override
+        public Transaccion next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Transaccion transaccion = siguiente;
+            siguiente = null;
+            return transaccion;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.tecno.web_sec.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Formato en disco compartido por los segmentos del log y los snapshots: una
+ * secuencia de marcos {@code [longitud][crc32c][datos]}.
+ */
+final class ArchivoWal {
+
+    private static final int LONGITUD_MAXIMA = 1 << 20;
+
+    private ArchivoWal() {
+    }
+
+    /**
+     * Codifica un registro dentro de su marco.
+     *
+     * @param registro el registro a codificar
+     * @return los bytes listos para escribir
+     */
+    static byte[] marco(RegistroWal registro) {
+        try {
+            ByteArrayOutputStream cuerpo = new ByteArrayOutputStream(64);
+            CodecWal.escribir(registro, new DataOutputStream(cuerpo));
+            byte[] datos = cuerpo.toByteArray();
+            CRC32C crc = new CRC32C();
+            crc.update(datos);
+            ByteArrayOutputStream marco = new ByteArrayOutputStream(datos.length + 8);
+            DataOutputStream out = new DataOutputStream(marco);
+            out.writeInt(datos.length);
+            out.writeInt((int) crc.getValue());
+            out.write(datos);
+            return marco.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo codificar el registro " + registro, e);
+        }
+    }
+
+    /**
+     * Lee un archivo desde el inicio hasta el primer marco incompleto o
+     * corrupto.
+     *
+     * @param archivo    el archivo a leer
+     * @param consumidor recibe cada registro válido
+     * @return los bytes y el número de registros válidos
+     * @throws IOException si no se puede leer el archivo
+     */
+    static long[] leer(Path archivo, Consumer<RegistroWal> consumidor) throws IOException {
+        long[] valido = new long[2]; // { bytes válidos, registros válidos }
+        if (!Files.exists(archivo)) {
+            return valido;
+        }
+        try (InputStream entrada = Files.newInputStream(archivo);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(entrada, 1 << 16))) {
+            CRC32C crc = new CRC32C();
+            while (true) {
+                byte[] datos;
+                try {
+                    int longitud = in.readInt();
+                    int esperado = in.readInt();
+                    if (longitud <= 0 || longitud > LONGITUD_MAXIMA) {
+                        return valido;
+                    }
+                    datos = new byte[longitud];
+                    in.readFully(datos);
+                    crc.reset();
+                    crc.update(datos);
+                    if ((int) crc.getValue() != esperado) {
+                        return valido;
+                    }
+                } catch (EOFException e) {
+                    return valido;
+                }
+                consumidor.accept(CodecWal.leer(new DataInputStream(new ByteArrayInputStream(datos))));
+                valido[0] += 8 + datos.length;
+                valido[1]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.tecno.web_sec.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import com.tecno.web_sec.models.Dinero;
+import com.tecno.web_sec.persistence.RegistroWal.CuentaEliminada;
+import com.tecno.web_sec.persistence.RegistroWal.CuentaGuardada;
+import com.tecno.web_sec.persistence.RegistroWal.SaldoActualizado;
+import com.tecno.web_sec.persistence.RegistroWal.TransaccionEliminada;
+import com.tecno.web_sec.persistence.RegistroWal.TransaccionGuardada;
+import com.tecno.web_sec.persistence.RegistroWal.Transferencia;
+import com.tecno.web_sec.persistence.RegistroWal.TransferenciaRegistrada;
+import com.tecno.web_sec.persistence.RegistroWal.UsuarioEliminado;
+import com.tecno.web_sec.persistence.RegistroWal.UsuarioGuardado;
+
+/**
+ * Codificación binaria compacta de los registros del log: un byte de tipo
+ * seguido de los campos en orden fijo. Los saldos de depósitos, retiros y
+ * transferencias se escriben en centavos; los tipos anteriores, con el saldo
+ * como {@link BigDecimal}, se siguen leyendo.
+ */
+final class CodecWal {
+
+    private static final byte USUARIO_GUARDADO = 1;
+    private static final byte USUARIO_ELIMINADO = 2;
+    private static final byte CUENTA_GUARDADA = 3;
+    private static final byte CUENTA_ELIMINADA = 4;
+    private static final byte SALDO_ACTUALIZADO_DECIMAL = 5;
+    private static final byte TRANSFERENCIA_DECIMAL = 6;
+    private static final byte TRANSACCION_GUARDADA = 7;
+    private static final byte TRANSACCION_ELIMINADA = 8;
+    private static final byte SALDO_ACTUALIZADO = 9;
+    private static final byte TRANSFERENCIA = 10;
+    private static final byte TRANSFERENCIA_REGISTRADA = 11;
+
+    private CodecWal() {
+    }
+
+    static void escribir(RegistroWal registro, DataOutput out) throws IOException {
+        switch (registro) {
+            case UsuarioGuardado r -> {
+                out.writeByte(USUARIO_GUARDADO);
+                out.writeLong(r.id());
+                escribirTexto(r.username(), out);
+                escribirTexto(r.password(), out);
+                escribirTexto(r.role(), out);
+            }
+            case UsuarioEliminado r -> {
+                out.writeByte(USUARIO_ELIMINADO);
+                out.writeLong(r.id());
+            }
+            case CuentaGuardada r -> {
+                out.writeByte(CUENTA_GUARDADA);
+                out.writeLong(r.id());
+                escribirTexto(r.nombre(), out);
+                escribirMonto(r.saldo(), out);
+                out.writeLong(r.usuarioId() != null ? r.usuarioId() : -1L);
+            }
+            case CuentaEliminada r -> {
+                out.writeByte(CUENTA_ELIMINADA);
+                out.writeLong(r.id());
+            }
+            case SaldoActualizado r -> {
+                out.writeByte(SALDO_ACTUALIZADO);
+                out.writeLong(r.cuentaId());
+                out.writeLong(r.saldo());
+            }
+            case Transferencia r -> {
+                out.writeByte(TRANSFERENCIA);
+                escribirTransferencia(r, out);
+            }
+            case TransferenciaRegistrada r -> {
+                out.writeByte(TRANSFERENCIA_REGISTRADA);
+                escribirTransferencia(r.saldos(), out);
+                escribirTransaccion(r.transaccion(), out);
+            }
+            case TransaccionGuardada r -> {
+                out.writeByte(TRANSACCION_GUARDADA);
+                escribirTransaccion(r, out);
+            }
+            case TransaccionEliminada r -> {
+                out.writeByte(TRANSACCION_ELIMINADA);
+                out.writeLong(r.id());
+            }
+        }
+    }
+
+    static RegistroWal leer(DataInput in) throws IOException {
+        byte tipo = in.readByte();
+        return switch (tipo) {
+            case USUARIO_GUARDADO -> new UsuarioGuardado(in.readLong(), leerTexto(in), leerTexto(in), leerTexto(in));
+            case USUARIO_ELIMINADO -> new UsuarioEliminado(in.readLong());
+            case CUENTA_GUARDADA -> {
+                long id = in.readLong();
+                String nombre = leerTexto(in);
+                BigDecimal saldo = leerMonto(in);
+                long usuarioId = in.readLong();
+                yield new CuentaGuardada(id, nombre, saldo, usuarioId >= 0 ? usuarioId : null);
+            }
+            case CUENTA_ELIMINADA -> new CuentaEliminada(in.readLong());
+            case SALDO_ACTUALIZADO -> new SaldoActualizado(in.readLong(), in.readLong());
+            case TRANSFERENCIA -> leerTransferencia(in);
+            case TRANSFERENCIA_REGISTRADA -> new TransferenciaRegistrada(leerTransferencia(in), leerTransaccion(in));
+            case SALDO_ACTUALIZADO_DECIMAL -> new SaldoActualizado(in.readLong(), leerCentavos(in));
+            case TRANSFERENCIA_DECIMAL -> new Transferencia(in.readLong(), leerCentavos(in), in.readLong(),
+                    leerCentavos(in));
+            case TRANSACCION_GUARDADA -> leerTransaccion(in);
+            case TRANSACCION_ELIMINADA -> new TransaccionEliminada(in.readLong());
+            default -> throw new IOException("Tipo de registro desconocido: " + tipo);
+        };
+    }
+
+    private static void escribirTransferencia(Transferencia r, DataOutput out) throws IOException {
+        out.writeLong(r.origenId());
+        out.writeLong(r.saldoOrigen());
+        out.writeLong(r.destinoId());
+        out.writeLong(r.saldoDestino());
+    }
+
+    private static Transferencia leerTransferencia(DataInput in) throws IOException {
+        return new Transferencia(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+    }
+
+    private static void escribirTransaccion(TransaccionGuardada r, DataOutput out) throws IOException {
+        out.writeLong(r.id());
+        escribirMonto(r.monto(), out);
+        out.writeLong(r.fecha().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(r.fecha().getNano());
+        out.writeLong(r.origenId());
+        out.writeLong(r.destinoId());
+    }
+
+    private static TransaccionGuardada leerTransaccion(DataInput in) throws IOException {
+        long id = in.readLong();
+        BigDecimal monto = leerMonto(in);
+        LocalDateTime fecha = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        return new TransaccionGuardada(id, monto, fecha, in.readLong(), in.readLong());
+    }
+
+    private static void escribirTexto(String texto, DataOutput out) throws IOException {
+        out.writeBoolean(texto != null);
+        if (texto != null) {
+            out.writeUTF(texto);
+        }
+    }
+
+    private static String leerTexto(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void escribirMonto(BigDecimal monto, DataOutput out) throws IOException {
+        if (monto == null) {
+            out.writeByte(-1);
+            return;
+        }
+        byte[] sinEscala = monto.unscaledValue().toByteArray();
+        if (sinEscala.length > Byte.MAX_VALUE || monto.scale() != (byte) monto.scale()) {
+            throw new IOException("Monto fuera de rango para el log: " + monto);
+        }
+        out.writeByte(sinEscala.length);
+        out.write(sinEscala);
+        out.writeByte(monto.scale());
+    }
+
+    private static long leerCentavos(DataInput in) throws IOException {
+        BigDecimal monto = leerMonto(in);
+        try {
+            return Dinero.aCentavos(monto);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Saldo no representable en centavos: " + monto, e);
+        }
+    }
+
+    private static BigDecimal leerMonto(DataInput in) throws IOException {
+        int longitud = in.readByte();
+        if (longitud < 0) {
+            return null;
+        }
+        byte[] sinEscala = new byte[longitud];
+        in.readFully(sinEscala);
+        return new BigDecimal(new BigInteger(sinEscala), in.readByte());
+    }
+}
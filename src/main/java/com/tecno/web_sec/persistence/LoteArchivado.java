@@ -0,0 +1,274 @@
+package com.tecno.web_sec.persistence;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import com.tecno.web_sec.models.Transaccion;
+
+/**
+ * Un lote de transacciones archivadas: un archivo de filas de ancho fijo
+ * mapeado en memoria, ordenadas por fecha e ID.
+ *
+ * <pre>
+ * [id:long][monto en centavos:long][fecha en epoch millis:long][origen:long][destino:long]
+ * </pre>
+ *
+ * En el heap solo quedan dos arreglos ordenados de {@code long}: uno por ID y
+ * otro por cuenta (origen y destino), cada entrada empaquetada como
+ * {@code clave << 20 | fila}. Las filas de una cuenta quedan así en orden
+ * cronológico, porque el archivo ya lo está.
+ */
+final class LoteArchivado {
+
+    static final int ANCHO = 40;
+    static final int BITS_FILA = 20;
+    static final int MAX_FILAS = 1 << BITS_FILA;
+    private static final long MASCARA_FILA = MAX_FILAS - 1;
+    private static final long MAX_CLAVE = 1L << (63 - BITS_FILA);
+
+    private final Path archivo;
+    private final MappedByteBuffer filas;
+    private final int tamano;
+    private final long[] porId;
+    private final long[] porCuenta;
+
+    private LoteArchivado(Path archivo, MappedByteBuffer filas, int tamano) {
+        this.archivo = archivo;
+        this.filas = filas;
+        this.tamano = tamano;
+        this.porId = new long[tamano];
+        this.porCuenta = new long[tamano * 2];
+        for (int fila = 0; fila < tamano; fila++) {
+            porId[fila] = id(fila) << BITS_FILA | fila;
+            porCuenta[2 * fila] = origen(fila) << BITS_FILA | fila;
+            porCuenta[2 * fila + 1] = destino(fila) << BITS_FILA | fila;
+        }
+        Arrays.parallelSort(porId);
+        Arrays.parallelSort(porCuenta);
+    }
+
+    /**
+     * Mapea un lote existente y construye sus índices.
+     *
+     * @param archivo el archivo del lote
+     * @return el lote
+     * @throws IOException si no se puede mapear
+     */
+    static LoteArchivado abrir(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long bytes = canal.size();
+            if (bytes % ANCHO != 0 || bytes / ANCHO > MAX_FILAS) {
+                throw new IOException("Lote archivado inválido: " + archivo);
+            }
+            return new LoteArchivado(archivo, canal.map(FileChannel.MapMode.READ_ONLY, 0, bytes),
+                    (int) (bytes / ANCHO));
+        }
+    }
+
+    /**
+     * Escribe las transacciones como filas y sincroniza el archivo.
+     *
+     * @param archivo       el archivo de destino
+     * @param transacciones a lo sumo {@link #MAX_FILAS}, ordenadas por
+     *                      {@link #compararParaArchivo}
+     * @throws IOException si no se puede escribir
+     */
+    static void escribir(Path archivo, List<Transaccion> transacciones) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(ANCHO * 1024);
+            for (Transaccion transaccion : transacciones) {
+                buffer.putLong(transaccion.getId());
+                buffer.putLong(centavos(transaccion.getMonto()));
+                buffer.putLong(millis(transaccion.getFecha()));
+                buffer.putLong(transaccion.getCuentaOrigen().getId());
+                buffer.putLong(transaccion.getCuentaDestino().getId());
+                if (!buffer.hasRemaining()) {
+                    vaciar(canal, buffer);
+                }
+            }
+            vaciar(canal, buffer);
+            canal.force(true);
+        }
+    }
+
+    /**
+     * Escribe en un archivo nuevo las filas de dos lotes, intercaladas en el
+     * orden del archivo, y lo sincroniza. Las filas se copian tal cual, sin
+     * materializar transacciones.
+     *
+     * @param archivo el archivo de destino
+     * @param a       un lote
+     * @param b       otro lote; entre ambos, a lo sumo {@link #MAX_FILAS} filas
+     * @throws IOException si no se puede escribir
+     */
+    static void fusionar(Path archivo, LoteArchivado a, LoteArchivado b) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(ANCHO * 1024);
+            int i = 0;
+            int j = 0;
+            while (i < a.tamano || j < b.tamano) {
+                if (j == b.tamano || (i < a.tamano && a.anteriorA(i, b, j))) {
+                    a.copiar(i++, buffer);
+                } else {
+                    b.copiar(j++, buffer);
+                }
+                if (!buffer.hasRemaining()) {
+                    vaciar(canal, buffer);
+                }
+            }
+            vaciar(canal, buffer);
+            canal.force(true);
+        }
+    }
+
+    /**
+     * Orden de las filas en el archivo: por fecha truncada a milisegundos y
+     * por ID, que coincide con el orden cronológico de las filas leídas.
+     */
+    static int compararParaArchivo(Transaccion a, Transaccion b) {
+        int porFecha = Long.compare(millis(a.getFecha()), millis(b.getFecha()));
+        return (porFecha != 0) ? porFecha : Long.compare(a.getId(), b.getId());
+    }
+
+    /**
+     * Indica si una transacción cabe en el formato de columnas: monto con a lo
+     * sumo dos decimales y en el rango de un {@code long}, e IDs empaquetables.
+     */
+    static boolean representable(Transaccion transaccion) {
+        if (transaccion.getMonto() == null || transaccion.getFecha() == null
+                || transaccion.getCuentaOrigen() == null || transaccion.getCuentaDestino() == null) {
+            return false;
+        }
+        try {
+            centavos(transaccion.getMonto());
+        } catch (ArithmeticException e) {
+            return false;
+        }
+        return claveValida(transaccion.getId()) && claveValida(transaccion.getCuentaOrigen().getId())
+                && claveValida(transaccion.getCuentaDestino().getId());
+    }
+
+    Path archivo() {
+        return archivo;
+    }
+
+    int tamano() {
+        return tamano;
+    }
+
+    long idMaximo() {
+        return (tamano == 0) ? 0L : porId[tamano - 1] >>> BITS_FILA;
+    }
+
+    /**
+     * @return la fila con el ID indicado, o -1
+     */
+    int buscarId(long id) {
+        int pos = inferior(porId, 0, porId.length, id << BITS_FILA);
+        return (pos < porId.length && (porId[pos] >>> BITS_FILA) == id) ? (int) (porId[pos] & MASCARA_FILA) : -1;
+    }
+
+    /**
+     * @return las posiciones {@code [desde, hasta)} de la cuenta en el índice
+     *         por cuenta
+     */
+    int[] rangoCuenta(long cuentaId) {
+        if (!claveValida(cuentaId)) {
+            return new int[] { 0, 0 };
+        }
+        int desde = inferior(porCuenta, 0, porCuenta.length, cuentaId << BITS_FILA);
+        int hasta = inferior(porCuenta, desde, porCuenta.length, (cuentaId + 1) << BITS_FILA);
+        return new int[] { desde, hasta };
+    }
+
+    /**
+     * @return la fila que ocupa una posición del índice por cuenta
+     */
+    int filaDeCuenta(int posicion) {
+        return (int) (porCuenta[posicion] & MASCARA_FILA);
+    }
+
+    long id(int fila) {
+        return filas.getLong(fila * ANCHO);
+    }
+
+    long origen(int fila) {
+        return filas.getLong(fila * ANCHO + 24);
+    }
+
+    long destino(int fila) {
+        return filas.getLong(fila * ANCHO + 32);
+    }
+
+    BigDecimal monto(int fila) {
+        return BigDecimal.valueOf(filas.getLong(fila * ANCHO + 8), 2);
+    }
+
+    LocalDateTime fecha(int fila) {
+        long millis = millis(fila);
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), Math.floorMod(millis, 1000) * 1_000_000,
+                ZoneOffset.UTC);
+    }
+
+    private long millis(int fila) {
+        return filas.getLong(fila * ANCHO + 16);
+    }
+
+    /**
+     * @return si la fila va antes que la fila de otro lote en el orden del
+     *         archivo
+     */
+    private boolean anteriorA(int fila, LoteArchivado otro, int filaOtro) {
+        int porFecha = Long.compare(millis(fila), otro.millis(filaOtro));
+        return (porFecha != 0) ? porFecha < 0 : id(fila) < otro.id(filaOtro);
+    }
+
+    private void copiar(int fila, ByteBuffer destino) {
+        for (int campo = 0; campo < ANCHO; campo += Long.BYTES) {
+            destino.putLong(filas.getLong(fila * ANCHO + campo));
+        }
+    }
+
+    private static long centavos(BigDecimal monto) {
+        return monto.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    private static long millis(LocalDateTime fecha) {
+        return fecha.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static boolean claveValida(Long clave) {
+        return clave != null && clave >= 0 && clave < MAX_CLAVE;
+    }
+
+    private static int inferior(long[] arreglo, int desde, int hasta, long clave) {
+        int pos = Arrays.binarySearch(arreglo, desde, hasta, clave);
+        if (pos < 0) {
+            return -pos - 1;
+        }
+        while (pos > desde && arreglo[pos - 1] == clave) {
+            pos--;
+        }
+        return pos;
+    }
+
+    private static void vaciar(FileChannel canal, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+}
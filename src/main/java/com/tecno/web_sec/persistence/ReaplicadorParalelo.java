@@ -0,0 +1,164 @@
+package com.tecno.web_sec.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reparte los registros leídos del log entre varios hilos, particionados por
+ * ID de entidad: los registros de una misma cuenta (o transacción) caen
+ * siempre en la misma partición y se aplican en el orden del log, mientras
+ * que entidades distintas se restauran en paralelo.
+ *
+ * Las transferencias se dividen en el nuevo saldo de cada cuenta y, si la
+ * traen, en el alta de su transacción. Los
+ * registros de usuarios son pocos y las cuentas dependen de ellos, así que se
+ * aplican en el hilo lector después de una barrera.
+ */
+final class ReaplicadorParalelo implements AutoCloseable {
+
+    private static final int LOTE = 1024; // Registros por tarea enviada a una partición
+    private static final int LOTES_EN_VUELO = 16; // Límite de memoria por partición
+
+    private final List<Restaurable> almacenes;
+    private final ExecutorService[] hilos;
+    private final Semaphore[] cupos;
+    private final List<List<RegistroWal>> lotes;
+    private final boolean barreraPorFase;
+    private final AtomicReference<RuntimeException> error = new AtomicReference<>();
+    private int faseActual;
+
+    /**
+     * @param almacenes      los almacenes a restaurar
+     * @param particiones    número de hilos
+     * @param barreraPorFase esperar a que terminen las cuentas antes de aplicar
+     *                       transacciones; se usa al cargar un snapshot, que
+     *                       viene ordenado por tipo de entidad
+     */
+    ReaplicadorParalelo(List<Restaurable> almacenes, int particiones, boolean barreraPorFase) {
+        this.almacenes = almacenes;
+        this.barreraPorFase = barreraPorFase;
+        int n = Math.max(1, particiones);
+        this.hilos = new ExecutorService[n];
+        this.cupos = new Semaphore[n];
+        this.lotes = new ArrayList<>(n);
+        ThreadFactory fabrica = Thread.ofPlatform().name("wal-recuperacion-", 0).daemon().factory();
+        for (int i = 0; i < n; i++) {
+            hilos[i] = Executors.newSingleThreadExecutor(fabrica);
+            cupos[i] = new Semaphore(LOTES_EN_VUELO);
+            lotes.add(new ArrayList<>(LOTE));
+        }
+    }
+
+    /**
+     * Envía un registro a su partición.
+     *
+     * @param registro el registro leído del log
+     */
+    void aplicar(RegistroWal registro) {
+        switch (registro) {
+            case RegistroWal.UsuarioGuardado r -> aplicarEnLector(r);
+            case RegistroWal.UsuarioEliminado r -> aplicarEnLector(r);
+            case RegistroWal.CuentaGuardada r -> encolar(r.id(), 1, r);
+            case RegistroWal.CuentaEliminada r -> encolar(r.id(), 1, r);
+            case RegistroWal.SaldoActualizado r -> encolar(r.cuentaId(), 1, r);
+            case RegistroWal.Transferencia r -> {
+                encolar(r.origenId(), 1, new RegistroWal.SaldoActualizado(r.origenId(), r.saldoOrigen()));
+                encolar(r.destinoId(), 1, new RegistroWal.SaldoActualizado(r.destinoId(), r.saldoDestino()));
+            }
+            case RegistroWal.TransferenciaRegistrada r -> {
+                aplicar(r.saldos());
+                encolar(r.transaccion().id(), 2, r.transaccion());
+            }
+            case RegistroWal.TransaccionGuardada r -> encolar(r.id(), 2, r);
+            case RegistroWal.TransaccionEliminada r -> encolar(r.id(), 2, r);
+        }
+    }
+
+    /**
+     * Espera a que todas las particiones apliquen lo recibido hasta ahora.
+     */
+    void barrera() {
+        List<Future<?>> marcas = new ArrayList<>(hilos.length);
+        for (int i = 0; i < hilos.length; i++) {
+            enviar(i);
+            marcas.add(hilos[i].submit(() -> {
+            }));
+        }
+        for (Future<?> marca : marcas) {
+            try {
+                marca.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Recuperación interrumpida", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Error en la recuperación", e.getCause());
+            }
+        }
+        RuntimeException fallo = error.get();
+        if (fallo != null) {
+            throw fallo;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            barrera();
+        } finally {
+            for (ExecutorService hilo : hilos) {
+                hilo.shutdownNow();
+            }
+        }
+    }
+
+    private void aplicarEnLector(RegistroWal registro) {
+        barrera();
+        for (Restaurable almacen : almacenes) {
+            almacen.restaurar(registro);
+        }
+    }
+
+    private void encolar(long clave, int fase, RegistroWal registro) {
+        if (barreraPorFase && fase != faseActual) {
+            if (faseActual != 0) {
+                barrera();
+            }
+            faseActual = fase;
+        }
+        int particion = Math.floorMod(Long.hashCode(clave * 0x9E3779B97F4A7C15L), hilos.length);
+        List<RegistroWal> lote = lotes.get(particion);
+        lote.add(registro);
+        if (lote.size() == LOTE) {
+            enviar(particion);
+        }
+    }
+
+    private void enviar(int particion) {
+        List<RegistroWal> lote = lotes.get(particion);
+        if (lote.isEmpty()) {
+            return;
+        }
+        lotes.set(particion, new ArrayList<>(LOTE));
+        cupos[particion].acquireUninterruptibly();
+        hilos[particion].execute(() -> {
+            try {
+                for (RegistroWal registro : lote) {
+                    for (Restaurable almacen : almacenes) {
+                        almacen.restaurar(registro);
+                    }
+                }
+            } catch (RuntimeException e) {
+                error.compareAndSet(null, e);
+            } finally {
+                cupos[particion].release();
+            }
+        });
+    }
+}
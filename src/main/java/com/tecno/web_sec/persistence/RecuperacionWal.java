@@ -0,0 +1,62 @@
+package com.tecno.web_sec.persistence;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Reconstruye los almacenes en memoria al arrancar. Si hay un snapshot, el
+ * estado se reemplaza por su contenido; si no, se parte de los datos
+ * iniciales de los servicios. Después se reaplican los registros del log
+ * posteriores al snapshot. Ambas fases se aplican en paralelo, particionadas
+ * por ID de cuenta o de transacción.
+ */
+@Component
+public class RecuperacionWal {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecuperacionWal.class);
+
+    private final WriteAheadLog wal;
+    private final List<Restaurable> almacenes;
+    private final int hilos;
+
+    public RecuperacionWal(WriteAheadLog wal, List<Restaurable> almacenes,
+            @Value("${banco.wal.hilos-recuperacion:0}") int hilos) {
+        this.wal = wal;
+        this.almacenes = almacenes;
+        this.hilos = (hilos > 0) ? hilos : Runtime.getRuntime().availableProcessors();
+    }
+
+    @PostConstruct
+    public void recuperar() throws IOException {
+        if (!wal.isHabilitado()) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        long desde = 0L;
+        long delSnapshot = 0L;
+        Optional<Path> snapshot = SnapshotWal.ultimo(wal.getDirectorio());
+        if (snapshot.isPresent()) {
+            almacenes.forEach(Restaurable::vaciar);
+            desde = SnapshotWal.lsn(snapshot.get());
+            try (ReaplicadorParalelo reaplicador = new ReaplicadorParalelo(almacenes, hilos, true)) {
+                delSnapshot = ArchivoWal.leer(snapshot.get(), reaplicador::aplicar)[1];
+            }
+        }
+        long delLog;
+        try (ReaplicadorParalelo reaplicador = new ReaplicadorParalelo(almacenes, hilos, false)) {
+            delLog = wal.recorrer(desde, reaplicador::aplicar);
+        }
+        almacenes.forEach(Restaurable::completarRestauracion);
+        logger.info("WAL: {} registros del snapshot y {} del log reaplicados con {} hilos en {} ms", delSnapshot,
+                delLog, hilos, (System.nanoTime() - inicio) / 1_000_000);
+    }
+}
@@ -0,0 +1,69 @@
+package com.tecno.web_sec.persistence;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Registro del write-ahead log. Cada registro describe el estado final de una
+ * entidad después de una mutación (imagen posterior), por lo que aplicarlo dos
+ * veces produce el mismo resultado que aplicarlo una vez.
+ */
+public sealed interface RegistroWal {
+
+    /**
+     * Alta o modificación de un usuario.
+     */
+    record UsuarioGuardado(long id, String username, String password, String role) implements RegistroWal {
+    }
+
+    /**
+     * Baja de un usuario.
+     */
+    record UsuarioEliminado(long id) implements RegistroWal {
+    }
+
+    /**
+     * Alta o modificación de una cuenta.
+     */
+    record CuentaGuardada(long id, String nombre, BigDecimal saldo, Long usuarioId) implements RegistroWal {
+    }
+
+    /**
+     * Baja de una cuenta.
+     */
+    record CuentaEliminada(long id) implements RegistroWal {
+    }
+
+    /**
+     * Nuevo saldo de una cuenta, en centavos, tras un depósito o un retiro.
+     */
+    record SaldoActualizado(long cuentaId, long saldo) implements RegistroWal {
+    }
+
+    /**
+     * Nuevos saldos, en centavos, de las dos cuentas de una transferencia.
+     */
+    record Transferencia(long origenId, long saldoOrigen, long destinoId, long saldoDestino)
+            implements RegistroWal {
+    }
+
+    /**
+     * Transferencia registrada con su transacción. Los saldos y el alta van en
+     * un solo registro, así que la recuperación aplica ambos o ninguno.
+     */
+    record TransferenciaRegistrada(Transferencia saldos, TransaccionGuardada transaccion) implements RegistroWal {
+    }
+
+    /**
+     * Alta de una transacción.
+     */
+    record TransaccionGuardada(long id, BigDecimal monto, LocalDateTime fecha, long origenId, long destinoId)
+            implements RegistroWal {
+    }
+
+    /**
+     * Baja de una transacción.
+     */
+    record TransaccionEliminada(long id) implements RegistroWal {
+    }
+}
@@ -0,0 +1,45 @@
+package com.tecno.web_sec.persistence;
+
+import java.util.function.Consumer;
+
+/**
+ * Almacén en memoria que puede reconstruirse a partir del write-ahead log.
+ * Durante la recuperación cada registro se entrega, en orden, a todos los
+ * almacenes; cada uno aplica los que le corresponden e ignora el resto, sin
+ * volver a escribirlos en el log.
+ *
+ * La recuperación puede aplicar registros de entidades distintas desde varios
+ * hilos a la vez; los registros de una misma cuenta, usuario o transacción
+ * siempre llegan en orden y desde un solo hilo.
+ */
+public interface Restaurable {
+
+    /**
+     * Aplica un registro del log al estado en memoria.
+     *
+     * @param registro el registro a aplicar
+     */
+    void restaurar(RegistroWal registro);
+
+    /**
+     * Emite el estado actual como registros de alta, para un snapshot. No
+     * detiene las operaciones en curso: cada entidad se lee tal como está en
+     * ese momento.
+     *
+     * @param destino recibe cada registro
+     */
+    void volcar(Consumer<RegistroWal> destino);
+
+    /**
+     * Descarta el estado en memoria antes de cargar un snapshot, que reemplaza
+     * también a los datos iniciales.
+     */
+    void vaciar();
+
+    /**
+     * Se invoca una vez aplicados todos los registros, para resolver
+     * referencias entre entidades restauradas en paralelo.
+     */
+    default void completarRestauracion() {
+    }
+}
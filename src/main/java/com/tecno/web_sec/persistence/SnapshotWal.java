@@ -0,0 +1,171 @@
+package com.tecno.web_sec.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Snapshots periódicos del estado en memoria, tomados sin detener las
+ * operaciones (snapshot difuso más posición del log).
+ *
+ * <ol>
+ * <li>Se cierra el segmento actual del log y se toma un número de secuencia
+ * {@code L} cuyos efectos ya están todos en memoria.</li>
+ * <li>Se recorren usuarios, cuentas y transacciones mientras siguen llegando
+ * mutaciones; el resultado puede incluir algunos cambios posteriores a
+ * {@code L}.</li>
+ * <li>Se espera a que el log sea durable hasta el último cambio que pudo verse
+ * en el recorrido, se escribe el archivo y se publica con un renombrado
+ * atómico.</li>
+ * <li>Se borran los segmentos y snapshots anteriores a {@code L}.</li>
+ * </ol>
+ *
+ * Al recuperar se carga el snapshot y se reaplican los registros posteriores a
+ * {@code L}; como cada registro es una imagen posterior, los cambios que el
+ * snapshot ya incluía se vuelven a escribir con el mismo valor final.
+ */
+@Component
+public class SnapshotWal {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotWal.class);
+
+    private static final String PREFIJO = "snapshot-";
+    private static final String EXTENSION = ".snap";
+
+    private final WriteAheadLog wal;
+    private final List<Restaurable> almacenes;
+    private final boolean programado;
+    private final ReentrantLock enCurso = new ReentrantLock();
+
+    public SnapshotWal(WriteAheadLog wal, List<Restaurable> almacenes,
+            @Value("${banco.wal.snapshot.habilitado:true}") boolean programado) {
+        this.wal = wal;
+        this.almacenes = almacenes;
+        this.programado = programado;
+    }
+
+    /**
+     * Toma un snapshot si el log está activo y los snapshots programados están
+     * habilitados.
+     */
+    @Scheduled(initialDelayString = "${banco.wal.snapshot.intervalo:PT10M}",
+            fixedDelayString = "${banco.wal.snapshot.intervalo:PT10M}")
+    public void programar() {
+        if (!wal.isHabilitado() || !programado) {
+            return;
+        }
+        try {
+            tomar();
+        } catch (IOException | RuntimeException e) {
+            logger.error("WAL: no se pudo tomar el snapshot", e);
+        }
+    }
+
+    /**
+     * Toma un snapshot y trunca el log.
+     *
+     * @return el número de secuencia cubierto por el snapshot
+     * @throws IOException si no se puede escribir el archivo
+     */
+    public long tomar() throws IOException {
+        if (!wal.isHabilitado()) {
+            return 0L;
+        }
+        enCurso.lock();
+        try {
+            long inicio = System.nanoTime();
+            wal.rotar();
+            long lsn = wal.puntoConsistente();
+            Path directorio = wal.getDirectorio();
+            Path temporal = directorio.resolve(PREFIJO + "tmp");
+            long[] registros = { 0 };
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                OutputStream salida = new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16);
+                for (Restaurable almacen : almacenes) {
+                    almacen.volcar(registro -> {
+                        try {
+                            salida.write(ArchivoWal.marco(registro));
+                            registros[0]++;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+                salida.flush();
+                // Todo lo que pudo verse durante el recorrido debe ser durable
+                // antes de que el snapshot reemplace a los segmentos
+                wal.awaitDurable(wal.puntoConsistente());
+                canal.force(true);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Path definitivo = archivo(directorio, lsn);
+            Files.move(temporal, definitivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            try (Stream<Path> archivos = Files.list(directorio)) {
+                for (Path anterior : archivos.filter(SnapshotWal::esSnapshot).toList()) {
+                    if (lsn(anterior) < lsn) {
+                        Files.deleteIfExists(anterior);
+                    }
+                }
+            }
+            int segmentos = wal.truncarHasta(lsn);
+            logger.info("WAL: snapshot en {} con {} registros en {} ms; {} segmentos borrados", lsn, registros[0],
+                    (System.nanoTime() - inicio) / 1_000_000, segmentos);
+            return lsn;
+        } finally {
+            enCurso.unlock();
+        }
+    }
+
+    /**
+     * Busca el snapshot más reciente del directorio.
+     *
+     * @param directorio el directorio del log
+     * @return el archivo del snapshot, si existe
+     * @throws IOException si no se puede listar el directorio
+     */
+    static Optional<Path> ultimo(Path directorio) throws IOException {
+        if (!Files.isDirectory(directorio)) {
+            return Optional.empty();
+        }
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.filter(SnapshotWal::esSnapshot).max((a, b) -> Long.compare(lsn(a), lsn(b)));
+        }
+    }
+
+    /**
+     * @param snapshot el archivo del snapshot
+     * @return el número de secuencia que cubre
+     */
+    static long lsn(Path snapshot) {
+        String nombre = snapshot.getFileName().toString();
+        return Long.parseLong(nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length()));
+    }
+
+    private static Path archivo(Path directorio, long lsn) {
+        return directorio.resolve(String.format("%s%020d%s", PREFIJO, lsn, EXTENSION));
+    }
+
+    private static boolean esSnapshot(Path archivo) {
+        String nombre = archivo.getFileName().toString();
+        return nombre.startsWith(PREFIJO) && nombre.endsWith(EXTENSION);
+    }
+}
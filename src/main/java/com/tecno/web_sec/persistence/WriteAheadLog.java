@@ -0,0 +1,556 @@
+package com.tecno.web_sec.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-ahead log de solo anexado. Los servicios anexan un
+ * {@link RegistroWal} por cada mutación mientras todavía sostienen los
+ * candados de las entidades afectadas, de modo que el orden del log coincide
+ * con el orden en que se aplicaron los cambios. La espera hasta que el
+ * registro es durable ocurre después, fuera de los candados.
+ *
+ * Un único hilo escribe en el archivo: toma todo lo anexado desde la última
+ * escritura, lo escribe con un {@link FileChannel} y hace un solo fsync para
+ * el lote completo (group commit), así el costo del fsync se reparte entre
+ * todos los hilos que esperaban.
+ *
+ * El log se divide en segmentos {@code wal-<lsn base>.log}; el hilo escritor
+ * abre uno nuevo cuando el actual supera {@code banco.wal.segmento-bytes} o
+ * cuando se toma un snapshot, y los segmentos cubiertos por un snapshot se
+ * borran con {@link #truncarHasta(long)}.
+ *
+ * Cada registro se guarda como {@code [longitud][crc32c][datos]}; al abrir el
+ * log se descarta una cola incompleta o corrupta dejada por una caída.
+ *
+ * Si el hilo escritor falla o el log se cierra, {@link #append} y
+ * {@link #grupo()} rechazan los registros nuevos: un número de secuencia que
+ * nunca será durable no debe llegar a los servicios. Los servicios llaman a
+ * {@link #verificar()} antes de cambiar la memoria, para no aplicar un
+ * cambio que el log ya no puede guardar.
+ */
+@Component
+public class WriteAheadLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    static final String ARCHIVO_ANTERIOR = "wal.log"; // Log de un solo archivo de versiones previas
+    private static final String PREFIJO = "wal-";
+    private static final String EXTENSION = ".log";
+
+    private static final WriteAheadLog DESHABILITADO = new WriteAheadLog(false, null, false, Long.MAX_VALUE);
+
+    private final boolean habilitado;
+    private final Path directorio;
+    private final boolean fsync;
+    private final long segmentoBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hayDatos = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private ByteArrayOutputStream pendiente = new ByteArrayOutputStream(64 * 1024);
+    private ByteArrayOutputStream enEscritura = new ByteArrayOutputStream(64 * 1024);
+    private long ultimoLsn; // Último número de secuencia asignado
+    private long lsnDurable; // Último número de secuencia escrito y sincronizado
+    private boolean rotacionPedida; // Un snapshot pidió cerrar el segmento actual
+    private long rotaciones; // Segmentos cerrados por el hilo escritor
+    private IOException error;
+    private boolean cerrado;
+    private boolean terminado; // El hilo escritor ya no procesará más lotes
+    private volatile boolean inactivo; // Cerrado, terminado o con error: no acepta registros nuevos
+
+    // Los grupos toman la lectura; un snapshot toma la escritura solo para leer
+    // un número de secuencia cuyos efectos estén completos en memoria
+    private final ReentrantReadWriteLock puntoControl = new ReentrantReadWriteLock();
+
+    private FileChannel canal;
+    private long baseActual; // Número de secuencia base del segmento abierto
+    private Thread escritor;
+
+    private final ThreadLocal<Grupo> grupoActual = new ThreadLocal<>();
+
+    public WriteAheadLog(@Value("${banco.wal.habilitado:false}") boolean habilitado,
+            @Value("${banco.wal.directorio:data/wal}") Path directorio,
+            @Value("${banco.wal.fsync:true}") boolean fsync,
+            @Value("${banco.wal.segmento-bytes:67108864}") long segmentoBytes) {
+        this.habilitado = habilitado;
+        this.directorio = directorio;
+        this.fsync = fsync;
+        this.segmentoBytes = segmentoBytes;
+    }
+
+    /**
+     * Log inactivo: no escribe nada. Es el valor por defecto de los servicios
+     * creados fuera del contexto de Spring.
+     *
+     * @return el log deshabilitado compartido
+     */
+    public static WriteAheadLog deshabilitado() {
+        return DESHABILITADO;
+    }
+
+    /**
+     * Abre el último segmento, descarta una cola corrupta e inicia el hilo
+     * escritor.
+     *
+     * @throws IOException si no se puede abrir el archivo
+     */
+    @PostConstruct
+    public void abrir() throws IOException {
+        if (!habilitado) {
+            return;
+        }
+        Files.createDirectories(directorio);
+        Path anterior = directorio.resolve(ARCHIVO_ANTERIOR);
+        if (Files.exists(anterior)) {
+            Files.move(anterior, segmento(0L)); // El archivo único pasa a ser el primer segmento
+        }
+        List<Path> segmentos = segmentos();
+        long base = segmentos.isEmpty() ? 0L : base(segmentos.get(segmentos.size() - 1));
+        Path archivo = segmento(base);
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long[] valido = ArchivoWal.leer(archivo, registro -> {
+        });
+        if (valido[0] < canal.size()) {
+            logger.warn("WAL: se descartan {} bytes incompletos al final de {}", canal.size() - valido[0], archivo);
+            canal.truncate(valido[0]);
+        }
+        canal.position(valido[0]);
+        baseActual = base;
+        ultimoLsn = base + valido[1];
+        lsnDurable = ultimoLsn;
+        escritor = Thread.ofPlatform().name("wal-escritor").daemon().start(this::escribirLotes);
+        logger.info("WAL abierto en {} con {} registros", directorio, ultimoLsn);
+    }
+
+    /**
+     * Indica si el log está activo.
+     *
+     * @return {@code true} si las mutaciones se están registrando
+     */
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * @return el directorio del log y de los snapshots
+     */
+    public Path getDirectorio() {
+        return directorio;
+    }
+
+    /**
+     * Anexa un registro al log. No espera a que sea durable.
+     *
+     * @param registro el registro a anexar
+     * @return el número de secuencia asignado, o 0 si el log está deshabilitado
+     * @throws UncheckedIOException  si el hilo escritor falló
+     * @throws IllegalStateException si el log está cerrado
+     */
+    public long append(RegistroWal registro) {
+        if (!habilitado) {
+            return 0L;
+        }
+        byte[] datos = ArchivoWal.marco(registro);
+        long lsn;
+        lock.lock();
+        try {
+            rechazarSiInactivo();
+            pendiente.write(datos, 0, datos.length);
+            lsn = ++ultimoLsn;
+            hayDatos.signal();
+        } finally {
+            lock.unlock();
+        }
+        Grupo grupo = grupoActual.get();
+        if (grupo != null) {
+            grupo.ultimoLsn = lsn;
+        }
+        return lsn;
+    }
+
+    /**
+     * Falla si el log ya no acepta registros. Es una lectura volatile mientras
+     * el log está activo.
+     *
+     * @throws UncheckedIOException  si el hilo escritor falló
+     * @throws IllegalStateException si el log está cerrado
+     */
+    public void verificar() {
+        if (!inactivo) {
+            return;
+        }
+        lock.lock();
+        try {
+            rechazarSiInactivo();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Se llama con el candado tomado.
+     */
+    private void rechazarSiInactivo() {
+        if (error != null) {
+            throw new UncheckedIOException("Error al escribir el WAL", error);
+        }
+        if (cerrado || terminado) {
+            throw new IllegalStateException("El WAL está cerrado");
+        }
+    }
+
+    /**
+     * Espera a que el registro con el número de secuencia indicado, y todos los
+     * anteriores, estén escritos y sincronizados en disco.
+     *
+     * @param lsn el número de secuencia a esperar
+     */
+    public void awaitDurable(long lsn) {
+        if (!habilitado || lsn <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (lsnDurable < lsn) {
+                if (error != null) {
+                    throw new UncheckedIOException("Error al escribir el WAL", error);
+                }
+                if (terminado) {
+                    throw new IllegalStateException("El WAL está cerrado");
+                }
+                durable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Abre un grupo de registros en el hilo actual. Los grupos se anidan: al
+     * cerrar el más externo se espera a que el último registro anexado por el
+     * hilo sea durable, fuera de cualquier candado que el código interno haya
+     * tomado y liberado.
+     *
+     * @return el grupo, que debe cerrarse con try-with-resources
+     * @throws UncheckedIOException  si el hilo escritor falló
+     * @throws IllegalStateException si el log está cerrado
+     */
+    public Grupo grupo() {
+        if (!habilitado) {
+            return Grupo.VACIO;
+        }
+        verificar(); // Antes de que el servicio toque la memoria
+        Grupo grupo = grupoActual.get();
+        if (grupo == null) {
+            puntoControl.readLock().lock();
+            grupo = new Grupo(this);
+            grupoActual.set(grupo);
+        }
+        grupo.profundidad++;
+        return grupo;
+    }
+
+    /**
+     * Devuelve un número de secuencia tal que todos los registros hasta él
+     * tienen sus efectos aplicados en memoria y ningún efecto visible en
+     * memoria tiene un número mayor. Espera a que terminen los grupos en curso
+     * sin detener a los que empiezan después.
+     *
+     * @return el número de secuencia consistente
+     */
+    public long puntoConsistente() {
+        puntoControl.writeLock().lock();
+        try {
+            lock.lock();
+            try {
+                return ultimoLsn;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            puntoControl.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cierra el segmento actual y espera a que el hilo escritor abra uno
+     * nuevo, de modo que los registros anteriores queden en segmentos que un
+     * snapshot posterior puede cubrir por completo.
+     */
+    public void rotar() {
+        if (!habilitado) {
+            return;
+        }
+        lock.lock();
+        try {
+            long objetivo = rotaciones + 1;
+            rotacionPedida = true;
+            hayDatos.signal();
+            while (rotaciones < objetivo) {
+                if (error != null) {
+                    throw new UncheckedIOException("Error al escribir el WAL", error);
+                }
+                if (terminado) {
+                    throw new IllegalStateException("El WAL está cerrado");
+                }
+                durable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Borra los segmentos cuyos registros son todos anteriores o iguales al
+     * número de secuencia indicado. El segmento actual nunca se borra.
+     *
+     * @param lsn el número de secuencia cubierto por un snapshot durable
+     * @return el número de segmentos borrados
+     * @throws IOException si no se puede borrar un segmento
+     */
+    public int truncarHasta(long lsn) throws IOException {
+        if (!habilitado) {
+            return 0;
+        }
+        List<Path> segmentos = segmentos();
+        int borrados = 0;
+        for (int i = 0; i + 1 < segmentos.size(); i++) {
+            if (base(segmentos.get(i + 1)) <= lsn) {
+                Files.deleteIfExists(segmentos.get(i));
+                borrados++;
+            }
+        }
+        return borrados;
+    }
+
+    /**
+     * Recorre los registros válidos del log en orden.
+     *
+     * @param consumidor recibe cada registro
+     * @return el número de registros recorridos
+     * @throws IOException si no se puede leer el archivo
+     */
+    public long recorrer(Consumer<RegistroWal> consumidor) throws IOException {
+        return recorrer(0L, consumidor);
+    }
+
+    /**
+     * Recorre en orden los registros con número de secuencia mayor que el
+     * indicado, saltando los segmentos que quedan completamente antes.
+     *
+     * @param desde      número de secuencia ya cubierto (por un snapshot)
+     * @param consumidor recibe cada registro
+     * @return el número de registros recorridos
+     * @throws IOException si no se puede leer un segmento
+     */
+    public long recorrer(long desde, Consumer<RegistroWal> consumidor) throws IOException {
+        if (!habilitado) {
+            return 0L;
+        }
+        List<Path> segmentos = segmentos();
+        long total = 0;
+        for (int i = 0; i < segmentos.size(); i++) {
+            if (i + 1 < segmentos.size() && base(segmentos.get(i + 1)) <= desde) {
+                continue;
+            }
+            long[] lsn = { base(segmentos.get(i)) };
+            long[] entregados = { 0 };
+            ArchivoWal.leer(segmentos.get(i), registro -> {
+                if (++lsn[0] > desde) {
+                    consumidor.accept(registro);
+                    entregados[0]++;
+                }
+            });
+            total += entregados[0];
+        }
+        return total;
+    }
+
+    /**
+     * Escribe lo pendiente, detiene el hilo escritor y cierra el archivo.
+     */
+    @PreDestroy
+    public void cerrar() {
+        if (!habilitado || escritor == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            cerrado = true;
+            inactivo = true;
+            hayDatos.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            escritor.join(TimeUnit.SECONDS.toMillis(10));
+            canal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.warn("WAL: error al cerrar el archivo", e);
+        }
+    }
+
+    /**
+     * Segmentos existentes ordenados por su número de secuencia base.
+     */
+    List<Path> segmentos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos
+                    .filter(p -> p.getFileName().toString().startsWith(PREFIJO)
+                            && p.getFileName().toString().endsWith(EXTENSION))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmento(long base) {
+        return directorio.resolve(String.format("%s%020d%s", PREFIJO, base, EXTENSION));
+    }
+
+    private static long base(Path segmento) {
+        String nombre = segmento.getFileName().toString();
+        return Long.parseLong(nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length()));
+    }
+
+    /**
+     * Bucle del hilo escritor: cada vuelta escribe y sincroniza todo lo que se
+     * anexó mientras se procesaba el lote anterior, y abre un segmento nuevo si
+     * se pidió o si el actual es demasiado grande.
+     */
+    private void escribirLotes() {
+        while (true) {
+            long lote;
+            boolean rotar;
+            lock.lock();
+            try {
+                while (pendiente.size() == 0 && !cerrado && !rotacionPedida) {
+                    hayDatos.awaitUninterruptibly();
+                }
+                if (pendiente.size() == 0 && !rotacionPedida) {
+                    terminado = true; // Cerrado y sin datos pendientes
+                    inactivo = true;
+                    durable.signalAll();
+                    return;
+                }
+                ByteArrayOutputStream aux = enEscritura;
+                enEscritura = pendiente;
+                pendiente = aux;
+                lote = ultimoLsn;
+                rotar = rotacionPedida;
+                rotacionPedida = false;
+            } finally {
+                lock.unlock();
+            }
+            IOException fallo = null;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(enEscritura.toByteArray());
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer);
+                }
+                if (fsync) {
+                    canal.force(false);
+                }
+                if ((rotar || canal.size() >= segmentoBytes) && lote > baseActual) {
+                    FileChannel anterior = canal;
+                    canal = FileChannel.open(segmento(lote), StandardOpenOption.CREATE_NEW,
+                            StandardOpenOption.WRITE);
+                    anterior.close();
+                    baseActual = lote;
+                }
+            } catch (IOException e) {
+                logger.error("WAL: error al escribir el lote hasta {}", lote, e);
+                fallo = e;
+            }
+            enEscritura.reset();
+            lock.lock();
+            try {
+                if (fallo != null) {
+                    error = fallo;
+                    terminado = true;
+                    inactivo = true;
+                } else {
+                    lsnDurable = lote;
+                    if (rotar) {
+                        rotaciones++;
+                    }
+                }
+                durable.signalAll();
+                if (fallo != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Conjunto de registros anexados por un hilo dentro de una operación.
+     */
+    public static final class Grupo implements AutoCloseable {
+
+        private static final Grupo VACIO = new Grupo(null);
+
+        private final WriteAheadLog wal;
+        private int profundidad;
+        private long ultimoLsn;
+        private boolean diferido;
+
+        private Grupo(WriteAheadLog wal) {
+            this.wal = wal;
+        }
+
+        /**
+         * Hace que el cierre del grupo no espere la durabilidad; quien lo
+         * invoca se compromete a llamar a {@link WriteAheadLog#awaitDurable}
+         * con {@link #ultimoLsn()}, posiblemente desde otro hilo.
+         */
+        public void diferir() {
+            diferido = true;
+        }
+
+        /**
+         * @return el número de secuencia del último registro anexado en el grupo
+         */
+        public long ultimoLsn() {
+            return ultimoLsn;
+        }
+
+        @Override
+        public void close() {
+            if (wal == null || --profundidad > 0) {
+                return;
+            }
+            wal.grupoActual.remove();
+            wal.puntoControl.readLock().unlock();
+            if (!diferido) {
+                wal.awaitDurable(ultimoLsn);
+            }
+        }
+    }
+}
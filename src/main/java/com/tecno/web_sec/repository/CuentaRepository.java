@@ -0,0 +1,168 @@
+package com.tecno.web_sec.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Repository;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Usuario;
+
+/**
+ * Almacén en memoria de las cuentas, compartido por todos los servicios.
+ * Mantiene el índice primario por ID y el índice secundario por propietario.
+ *
+ * Los índices son concurrentes. {@code CuentaServiceImpl} modifica cada
+ * cuenta bajo su candado, así que los dos índices de una misma cuenta no
+ * cambian en paralelo.
+ */
+@Repository
+public class CuentaRepository {
+
+    private final Map<Long, Cuenta> cuentas = new ConcurrentHashMap<>();
+    // Las mismas cuentas en orden de ID, para listarlas por páginas
+    private final ConcurrentNavigableMap<Long, Cuenta> enOrden = new ConcurrentSkipListMap<>();
+    // ID de usuario -> IDs de sus cuentas
+    private final Map<Long, Set<Long>> cuentasPorUsuario = new ConcurrentHashMap<>();
+    // Último ID asignado
+    private final AtomicLong idCounter = new AtomicLong();
+
+    public List<Cuenta> findAll() {
+        return new ArrayList<>(cuentas.values());
+    }
+
+    /**
+     * Recorre las cuentas sin copiarlas.
+     */
+    public void forEach(Consumer<? super Cuenta> accion) {
+        cuentas.values().forEach(accion);
+    }
+
+    /**
+     * Una página en orden de ID, leída del índice ordenado: el costo depende
+     * del tamaño de la página y no del total de cuentas.
+     *
+     * @param despues ID desde el que se lista, sin incluirlo, o {@code null}
+     *                para empezar por el primero
+     * @param tamano  máximo de cuentas a devolver
+     * @return a lo sumo {@code tamano} cuentas con ID mayor que {@code despues}
+     */
+    public List<Cuenta> findPagina(Long despues, int tamano) {
+        Map<Long, Cuenta> desde = (despues != null) ? enOrden.tailMap(despues, false) : enOrden;
+        List<Cuenta> resultado = new ArrayList<>(tamano);
+        for (Cuenta cuenta : desde.values()) {
+            if (resultado.size() == tamano) {
+                break;
+            }
+            resultado.add(cuenta);
+        }
+        return resultado;
+    }
+
+    public Optional<Cuenta> findById(Long id) {
+        return Optional.ofNullable((id != null) ? cuentas.get(id) : null);
+    }
+
+    /**
+     * Búsqueda en el índice por propietario; el costo depende solo de las
+     * cuentas del usuario.
+     *
+     * @param usuarioId el ID del usuario
+     * @return sus cuentas, o una lista vacía
+     */
+    public List<Cuenta> findByUsuarioId(Long usuarioId) {
+        Set<Long> ids = (usuarioId != null) ? cuentasPorUsuario.get(usuarioId) : null;
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        List<Cuenta> resultado = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Cuenta cuenta = cuentas.get(id);
+            if (cuenta != null) {
+                resultado.add(cuenta);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * @return si el índice por propietario asocia la cuenta al usuario
+     */
+    public boolean existsByIdAndUsuarioId(Long id, Long usuarioId) {
+        Set<Long> ids = (usuarioId != null) ? cuentasPorUsuario.get(usuarioId) : null;
+        return ids != null && ids.contains(id);
+    }
+
+    public int count() {
+        return cuentas.size();
+    }
+
+    /**
+     * @return un ID que ninguna cuenta guardada usa
+     */
+    public long siguienteId() {
+        return idCounter.incrementAndGet();
+    }
+
+    /**
+     * Registra la cuenta en el índice primario y en el índice de su
+     * propietario actual. Si la cuenta ya estaba guardada con otro
+     * propietario, antes hay que llamar a {@link #desindexarUsuario}.
+     *
+     * @param cuenta la cuenta, con ID
+     */
+    public void save(Cuenta cuenta) {
+        cuentas.put(cuenta.getId(), cuenta);
+        enOrden.put(cuenta.getId(), cuenta);
+        idCounter.accumulateAndGet(cuenta.getId(), Math::max); // Evita reutilizar IDs asignados a mano
+        Usuario usuario = cuenta.getUsuario();
+        if (usuario != null && usuario.getId() != null) {
+            cuentasPorUsuario.computeIfAbsent(usuario.getId(), k -> ConcurrentHashMap.newKeySet())
+                    .add(cuenta.getId());
+        }
+    }
+
+    /**
+     * Quita la cuenta del índice de su propietario actual.
+     *
+     * @param cuenta la cuenta
+     */
+    public void desindexarUsuario(Cuenta cuenta) {
+        Usuario usuario = cuenta.getUsuario();
+        if (usuario != null && usuario.getId() != null) {
+            Set<Long> ids = cuentasPorUsuario.get(usuario.getId());
+            if (ids != null) {
+                ids.remove(cuenta.getId());
+            }
+        }
+    }
+
+    /**
+     * Quita la cuenta de los dos índices.
+     *
+     * @param id el ID de la cuenta
+     * @return la cuenta quitada, o vacío si no existía
+     */
+    public Optional<Cuenta> deleteById(Long id) {
+        Cuenta cuenta = (id != null) ? cuentas.remove(id) : null;
+        if (cuenta != null) {
+            enOrden.remove(id);
+            desindexarUsuario(cuenta);
+        }
+        return Optional.ofNullable(cuenta);
+    }
+
+    public void deleteAll() {
+        cuentas.clear();
+        enOrden.clear();
+        cuentasPorUsuario.clear();
+    }
+}
@@ -0,0 +1,49 @@
+package com.tecno.web_sec.repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Usuario;
+
+/**
+ * Usuarios y cuentas de demostración. Es el único lugar donde se crean, así
+ * que cada usuario y cada cuenta existe una sola vez y las cuentas apuntan a
+ * los mismos objetos {@link Usuario} contra los que se inicia sesión.
+ */
+public final class DatosIniciales {
+
+    private DatosIniciales() {
+    }
+
+    /**
+     * Carga los datos de demostración en los almacenes. Si hay un log de
+     * escritura, la recuperación parte de estos datos.
+     *
+     * @param usuarios        el almacén de usuarios
+     * @param cuentas         el almacén de cuentas
+     * @param passwordEncoder el codificador de las contraseñas
+     */
+    public static void cargar(UsuarioRepository usuarios, CuentaRepository cuentas,
+            PasswordEncoder passwordEncoder) {
+        String[][] datos = {
+                // usuario, rol, cuenta, saldo
+                { "usuario1", "USER", "Cuenta A", "1000.00" },
+                { "usuario2", "USER", "Cuenta B", "1500.00" },
+                { "admin", "ADMIN", "Cuenta C", "2000.00" },
+                { "usuario4", "USER", "Cuenta D", "2500.00" },
+                { "usuario5", "USER", "Cuenta E", "3000.00" },
+                { "usuario6", "USER", "Cuenta F", "3500.00" },
+        };
+        for (String[] fila : datos) {
+            Usuario usuario = new Usuario(usuarios.siguienteId(), fila[0], passwordEncoder.encode("123"), fila[1],
+                    new ArrayList<>());
+            usuarios.save(usuario);
+            Cuenta cuenta = new Cuenta(cuentas.siguienteId(), fila[2], new BigDecimal(fila[3]), usuario);
+            usuario.getCuentas().add(cuenta);
+            cuentas.save(cuenta);
+        }
+    }
+}
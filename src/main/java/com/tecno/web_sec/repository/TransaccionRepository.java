@@ -0,0 +1,140 @@
+package com.tecno.web_sec.repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Repository;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Transaccion;
+
+/**
+ * Almacén en memoria de las transacciones que todavía no pasaron al archivo.
+ * Mantiene el índice por ID, la lista cronológica de cada cuenta y el índice
+ * temporal de todo el banco; todos son concurrentes y se leen sin candados.
+ */
+@Repository
+public class TransaccionRepository {
+
+    private final ConcurrentNavigableMap<Long, Transaccion> transacciones = new ConcurrentSkipListMap<>();
+    // Listas de transacciones por ID de cuenta, en orden cronológico
+    private final ConcurrentHashMap<Long, NavigableSet<Transaccion>> porCuenta = new ConcurrentHashMap<>();
+    // Índice temporal de todo el banco, en orden cronológico
+    private final NavigableSet<Transaccion> porFecha = new ConcurrentSkipListSet<>(Transaccion.ORDEN_CRONOLOGICO);
+    // Último ID asignado
+    private final AtomicLong idCounter = new AtomicLong(10L);
+    // Número de transacciones; el tamaño del mapa se calcula recorriéndolo
+    private final LongAdder tamano = new LongAdder();
+
+    /**
+     * @return las transacciones en orden de ID; refleja los cambios posteriores
+     */
+    public Collection<Transaccion> findAll() {
+        return transacciones.values();
+    }
+
+    public Optional<Transaccion> findById(Long id) {
+        return Optional.ofNullable((id != null) ? transacciones.get(id) : null);
+    }
+
+    /**
+     * @param cuentaId el ID de la cuenta
+     * @return la lista cronológica de la cuenta, vacía si no tiene
+     *         transacciones; refleja los cambios posteriores
+     */
+    public NavigableSet<Transaccion> findByCuentaId(Long cuentaId) {
+        NavigableSet<Transaccion> lista = (cuentaId != null) ? porCuenta.get(cuentaId) : null;
+        return (lista != null) ? lista : Collections.emptyNavigableSet();
+    }
+
+    /**
+     * @return todas las transacciones en orden cronológico; refleja los
+     *         cambios posteriores
+     */
+    public NavigableSet<Transaccion> findAllPorFecha() {
+        return porFecha;
+    }
+
+    public int count() {
+        return tamano.intValue();
+    }
+
+    /**
+     * @return un ID que ninguna transacción guardada usa
+     */
+    public long siguienteId() {
+        return idCounter.incrementAndGet();
+    }
+
+    /**
+     * Asegura que los IDs nuevos sigan después de uno ya usado fuera de este
+     * almacén, por ejemplo en el archivo.
+     */
+    public void reservarHasta(long id) {
+        idCounter.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * Registra la transacción en los tres índices.
+     *
+     * @param transaccion la transacción, con ID y fecha
+     */
+    public void save(Transaccion transaccion) {
+        if (transacciones.put(transaccion.getId(), transaccion) == null) {
+            tamano.increment();
+        }
+        porFecha.add(transaccion);
+        indexar(transaccion.getCuentaOrigen(), transaccion);
+        indexar(transaccion.getCuentaDestino(), transaccion);
+        reservarHasta(transaccion.getId());
+    }
+
+    /**
+     * Quita la transacción de los tres índices.
+     *
+     * @param id el ID de la transacción
+     * @return si la transacción existía
+     */
+    public boolean deleteById(Long id) {
+        Transaccion transaccion = (id != null) ? transacciones.remove(id) : null;
+        if (transaccion == null) {
+            return false;
+        }
+        tamano.decrement();
+        porFecha.remove(transaccion);
+        desindexar(transaccion.getCuentaOrigen(), transaccion);
+        desindexar(transaccion.getCuentaDestino(), transaccion);
+        return true;
+    }
+
+    public void deleteAll() {
+        transacciones.clear();
+        porCuenta.clear();
+        porFecha.clear();
+        tamano.reset();
+    }
+
+    private void indexar(Cuenta cuenta, Transaccion transaccion) {
+        if (cuenta != null && cuenta.getId() != null) {
+            porCuenta.computeIfAbsent(cuenta.getId(),
+                    k -> new ConcurrentSkipListSet<>(Transaccion.ORDEN_CRONOLOGICO)).add(transaccion);
+        }
+    }
+
+    private void desindexar(Cuenta cuenta, Transaccion transaccion) {
+        if (cuenta != null && cuenta.getId() != null) {
+            NavigableSet<Transaccion> lista = porCuenta.get(cuenta.getId());
+            if (lista != null) {
+                lista.remove(transaccion);
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.tecno.web_sec.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Repository;
+
+import com.tecno.web_sec.models.Usuario;
+
+/**
+ * Almacén en memoria de los usuarios, compartido por todos los servicios.
+ * Mantiene la lista de usuarios y sus índices por ID y por nombre de usuario.
+ *
+ * Las lecturas no toman candados. Las escrituras las serializa
+ * {@code UsuarioServiceImpl}, que además ordena sus registros en el log, así
+ * que la lista y los índices cambian juntos.
+ */
+@Repository
+public class UsuarioRepository {
+
+    // Usuarios en orden de ID; un snapshot puede recorrerlos mientras se
+    // registran otros, y un alta no copia la colección
+    private final ConcurrentNavigableMap<Long, Usuario> usuarios = new ConcurrentSkipListMap<>();
+    private final Map<String, Usuario> porUsername = new ConcurrentHashMap<>();
+    private final Map<Long, Usuario> porId = new ConcurrentHashMap<>();
+    // Último ID asignado
+    private final AtomicLong idCounter = new AtomicLong();
+
+    /**
+     * @return una copia de la lista de usuarios, en orden de ID
+     */
+    public List<Usuario> findAll() {
+        return new ArrayList<>(usuarios.values());
+    }
+
+    /**
+     * Una página en orden de ID, leída del índice ordenado: el costo depende
+     * del tamaño de la página y no del total de usuarios.
+     *
+     * @param despues ID desde el que se lista, sin incluirlo, o {@code null}
+     *                para empezar por el primero
+     * @param tamano  máximo de usuarios a devolver
+     * @return a lo sumo {@code tamano} usuarios con ID mayor que
+     *         {@code despues}
+     */
+    public List<Usuario> findPagina(Long despues, int tamano) {
+        Map<Long, Usuario> desde = (despues != null) ? usuarios.tailMap(despues, false) : usuarios;
+        List<Usuario> resultado = new ArrayList<>(tamano);
+        for (Usuario usuario : desde.values()) {
+            if (resultado.size() == tamano) {
+                break;
+            }
+            resultado.add(usuario);
+        }
+        return resultado;
+    }
+
+    /**
+     * Recorre los usuarios en orden de ID sin copiarlos.
+     */
+    public void forEach(Consumer<? super Usuario> accion) {
+        usuarios.values().forEach(accion);
+    }
+
+    public Optional<Usuario> findById(Long id) {
+        return Optional.ofNullable((id != null) ? porId.get(id) : null);
+    }
+
+    public Optional<Usuario> findByUsername(String username) {
+        return Optional.ofNullable((username != null) ? porUsername.get(username) : null);
+    }
+
+    public boolean existsByUsername(String username) {
+        return username != null && porUsername.containsKey(username);
+    }
+
+    public int count() {
+        return porId.size();
+    }
+
+    /**
+     * @return un ID que ningún usuario guardado usa
+     */
+    public long siguienteId() {
+        return idCounter.incrementAndGet();
+    }
+
+    /**
+     * Agrega el usuario, o reemplaza al que tiene su mismo ID.
+     *
+     * @param usuario el usuario, con ID
+     * @return el usuario reemplazado, o {@code null}
+     */
+    public Usuario save(Usuario usuario) {
+        Usuario anterior = porId.put(usuario.getId(), usuario);
+        usuarios.put(usuario.getId(), usuario);
+        if (anterior != null && anterior.getUsername() != null) {
+            porUsername.remove(anterior.getUsername(), anterior);
+        }
+        if (usuario.getUsername() != null) {
+            porUsername.put(usuario.getUsername(), usuario);
+        }
+        idCounter.accumulateAndGet(usuario.getId(), Math::max); // Evita reutilizar IDs asignados a mano
+        return anterior;
+    }
+
+    /**
+     * Vuelve a indexar un usuario guardado cuyo nombre cambió.
+     *
+     * @param usuario         el usuario
+     * @param usernameAnterior el nombre con el que estaba indexado
+     */
+    public void renombrar(Usuario usuario, String usernameAnterior) {
+        if (usernameAnterior != null) {
+            porUsername.remove(usernameAnterior, usuario);
+        }
+        if (usuario.getUsername() != null) {
+            porUsername.put(usuario.getUsername(), usuario);
+        }
+    }
+
+    /**
+     * Quita un usuario de la lista y de los índices.
+     *
+     * @param id el ID del usuario
+     * @return el usuario quitado, o vacío si no existía
+     */
+    public Optional<Usuario> deleteById(Long id) {
+        Usuario usuario = (id != null) ? porId.remove(id) : null;
+        if (usuario == null) {
+            return Optional.empty();
+        }
+        if (usuario.getUsername() != null) {
+            porUsername.remove(usuario.getUsername(), usuario);
+        }
+        usuarios.remove(id);
+        return Optional.of(usuario);
+    }
+
+    public void deleteAll() {
+        usuarios.clear();
+        porUsername.clear();
+        porId.clear();
+    }
+}
@@ -0,0 +1,126 @@
+package com.tecno.web_sec.security; // Paquete donde se encuentra la clase
+
+import java.util.Arrays; // Importación para copiar y recorrer los arreglos
+import java.util.Collection; // Importación para la colección de roles
+import java.util.List; // Importación para la lista de IDs de cuentas
+import java.util.concurrent.atomic.AtomicBoolean; // Importación para la marca de vigencia compartida
+
+import org.springframework.security.core.CredentialsContainer; // Importación para borrar la contraseña tras el login
+import org.springframework.security.core.GrantedAuthority; // Importación para los roles del usuario
+import org.springframework.security.core.userdetails.UserDetails; // Importación para la interfaz de detalles de usuario
+
+/**
+ * Usuario autenticado que se guarda en la sesión. Se crea al iniciar sesión
+ * con el ID del usuario y los IDs de sus cuentas, para que los controladores
+ * no tengan que buscar al usuario en cada petición.
+ *
+ * <p>
+ * Los IDs de cuentas son una copia tomada al crear el objeto. El servicio de
+ * usuarios comparte una marca de vigencia entre todos los objetos emitidos
+ * para un mismo usuario y la apaga cuando cambian sus cuentas, su nombre o su
+ * rol; {@link UsuarioAutenticadoArgumentResolver} recarga entonces el usuario
+ * una sola vez. Los roles y los IDs se guardan en arreglos para que el objeto
+ * se pueda serializar con la sesión.
+ */
+public final class UsuarioAutenticado implements UserDetails, CredentialsContainer {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long usuarioId; // ID del usuario
+    private final String username; // Nombre de usuario
+    private String password; // Contraseña; se borra después de autenticar
+    private final GrantedAuthority[] authorities; // Roles del usuario
+    private final long[] cuentaIds; // IDs de las cuentas del usuario al crear el objeto
+    private final transient AtomicBoolean vigente; // Se apaga cuando los datos anteriores cambian
+
+    /**
+     * Crea el usuario autenticado.
+     *
+     * @param usuarioId   el ID del usuario
+     * @param username    el nombre de usuario
+     * @param password    la contraseña codificada
+     * @param authorities los roles del usuario
+     * @param cuentaIds   los IDs de las cuentas del usuario
+     * @param vigente     la marca de vigencia compartida con el servicio
+     */
+    public UsuarioAutenticado(Long usuarioId, String username, String password,
+            Collection<? extends GrantedAuthority> authorities, List<Long> cuentaIds, AtomicBoolean vigente) {
+        this.usuarioId = usuarioId;
+        this.username = username;
+        this.password = password;
+        this.authorities = authorities.toArray(GrantedAuthority[]::new);
+        this.cuentaIds = cuentaIds.stream().mapToLong(Long::longValue).toArray();
+        this.vigente = vigente;
+    }
+
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+
+    /**
+     * @return los IDs de las cuentas del usuario, en el orden de su lista de
+     *         cuentas
+     */
+    public List<Long> getCuentaIds() {
+        return Arrays.stream(cuentaIds).boxed().toList();
+    }
+
+    /**
+     * @return si la cuenta con el ID dado pertenece al usuario
+     */
+    public boolean esTitularDe(Long cuentaId) {
+        if (cuentaId != null) {
+            for (long id : cuentaIds) {
+                if (id == cuentaId) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code false} si el usuario cambió desde que se creó este objeto
+     *         (o si la sesión se restauró de otro proceso)
+     */
+    public boolean isVigente() {
+        return vigente != null && vigente.get();
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(authorities);
+    }
+
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+
+    @Override
+    public boolean equals(Object otro) {
+        // Igual que User: dos principales son el mismo si tienen el mismo nombre
+        return otro instanceof UsuarioAutenticado usuario && username.equals(usuario.username);
+    }
+
+    @Override
+    public int hashCode() {
+        return username.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "UsuarioAutenticado[usuarioId=" + usuarioId + ", username=" + username + ", cuentaIds="
+                + Arrays.toString(cuentaIds) + "]";
+    }
+}
@@ -0,0 +1,59 @@
+package com.tecno.web_sec.security; // Paquete donde se encuentra la clase
+
+import org.springframework.beans.factory.annotation.Autowired; // Importación para la inyección de dependencias
+import org.springframework.core.MethodParameter; // Importación para inspeccionar el parámetro del controlador
+import org.springframework.security.authentication.AnonymousAuthenticationToken; // Importación para detectar usuarios anónimos
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken; // Importación para reemplazar la autenticación
+import org.springframework.security.core.Authentication; // Importación para la autenticación actual
+import org.springframework.security.core.context.SecurityContext; // Importación para el contexto de seguridad de la sesión
+import org.springframework.security.core.context.SecurityContextHolder; // Importación para acceder al contexto de seguridad
+import org.springframework.stereotype.Component; // Importación para registrar el componente en Spring
+import org.springframework.web.bind.support.WebDataBinderFactory; // Importación requerida por la interfaz
+import org.springframework.web.context.request.NativeWebRequest; // Importación requerida por la interfaz
+import org.springframework.web.method.support.HandlerMethodArgumentResolver; // Importación para resolver argumentos
+import org.springframework.web.method.support.ModelAndViewContainer; // Importación requerida por la interfaz
+
+import com.tecno.web_sec.service.UsuarioService; // Importación del servicio de usuario
+
+/**
+ * Inyecta el {@link UsuarioAutenticado} de la sesión en los parámetros de ese
+ * tipo de los controladores. Si el servicio de usuarios lo marcó como no
+ * vigente, lo recarga y lo deja en el contexto de seguridad, así que la
+ * recarga ocurre una sola vez por cambio y no en cada petición.
+ */
+@Component
+public class UsuarioAutenticadoArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Autowired
+    private UsuarioService usuarioService; // Servicio para recargar al usuario cuando cambia
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return UsuarioAutenticado.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public UsuarioAutenticado resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+            NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        SecurityContext contexto = SecurityContextHolder.getContext();
+        Authentication autenticacion = contexto.getAuthentication();
+        if (autenticacion == null || !autenticacion.isAuthenticated()
+                || autenticacion instanceof AnonymousAuthenticationToken) {
+            return null; // Sin sesión; las reglas de seguridad deciden si la página lo requiere
+        }
+        if (autenticacion.getPrincipal() instanceof UsuarioAutenticado usuario && usuario.isVigente()) {
+            return usuario; // Caso habitual: ninguna búsqueda
+        }
+
+        // Las cuentas, el nombre o el rol cambiaron: se recarga por ID, que no cambia
+        Long usuarioId = (autenticacion.getPrincipal() instanceof UsuarioAutenticado usuario)
+                ? usuario.getUsuarioId()
+                : usuarioService.findByUsername(autenticacion.getName()).getId();
+        UsuarioAutenticado recargado = usuarioService.findAutenticadoById(usuarioId);
+        UsernamePasswordAuthenticationToken nueva = UsernamePasswordAuthenticationToken.authenticated(recargado,
+                null, recargado.getAuthorities());
+        nueva.setDetails(autenticacion.getDetails());
+        contexto.setAuthentication(nueva); // El contexto es el guardado en la sesión
+        return recargado;
+    }
+}
@@ -2,24 +2,41 @@ package com.tecno.web_sec.security.configuration; // Paquete donde se encuentra
 
 import java.net.URLEncoder; // Importación para codificar URLs
 import java.nio.charset.StandardCharsets; // Importación para definir codificación de caracteres
+import java.time.Duration; // Importación para la espera de las peticiones repetidas
+import java.util.LinkedHashMap; // Importación para el mapa ordenado de puntos de entrada
 
 import org.slf4j.Logger; // Importación para el registro de logs
 import org.slf4j.LoggerFactory; // Importación para crear instancias de Logger
+import org.springframework.beans.factory.annotation.Autowired; // Importación para la inyección de dependencias
+import org.springframework.beans.factory.annotation.Value; // Importación para leer la configuración
 import org.springframework.context.annotation.Bean; // Importación para definir beans en el contexto de Spring
 import org.springframework.context.annotation.Configuration; // Importación para indicar que esta clase es una configuración de Spring
+import org.springframework.core.annotation.Order; // Importación para ordenar las cadenas de filtros
+import org.springframework.http.HttpStatus; // Importación para los códigos de estado de la API
+import org.springframework.http.MediaType; // Importación para el tipo de contenido de los errores de la API
 import org.springframework.security.authentication.AuthenticationProvider; // Importación para la interfaz de proveedor de autenticación
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider; // Importación para proveedor de autenticación basado en DAO
+import org.springframework.security.config.Customizer; // Importación para la configuración por defecto de HTTP Basic
 import org.springframework.security.config.annotation.web.builders.HttpSecurity; // Importación para construir la seguridad HTTP
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity; // Importación para habilitar seguridad en la aplicación web
 import org.springframework.security.core.userdetails.UserDetailsService; // Importación para el servicio de detalles de usuario
 import org.springframework.security.crypto.password.NoOpPasswordEncoder; // Importación para el codificador de contraseña que no hace nada
 import org.springframework.security.crypto.password.PasswordEncoder; // Importación para la interfaz de codificación de contraseñas
+import org.springframework.security.web.AuthenticationEntryPoint; // Importación para responder a peticiones sin sesión
 import org.springframework.security.web.SecurityFilterChain; // Importación para la cadena de filtros de seguridad
 import org.springframework.security.web.access.AccessDeniedHandler; // Importación para manejar acceso denegado
+import org.springframework.security.web.access.intercept.AuthorizationFilter; // Importación para ubicar el filtro de idempotencia
+import org.springframework.security.web.authentication.DelegatingAuthenticationEntryPoint; // Importación para elegir la respuesta según la URL
+import org.springframework.security.web.authentication.HttpStatusEntryPoint; // Importación para responder 401 a la API
+import org.springframework.security.web.authentication.LoginUrlAuthenticationEntryPoint; // Importación para redirigir al formulario de inicio de sesión
 import org.springframework.security.web.authentication.AuthenticationFailureHandler; // Importación para manejar fallos de autenticación
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler; // Importación para manejar éxito de autenticación
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher; // Importación para reconocer las URL de la API
+import org.springframework.security.web.util.matcher.RequestMatcher; // Importación para la interfaz de los comparadores de peticiones
 
-import com.tecno.web_sec.service.impl.UsuarioServiceImpl; // Importación del servicio de usuario
+import com.tecno.web_sec.idempotencia.CacheIdempotencia; // Importación de las respuestas por clave de idempotencia
+import com.tecno.web_sec.idempotencia.FiltroIdempotencia; // Importación del filtro de Idempotency-Key
+import com.tecno.web_sec.metrics.MetricasBanco; // Importación para contar los inicios de sesión
 
 /**
  * Clase de configuración de seguridad que define las reglas y comportamientos
@@ -31,6 +48,42 @@ public class SecurityConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class); // Logger para la clase
 
+    private static final RequestMatcher API = AntPathRequestMatcher.antMatcher("/api/**"); // Peticiones a la API JSON
+
+    @Autowired
+    private MetricasBanco metricas; // Contadores de inicios de sesión
+
+    @Autowired
+    private CacheIdempotencia cacheIdempotencia; // Respuestas de los POST con Idempotency-Key
+
+    @Value("${banco.idempotencia.espera:PT30S}")
+    private Duration esperaIdempotencia; // Espera de una repetición mientras la primera sigue en curso
+
+    /**
+     * Configura la seguridad de los endpoints de Actuator, que van antes que el
+     * resto. Las sondas de salud quedan abiertas; las métricas de Prometheus
+     * exigen el rol ADMIN con HTTP Basic, para que el scraper se autentique
+     * sin formulario ni sesión. Si se configura
+     * {@code management.server.port}, además quedan fuera del puerto público.
+     * 
+     * @param http El objeto HttpSecurity que se utilizará para la configuración
+     * @return La cadena de filtros de Actuator
+     * @throws Exception Si ocurre un error durante la configuración
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher("/actuator/**") // Solo los endpoints de Actuator
+                .csrf(csrf -> csrf.disable()) // El scraper no envía token CSRF
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/actuator/health/**").permitAll() // Sondas de vida y disponibilidad
+                        .anyRequest().hasRole("ADMIN")) // Prometheus y cualquier otro endpoint expuesto
+                .httpBasic(Customizer.withDefaults()); // 401 con WWW-Authenticate si faltan credenciales
+
+        return http.build(); // Devuelve la configuración de seguridad construida
+    }
+
     /**
      * Configura la cadena de filtros de seguridad HTTP.
      * 
@@ -51,6 +104,10 @@ public class SecurityConfig {
                                                                                                                    // a
                                                                                                                    // estas
                                                                                                                    // URL
+                        .requestMatchers("/api/v1/usuarios/yo").authenticated() // Cualquier usuario se consulta a sí mismo
+                        .requestMatchers("/api/v1/cuentas/todas", "/api/v1/usuarios", "/api/v1/usuarios/*")
+                        .hasRole("ADMIN") // Listados de todo el banco
+                        .requestMatchers("/cuentas/export").hasRole("ADMIN") // Historial de todo el banco
                         .anyRequest().authenticated()) // Requiere autenticación para cualquier otra solicitud
                 .formLogin(form -> form
                         .loginPage("/login") // Especifica la página de inicio de sesión
@@ -66,7 +123,11 @@ public class SecurityConfig {
                         .deleteCookies("JSESSIONID") // Elimina la cookie de sesión
                         .permitAll()) // Permite que todos accedan a la función de cierre de sesión
                 .exceptionHandling(exception -> exception
-                        .accessDeniedHandler(customAccessDeniedHandler())); // Define el manejador para acceso denegado
+                        .authenticationEntryPoint(authenticationEntryPoint()) // 401 en la API, formulario en el resto
+                        .accessDeniedHandler(customAccessDeniedHandler())) // Define el manejador para acceso denegado
+                // Después de la autorización: las claves son por usuario y las peticiones rechazadas no se guardan
+                .addFilterAfter(new FiltroIdempotencia(cacheIdempotencia, API, esperaIdempotencia),
+                        AuthorizationFilter.class);
 
         return http.build(); // Devuelve la configuración de seguridad construida
     }
@@ -74,11 +135,16 @@ public class SecurityConfig {
     /**
      * Proporciona un manejador de éxito de autenticación personalizado.
      * 
-     * @return Un nuevo CustomAuthenticationSuccessHandler
+     * @return Un CustomAuthenticationSuccessHandler que además cuenta los
+     *         inicios de sesión exitosos
      */
     @Bean
     public AuthenticationSuccessHandler customAuthenticationSuccessHandler() {
-        return new CustomAuthenticationSuccessHandler();
+        AuthenticationSuccessHandler redireccion = new CustomAuthenticationSuccessHandler();
+        return (request, response, authentication) -> {
+            metricas.loginOk(); // Cuenta el inicio de sesión antes de redirigir
+            redireccion.onAuthenticationSuccess(request, response, authentication);
+        };
     }
 
     /**
@@ -91,6 +157,7 @@ public class SecurityConfig {
     public AuthenticationFailureHandler customAuthenticationFailureHandler() {
         return (request, response, exception) -> {
             logger.error("Error en inicio de sesión: {}", exception.getMessage()); // Registra el error
+            metricas.loginFallido(); // Cuenta el inicio de sesión fallido
             String errorMessage = "Error en inicio de sesión"; // Mensaje de error por defecto
             if (exception.getMessage() != null) {
                 errorMessage = exception.getMessage(); // Utiliza el mensaje de excepción si está disponible
@@ -102,14 +169,35 @@ public class SecurityConfig {
         };
     }
 
+    /**
+     * Responde a las peticiones sin sesión: la API devuelve 401 para que el
+     * cliente inicie sesión; las páginas redirigen al formulario.
+     * 
+     * @return Un punto de entrada que elige según la URL
+     */
+    private AuthenticationEntryPoint authenticationEntryPoint() {
+        LinkedHashMap<RequestMatcher, AuthenticationEntryPoint> puntos = new LinkedHashMap<>();
+        puntos.put(API, new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED));
+        DelegatingAuthenticationEntryPoint entryPoint = new DelegatingAuthenticationEntryPoint(puntos);
+        entryPoint.setDefaultEntryPoint(new LoginUrlAuthenticationEntryPoint("/login")); // Igual que antes
+        return entryPoint;
+    }
+
     /**
      * Proporciona un manejador personalizado para el acceso denegado.
      * 
-     * @return Un manejador que redirige a la página de error
+     * @return Un manejador que responde 403 en la API y redirige a la página de
+     *         error en el resto
      */
     @Bean
     public AccessDeniedHandler customAccessDeniedHandler() {
         return (request, response, accessDeniedException) -> {
+            if (API.matches(request)) {
+                response.setStatus(HttpStatus.FORBIDDEN.value()); // Mismo formato que ApiExceptionHandler
+                response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+                response.getWriter().write("{\"type\":\"about:blank\",\"title\":\"Forbidden\",\"status\":403}");
+                return;
+            }
             response.sendRedirect("/error"); // Redirige a la página de error
         };
     }
@@ -117,26 +205,18 @@ public class SecurityConfig {
     /**
      * Proporciona un proveedor de autenticación que utiliza un servicio de usuario.
      * 
+     * @param usuarioService El servicio de usuarios de la aplicación, el mismo
+     *                       que usan los controladores
      * @return Un DaoAuthenticationProvider configurado
      */
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(UserDetailsService usuarioService) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
-        authProvider.setUserDetailsService(usuarioService()); // Establece el servicio de usuario
+        authProvider.setUserDetailsService(usuarioService); // Establece el servicio de usuario
         authProvider.setPasswordEncoder(passwordEncoder()); // Establece el codificador de contraseñas
         return authProvider; // Devuelve el proveedor de autenticación configurado
     }
 
-    /**
-     * Proporciona el servicio de detalles de usuario.
-     * 
-     * @return Un nuevo UsuarioServiceImpl
-     */
-    @Bean
-    public UserDetailsService usuarioService() {
-        return new UsuarioServiceImpl();
-    }
-
     /**
      * Proporciona un codificador de contraseñas que no realiza codificación.
      * 
@@ -0,0 +1,37 @@
+package com.tecno.web_sec.security.configuration; // Paquete donde se encuentra la clase
+
+import java.util.List; // Importación para la lista de resolutores
+
+import org.springframework.beans.factory.annotation.Autowired; // Importación para la inyección de dependencias
+import org.springframework.context.annotation.Configuration; // Importación para indicar que esta clase es una configuración de Spring
+import org.springframework.web.method.support.HandlerMethodArgumentResolver; // Importación para resolver argumentos
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry; // Importación para registrar interceptores
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer; // Importación para extender la configuración de Spring MVC
+
+import com.tecno.web_sec.metrics.TiemposPeticionInterceptor; // Importación del interceptor de tiempos por fase
+import com.tecno.web_sec.security.UsuarioAutenticadoArgumentResolver; // Importación del resolutor del usuario autenticado
+
+/**
+ * Configuración de Spring MVC que permite recibir el usuario autenticado como
+ * parámetro de los métodos de los controladores y mide las fases de cada
+ * petición.
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private UsuarioAutenticadoArgumentResolver usuarioAutenticadoArgumentResolver;
+
+    @Autowired
+    private TiemposPeticionInterceptor tiemposPeticionInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(tiemposPeticionInterceptor); // Marca el controlador y la vista
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(usuarioAutenticadoArgumentResolver);
+    }
+}
@@ -2,8 +2,13 @@ package com.tecno.web_sec.service;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
+
+import org.springframework.security.access.AccessDeniedException;
 
 import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.ResultadoTransferencia;
+import com.tecno.web_sec.models.Transaccion;
 
 /**
  * Interfaz que define los métodos para gestionar las cuentas financieras.
@@ -17,6 +22,16 @@ public interface CuentaService {
      */
     List<Cuenta> findAll();
 
+    /**
+     * Obtiene una página de cuentas en orden de ID.
+     * 
+     * @param despues el ID desde el que se lista, sin incluirlo, o
+     *                {@code null} para empezar por el primero
+     * @param tamano  el máximo de cuentas a devolver
+     * @return una lista de objetos {@link Cuenta} con ID mayor que {@code despues}
+     */
+    List<Cuenta> findPagina(Long despues, int tamano);
+
     /**
      * Busca una cuenta por su ID.
      * 
@@ -25,6 +40,25 @@ public interface CuentaService {
      */
     Cuenta findById(Long id);
 
+    /**
+     * Busca las cuentas que pertenecen a un usuario.
+     * 
+     * @param usuarioId el ID del usuario propietario
+     * @return una lista de objetos {@link Cuenta} del usuario, vacía si no tiene
+     *         cuentas
+     */
+    List<Cuenta> findByUsuarioId(Long usuarioId);
+
+    /**
+     * Busca una cuenta por su ID verificando que pertenezca a un usuario.
+     * 
+     * @param id        el ID de la cuenta a buscar
+     * @param usuarioId el ID del usuario que la consulta
+     * @return la cuenta, o vacío si no existe
+     * @throws AccessDeniedException si la cuenta existe pero es de otro usuario
+     */
+    Optional<Cuenta> findByIdForUsuario(Long id, Long usuarioId);
+
     /**
      * Agrega una nueva cuenta.
      * 
@@ -70,4 +104,26 @@ public interface CuentaService {
      * @param monto           el monto a transferir
      */
     void transferir(Long cuentaOrigenId, Long cuentaDestinoId, BigDecimal monto);
+
+    /**
+     * Transfiere el monto de una transacción entre sus cuentas y la registra en
+     * un solo paso: o se aplican ambos cambios o ninguno.
+     * 
+     * @param transaccion la transacción con las cuentas de origen y destino y el
+     *                    monto
+     * @return la transacción registrada, con su ID asignado
+     */
+    Transaccion registrarTransferencia(Transaccion transaccion);
+
+    /**
+     * Aplica un lote de transferencias en orden y registra cada una que se
+     * aplique, como {@link #registrarTransferencia} fila por fila. Las filas son
+     * independientes: una rechazada (cuenta inexistente, saldo insuficiente,
+     * monto inválido) no deshace ni impide las demás.
+     * 
+     * @param transferencias las transacciones, cada una con las cuentas de
+     *                       origen y destino y el monto
+     * @return un resultado por fila, en el mismo orden
+     */
+    List<ResultadoTransferencia> transferirLote(List<Transaccion> transferencias);
 }
@@ -1,8 +1,14 @@
 package com.tecno.web_sec.service;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.tecno.web_sec.models.CursorTransaccion;
+import com.tecno.web_sec.models.PaginaTransacciones;
 import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.persistence.RegistroWal;
 
 /**
  * Interfaz que define los métodos para gestionar las transacciones financieras.
@@ -31,6 +37,16 @@ public interface TransaccionService {
      */
     void addTransaccion(Transaccion transaccion);
 
+    /**
+     * Agrega la transacción de una transferencia sin anexarla al log. Se
+     * invoca dentro de un grupo del log, y quien la invoca anexa el registro
+     * devuelto junto con los saldos de la transferencia.
+     * 
+     * @param transaccion el objeto {@link Transaccion} a agregar
+     * @return el registro de la transacción agregada
+     */
+    RegistroWal.TransaccionGuardada addTransaccionSinLog(Transaccion transaccion);
+
     /**
      * Busca las transacciones asociadas a una cuenta específica.
      * 
@@ -39,6 +55,68 @@ public interface TransaccionService {
      */
     List<Transaccion> findByCuentaId(Long cuentaId);
 
+    /**
+     * Obtiene una página del historial de una cuenta, de la transacción más
+     * reciente a la más antigua.
+     * 
+     * @param cuentaId el ID de la cuenta
+     * @param despues  cursor de la última transacción de la página anterior, o
+     *                 {@code null} para la primera página
+     * @param tamano   número máximo de transacciones de la página
+     * @return la página de transacciones
+     */
+    PaginaTransacciones findPageByCuentaId(Long cuentaId, CursorTransaccion despues, int tamano);
+
+    /**
+     * Obtiene una página del historial combinado de varias cuentas, de la
+     * transacción más reciente a la más antigua. Una transferencia entre dos de
+     * las cuentas aparece una sola vez.
+     * 
+     * @param cuentaIds los IDs de las cuentas
+     * @param despues   cursor de la última transacción de la página anterior, o
+     *                  {@code null} para la primera página
+     * @param tamano    número máximo de transacciones de la página
+     * @return la página de transacciones
+     */
+    PaginaTransacciones findPageByCuentaIds(Collection<Long> cuentaIds, CursorTransaccion despues, int tamano);
+
+    /**
+     * Busca las transacciones de todo el banco realizadas en un intervalo de
+     * tiempo.
+     * 
+     * @param desde inicio del intervalo (inclusive)
+     * @param hasta fin del intervalo (inclusive)
+     * @return las transacciones del intervalo en orden cronológico
+     */
+    List<Transaccion> findByFechaBetween(LocalDateTime desde, LocalDateTime hasta);
+
+    /**
+     * Busca las transacciones de una cuenta realizadas en un intervalo de
+     * tiempo.
+     * 
+     * @param cuentaId el ID de la cuenta
+     * @param desde    inicio del intervalo (inclusive)
+     * @param hasta    fin del intervalo (inclusive)
+     * @return las transacciones del intervalo en orden cronológico
+     */
+    List<Transaccion> findByCuentaIdAndFechaBetween(Long cuentaId, LocalDateTime desde, LocalDateTime hasta);
+
+    /**
+     * Recorre en orden cronológico las transacciones de una cuenta, o de todo
+     * el banco, dentro de un intervalo. Las lee del almacén a medida que las
+     * entrega, sin copiarlas a una lista, así que la memoria usada no depende
+     * del tamaño del historial.
+     * 
+     * @param cuentaId el ID de la cuenta, o {@code null} para todo el banco
+     * @param desde    inicio del intervalo (inclusive), o {@code null} para
+     *                 empezar por la más antigua
+     * @param hasta    fin del intervalo (inclusive), o {@code null} para
+     *                 terminar en la más reciente
+     * @param accion   recibe cada transacción
+     */
+    void forEachByCuentaIdAndFechaBetween(Long cuentaId, LocalDateTime desde, LocalDateTime hasta,
+            Consumer<? super Transaccion> accion);
+
     /**
      * Elimina una transacción por su ID.
      * 
@@ -0,0 +1,16 @@
+package com.tecno.web_sec.service;
+
+/**
+ * Rechazo de negocio de una transferencia: una cuenta que no existe o un
+ * saldo insuficiente. La transferencia no se aplicó, a diferencia de una
+ * falla del write-ahead log o del ledger, que puede llegar con el movimiento
+ * ya aplicado en memoria.
+ */
+public class TransferenciaRechazadaException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TransferenciaRechazadaException(String message) {
+        super(message);
+    }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 
 import com.tecno.web_sec.models.Cuenta;
 import com.tecno.web_sec.models.Usuario;
+import com.tecno.web_sec.security.UsuarioAutenticado;
 
 /**
  * Interfaz que define los métodos para gestionar usuarios en el sistema.
@@ -18,6 +19,16 @@ public interface UsuarioService {
      */
     List<Usuario> findAll();
 
+    /**
+     * Obtiene una página de usuarios en orden de ID.
+     * 
+     * @param despues el ID desde el que se lista, sin incluirlo, o
+     *                {@code null} para empezar por el primero
+     * @param tamano  el máximo de usuarios a devolver
+     * @return una lista de objetos {@link Usuario} con ID mayor que {@code despues}
+     */
+    List<Usuario> findPagina(Long despues, int tamano);
+
     /**
      * Busca un usuario por su ID.
      * 
@@ -88,4 +99,13 @@ public interface UsuarioService {
      *         proporcionado
      */
     Usuario findByUsername(String username);
+
+    /**
+     * Crea el usuario autenticado de la sesión con los IDs actuales de sus
+     * cuentas.
+     * 
+     * @param usuarioId el ID del usuario
+     * @return el objeto {@link UsuarioAutenticado} del usuario
+     */
+    UsuarioAutenticado findAutenticadoById(Long usuarioId);
 }
@@ -0,0 +1,134 @@
+package com.tecno.web_sec.service.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.tecno.web_sec.metrics.MetricasBanco;
+
+/**
+ * Conjunto fijo de candados repartidos por ID de cuenta (lock striping).
+ * Cada cuenta se asocia a una franja según su ID; una operación bloquea solo
+ * las franjas de las cuentas que toca, y cuando necesita varias las adquiere
+ * siempre en orden ascendente de franja para que dos transferencias cruzadas
+ * no puedan bloquearse mutuamente.
+ *
+ * Solo se mide la espera de los candados ocupados: una adquisición sin
+ * competencia es un {@code tryLock} y no lee el reloj.
+ */
+final class CuentaLocks {
+
+    private final ReentrantLock[] franjas;
+    private final int mascara;
+    private MetricasBanco metricas = MetricasBanco.deshabilitadas();
+
+    /**
+     * Crea el conjunto de candados.
+     *
+     * @param franjas número de franjas; se redondea a la siguiente potencia de dos
+     */
+    CuentaLocks(int franjas) {
+        int tamano = Integer.highestOneBit(Math.max(1, franjas - 1)) << 1;
+        this.franjas = new ReentrantLock[tamano];
+        for (int i = 0; i < tamano; i++) {
+            this.franjas[i] = new ReentrantLock();
+        }
+        this.mascara = tamano - 1;
+    }
+
+    /**
+     * Publica la espera por candados ocupados en las métricas dadas. Debe
+     * llamarse antes de usar los candados.
+     */
+    void medirCon(MetricasBanco metricas) {
+        this.metricas = metricas;
+    }
+
+    /**
+     * Calcula la franja de una cuenta.
+     *
+     * @param cuentaId el ID de la cuenta
+     * @return el índice de la franja
+     */
+    int franja(long cuentaId) {
+        long h = cuentaId * 0x9E3779B97F4A7C15L; // Dispersa IDs consecutivos entre franjas
+        return (int) (h >>> 32) & mascara;
+    }
+
+    /**
+     * Bloquea la franja de una cuenta.
+     *
+     * @param cuentaId el ID de la cuenta
+     * @return el candado adquirido, que debe liberarse con {@link #unlock}
+     */
+    ReentrantLock lock(long cuentaId) {
+        ReentrantLock candado = franjas[franja(cuentaId)];
+        adquirir(candado);
+        return candado;
+    }
+
+    /**
+     * Bloquea las franjas de dos cuentas en orden global. Si ambas cuentas caen
+     * en la misma franja se adquiere un único candado.
+     *
+     * @param cuentaA el ID de la primera cuenta
+     * @param cuentaB el ID de la segunda cuenta
+     * @return los candados adquiridos, en el orden en que se tomaron
+     */
+    ReentrantLock[] lock(long cuentaA, long cuentaB) {
+        int a = franja(cuentaA);
+        int b = franja(cuentaB);
+        if (a == b) {
+            adquirir(franjas[a]);
+            return new ReentrantLock[] { franjas[a] };
+        }
+        ReentrantLock primero = franjas[Math.min(a, b)];
+        ReentrantLock segundo = franjas[Math.max(a, b)];
+        adquirir(primero);
+        adquirir(segundo);
+        return new ReentrantLock[] { primero, segundo };
+    }
+
+    /**
+     * Bloquea las franjas de varias cuentas en orden ascendente de franja, el
+     * mismo orden global que {@link #lock(long, long)}. Cada franja se adquiere
+     * una sola vez aunque varias cuentas caigan en ella.
+     *
+     * @param cuentaIds los IDs de las cuentas, con o sin repetidos
+     * @return los candados adquiridos, en el orden en que se tomaron
+     */
+    ReentrantLock[] lock(long[] cuentaIds) {
+        int[] indices = new int[cuentaIds.length];
+        for (int i = 0; i < cuentaIds.length; i++) {
+            indices[i] = franja(cuentaIds[i]);
+        }
+        Arrays.sort(indices);
+        ReentrantLock[] candados = new ReentrantLock[indices.length];
+        int tomados = 0;
+        for (int i = 0; i < indices.length; i++) {
+            if (i == 0 || indices[i] != indices[i - 1]) {
+                adquirir(franjas[indices[i]]);
+                candados[tomados++] = franjas[indices[i]];
+            }
+        }
+        return Arrays.copyOf(candados, tomados);
+    }
+
+    private void adquirir(ReentrantLock candado) {
+        if (!candado.tryLock()) {
+            long inicio = System.nanoTime();
+            candado.lock();
+            metricas.esperaCandado(System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Libera los candados en orden inverso a su adquisición.
+     *
+     * @param candados los candados devueltos por {@link #lock}
+     */
+    static void unlock(ReentrantLock... candados) {
+        for (int i = candados.length - 1; i >= 0; i--) {
+            candados[i].unlock();
+        }
+    }
+}
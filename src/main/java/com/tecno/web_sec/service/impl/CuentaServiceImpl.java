@@ -1,157 +1,630 @@
 package com.tecno.web_sec.service.impl; // Paquete donde se encuentra la clase
 
 import java.math.BigDecimal; // Importación para manejar valores monetarios
-import java.util.ArrayList; // Importación para usar listas dinámicas
+import java.time.Duration; // Importación para la espera máxima del ledger
+import java.time.LocalDateTime; // Importación para fechar las transacciones registradas
+import java.util.Arrays; // Importación para armar la lista de resultados de un lote
 import java.util.List; // Importación para la interfaz de listas
+import java.util.Optional; // Importación para las búsquedas que pueden no encontrar la cuenta
+import java.util.concurrent.ExecutionException; // Importación para desenvolver errores del ledger
+import java.util.concurrent.TimeUnit; // Importación para la espera máxima del ledger
+import java.util.concurrent.TimeoutException; // Importación para la espera máxima del ledger
+import java.util.concurrent.locks.ReentrantLock; // Importación para los candados por cuenta
+import java.util.function.Consumer; // Importación para emitir los registros de un snapshot
 
 import org.springframework.beans.factory.annotation.Autowired; // Importación para la inyección de dependencias
-import org.springframework.security.crypto.password.PasswordEncoder; // Importación para codificación de contraseñas
+import org.springframework.beans.factory.annotation.Value; // Importación para leer propiedades de configuración
+import org.springframework.core.annotation.Order; // Importación para ordenar los almacenes en un snapshot
+import org.springframework.security.access.AccessDeniedException; // Importación para rechazar cuentas de otro usuario
 import org.springframework.stereotype.Service; // Importación para definir un servicio de Spring
 
 import com.tecno.web_sec.models.Cuenta; // Importación del modelo Cuenta
+import com.tecno.web_sec.models.Dinero; // Importación para convertir montos a centavos
+import com.tecno.web_sec.models.ResultadoTransferencia; // Importación del resultado de cada fila de un lote
+import com.tecno.web_sec.models.Transaccion; // Importación del modelo Transaccion
+import com.tecno.web_sec.metrics.MetricasBanco; // Importación de los contadores de transferencias
 import com.tecno.web_sec.models.Usuario; // Importación del modelo Usuario
+import com.tecno.web_sec.persistence.RegistroWal; // Importación de los registros del write-ahead log
+import com.tecno.web_sec.persistence.Restaurable; // Importación para la recuperación desde el log
+import com.tecno.web_sec.persistence.WriteAheadLog; // Importación del write-ahead log
+import com.tecno.web_sec.repository.CuentaRepository; // Importación del almacén de cuentas
 import com.tecno.web_sec.service.CuentaService; // Importación de la interfaz CuentaService
+import com.tecno.web_sec.service.TransaccionService; // Importación de la interfaz TransaccionService
+import com.tecno.web_sec.service.TransferenciaRechazadaException; // Importación de los rechazos de negocio
 import com.tecno.web_sec.service.UsuarioService; // Importación de la interfaz UsuarioService
 
 import jakarta.annotation.PostConstruct; // Importación para métodos que deben ejecutarse después de la construcción
+import jakarta.annotation.PreDestroy; // Importación para liberar recursos al cerrar el contexto
 
 /**
  * Implementación del servicio de cuentas que maneja la lógica de negocio
  * relacionada con las cuentas de usuario.
  */
 @Service
-public class CuentaServiceImpl implements CuentaService {
+@Order(2) // En un snapshot las cuentas van después de los usuarios
+@SuppressWarnings("try") // Los grupos del log solo delimitan la espera del fsync; el cuerpo no los referencia
+public class CuentaServiceImpl implements CuentaService, Restaurable {
 
     @Autowired
     private UsuarioService usuarioService; // Servicio de usuario para gestionar cuentas de usuario
 
     @Autowired
-    private PasswordEncoder passwordEncoder; // Codificador de contraseñas para codificar las contraseñas de los
-                                             // usuarios
+    private TransaccionService transaccionService; // Servicio para registrar las transferencias
 
-    private List<Cuenta> cuentas = new ArrayList<>(); // Lista para almacenar cuentas
-    private Long idCounter = 1L; // Contador para asignar IDs únicos a las cuentas
-    private List<Usuario> usuarios = new ArrayList<>(); // Lista para almacenar usuarios
+    @Autowired
+    private WriteAheadLog wal = WriteAheadLog.deshabilitado(); // Log de mutaciones; inactivo fuera de Spring
+
+    @Autowired
+    private CuentaRepository cuentas = new CuentaRepository(); // Almacén compartido; propio fuera de Spring
+
+    @Autowired
+    private MetricasBanco metricas = MetricasBanco.deshabilitadas(); // Métricas; no se publican fuera de Spring
+
+    private final CuentaLocks locks = new CuentaLocks(1024); // Candados por franja de cuentas
+    private final ReentrantLock vinculos = new ReentrantLock(); // Protege las listas de cuentas de los usuarios
+                                                                // durante la recuperación en paralelo
+
+    @Value("${banco.ledger.secuenciado:false}")
+    private boolean ledgerSecuenciado; // Activa el ledger secuenciado para los movimientos de saldo
+
+    @Value("${banco.ledger.particiones:1}")
+    private int ledgerParticiones; // Número de particiones (un hilo escritor por partición)
+
+    @Value("${banco.ledger.capacidad:65536}")
+    private int ledgerCapacidad; // Ranuras preasignadas por partición
+
+    @Value("${banco.ledger.espera:PT10S}")
+    private Duration ledgerEspera = Duration.ofSeconds(10); // Espera máxima de una petición por su comando
+
+    private LedgerSecuenciado ledger; // Ledger secuenciado, nulo en el modo directo
+
+    @Value("${banco.lotes.filas-por-bloque:256}")
+    private int filasPorBloque = 256; // Filas de un lote que comparten candados y fsync
 
     /**
-     * Método que se ejecuta después de la construcción del objeto para inicializar
-     * datos de prueba.
+     * Método que se ejecuta después de la construcción del objeto para arrancar
+     * el ledger secuenciado, si está activo. Los datos iniciales los carga
+     * {@link UsuarioServiceImpl} en los almacenes compartidos.
      */
     @PostConstruct
     public void init() {
-        // Creación de usuarios de prueba
-        Usuario usuario1 = new Usuario(idCounter++, "usuario1", passwordEncoder.encode("123"), "USER",
-                new ArrayList<>());
-        Usuario usuario2 = new Usuario(idCounter++, "usuario2", passwordEncoder.encode("123"), "USER",
-                new ArrayList<>());
-        Usuario usuario3 = new Usuario(idCounter++, "admin", passwordEncoder.encode("123"), "ADMIN", new ArrayList<>());
-        Usuario usuario4 = new Usuario(idCounter++, "usuario4", passwordEncoder.encode("123"), "USER",
-                new ArrayList<>());
-        Usuario usuario5 = new Usuario(idCounter++, "usuario5", passwordEncoder.encode("456"), "USER",
-                new ArrayList<>());
-        Usuario usuario6 = new Usuario(idCounter++, "usuario6", passwordEncoder.encode("456"), "USER",
-                new ArrayList<>());
-
-        // Agregar usuarios a la lista
-        usuarios.add(usuario1);
-        usuarios.add(usuario2);
-        usuarios.add(usuario3);
-        usuarios.add(usuario4);
-        usuarios.add(usuario5);
-        usuarios.add(usuario6);
-
-        // Creación y asignación de cuentas a los usuarios
-        Cuenta cuentaA = new Cuenta(1L, "Cuenta A", new BigDecimal("1000.00"), usuario1);
-        usuario1.getCuentas().add(cuentaA);
-        cuentas.add(cuentaA);
-
-        Cuenta cuentaB = new Cuenta(2L, "Cuenta B", new BigDecimal("1500.00"), usuario2);
-        usuario2.getCuentas().add(cuentaB);
-        cuentas.add(cuentaB);
-
-        Cuenta cuentaC = new Cuenta(3L, "Cuenta C", new BigDecimal("2000.00"), usuario3);
-        usuario3.getCuentas().add(cuentaC);
-        cuentas.add(cuentaC);
-
-        Cuenta cuentaD = new Cuenta(4L, "Cuenta D", new BigDecimal("2500.00"), usuario4);
-        usuario4.getCuentas().add(cuentaD);
-        cuentas.add(cuentaD);
-
-        Cuenta cuentaE = new Cuenta(5L, "Cuenta E", new BigDecimal("3000.00"), usuario5);
-        usuario5.getCuentas().add(cuentaE);
-        cuentas.add(cuentaE);
-
-        Cuenta cuentaF = new Cuenta(6L, "Cuenta F", new BigDecimal("3500.00"), usuario6);
-        usuario6.getCuentas().add(cuentaF);
-        cuentas.add(cuentaF);
+        locks.medirCon(metricas); // Espera por candados ocupados
+        if (ledgerSecuenciado) {
+            ledger = new LedgerSecuenciado(ledgerParticiones, ledgerCapacidad, this::aplicar);
+        }
+    }
+
+    /**
+     * Detiene los hilos escritores del ledger secuenciado, si está activo.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (ledger != null) {
+            ledger.detener();
+        }
     }
 
     @Override
     public List<Cuenta> findAll() {
-        return cuentas; // Devuelve todas las cuentas
+        return cuentas.findAll(); // Devuelve todas las cuentas
+    }
+
+    @Override
+    public List<Cuenta> findPagina(Long despues, int tamano) {
+        return cuentas.findPagina(despues, tamano); // Lee solo la página del índice ordenado
     }
 
     @Override
     public Cuenta findById(Long id) {
-        return cuentas.stream() // Busca la cuenta por ID
-                .filter(cuenta -> cuenta.getId().equals(id))
-                .findAny()
-                .orElseThrow(() -> new RuntimeException("Cuenta not found")); // Lanza excepción si no se encuentra
+        Cuenta cuenta = cuentas.findById(id).orElse(null); // Búsqueda O(1) en el índice primario
+        if (cuenta == null) {
+            throw new RuntimeException("Cuenta not found"); // Lanza excepción si no se encuentra
+        }
+        return cuenta;
+    }
+
+    @Override
+    public List<Cuenta> findByUsuarioId(Long usuarioId) {
+        return cuentas.findByUsuarioId(usuarioId); // Índice por propietario
+    }
+
+    @Override
+    public Optional<Cuenta> findByIdForUsuario(Long id, Long usuarioId) {
+        Optional<Cuenta> cuenta = cuentas.findById(id); // Búsqueda O(1) en el índice primario
+        if (cuenta.isEmpty()) {
+            return cuenta;
+        }
+        if (!cuentas.existsByIdAndUsuarioId(id, usuarioId)) { // Índice por propietario
+            throw new AccessDeniedException("La cuenta no pertenece al usuario"); // Existe, pero es de otro
+        }
+        return cuenta;
     }
 
     @Override
     public void addCuenta(Cuenta cuenta) {
-        cuentas.add(cuenta); // Agrega una nueva cuenta
-        Usuario usuario = cuenta.getUsuario(); // Obtiene el usuario asociado
-        if (usuario != null) {
-            usuarioService.addCuentaToUsuario(usuario.getId(), cuenta); // Agrega la cuenta al usuario
+        if (cuenta.getId() == null) {
+            cuenta.setId(cuentas.siguienteId()); // Asigna un ID único si la cuenta no lo trae
+        }
+        try (WriteAheadLog.Grupo grupo = wal.grupo()) {
+            ReentrantLock candado = locks.lock(cuenta.getId());
+            try {
+                cuentas.save(cuenta); // Agrega la nueva cuenta a los índices
+                wal.append(guardada(cuenta));
+                Usuario usuario = cuenta.getUsuario(); // Obtiene el usuario asociado
+                if (usuario != null) {
+                    // Bajo el candado: el total del usuario no puede perder un movimiento concurrente
+                    usuarioService.addCuentaToUsuario(usuario.getId(), cuenta); // Agrega la cuenta al usuario
+                }
+            } finally {
+                candado.unlock();
+            }
         }
     }
 
     @Override
     public void transferir(Long cuentaOrigenId, Long cuentaDestinoId, BigDecimal monto) {
-        Cuenta cuentaOrigen = findById(cuentaOrigenId); // Busca la cuenta de origen
-        Cuenta cuentaDestino = findById(cuentaDestinoId); // Busca la cuenta de destino
+        long centavos = Dinero.aCentavos(monto); // El monto se convierte una sola vez, fuera de los candados
+        if (ledger != null) {
+            enLedger(LedgerSecuenciado.TRANSFERENCIA, cuentaOrigenId, cuentaDestinoId, centavos, null);
+            return;
+        }
+        try (WriteAheadLog.Grupo grupo = wal.grupo()) { // Espera el fsync después de soltar los candados
+            transferirDirecto(cuentaOrigenId, cuentaDestinoId, centavos, null);
+        }
+    }
 
-        if (cuentaOrigen.getSaldo().compareTo(monto) < 0) {
-            throw new RuntimeException("Saldo insuficiente en la cuenta de origen"); // Verifica saldo
+    @Override
+    public Transaccion registrarTransferencia(Transaccion transaccion) {
+        if (transaccion.getCuentaOrigen() == null || transaccion.getCuentaDestino() == null) {
+            throw new TransferenciaRechazadaException("Las cuentas de origen y destino deben estar presentes");
+        }
+        Long origenId = transaccion.getCuentaOrigen().getId();
+        Long destinoId = transaccion.getCuentaDestino().getId();
+        long centavos = Dinero.aCentavos(transaccion.getMonto());
+        if (ledger != null) {
+            enLedger(LedgerSecuenciado.TRANSFERENCIA, origenId, destinoId, centavos, transaccion);
+        } else {
+            try (WriteAheadLog.Grupo grupo = wal.grupo()) {
+                transferirDirecto(origenId, destinoId, centavos, transaccion);
+            }
+        }
+        return transaccion;
+    }
+
+    /**
+     * Valida todas las filas fuera de los candados y luego las aplica por
+     * bloques de filas consecutivas. Cada bloque toma una sola vez los
+     * candados de todas sus cuentas, en el orden global de {@link CuentaLocks},
+     * y espera un solo fsync al soltarlos, en lugar de uno por fila. Dentro de
+     * un bloque las filas se aplican en su orden original, así que el
+     * resultado es el mismo que aplicarlas una por una.
+     *
+     * Con el ledger secuenciado el lote tampoco pasa por las particiones: filas
+     * con orígenes en particiones distintas podrían aplicarse en otro orden. Los
+     * escritores del ledger toman los mismos candados, así que aplicar el
+     * bloque desde el hilo de la petición es seguro.
+     */
+    @Override
+    public List<ResultadoTransferencia> transferirLote(List<Transaccion> transferencias) {
+        int filas = transferencias.size();
+        ResultadoTransferencia[] resultados = new ResultadoTransferencia[filas];
+        long[] montos = new long[filas];
+        for (int i = 0; i < filas; i++) {
+            Transaccion transaccion = transferencias.get(i);
+            if (transaccion.getCuentaOrigen() == null || transaccion.getCuentaDestino() == null
+                    || transaccion.getCuentaOrigen().getId() == null || transaccion.getCuentaDestino().getId() == null) {
+                resultados[i] = ResultadoTransferencia.rechazada("Las cuentas de origen y destino deben estar presentes");
+                continue;
+            }
+            try {
+                montos[i] = Dinero.aCentavos(transaccion.getMonto());
+            } catch (IllegalArgumentException e) {
+                resultados[i] = ResultadoTransferencia.rechazada(e.getMessage());
+                continue;
+            }
+            if (montos[i] <= 0) {
+                resultados[i] = ResultadoTransferencia.rechazada("El monto debe ser un número positivo.");
+            }
         }
 
-        cuentaOrigen.retirar(monto); // Retira el monto de la cuenta de origen
-        cuentaDestino.depositar(monto); // Deposita el monto en la cuenta de destino
+        for (int desde = 0; desde < filas; desde += filasPorBloque) {
+            int hasta = Math.min(filas, desde + filasPorBloque);
+            aplicarBloque(transferencias, montos, resultados, desde, hasta);
+        }
+        return Arrays.asList(resultados);
+    }
+
+    /**
+     * Aplica las filas válidas de un bloque bajo los candados de todas sus
+     * cuentas.
+     */
+    private void aplicarBloque(List<Transaccion> transferencias, long[] montos, ResultadoTransferencia[] resultados,
+            int desde, int hasta) {
+        long[] claves = new long[2 * (hasta - desde)];
+        int cuentasBloque = 0;
+        for (int i = desde; i < hasta; i++) {
+            if (resultados[i] == null) {
+                claves[cuentasBloque++] = clave(transferencias.get(i).getCuentaOrigen().getId());
+                claves[cuentasBloque++] = clave(transferencias.get(i).getCuentaDestino().getId());
+            }
+        }
+        if (cuentasBloque == 0) {
+            return;
+        }
+        try (WriteAheadLog.Grupo grupo = wal.grupo()) { // Un fsync por bloque, después de soltar los candados
+            ReentrantLock[] candados = locks.lock(Arrays.copyOf(claves, cuentasBloque));
+            try {
+                for (int i = desde; i < hasta; i++) {
+                    if (resultados[i] != null) {
+                        continue;
+                    }
+                    Transaccion transaccion = transferencias.get(i);
+                    try {
+                        aplicarTransferencia(transaccion.getCuentaOrigen().getId(),
+                                transaccion.getCuentaDestino().getId(), montos[i], transaccion);
+                        resultados[i] = ResultadoTransferencia.aplicada(transaccion);
+                    } catch (RuntimeException e) {
+                        resultados[i] = ResultadoTransferencia.rechazada(
+                                (e.getMessage() != null) ? e.getMessage() : e.getClass().getSimpleName());
+                    }
+                }
+            } finally {
+                CuentaLocks.unlock(candados);
+            }
+        }
+    }
+
+    /**
+     * Mueve el saldo entre dos cuentas bajo sus candados y, si se indica,
+     * registra la transacción dentro de la misma sección crítica.
+     *
+     * @param cuentaOrigenId  el ID de la cuenta de origen
+     * @param cuentaDestinoId el ID de la cuenta de destino
+     * @param monto           el monto a transferir, en centavos
+     * @param registro        la transacción a registrar, o {@code null}
+     */
+    private void transferirDirecto(Long cuentaOrigenId, Long cuentaDestinoId, long monto,
+            Transaccion registro) {
+        // Bloquea solo las dos cuentas involucradas, siempre en el mismo orden global
+        ReentrantLock[] candados = locks.lock(clave(cuentaOrigenId), clave(cuentaDestinoId));
+        try {
+            aplicarTransferencia(cuentaOrigenId, cuentaDestinoId, monto, registro);
+        } finally {
+            CuentaLocks.unlock(candados);
+        }
+    }
+
+    /**
+     * Mueve el saldo y registra la transacción. Quien llama ya tiene los
+     * candados de ambas cuentas.
+     */
+    private void aplicarTransferencia(Long cuentaOrigenId, Long cuentaDestinoId, long monto, Transaccion registro) {
+        Cuenta cuentaOrigen = cuentas.findById(cuentaOrigenId).orElse(null); // Busca la cuenta de origen
+        Cuenta cuentaDestino = cuentas.findById(cuentaDestinoId).orElse(null); // Busca la cuenta de destino
+        if (cuentaOrigen == null || cuentaDestino == null) {
+            metricas.transferenciaNoEncontrada();
+            throw new TransferenciaRechazadaException("Cuenta not found"); // El mismo mensaje que findById
+        }
+
+        // La verificación y el débito ocurren bajo el mismo candado
+        if (cuentaOrigen.getSaldoCentavos() < monto) {
+            metricas.transferenciaSaldoInsuficiente();
+            throw new TransferenciaRechazadaException("Saldo insuficiente en la cuenta de origen"); // Verifica saldo
+        }
+
+        // Un grupo puede abarcar muchas filas de un lote: si el log dejó de aceptar registros
+        // desde que se abrió, la fila falla sin mover saldos que no se podrían guardar
+        wal.verificar();
+        long saldoOrigen = cuentaOrigen.retirar(monto); // Retira el monto de la cuenta de origen
+        long saldoDestino;
+        try {
+            saldoDestino = cuentaDestino.depositar(monto); // Deposita el monto en la cuenta de destino
+        } catch (RuntimeException e) {
+            cuentaOrigen.depositar(monto); // Desborde en el destino: devuelve el retiro
+            throw e;
+        }
+        RegistroWal.Transferencia saldos = new RegistroWal.Transferencia(cuentaOrigen.getId(), saldoOrigen,
+                cuentaDestino.getId(), saldoDestino);
+
+        if (registro == null) {
+            wal.append(saldos); // Anexa bajo los candados para conservar el orden de aplicación
+        } else {
+            // El formulario solo trae los IDs; se registran las cuentas reales
+            registro.setCuentaOrigen(cuentaOrigen);
+            registro.setCuentaDestino(cuentaDestino);
+            if (registro.getFecha() == null) {
+                registro.setFecha(LocalDateTime.now());
+            }
+            RegistroWal.TransaccionGuardada transaccion;
+            try {
+                transaccion = transaccionService.addTransaccionSinLog(registro);
+            } catch (RuntimeException | Error e) {
+                cuentaDestino.retirar(monto); // Sin la transacción, los saldos vuelven atrás
+                cuentaOrigen.depositar(monto);
+                throw e;
+            }
+            // Saldos y transacción en un solo registro: la recuperación aplica ambos o ninguno
+            wal.append(new RegistroWal.TransferenciaRegistrada(saldos, transaccion));
+        }
+        metricas.transferenciaOk();
     }
 
     @Override
     public void updateCuenta(Cuenta updatedCuenta) {
-        for (int i = 0; i < cuentas.size(); i++) {
-            Cuenta cuenta = cuentas.get(i);
-            if (cuenta.getId().equals(updatedCuenta.getId())) {
-                cuentas.set(i, updatedCuenta); // Actualiza la cuenta
-                return;
+        Cuenta anterior = cuentas.findById(updatedCuenta.getId()).orElse(null);
+        if (anterior == null) {
+            throw new RuntimeException("Cuenta not found"); // Lanza excepción si no se encuentra
+        }
+        try (WriteAheadLog.Grupo grupo = wal.grupo()) {
+            ReentrantLock candado = locks.lock(updatedCuenta.getId()); // Evita perder movimientos en curso
+            try {
+                // Se modifica la cuenta guardada: el formulario no trae el saldo
+                Usuario actual = anterior.getUsuario();
+                Usuario nuevo = updatedCuenta.getUsuario();
+                if (nuevo != null && nuevo.getId() != null
+                        && (actual == null || !nuevo.getId().equals(actual.getId()))) {
+                    Usuario propietario = usuarioService.findById(nuevo.getId()); // Falla antes de cambiar nada
+                    cuentas.desindexarUsuario(anterior);
+                    if (actual != null) {
+                        usuarioService.removeCuentaFromUsuario(actual.getId(), anterior.getId());
+                    }
+                    anterior.setUsuario(propietario);
+                    usuarioService.addCuentaToUsuario(propietario.getId(), anterior); // Invalida ambas sesiones
+                    cuentas.save(anterior); // Vuelve a indexar con el propietario nuevo
+                }
+                anterior.setNombre(updatedCuenta.getNombre()); // Actualiza el nombre
+                wal.append(guardada(anterior));
+            } finally {
+                candado.unlock();
             }
         }
-        throw new RuntimeException("Cuenta not found"); // Lanza excepción si no se encuentra
     }
 
     @Override
     public void deleteCuenta(Long id) {
         Cuenta cuenta = findById(id); // Busca la cuenta por ID
-        cuentas.remove(cuenta); // Elimina la cuenta de la lista
-        Usuario usuario = cuenta.getUsuario(); // Obtiene el usuario asociado
-        if (usuario != null) {
-            usuarioService.removeCuentaFromUsuario(usuario.getId(), cuenta.getId()); // Elimina la cuenta del usuario
+        try (WriteAheadLog.Grupo grupo = wal.grupo()) {
+            ReentrantLock candado = locks.lock(clave(id));
+            try {
+                cuentas.deleteById(id); // Elimina la cuenta de los índices primario y por propietario
+                wal.append(new RegistroWal.CuentaEliminada(id));
+                Usuario usuario = cuenta.getUsuario(); // Obtiene el usuario asociado
+                if (usuario != null) {
+                    usuarioService.removeCuentaFromUsuario(usuario.getId(), cuenta.getId()); // Elimina la cuenta
+                                                                                              // del usuario
+                }
+            } finally {
+                candado.unlock();
+            }
         }
     }
 
     @Override
     public void depositar(Long id, BigDecimal monto) {
-        Cuenta cuenta = findById(id); // Busca la cuenta por ID
-        cuenta.depositar(monto); // Deposita el monto en la cuenta
+        long centavos = Dinero.aCentavos(monto);
+        if (ledger != null) {
+            enLedger(LedgerSecuenciado.DEPOSITO, id, null, centavos, null);
+            return;
+        }
+        try (WriteAheadLog.Grupo grupo = wal.grupo()) {
+            depositarDirecto(id, centavos);
+        }
+    }
+
+    private void depositarDirecto(Long id, long monto) {
+        ReentrantLock candado = locks.lock(clave(id));
+        try {
+            Cuenta cuenta = findById(id); // Busca la cuenta por ID
+            long saldo = cuenta.depositar(monto); // Deposita el monto en la cuenta
+            wal.append(new RegistroWal.SaldoActualizado(cuenta.getId(), saldo));
+        } finally {
+            candado.unlock();
+        }
     }
 
     @Override
     public void retirar(Long id, BigDecimal monto) {
-        Cuenta cuenta = findById(id); // Busca la cuenta por ID
-        cuenta.retirar(monto); // Retira el monto de la cuenta
+        long centavos = Dinero.aCentavos(monto);
+        if (ledger != null) {
+            enLedger(LedgerSecuenciado.RETIRO, id, null, centavos, null);
+            return;
+        }
+        try (WriteAheadLog.Grupo grupo = wal.grupo()) {
+            retirarDirecto(id, centavos);
+        }
+    }
+
+    private void retirarDirecto(Long id, long monto) {
+        ReentrantLock candado = locks.lock(clave(id));
+        try {
+            Cuenta cuenta = findById(id); // Busca la cuenta por ID
+            long saldo = cuenta.retirar(monto); // Retira el monto de la cuenta
+            wal.append(new RegistroWal.SaldoActualizado(cuenta.getId(), saldo));
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Publica un comando en el ledger secuenciado y espera a que el escritor lo
+     * aplique. Las excepciones del escritor se relanzan tal cual para que los
+     * controladores muestren el mismo mensaje que en el modo directo. El
+     * escritor no espera el fsync: devuelve el número de secuencia de sus
+     * registros y es el hilo de la petición el que espera la durabilidad.
+     * La espera está acotada por {@code banco.ledger.espera}; si vence o el
+     * hilo se interrumpe, el comando se cancela y la petición falla solo si el
+     * escritor todavía no lo había tomado. Si ya lo tomó, se espera a que
+     * termine: la petición nunca falla con un movimiento aplicado.
+     */
+    private void enLedger(int tipo, Long cuentaId, Long cuentaDestinoId, long monto, Transaccion registro) {
+        long destino = (cuentaDestinoId != null) ? clave(cuentaDestinoId) : 0L;
+        LedgerSecuenciado.Resultado resultado = ledger.publicar(tipo, clave(cuentaId), destino, monto, registro);
+        Object lsn;
+        try {
+            lsn = resultado.get(ledgerEspera.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw fallaDelLedger(e);
+        } catch (TimeoutException e) {
+            if (resultado.cancelar()) {
+                throw new IllegalStateException("El ledger no aplicó el movimiento a tiempo; se canceló", e);
+            }
+            lsn = esperarAplicado(resultado); // El escritor ya lo está aplicando
+        } catch (InterruptedException e) {
+            if (resultado.cancelar()) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrumpido esperando al ledger; el movimiento se canceló", e);
+            }
+            lsn = esperarAplicado(resultado);
+            Thread.currentThread().interrupt(); // Se conserva la interrupción para quien llamó
+        }
+        wal.awaitDurable((Long) lsn);
+    }
+
+    /**
+     * Espera sin límite un comando que el escritor ya tomó; su aplicación
+     * solo depende de los candados de dos cuentas.
+     */
+    private static Object esperarAplicado(LedgerSecuenciado.Resultado resultado) {
+        boolean interrumpido = false;
+        try {
+            while (true) {
+                try {
+                    return resultado.get();
+                } catch (ExecutionException e) {
+                    throw fallaDelLedger(e);
+                } catch (InterruptedException e) {
+                    interrumpido = true; // Se vuelve a marcar al terminar la espera
+                }
+            }
+        } finally {
+            if (interrumpido) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Relanza tal cual las excepciones del aplicador para que los
+     * controladores muestren el mismo mensaje que en el modo directo.
+     */
+    private static RuntimeException fallaDelLedger(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException causa) {
+            return causa;
+        }
+        return new IllegalStateException("El ledger no pudo aplicar el movimiento", e.getCause());
+    }
+
+    /**
+     * Aplica un comando del ledger. Se ejecuta en el hilo escritor de la
+     * partición.
+     */
+    private Object aplicar(LedgerSecuenciado.Comando comando) {
+        try (WriteAheadLog.Grupo grupo = wal.grupo()) {
+            grupo.diferir(); // El escritor sigue con el siguiente comando sin esperar el disco
+            switch (comando.tipo) {
+                case LedgerSecuenciado.DEPOSITO -> depositarDirecto(comando.cuentaId, comando.monto);
+                case LedgerSecuenciado.RETIRO -> retirarDirecto(comando.cuentaId, comando.monto);
+                case LedgerSecuenciado.TRANSFERENCIA -> transferirDirecto(comando.cuentaId, comando.cuentaDestinoId,
+                        comando.monto, comando.transaccion);
+                default -> throw new IllegalStateException("Comando desconocido: " + comando.tipo);
+            }
+            return grupo.ultimoLsn();
+        }
+    }
+
+    /**
+     * Reaplica los registros de cuentas del write-ahead log. Cada registro trae
+     * el estado final de la cuenta, así que no se repiten validaciones ni se
+     * vuelve a escribir en el log.
+     */
+    @Override
+    public void restaurar(RegistroWal registro) {
+        switch (registro) {
+            case RegistroWal.CuentaGuardada guardada -> restaurarCuenta(guardada);
+            case RegistroWal.CuentaEliminada eliminada -> {
+                cuentas.deleteById(eliminada.id()).ifPresent(cuenta -> vincular(cuenta, null));
+            }
+            case RegistroWal.SaldoActualizado saldo -> restaurarSaldo(saldo.cuentaId(), saldo.saldo());
+            case RegistroWal.Transferencia transferencia -> {
+                restaurarSaldo(transferencia.origenId(), transferencia.saldoOrigen());
+                restaurarSaldo(transferencia.destinoId(), transferencia.saldoDestino());
+            }
+            case RegistroWal.TransferenciaRegistrada registrada -> restaurar(registrada.saldos());
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public void volcar(Consumer<RegistroWal> destino) {
+        cuentas.forEach(cuenta -> destino.accept(guardada(cuenta)));
+    }
+
+    @Override
+    public void vaciar() {
+        cuentas.deleteAll();
+    }
+
+    private void restaurarCuenta(RegistroWal.CuentaGuardada guardada) {
+        Cuenta cuenta = cuentas.findById(guardada.id()).orElse(null);
+        if (cuenta == null) {
+            cuenta = new Cuenta(guardada.id(), guardada.nombre(), guardada.saldo(), null);
+        } else {
+            cuentas.desindexarUsuario(cuenta);
+            cuenta.setNombre(guardada.nombre());
+            cuenta.setSaldo(guardada.saldo());
+        }
+        vincular(cuenta, guardada.usuarioId());
+        cuentas.save(cuenta);
+    }
+
+    private void restaurarSaldo(long cuentaId, long saldo) {
+        cuentas.findById(cuentaId).ifPresent(cuenta -> cuenta.setSaldoCentavos(saldo));
+    }
+
+    /**
+     * Asocia la cuenta restaurada a su propietario, quitándola antes del
+     * propietario anterior si cambió.
+     */
+    private void vincular(Cuenta cuenta, Long usuarioId) {
+        vinculos.lock();
+        try {
+            Usuario anterior = cuenta.getUsuario();
+            if (anterior != null && anterior.getId() != null && !anterior.getId().equals(usuarioId)) {
+                anterior.getCuentas().removeIf(c -> c.getId().equals(cuenta.getId()));
+                cuenta.setUsuario(null);
+            }
+            if (usuarioId != null && cuenta.getUsuario() == null) {
+                try {
+                    usuarioService.addCuentaToUsuario(usuarioId, cuenta);
+                } catch (RuntimeException e) {
+                    cuenta.setUsuario(null); // El usuario ya no existe; la cuenta queda sin propietario
+                }
+            }
+        } finally {
+            vinculos.unlock();
+        }
+    }
+
+    /**
+     * Construye el registro con el estado actual de una cuenta.
+     */
+    private static RegistroWal.CuentaGuardada guardada(Cuenta cuenta) {
+        Usuario usuario = cuenta.getUsuario();
+        return new RegistroWal.CuentaGuardada(cuenta.getId(), cuenta.getNombre(), cuenta.getSaldo(),
+                (usuario != null) ? usuario.getId() : null);
+    }
+
+    /**
+     * Valida el ID de una cuenta antes de usarlo como clave de candado.
+     *
+     * @param id el ID de la cuenta
+     * @return el ID como valor primitivo
+     */
+    private static long clave(Long id) {
+        if (id == null) {
+            throw new RuntimeException("Cuenta not found");
+        }
+        return id;
     }
 }
@@ -0,0 +1,267 @@
+package com.tecno.web_sec.service.impl;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Dinero;
+import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.models.Usuario;
+import com.tecno.web_sec.service.CuentaService;
+import com.tecno.web_sec.service.TransaccionService;
+import com.tecno.web_sec.service.UsuarioService;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Genera un conjunto de datos sintético para pruebas de carga y de capacidad:
+ * N usuarios, M cuentas por usuario y K transacciones históricas repartidas en
+ * un periodo. Todo pasa por las APIs de los servicios ({@code addUsuario},
+ * {@code addCuenta}, {@code addTransaccion}), así que los índices, los totales
+ * de los usuarios y el log se mantienen igual que con datos reales.
+ *
+ * El contenido depende solo de los parámetros y de la semilla, no del número
+ * de hilos: las cuentas y las transacciones se generan por bloques y cada
+ * bloque tiene su propio generador. Los IDs de usuario y de cuenta también
+ * son deterministas; los de transacción se asignan en el orden en que los
+ * hilos las registran.
+ *
+ * Al arrancar la aplicación se activa con {@code banco.datos.usuarios} mayor
+ * que cero (por ejemplo con el perfil {@code carga}), después de la
+ * recuperación del log.
+ */
+@Component
+@DependsOn("recuperacionWal")
+public class GeneradorDatos {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeneradorDatos.class);
+
+    private static final int USUARIOS_POR_BLOQUE = 1024;
+    private static final int TRANSACCIONES_POR_BLOQUE = 1 << 16;
+    private static final long GAMMA = 0x9E3779B97F4A7C15L; // Separa las semillas de bloques consecutivos
+    private static final long SALDO_MAXIMO = 10_000_00L; // Saldo inicial máximo de una cuenta, en centavos
+    private static final long MONTO_MAXIMO = 500_00L; // Monto máximo de una transacción, en centavos
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Value("${banco.datos.usuarios:0}")
+    private int usuarios;
+
+    @Value("${banco.datos.cuentas-por-usuario:2}")
+    private int cuentasPorUsuario;
+
+    @Value("${banco.datos.transacciones:0}")
+    private long transacciones;
+
+    @Value("${banco.datos.semilla:42}")
+    private long semilla;
+
+    @Value("${banco.datos.hilos:0}")
+    private int hilos;
+
+    @Value("${banco.datos.periodo:P365D}")
+    private Duration periodo;
+
+    /**
+     * Parámetros de una generación.
+     *
+     * @param usuarios          número de usuarios
+     * @param cuentasPorUsuario número de cuentas de cada usuario
+     * @param transacciones     número de transacciones históricas
+     * @param semilla           semilla de los generadores aleatorios
+     * @param hilos             hilos de trabajo; 0 usa uno por procesador
+     * @param desde             fecha de la primera transacción
+     * @param hasta             fecha límite de las transacciones, excluida
+     */
+    public record Parametros(int usuarios, int cuentasPorUsuario, long transacciones, long semilla, int hilos,
+            LocalDateTime desde, LocalDateTime hasta) {
+
+        public Parametros {
+            if (usuarios < 0 || cuentasPorUsuario < 0 || transacciones < 0) {
+                throw new IllegalArgumentException("Las cantidades no pueden ser negativas");
+            }
+            if (transacciones > 0 && (long) usuarios * cuentasPorUsuario < 2) {
+                throw new IllegalArgumentException("Las transacciones necesitan al menos dos cuentas");
+            }
+            if (!desde.isBefore(hasta)) {
+                throw new IllegalArgumentException("Periodo inválido");
+            }
+        }
+    }
+
+    /**
+     * Resultado de una generación.
+     */
+    public record Resumen(int usuarios, long cuentas, long transacciones, Duration duracion) {
+    }
+
+    /**
+     * Genera los datos configurados en {@code banco.datos.*}, si hay alguno.
+     * El periodo termina al comienzo del día actual, de modo que dos arranques
+     * del mismo día producen los mismos datos.
+     */
+    @PostConstruct
+    public void generarAlArrancar() {
+        if (usuarios <= 0) {
+            return;
+        }
+        LocalDateTime hasta = LocalDate.now().atStartOfDay();
+        generar(new Parametros(usuarios, cuentasPorUsuario, transacciones, semilla, hilos, hasta.minus(periodo),
+                hasta));
+    }
+
+    /**
+     * Genera usuarios, cuentas y transacciones. Si el primer usuario ya existe
+     * (por ejemplo, porque el log lo recuperó) no se genera nada.
+     *
+     * @param parametros los parámetros de la generación
+     * @return lo que se generó
+     */
+    public Resumen generar(Parametros parametros) {
+        long inicio = System.nanoTime();
+        if (existe(nombre(0))) {
+            logger.info("Datos sintéticos: {} ya existe, no se generan", nombre(0));
+            return new Resumen(0, 0, 0, Duration.ZERO);
+        }
+        int n = (parametros.hilos() > 0) ? parametros.hilos() : Runtime.getRuntime().availableProcessors();
+
+        // Usuarios en secuencia para que sus IDs no dependan de los hilos
+        Usuario[] generados = new Usuario[parametros.usuarios()];
+        for (int i = 0; i < generados.length; i++) {
+            generados[i] = new Usuario(null, nombre(i), "123", "USER", new ArrayList<>());
+            usuarioService.addUsuario(generados[i]);
+        }
+
+        // Cuentas con IDs consecutivos después de las existentes
+        long primeraCuenta = cuentaService.findAll().stream().mapToLong(Cuenta::getId).max().orElse(0L) + 1;
+        Cuenta[] cuentas = new Cuenta[Math.multiplyExact(generados.length, parametros.cuentasPorUsuario())];
+        enParalelo(n, Math.ceilDiv(generados.length, USUARIOS_POR_BLOQUE), bloque -> {
+            SplittableRandom random = random(parametros.semilla(), bloque);
+            int desde = (int) bloque * USUARIOS_POR_BLOQUE;
+            int hasta = Math.min(desde + USUARIOS_POR_BLOQUE, generados.length);
+            for (int i = desde; i < hasta; i++) {
+                for (int j = 0; j < parametros.cuentasPorUsuario(); j++) {
+                    int indice = i * parametros.cuentasPorUsuario() + j;
+                    long id = primeraCuenta + indice;
+                    Cuenta cuenta = new Cuenta(id, "Cuenta " + id,
+                            Dinero.aBigDecimal(random.nextLong(SALDO_MAXIMO + 1)), generados[i]);
+                    cuentaService.addCuenta(cuenta); // También la agrega al usuario
+                    cuentas[indice] = cuenta;
+                }
+            }
+        });
+
+        // Transacciones repartidas de forma uniforme en el periodo, en orden
+        // cronológico dentro de cada bloque
+        long total = parametros.transacciones();
+        if (total > 0) {
+            long periodoNanos = Duration.between(parametros.desde(), parametros.hasta()).toNanos();
+            double paso = (double) periodoNanos / total;
+            enParalelo(n, Math.ceilDiv(total, TRANSACCIONES_POR_BLOQUE), bloque -> {
+                SplittableRandom random = random(~parametros.semilla(), bloque);
+                long desde = bloque * TRANSACCIONES_POR_BLOQUE;
+                long hasta = Math.min(desde + TRANSACCIONES_POR_BLOQUE, total);
+                for (long k = desde; k < hasta; k++) {
+                    int origen = random.nextInt(cuentas.length);
+                    int destino = random.nextInt(cuentas.length - 1);
+                    if (destino >= origen) {
+                        destino++; // Nunca la misma cuenta
+                    }
+                    long nanos = (long) (k * paso) + (long) (random.nextDouble() * paso);
+                    transaccionService.addTransaccion(new Transaccion(null,
+                            Dinero.aBigDecimal(random.nextLong(1, MONTO_MAXIMO + 1)),
+                            parametros.desde().plusNanos(Math.min(nanos, periodoNanos - 1)),
+                            cuentas[origen], cuentas[destino]));
+                }
+            });
+        }
+
+        Duration duracion = Duration.ofNanos(System.nanoTime() - inicio);
+        logger.info("Datos sintéticos: {} usuarios, {} cuentas y {} transacciones con {} hilos en {} ms",
+                generados.length, cuentas.length, total, n, duracion.toMillis());
+        return new Resumen(generados.length, cuentas.length, total, duracion);
+    }
+
+    private boolean existe(String username) {
+        try {
+            usuarioService.findByUsername(username);
+            return true;
+        } catch (UsernameNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static String nombre(int indice) {
+        return "cliente" + (indice + 1);
+    }
+
+    private static SplittableRandom random(long semilla, long bloque) {
+        return new SplittableRandom(semilla + (bloque + 1) * GAMMA);
+    }
+
+    /**
+     * Ejecuta los bloques {@code 0..bloques-1} repartidos entre {@code n}
+     * hilos; cada hilo toma el siguiente bloque libre.
+     */
+    private static void enParalelo(int n, long bloques, LongConsumer tarea) {
+        if (bloques == 0) {
+            return;
+        }
+        AtomicLong siguiente = new AtomicLong();
+        Callable<Void> trabajador = () -> {
+            for (long bloque = siguiente.getAndIncrement(); bloque < bloques; bloque = siguiente
+                    .getAndIncrement()) {
+                tarea.accept(bloque);
+            }
+            return null;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool((int) Math.min(n, bloques),
+                Thread.ofPlatform().name("generador-datos-", 0).daemon().factory());
+        try {
+            List<Future<Void>> trabajadores = new ArrayList<>();
+            for (int i = 0; i < Math.min(n, bloques); i++) {
+                trabajadores.add(executor.submit(trabajador));
+            }
+            for (Future<Void> futuro : trabajadores) {
+                futuro.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Generación interrumpida", e);
+        } catch (ExecutionException e) {
+            siguiente.set(bloques); // Los demás hilos terminan su bloque y se detienen
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.tecno.web_sec.service.impl;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.tecno.web_sec.models.Transaccion;
+
+/**
+ * Fusión de k iteradores de transacciones ya ordenados con el mismo
+ * comparador. Usa un montículo con la cabeza de cada iterador, de modo que
+ * producir n elementos cuesta O(n log k). Una transferencia entre dos cuentas
+ * aparece en ambas listas; como las dos copias son consecutivas en el orden
+ * fusionado, basta con omitir los IDs repetidos contiguos.
+ */
+final class IteradorFusionado implements Iterator<Transaccion> {
+
+    private static final class Cabeza {
+        private Transaccion actual;
+        private final Iterator<Transaccion> resto;
+
+        private Cabeza(Transaccion actual, Iterator<Transaccion> resto) {
+            this.actual = actual;
+            this.resto = resto;
+        }
+    }
+
+    private final PriorityQueue<Cabeza> monticulo;
+    private Transaccion siguiente;
+    private Long ultimoId;
+
+    /**
+     * @param iteradores iteradores ordenados según {@code orden}
+     * @param orden      el orden común de los iteradores
+     */
+    IteradorFusionado(List<Iterator<Transaccion>> iteradores, Comparator<Transaccion> orden) {
+        this.monticulo = new PriorityQueue<>(Math.max(1, iteradores.size()),
+                (a, b) -> orden.compare(a.actual, b.actual));
+        for (Iterator<Transaccion> iterador : iteradores) {
+            if (iterador.hasNext()) {
+                monticulo.add(new Cabeza(iterador.next(), iterador));
+            }
+        }
+        avanzar();
+    }
+
+    private void avanzar() {
+        siguiente = null;
+        while (siguiente == null && !monticulo.isEmpty()) {
+            Cabeza cabeza = monticulo.poll();
+            Transaccion candidata = cabeza.actual;
+            if (cabeza.resto.hasNext()) {
+                cabeza.actual = cabeza.resto.next();
+                monticulo.add(cabeza);
+            }
+            if (!candidata.getId().equals(ultimoId)) {
+                siguiente = candidata;
+                ultimoId = candidata.getId();
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return siguiente != null;
+    }
+
+    @Override
+    public Transaccion next() {
+        if (siguiente == null) {
+            throw new NoSuchElementException();
+        }
+        Transaccion resultado = siguiente;
+        avanzar();
+        return resultado;
+    }
+}
@@ -0,0 +1,267 @@
+package com.tecno.web_sec.service.impl;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import com.tecno.web_sec.models.Transaccion;
+
+/**
+ * Ledger secuenciado al estilo del LMAX Disruptor. Cada partición tiene un
+ * buffer circular de comandos preasignado y un único hilo escritor que los
+ * aplica en orden; los hilos de las peticiones solo reservan una secuencia,
+ * copian el comando en su ranura y esperan el resultado en un
+ * {@link Resultado}.
+ *
+ * Una petición que deja de esperar debe retirar su comando con
+ * {@link Resultado#cancelar()}: el escritor toma cada comando con la misma
+ * operación atómica antes de aplicarlo, así que el comando se aplica o se
+ * cancela, nunca las dos cosas. Si el escritor ya lo tomó, la cancelación
+ * falla y la petición debe esperar el resultado.
+ *
+ * Los comandos se reparten por ID de la cuenta principal (la de origen en
+ * las transferencias). El aplicador sigue tomando los candados de
+ * {@link CuentaLocks}: los necesita una transferencia entre particiones y
+ * también las operaciones que no pasan por el ledger (altas, ediciones y
+ * lotes). Sin competencia cuestan unos 45 ns por transferencia, cerca del
+ * 1 % de los 4,4 µs de una transferencia completa por el ledger (ver
+ * {@code LedgerCandadosBenchmark} en el README).
+ *
+ * Si el aplicador lanza un {@link Error}, el estado de las cuentas queda en
+ * duda: la partición se detiene, falla los comandos pendientes y rechaza los
+ * siguientes en lugar de dejar a las peticiones esperando un escritor que ya
+ * no existe.
+ */
+final class LedgerSecuenciado {
+
+    static final int DEPOSITO = 1;
+    static final int RETIRO = 2;
+    static final int TRANSFERENCIA = 3;
+
+    /**
+     * Aplica un comando sobre el estado de las cuentas. Se invoca siempre desde
+     * el hilo escritor de la partición.
+     */
+    interface Aplicador {
+        Object aplicar(Comando comando);
+    }
+
+    /**
+     * Ranura del buffer circular. Se reutiliza; sus campos solo son válidos
+     * entre la publicación y el procesamiento de la secuencia.
+     */
+    static final class Comando {
+        int tipo;
+        long cuentaId;
+        long cuentaDestinoId;
+        long monto; // En centavos
+        Transaccion transaccion;
+        Resultado futuro;
+
+        private void limpiar() {
+            transaccion = null;
+            futuro = null;
+        }
+    }
+
+    /**
+     * Resultado de un comando publicado. Además del futuro lleva el estado
+     * del comando, que decide quién gana entre el escritor que lo toma y la
+     * petición que lo cancela.
+     */
+    static final class Resultado extends CompletableFuture<Object> {
+
+        private static final int PUBLICADO = 0;
+        private static final int TOMADO = 1;
+        private static final int CANCELADO = 2;
+        private static final AtomicIntegerFieldUpdater<Resultado> ESTADO = AtomicIntegerFieldUpdater
+                .newUpdater(Resultado.class, "estado");
+
+        private volatile int estado;
+
+        /**
+         * Retira el comando si el escritor todavía no lo tomó.
+         *
+         * @return {@code true} si el comando no se aplicará; {@code false} si
+         *         el escritor ya lo está aplicando o lo aplicó
+         */
+        boolean cancelar() {
+            if (!ESTADO.compareAndSet(this, PUBLICADO, CANCELADO)) {
+                return false;
+            }
+            completeExceptionally(new CancellationException("Comando cancelado antes de aplicarse"));
+            return true;
+        }
+
+        /**
+         * Lo invoca el escritor antes de aplicar el comando.
+         *
+         * @return {@code false} si la petición ya lo canceló
+         */
+        private boolean tomar() {
+            return ESTADO.compareAndSet(this, PUBLICADO, TOMADO);
+        }
+    }
+
+    private final Particion[] particiones;
+
+    /**
+     * Crea el ledger e inicia un hilo escritor por partición.
+     *
+     * @param particiones número de particiones
+     * @param capacidad   ranuras por partición; se redondea a potencia de dos
+     * @param aplicador   lógica que aplica cada comando
+     */
+    LedgerSecuenciado(int particiones, int capacidad, Aplicador aplicador) {
+        int tamano = Integer.highestOneBit(Math.max(2, capacidad) - 1) << 1;
+        this.particiones = new Particion[Math.max(1, particiones)];
+        for (int i = 0; i < this.particiones.length; i++) {
+            this.particiones[i] = new Particion(tamano, aplicador, "ledger-escritor-" + i);
+        }
+    }
+
+    /**
+     * Publica un comando en la partición de la cuenta indicada.
+     *
+     * @return el resultado, que se completa cuando el escritor aplicó el
+     *         comando
+     */
+    Resultado publicar(int tipo, long cuentaId, long cuentaDestinoId, long monto, Transaccion transaccion) {
+        Particion particion = particiones[(int) Math.floorMod(cuentaId, (long) particiones.length)];
+        Resultado futuro = new Resultado();
+        particion.publicar(tipo, cuentaId, cuentaDestinoId, monto, transaccion, futuro);
+        return futuro;
+    }
+
+    /**
+     * Detiene los hilos escritores. Los comandos ya publicados y no procesados
+     * se completan con error; los que se publiquen después se rechazan.
+     */
+    void detener() {
+        for (Particion particion : particiones) {
+            particion.detener();
+        }
+    }
+
+    /**
+     * Una partición: buffer circular multi-productor y un consumidor.
+     */
+    private static final class Particion implements Runnable {
+
+        private final Comando[] ranuras;
+        private final AtomicLongArray publicadas; // Secuencia publicada en cada ranura
+        private final int mascara;
+        private final AtomicLong reservada = new AtomicLong(-1); // Última secuencia reservada
+        private volatile long procesada = -1; // Última secuencia aplicada por el escritor
+        private volatile boolean dormido;
+        private volatile boolean activo = true;
+        private volatile Throwable falla; // Error que detuvo al escritor, o null
+        private final Aplicador aplicador;
+        private final Thread escritor;
+
+        Particion(int tamano, Aplicador aplicador, String nombre) {
+            this.ranuras = new Comando[tamano];
+            this.publicadas = new AtomicLongArray(tamano);
+            for (int i = 0; i < tamano; i++) {
+                ranuras[i] = new Comando();
+                publicadas.set(i, -1);
+            }
+            this.mascara = tamano - 1;
+            this.aplicador = aplicador;
+            this.escritor = Thread.ofPlatform().name(nombre).daemon().start(this);
+        }
+
+        void publicar(int tipo, long cuentaId, long cuentaDestinoId, long monto, Transaccion transaccion,
+                Resultado futuro) {
+            if (!activo) {
+                throw detenido();
+            }
+            long secuencia = reservada.incrementAndGet();
+            // Espera a que el escritor libere la ranura si el buffer dio la vuelta
+            while (secuencia - ranuras.length > procesada) {
+                if (!activo) {
+                    throw detenido();
+                }
+                Thread.onSpinWait();
+                LockSupport.parkNanos(1_000);
+            }
+            int indice = (int) secuencia & mascara;
+            Comando comando = ranuras[indice];
+            comando.tipo = tipo;
+            comando.cuentaId = cuentaId;
+            comando.cuentaDestinoId = cuentaDestinoId;
+            comando.monto = monto;
+            comando.transaccion = transaccion;
+            comando.futuro = futuro;
+            publicadas.set(indice, secuencia); // Publica la ranura (escritura con semántica volatile)
+            if (dormido) {
+                LockSupport.unpark(escritor);
+            }
+            if (!activo) {
+                // El escritor se detuvo y pudo vaciar el buffer antes de esta
+                // publicación; si ya completó el futuro, esto no tiene efecto
+                futuro.completeExceptionally(detenido());
+            }
+        }
+
+        @Override
+        public void run() {
+            long siguiente = 0;
+            int intentos = 0;
+            while (activo) {
+                int indice = (int) siguiente & mascara;
+                if (publicadas.get(indice) != siguiente) {
+                    if (++intentos < 100) {
+                        Thread.onSpinWait();
+                    } else {
+                        dormido = true;
+                        if (publicadas.get(indice) != siguiente) {
+                            LockSupport.park(this);
+                        }
+                        dormido = false;
+                    }
+                    continue;
+                }
+                intentos = 0;
+                Comando comando = ranuras[indice];
+                Resultado futuro = comando.futuro;
+                try {
+                    if (futuro.tomar()) { // Un comando cancelado por su petición no se aplica
+                        futuro.complete(aplicador.aplicar(comando));
+                    }
+                } catch (RuntimeException e) {
+                    futuro.completeExceptionally(e);
+                } catch (Throwable e) {
+                    futuro.completeExceptionally(e);
+                    falla = e;
+                    activo = false; // Sale del ciclo y falla los comandos pendientes
+                } finally {
+                    comando.limpiar();
+                    procesada = siguiente;
+                }
+                siguiente++;
+            }
+            // Falla los comandos que quedaron publicados sin procesar
+            IllegalStateException detenido = detenido();
+            for (long s = siguiente; s <= reservada.get(); s++) {
+                Comando comando = ranuras[(int) s & mascara];
+                Resultado futuro = comando.futuro;
+                if (publicadas.get((int) s & mascara) == s && futuro != null) {
+                    futuro.completeExceptionally(detenido);
+                }
+            }
+        }
+
+        void detener() {
+            activo = false;
+            LockSupport.unpark(escritor);
+        }
+
+        private IllegalStateException detenido() {
+            return new IllegalStateException("El ledger está detenido", falla);
+        }
+    }
+}
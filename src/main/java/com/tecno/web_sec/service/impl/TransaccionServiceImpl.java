@@ -1,68 +1,388 @@
 package com.tecno.web_sec.service.impl;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.CursorTransaccion;
+import com.tecno.web_sec.models.PaginaTransacciones;
 import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.persistence.ArchivoTransacciones;
+import com.tecno.web_sec.persistence.RegistroWal;
+import com.tecno.web_sec.persistence.Restaurable;
+import com.tecno.web_sec.persistence.WriteAheadLog;
+import com.tecno.web_sec.repository.CuentaRepository;
+import com.tecno.web_sec.repository.TransaccionRepository;
 import com.tecno.web_sec.service.TransaccionService;
 
+import jakarta.annotation.PostConstruct;
+
 /**
  * Implementación del servicio de transacciones que gestiona la lógica de
  * negocio
  * relacionada con las transacciones financieras.
  */
 @Service
-public class TransaccionServiceImpl implements TransaccionService {
+@Order(3) // En un snapshot las transacciones van después de sus cuentas
+@SuppressWarnings("try") // Los grupos del log solo delimitan la espera del fsync; el cuerpo no los referencia
+public class TransaccionServiceImpl implements TransaccionService, Restaurable {
+
+    // Log de mutaciones; inactivo cuando el servicio se crea fuera de Spring
+    @Autowired
+    private WriteAheadLog wal = WriteAheadLog.deshabilitado();
+
+    // Historial antiguo mapeado en memoria; inactivo fuera de Spring
+    @Autowired
+    private ArchivoTransacciones archivo = ArchivoTransacciones.deshabilitado();
+    // Antigüedad a partir de la cual una transacción pasa al archivo
+    @Value("${banco.archivo.antiguedad:P30D}")
+    private Duration antiguedad = Duration.ofDays(30);
 
-    // Lista que almacena las transacciones en memoria
-    private List<Transaccion> transacciones = new ArrayList<>(Arrays.asList());
-    // Contador para asignar IDs únicos a las transacciones
-    private Long idCounter = 11L;
+    // Almacenes compartidos con los demás servicios; propios cuando el
+    // servicio se crea fuera de Spring. Las cuentas resuelven las referencias
+    // del log y del archivo
+    @Autowired
+    private TransaccionRepository transacciones = new TransaccionRepository();
+    @Autowired
+    private CuentaRepository cuentas = new CuentaRepository();
+    // Transacciones restauradas antes que alguna de sus cuentas
+    private final Queue<Transaccion> sinCuentas = new ConcurrentLinkedQueue<>();
+
+    @PostConstruct
+    public void inicializar() {
+        // Los IDs nuevos siguen después de los ya archivados
+        transacciones.reservarHasta(archivo.idMaximo());
+    }
 
     @Override
     public List<Transaccion> findAll() {
-        // Retorna la lista de todas las transacciones
-        return transacciones;
+        // Retorna la lista de todas las transacciones, primero las archivadas
+        List<Transaccion> todas = new ArrayList<>();
+        archivo.todas(this::cuenta).forEach(lote -> lote.forEachRemaining(todas::add));
+        todas.addAll(transacciones.findAll());
+        return todas;
     }
 
     @Override
     public Transaccion findById(Long id) {
         // Busca una transacción por su ID y lanza una excepción si no se encuentra
-        return transacciones.stream()
-                .filter(transaccion -> transaccion.getId().equals(id))
-                .findAny()
-                .orElseThrow(() -> new RuntimeException("Transacción no encontrada"));
+        Transaccion transaccion = transacciones.findById(id).orElse(null);
+        if (transaccion == null && id != null) {
+            transaccion = archivo.buscar(id, this::cuenta);
+        }
+        if (transaccion == null) {
+            throw new RuntimeException("Transacción no encontrada");
+        }
+        return transaccion;
     }
 
     @Override
     public List<Transaccion> findByCuentaId(Long cuentaId) {
-        // Busca las transacciones relacionadas con una cuenta específica
-        return transacciones.stream()
-                .filter(transaccion -> (transaccion.getCuentaOrigen() != null
-                        && transaccion.getCuentaOrigen().getId().equals(cuentaId)) ||
-                        (transaccion.getCuentaDestino() != null
-                                && transaccion.getCuentaDestino().getId().equals(cuentaId)))
-                .collect(Collectors.toList());
+        // Devuelve la lista de la cuenta; el costo depende solo de su tamaño
+        if (cuentaId == null) {
+            return new ArrayList<>();
+        }
+        return fusionar(archivo.entre(cuentaId, null, null, this::cuenta), transacciones.findByCuentaId(cuentaId));
+    }
+
+    @Override
+    public PaginaTransacciones findPageByCuentaId(Long cuentaId, CursorTransaccion despues, int tamano) {
+        return paginar(descendente(cuentaId, despues), tamano);
+    }
+
+    @Override
+    public PaginaTransacciones findPageByCuentaIds(Collection<Long> cuentaIds, CursorTransaccion despues,
+            int tamano) {
+        // Fusión de k listas por cuenta: solo se leen las filas de la página
+        List<Iterator<Transaccion>> iteradores = new ArrayList<>(cuentaIds.size());
+        for (Long cuentaId : cuentaIds) {
+            iteradores.add(descendente(cuentaId, despues));
+        }
+        return paginar(new IteradorFusionado(iteradores, Transaccion.ORDEN_CRONOLOGICO.reversed()), tamano);
+    }
+
+    @Override
+    public List<Transaccion> findByFechaBetween(LocalDateTime desde, LocalDateTime hasta) {
+        // Búsqueda O(log n + k) sobre el índice temporal
+        return fusionar(archivo.entre(null, desde, hasta, this::cuenta),
+                intervalo(transacciones.findAllPorFecha(), desde, hasta));
+    }
+
+    @Override
+    public List<Transaccion> findByCuentaIdAndFechaBetween(Long cuentaId, LocalDateTime desde,
+            LocalDateTime hasta) {
+        if (cuentaId == null) {
+            return new ArrayList<>();
+        }
+        return fusionar(archivo.entre(cuentaId, desde, hasta, this::cuenta),
+                intervalo(transacciones.findByCuentaId(cuentaId), desde, hasta));
+    }
+
+    @Override
+    public void forEachByCuentaIdAndFechaBetween(Long cuentaId, LocalDateTime desde, LocalDateTime hasta,
+            Consumer<? super Transaccion> accion) {
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("Intervalo de fechas inválido");
+        }
+        // Vistas de los conjuntos concurrentes y cursores sobre los lotes
+        // archivados: la fusión solo retiene una transacción por fuente
+        NavigableSet<Transaccion> enMemoria = (cuentaId != null) ? transacciones.findByCuentaId(cuentaId)
+                : transacciones.findAllPorFecha();
+        if (desde != null) {
+            enMemoria = enMemoria.tailSet(new Transaccion(Long.MIN_VALUE, null, desde, null, null), true);
+        }
+        if (hasta != null) {
+            enMemoria = enMemoria.headSet(new Transaccion(Long.MAX_VALUE, null, hasta, null, null), true);
+        }
+        List<Iterator<Transaccion>> fuentes = archivo.entre(cuentaId, desde, hasta, this::cuenta);
+        fuentes.add(enMemoria.iterator());
+        new IteradorFusionado(fuentes, Transaccion.ORDEN_CRONOLOGICO).forEachRemaining(accion);
     }
 
     @Override
     public void addTransaccion(Transaccion transaccion) {
+        try (WriteAheadLog.Grupo grupo = wal.grupo()) {
+            wal.append(addTransaccionSinLog(transaccion));
+        }
+    }
+
+    @Override
+    public RegistroWal.TransaccionGuardada addTransaccionSinLog(Transaccion transaccion) {
         // Agrega una nueva transacción, asegurándose de que las cuentas de origen y
         // destino estén presentes
         if (transaccion.getCuentaOrigen() == null || transaccion.getCuentaDestino() == null) {
             throw new RuntimeException("Las cuentas de origen y destino deben estar presentes");
         }
-        transaccion.setId(idCounter++); // Asigna un ID único a la transacción
-        transacciones.add(transaccion); // Agrega la transacción a la lista
+        transaccion.setId(transacciones.siguienteId()); // Asigna un ID único a la transacción
+        if (transaccion.getFecha() == null) {
+            transaccion.setFecha(LocalDateTime.now()); // La fecha ordena las listas por cuenta
+        }
+        transacciones.save(transaccion);
+        return guardada(transaccion);
     }
 
     @Override
     public void deleteTransaccion(Long id) {
-        // Elimina una transacción por su ID
-        transacciones.removeIf(transaccion -> transaccion.getId().equals(id));
+        // Elimina una transacción por su ID y la quita de las listas de sus cuentas
+        try (WriteAheadLog.Grupo grupo = wal.grupo()) {
+            if (eliminar(id) || eliminarArchivada(id)) {
+                wal.append(new RegistroWal.TransaccionEliminada(id));
+            }
+        }
+    }
+
+    /**
+     * Mueve al archivo las transacciones anteriores al límite. Primero se
+     * publica el lote y luego se quitan de memoria, así que una consulta nunca
+     * deja de verlas.
+     *
+     * @param limite fecha límite, excluida
+     * @return la cantidad de transacciones archivadas
+     */
+    public int archivarAnterioresA(LocalDateTime limite) {
+        if (!archivo.isHabilitado()) {
+            return 0;
+        }
+        List<Transaccion> antiguas = new ArrayList<>();
+        for (Transaccion transaccion : transacciones.findAllPorFecha()
+                .headSet(new Transaccion(Long.MIN_VALUE, null, limite, null, null))) {
+            if (archivo.admite(transaccion)) {
+                antiguas.add(transaccion);
+            }
+        }
+        if (antiguas.isEmpty()) {
+            return 0;
+        }
+        try {
+            archivo.archivar(antiguas);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo archivar el historial", e);
+        }
+        for (Transaccion transaccion : antiguas) {
+            if (!eliminar(transaccion.getId())) {
+                eliminarArchivada(transaccion.getId()); // Se eliminó mientras se archivaba
+            }
+        }
+        return antiguas.size();
+    }
+
+    @Scheduled(initialDelayString = "${banco.archivo.intervalo:PT1H}",
+            fixedDelayString = "${banco.archivo.intervalo:PT1H}")
+    public void archivarProgramado() {
+        archivarAnterioresA(LocalDateTime.now().minus(antiguedad));
+    }
+
+    /**
+     * Reaplica los registros de transacciones del write-ahead log conservando
+     * sus IDs originales.
+     */
+    @Override
+    public void restaurar(RegistroWal registro) {
+        switch (registro) {
+            case RegistroWal.TransaccionGuardada guardada -> {
+                if (archivo.contiene(guardada.id())) {
+                    return; // Ya se movió al archivo después de este registro
+                }
+                eliminar(guardada.id()); // El registro puede repetirse; se reemplaza la versión anterior
+                Transaccion transaccion = new Transaccion(guardada.id(), guardada.monto(), guardada.fecha(),
+                        cuenta(guardada.origenId()), cuenta(guardada.destinoId()));
+                transacciones.save(transaccion);
+                if (esReferencia(transaccion.getCuentaOrigen()) || esReferencia(transaccion.getCuentaDestino())) {
+                    sinCuentas.add(transaccion);
+                }
+            }
+            case RegistroWal.TransferenciaRegistrada registrada -> restaurar(registrada.transaccion());
+            case RegistroWal.TransaccionEliminada eliminada -> {
+                if (!eliminar(eliminada.id())) {
+                    eliminarArchivada(eliminada.id());
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public void volcar(Consumer<RegistroWal> destino) {
+        for (Transaccion transaccion : transacciones.findAll()) {
+            destino.accept(guardada(transaccion));
+        }
+    }
+
+    private static RegistroWal.TransaccionGuardada guardada(Transaccion transaccion) {
+        return new RegistroWal.TransaccionGuardada(transaccion.getId(), transaccion.getMonto(),
+                transaccion.getFecha(), transaccion.getCuentaOrigen().getId(),
+                transaccion.getCuentaDestino().getId());
+    }
+
+    @Override
+    public void vaciar() {
+        transacciones.deleteAll();
+    }
+
+    /**
+     * Las cuentas y las transacciones se restauran en paralelo; al terminar se
+     * reemplazan las referencias provisionales por las cuentas restauradas.
+     */
+    @Override
+    public void completarRestauracion() {
+        Transaccion transaccion;
+        while ((transaccion = sinCuentas.poll()) != null) {
+            if (esReferencia(transaccion.getCuentaOrigen())) {
+                transaccion.setCuentaOrigen(cuenta(transaccion.getCuentaOrigen().getId()));
+            }
+            if (esReferencia(transaccion.getCuentaDestino())) {
+                transaccion.setCuentaDestino(cuenta(transaccion.getCuentaDestino().getId()));
+            }
+        }
+    }
+
+    private static boolean esReferencia(Cuenta cuenta) {
+        return cuenta.getNombre() == null && cuenta.getSaldo() == null;
+    }
+
+    /**
+     * Resuelve una cuenta referenciada por el log. Si la cuenta ya fue
+     * eliminada se usa una referencia que solo conserva su ID, igual que
+     * quedan las transacciones en memoria cuando se borra su cuenta.
+     */
+    private Cuenta cuenta(long id) {
+        Cuenta cuenta = cuentas.findById(id).orElse(null);
+        return (cuenta != null) ? cuenta : new Cuenta(id, null, null, null);
+    }
+
+    private boolean eliminarArchivada(Long id) {
+        try {
+            return id != null && archivo.eliminar(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo eliminar la transacción archivada", e);
+        }
+    }
+
+    private boolean eliminar(Long id) {
+        return transacciones.deleteById(id);
+    }
+
+    /**
+     * Acota un conjunto cronológico al intervalo [desde, hasta]. Los extremos
+     * usan IDs mínimo y máximo para incluir todas las transacciones con esas
+     * fechas exactas.
+     */
+    private static NavigableSet<Transaccion> intervalo(NavigableSet<Transaccion> conjunto, LocalDateTime desde,
+            LocalDateTime hasta) {
+        if (desde == null || hasta == null || desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("Intervalo de fechas inválido");
+        }
+        return conjunto.subSet(new Transaccion(Long.MIN_VALUE, null, desde, null, null), true,
+                new Transaccion(Long.MAX_VALUE, null, hasta, null, null), true);
+    }
+
+    /**
+     * Fusiona en orden cronológico las transacciones en memoria con las
+     * archivadas.
+     */
+    private static List<Transaccion> fusionar(List<Iterator<Transaccion>> archivadas,
+            Collection<Transaccion> enMemoria) {
+        if (archivadas.isEmpty()) {
+            return new ArrayList<>(enMemoria);
+        }
+        archivadas.add(enMemoria.iterator());
+        List<Transaccion> resultado = new ArrayList<>();
+        new IteradorFusionado(archivadas, Transaccion.ORDEN_CRONOLOGICO).forEachRemaining(resultado::add);
+        return resultado;
+    }
+
+    /**
+     * Recorre la lista de una cuenta desde el cursor hacia atrás en el tiempo,
+     * continuando con su historial archivado.
+     */
+    private Iterator<Transaccion> descendente(Long cuentaId, CursorTransaccion despues) {
+        if (cuentaId == null) {
+            return Collections.emptyIterator();
+        }
+        NavigableSet<Transaccion> lista = transacciones.findByCuentaId(cuentaId);
+        NavigableSet<Transaccion> anteriores = (despues != null)
+                ? lista.headSet(despues.comoReferencia(), false)
+                : lista;
+        Iterator<Transaccion> enMemoria = anteriores.descendingIterator();
+        List<Iterator<Transaccion>> archivadas = archivo.anteriores(cuentaId, despues, this::cuenta);
+        if (archivadas.isEmpty()) {
+            return enMemoria;
+        }
+        archivadas.add(enMemoria);
+        return new IteradorFusionado(archivadas, Transaccion.ORDEN_CRONOLOGICO.reversed());
+    }
+
+    /**
+     * Toma hasta {@code tamano} transacciones y calcula el cursor de la página
+     * siguiente leyendo como máximo una fila adicional.
+     */
+    private static PaginaTransacciones paginar(Iterator<Transaccion> iterador, int tamano) {
+        int limite = Math.max(1, tamano);
+        List<Transaccion> pagina = new ArrayList<>(Math.min(limite, 256));
+        while (pagina.size() < limite && iterador.hasNext()) {
+            pagina.add(iterador.next());
+        }
+        CursorTransaccion siguiente = iterador.hasNext()
+                ? CursorTransaccion.de(pagina.get(pagina.size() - 1))
+                : null;
+        return new PaginaTransacciones(pagina, siguiente);
     }
 }
@@ -3,9 +3,19 @@ package com.tecno.web_sec.service.impl;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.userdetails.User;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -13,7 +23,15 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Dinero;
 import com.tecno.web_sec.models.Usuario;
+import com.tecno.web_sec.persistence.RegistroWal;
+import com.tecno.web_sec.persistence.Restaurable;
+import com.tecno.web_sec.persistence.WriteAheadLog;
+import com.tecno.web_sec.repository.CuentaRepository;
+import com.tecno.web_sec.repository.DatosIniciales;
+import com.tecno.web_sec.repository.UsuarioRepository;
+import com.tecno.web_sec.security.UsuarioAutenticado;
 import com.tecno.web_sec.service.UsuarioService;
 
 import jakarta.annotation.PostConstruct;
@@ -25,74 +43,63 @@ import jakarta.annotation.PostConstruct;
  * para la integración con Spring Security.
  */
 @Service
-public class UsuarioServiceImpl implements UsuarioService, UserDetailsService {
+@Order(1) // En un snapshot los usuarios van antes que sus cuentas
+@SuppressWarnings("try") // Los grupos del log solo delimitan la espera del fsync; el cuerpo no los referencia
+public class UsuarioServiceImpl implements UsuarioService, UserDetailsService, Restaurable {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsuarioServiceImpl.class);
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
-    // Lista que almacena los usuarios en memoria
-    private List<Usuario> usuarios = new ArrayList<>();
-    // Contador para asignar IDs únicos a los usuarios
-    private Long idCounter = 1L;
+    // Log de mutaciones; inactivo cuando el servicio se crea fuera de Spring
+    @Autowired
+    private WriteAheadLog wal = WriteAheadLog.deshabilitado();
+
+    // Almacenes compartidos con los demás servicios; propios cuando el
+    // servicio se crea fuera de Spring
+    @Autowired
+    private UsuarioRepository usuarios = new UsuarioRepository();
+    @Autowired
+    private CuentaRepository cuentas = new CuentaRepository();
+    // Marca de vigencia compartida por los UsuarioAutenticado emitidos para
+    // cada usuario; se apaga cuando cambian sus cuentas, su nombre o su rol
+    private final Map<Long, AtomicBoolean> vigencias = new ConcurrentHashMap<>();
+    // Serializa las escrituras para que la lista y los índices cambien juntos;
+    // las lecturas no toman el candado
+    private final ReentrantLock escritura = new ReentrantLock();
 
     /**
-     * Método que inicializa usuarios y cuentas predeterminados al iniciar el
-     * servicio.
-     * Este método se ejecuta automáticamente después de la construcción del bean.
+     * Carga los usuarios y cuentas de demostración en los almacenes
+     * compartidos. Se ejecuta antes de la recuperación del log porque esta
+     * depende de los servicios.
      */
     @PostConstruct
     public void init() {
-        // Creación de usuarios predeterminados
-        Usuario usuario1 = new Usuario(idCounter++, "usuario1", passwordEncoder.encode("123"), "USER",
-                new ArrayList<>());
-        Usuario usuario2 = new Usuario(idCounter++, "usuario2", passwordEncoder.encode("123"), "USER",
-                new ArrayList<>());
-        Usuario usuario3 = new Usuario(idCounter++, "admin", passwordEncoder.encode("123"), "ADMIN", new ArrayList<>());
-        Usuario usuario4 = new Usuario(idCounter++, "usuario4", passwordEncoder.encode("123"), "USER",
-                new ArrayList<>());
-        Usuario usuario5 = new Usuario(idCounter++, "usuario5", passwordEncoder.encode("123"), "USER",
-                new ArrayList<>());
-        Usuario usuario6 = new Usuario(idCounter++, "usuario6", passwordEncoder.encode("123"), "USER",
-                new ArrayList<>());
-
-        // Agregar usuarios a la lista
-        usuarios.add(usuario1);
-        usuarios.add(usuario2);
-        usuarios.add(usuario3);
-        usuarios.add(usuario4);
-        usuarios.add(usuario5);
-        usuarios.add(usuario6);
-
-        // Creación de cuentas y asociación con usuarios
-        Cuenta cuentaA = new Cuenta(1L, "Cuenta A", new BigDecimal("1000.00"), usuario1);
-        Cuenta cuentaB = new Cuenta(2L, "Cuenta B", new BigDecimal("1500.00"), usuario2);
-        Cuenta cuentaC = new Cuenta(3L, "admin", new BigDecimal("2000.00"), usuario3);
-        Cuenta cuentaD = new Cuenta(4L, "Cuenta D", new BigDecimal("2500.00"), usuario4);
-        Cuenta cuentaE = new Cuenta(5L, "Cuenta E", new BigDecimal("3000.00"), usuario5);
-        Cuenta cuentaF = new Cuenta(6L, "Cuenta F", new BigDecimal("3500.00"), usuario6);
-
-        // Asignar cuentas a los usuarios
-        usuario1.getCuentas().add(cuentaA);
-        usuario2.getCuentas().add(cuentaB);
-        usuario3.getCuentas().add(cuentaC);
-        usuario4.getCuentas().add(cuentaD);
-        usuario5.getCuentas().add(cuentaE);
-        usuario6.getCuentas().add(cuentaF);
+        escritura.lock();
+        try {
+            DatosIniciales.cargar(usuarios, cuentas, passwordEncoder);
+        } finally {
+            escritura.unlock();
+        }
     }
 
     @Override
     public List<Usuario> findAll() {
         // Retorna la lista de todos los usuarios
-        return usuarios;
+        return usuarios.findAll();
+    }
+
+    @Override
+    public List<Usuario> findPagina(Long despues, int tamano) {
+        // Lee solo la página del índice ordenado por ID
+        return usuarios.findPagina(despues, tamano);
     }
 
     @Override
     public Usuario findById(Long id) {
-        // Busca un usuario por su ID y lanza una excepción si no se encuentra
-        return usuarios.stream()
-                .filter(usuario -> usuario.getId().equals(id))
-                .findAny()
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        // Busca un usuario por su ID en el índice y lanza una excepción si no se encuentra
+        return usuarios.findById(id).orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
     }
 
     @Override
@@ -105,24 +112,50 @@ public class UsuarioServiceImpl implements UsuarioService, UserDetailsService {
     @Override
     public void addUsuario(Usuario usuario) {
         // Agrega un nuevo usuario, verificando que el nombre de usuario no esté en uso
-        if (findByUsername(usuario.getUsername()) != null) {
-            throw new RuntimeException("El nombre de usuario ya está en uso");
+        if (usuario.getUsername() == null) {
+            throw new RuntimeException("El nombre de usuario es obligatorio");
         }
-
-        usuario.setId(idCounter++);
         usuario.setPassword(passwordEncoder.encode(usuario.getPassword())); // Codifica la contraseña
         usuario.setRole((usuario.getRole() == null) ? "USER" : usuario.getRole());
-        usuarios.add(usuario);
+        try (WriteAheadLog.Grupo grupo = wal.grupo()) {
+            escritura.lock();
+            try {
+                if (usuarios.existsByUsername(usuario.getUsername())) { // Verificación y alta bajo el mismo candado
+                    throw new RuntimeException("El nombre de usuario ya está en uso");
+                }
+                usuario.setId(usuarios.siguienteId());
+                guardar(usuario);
+                wal.append(guardado(usuario));
+            } finally {
+                escritura.unlock();
+            }
+        }
     }
 
     @Override
     public void updateUsuario(Usuario updatedUsuario) {
-        // Actualiza la información de un usuario existente
-        for (int i = 0; i < usuarios.size(); i++) {
-            Usuario usuario = usuarios.get(i);
-            if (usuario.getId().equals(updatedUsuario.getId())) {
-                usuarios.set(i, updatedUsuario);
-                return;
+        // Actualiza la información de un usuario existente, incluido su nombre de usuario
+        try (WriteAheadLog.Grupo grupo = wal.grupo()) {
+            escritura.lock();
+            try {
+                Usuario anterior = usuarios.findById(updatedUsuario.getId()).orElse(null);
+                if (anterior == null) {
+                    return;
+                }
+                Usuario mismoNombre = usuarios.findByUsername(updatedUsuario.getUsername()).orElse(null);
+                if (mismoNombre != null && mismoNombre != anterior) {
+                    throw new RuntimeException("El nombre de usuario ya está en uso");
+                }
+                // Se modifica el usuario guardado, que conserva sus cuentas y su total
+                String usernameAnterior = anterior.getUsername();
+                anterior.setUsername(updatedUsuario.getUsername());
+                anterior.setPassword(updatedUsuario.getPassword());
+                anterior.setRole(updatedUsuario.getRole());
+                usuarios.renombrar(anterior, usernameAnterior);
+                invalidar(anterior.getId()); // El nombre o el rol pueden haber cambiado
+                wal.append(guardado(anterior));
+            } finally {
+                escritura.unlock();
             }
         }
     }
@@ -130,7 +163,124 @@ public class UsuarioServiceImpl implements UsuarioService, UserDetailsService {
     @Override
     public void deleteUsuario(Long id) {
         // Elimina un usuario por su ID
-        usuarios.removeIf(usuario -> usuario.getId().equals(id));
+        try (WriteAheadLog.Grupo grupo = wal.grupo()) {
+            escritura.lock();
+            try {
+                if (quitar(id)) {
+                    wal.append(new RegistroWal.UsuarioEliminado(id));
+                }
+            } finally {
+                escritura.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void restaurar(RegistroWal registro) {
+        // Reaplica los registros de usuarios del log; las cuentas se vinculan al
+        // restaurar los registros de cuentas
+        switch (registro) {
+            case RegistroWal.UsuarioGuardado guardado -> {
+                escritura.lock();
+                try {
+                    Usuario usuario = usuarios.findById(guardado.id()).orElse(null);
+                    if (usuario == null) {
+                        guardar(new Usuario(guardado.id(), guardado.username(), guardado.password(),
+                                guardado.role(), new ArrayList<>()));
+                    } else {
+                        String anterior = usuario.getUsername();
+                        usuario.setUsername(guardado.username());
+                        usuario.setPassword(guardado.password());
+                        usuario.setRole(guardado.role());
+                        usuarios.renombrar(usuario, anterior);
+                        invalidar(usuario.getId());
+                    }
+                } finally {
+                    escritura.unlock();
+                }
+            }
+            case RegistroWal.UsuarioEliminado eliminado -> {
+                escritura.lock();
+                try {
+                    quitar(eliminado.id());
+                } finally {
+                    escritura.unlock();
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public void volcar(Consumer<RegistroWal> destino) {
+        usuarios.forEach(usuario -> destino.accept(guardado(usuario)));
+    }
+
+    @Override
+    public void vaciar() {
+        escritura.lock();
+        try {
+            usuarios.deleteAll();
+            for (Long id : vigencias.keySet()) {
+                invalidar(id);
+            }
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    /**
+     * Agrega o reemplaza un usuario en el almacén. Se invoca con el candado de
+     * escritura tomado.
+     */
+    private void guardar(Usuario usuario) {
+        usuarios.save(usuario);
+        invalidar(usuario.getId()); // El nombre o el rol pueden haber cambiado
+    }
+
+    /**
+     * Quita un usuario del almacén.
+     *
+     * @return si el usuario existía
+     */
+    private boolean quitar(Long id) {
+        if (usuarios.deleteById(id).isEmpty()) {
+            return false;
+        }
+        invalidar(id);
+        return true;
+    }
+
+    /**
+     * Marca como no vigentes los {@link UsuarioAutenticado} emitidos para un
+     * usuario. Se invoca después de aplicar el cambio, así que un objeto creado
+     * en paralelo con la marca anterior también queda marcado.
+     */
+    private void invalidar(Long usuarioId) {
+        AtomicBoolean vigencia = vigencias.remove(usuarioId);
+        if (vigencia != null) {
+            vigencia.set(false);
+        }
+    }
+
+    /**
+     * Crea el usuario autenticado con los IDs actuales de sus cuentas. La marca
+     * se obtiene antes de leer las cuentas para no perder un cambio concurrente.
+     */
+    private UsuarioAutenticado autenticado(Usuario usuario) {
+        AtomicBoolean vigencia = vigencias.computeIfAbsent(usuario.getId(), id -> new AtomicBoolean(true));
+        List<Long> cuentaIds = usuario.getCuentas().stream()
+                .map(Cuenta::getId)
+                .filter(Objects::nonNull)
+                .toList();
+        return new UsuarioAutenticado(usuario.getId(), usuario.getUsername(), usuario.getPassword(),
+                List.of(new SimpleGrantedAuthority("ROLE_" + usuario.getRole())), cuentaIds, vigencia);
+    }
+
+    private static RegistroWal.UsuarioGuardado guardado(Usuario usuario) {
+        return new RegistroWal.UsuarioGuardado(usuario.getId(), usuario.getUsername(), usuario.getPassword(),
+                usuario.getRole());
     }
 
     @Override
@@ -139,13 +289,16 @@ public class UsuarioServiceImpl implements UsuarioService, UserDetailsService {
         Usuario usuario = findById(usuarioId);
         cuenta.setUsuario(usuario);
         usuario.addCuenta(cuenta);
+        invalidar(usuarioId);
     }
 
     @Override
     public void removeCuentaFromUsuario(Long usuarioId, Long cuentaId) {
         // Elimina una cuenta de un usuario por su ID
         Usuario usuario = findById(usuarioId);
-        usuario.getCuentas().removeIf(cuenta -> cuenta.getId().equals(cuentaId));
+        if (usuario.getCuentas().removeIf(cuenta -> cuenta.getId().equals(cuentaId))) {
+            invalidar(usuarioId);
+        }
     }
 
     @Override
@@ -155,23 +308,48 @@ public class UsuarioServiceImpl implements UsuarioService, UserDetailsService {
         return usuario.getSaldo();
     }
 
+    /**
+     * Compara el saldo acumulado de cada usuario con la suma de sus cuentas y
+     * corrige las diferencias.
+     *
+     * @return la cantidad de usuarios cuyo saldo se corrigió
+     */
+    public int verificarSaldos() {
+        int corregidos = 0;
+        for (Usuario usuario : usuarios.findAll()) {
+            long diferencia = usuario.verificarSaldo();
+            if (diferencia != 0) {
+                logger.warn("Saldo acumulado del usuario {} corregido en {}", usuario.getId(),
+                        Dinero.aBigDecimal(diferencia));
+                corregidos++;
+            }
+        }
+        return corregidos;
+    }
+
+    @Scheduled(initialDelayString = "${banco.saldos.verificacion:PT5M}",
+            fixedDelayString = "${banco.saldos.verificacion:PT5M}")
+    public void verificarSaldosProgramado() {
+        verificarSaldos();
+    }
+
     @Override
     public Usuario findByUsername(String username) {
-        // Busca un usuario por su nombre de usuario
-        return usuarios.stream()
-                .filter(usuario -> usuario.getUsername().equals(username))
-                .findFirst()
-                .orElseThrow(() -> new UsernameNotFoundException(
-                        "Usuario no encontrado con el nombre de usuario: " + username));
+        // Busca un usuario por su nombre de usuario en el índice
+        return usuarios.findByUsername(username).orElseThrow(
+                () -> new UsernameNotFoundException("Usuario no encontrado con el nombre de usuario: " + username));
+    }
+
+    @Override
+    public UsuarioAutenticado findAutenticadoById(Long usuarioId) {
+        // Crea el usuario autenticado a partir del usuario actual con ese ID
+        return autenticado(findById(usuarioId));
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        // Carga los detalles de usuario para la autenticación
-        Usuario usuario = findByUsername(username);
-        return User.withUsername(usuario.getUsername())
-                .password(usuario.getPassword())
-                .roles(usuario.getRole())
-                .build();
+        // Carga los detalles de usuario para la autenticación; el resultado queda
+        // como principal de la sesión
+        return autenticado(findByUsername(username));
     }
 }
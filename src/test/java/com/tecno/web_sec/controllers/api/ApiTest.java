@@ -0,0 +1,214 @@
+package com.tecno.web_sec.controllers.api;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.jayway.jsonpath.JsonPath;
+import com.tecno.web_sec.controllers.api.dto.TransferenciaDto;
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Usuario;
+import com.tecno.web_sec.service.CuentaService;
+import com.tecno.web_sec.service.TransferenciaRechazadaException;
+import com.tecno.web_sec.service.UsuarioService;
+
+/**
+ * MockMvc se arma a mano en lugar de usar {@code @AutoConfigureMockMvc} para
+ * compartir el contexto de {@code RepositoriosTest}, que cuenta las
+ * instancias vivas de todo el heap.
+ */
+@SpringBootTest
+class ApiTest {
+
+    @Autowired
+    private WebApplicationContext contexto;
+
+    private MockMvc mvc;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @BeforeEach
+    void crearMockMvc() {
+        mvc = MockMvcBuilders.webAppContextSetup(contexto).apply(springSecurity()).build();
+    }
+
+    @Test
+    void lasCuentasSeDevuelvenSinReferenciasCiclicas() throws Exception {
+        Usuario usuario1 = usuarioService.findByUsername("usuario1");
+        Cuenta propia = cuentaService.findByUsuarioId(usuario1.getId()).get(0);
+        Cuenta ajena = cuentaService.findByUsuarioId(usuarioService.findByUsername("usuario2").getId()).get(0);
+
+        mvc.perform(get("/api/v1/cuentas").with(sesion("usuario1")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].id").value(propia.getId()))
+                .andExpect(jsonPath("$[0].usuarioId").value(usuario1.getId()))
+                .andExpect(jsonPath("$[0].usuario").doesNotExist())
+                .andExpect(jsonPath("$[0].transacciones").doesNotExist());
+        mvc.perform(get("/api/v1/usuarios/yo").with(sesion("usuario1")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("usuario1"))
+                .andExpect(jsonPath("$.password").doesNotExist())
+                .andExpect(jsonPath("$.cuentas[0].id").value(propia.getId()));
+
+        mvc.perform(get("/api/v1/cuentas/" + ajena.getId()).with(sesion("usuario1")))
+                .andExpect(status().isForbidden())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON));
+        mvc.perform(get("/api/v1/cuentas/999999").with(sesion("usuario1")))
+                .andExpect(status().isNotFound());
+        // Sin sesión la API responde 401; las páginas siguen redirigiendo al formulario
+        mvc.perform(get("/api/v1/cuentas")).andExpect(status().isUnauthorized());
+        mvc.perform(get("/consultas")).andExpect(status().is3xxRedirection());
+    }
+
+    @Test
+    void transferirYPaginarElHistorial() throws Exception {
+        Cuenta origen = cuentaService.findByUsuarioId(usuarioService.findByUsername("usuario4").getId()).get(0);
+        Cuenta destino = cuentaService.findByUsuarioId(usuarioService.findByUsername("usuario5").getId()).get(0);
+        for (int i = 0; i < 3; i++) {
+            mvc.perform(post("/api/v1/transacciones").with(sesion("usuario4"))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(transferencia(origen.getId(), destino.getId(), "1.00")))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string("Location", containsString("/api/v1/transacciones/")))
+                    .andExpect(jsonPath("$.cuentaOrigenId").value(origen.getId()))
+                    .andExpect(jsonPath("$.monto").value(1.00));
+        }
+
+        String siguiente = JsonPath.read(mvc.perform(get("/api/v1/transacciones")
+                .param("tamano", "2").with(sesion("usuario4")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.elementos", hasSize(2)))
+                .andExpect(jsonPath("$.siguiente", not(nullValue())))
+                .andReturn().getResponse().getContentAsString(), "$.siguiente");
+        mvc.perform(get("/api/v1/cuentas/" + origen.getId() + "/transacciones").param("despues", siguiente)
+                .param("tamano", "2").with(sesion("usuario4")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.elementos", hasSize(1)))
+                .andExpect(jsonPath("$.siguiente").value(nullValue()));
+        mvc.perform(get("/api/v1/transacciones").param("despues", "no-es-un-cursor").with(sesion("usuario4")))
+                .andExpect(status().isBadRequest());
+
+        // Saldo insuficiente, origen ajeno y monto ausente
+        mvc.perform(post("/api/v1/transacciones").with(sesion("usuario4")).contentType(MediaType.APPLICATION_JSON)
+                .content(transferencia(origen.getId(), destino.getId(), "1000000.00")))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.detail").value("Saldo insuficiente en la cuenta de origen"));
+        mvc.perform(post("/api/v1/transacciones").with(sesion("usuario4")).contentType(MediaType.APPLICATION_JSON)
+                .content(transferencia(destino.getId(), origen.getId(), "1.00")))
+                .andExpect(status().isForbidden());
+        mvc.perform(post("/api/v1/transacciones").with(sesion("usuario4")).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"cuentaOrigenId\":" + origen.getId() + ",\"cuentaDestinoId\":" + destino.getId() + "}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void soloLosRechazosDeNegocioResponden422() {
+        // Un proxy en lugar de un mock: no retiene las cuentas de las invocaciones (ver RepositoriosTest)
+        RuntimeException[] falla = new RuntimeException[1];
+        CuentaService servicio = (CuentaService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { CuentaService.class }, (proxy, metodo, argumentos) -> {
+                    throw falla[0];
+                });
+        TransaccionApiController controlador = new TransaccionApiController();
+        ReflectionTestUtils.setField(controlador, "cuentaService", servicio);
+        MockHttpServletRequest admin = new MockHttpServletRequest();
+        admin.addUserRole("ADMIN");
+        TransferenciaDto transferencia = new TransferenciaDto(1L, 2L, BigDecimal.ONE);
+
+        falla[0] = new TransferenciaRechazadaException("Saldo insuficiente en la cuenta de origen");
+        ResponseStatusException rechazo = assertThrows(ResponseStatusException.class,
+                () -> controlador.transferir(transferencia, null, admin));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, rechazo.getStatusCode());
+
+        // Sin durabilidad o sin respuesta del ledger el movimiento pudo aplicarse: no es un 422
+        falla[0] = new UncheckedIOException("Error al escribir el WAL", new IOException("disco lleno"));
+        assertThrows(UncheckedIOException.class, () -> controlador.transferir(transferencia, null, admin));
+        falla[0] = new IllegalStateException("El ledger está detenido");
+        assertThrows(IllegalStateException.class, () -> controlador.transferir(transferencia, null, admin));
+    }
+
+    @Test
+    void elLoteDevuelveUnResultadoPorFila() throws Exception {
+        Cuenta origen = cuentaService.findByUsuarioId(usuarioService.findByUsername("usuario6").getId()).get(0);
+        Cuenta destino = cuentaService.findByUsuarioId(usuarioService.findByUsername("usuario5").getId()).get(0);
+        long saldo = origen.getSaldoCentavos();
+
+        mvc.perform(post("/api/v1/transacciones/lote").with(sesion("usuario6")).contentType(MediaType.APPLICATION_JSON)
+                .content("[" + transferencia(origen.getId(), destino.getId(), "1.00") + ","
+                        + transferencia(destino.getId(), origen.getId(), "1.00") + ","
+                        + transferencia(origen.getId(), destino.getId(), "1000000.00") + ","
+                        + transferencia(origen.getId(), destino.getId(), "2.00") + ","
+                        + transferencia(999999L, destino.getId(), "1.00") + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.aplicadas").value(2))
+                .andExpect(jsonPath("$.rechazadas").value(3))
+                .andExpect(jsonPath("$.filas", hasSize(5)))
+                .andExpect(jsonPath("$.filas[0].transaccionId", not(nullValue())))
+                .andExpect(jsonPath("$.filas[1].error").value("La cuenta no pertenece al usuario"))
+                .andExpect(jsonPath("$.filas[2].error").value("Saldo insuficiente en la cuenta de origen"))
+                .andExpect(jsonPath("$.filas[3].transaccionId", not(nullValue())))
+                .andExpect(jsonPath("$.filas[4].error").value("Cuenta not found"));
+        assertEquals(saldo - 300, origen.getSaldoCentavos());
+    }
+
+    @Test
+    void losListadosDelBancoSonSoloParaAdministradores() throws Exception {
+        mvc.perform(get("/api/v1/usuarios").with(sesion("usuario1")))
+                .andExpect(status().isForbidden())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON));
+        mvc.perform(get("/api/v1/cuentas/todas").with(sesion("usuario1")))
+                .andExpect(status().isForbidden());
+
+        mvc.perform(get("/api/v1/usuarios").param("tamano", "2").with(sesion("admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.elementos", hasSize(2)))
+                .andExpect(jsonPath("$.siguiente").value("2"));
+        mvc.perform(get("/api/v1/cuentas/todas").param("despues", "1").param("tamano", "1").with(sesion("admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.elementos[0].id").value(2));
+    }
+
+    private RequestPostProcessor sesion(String username) {
+        return user(usuarioService.findAutenticadoById(usuarioService.findByUsername(username).getId()));
+    }
+
+    private static String transferencia(Long origen, Long destino, String monto) {
+        return "{\"cuentaOrigenId\":" + origen + ",\"cuentaDestinoId\":" + destino + ",\"monto\":"
+                + new BigDecimal(monto) + "}";
+    }
+}
@@ -0,0 +1,126 @@
+package com.tecno.web_sec.controllers.mvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.service.CuentaService;
+import com.tecno.web_sec.service.TransaccionService;
+import com.tecno.web_sec.service.UsuarioService;
+
+/**
+ * Comparte el contexto de {@code RepositoriosTest}; ver {@code ApiTest}.
+ */
+@SpringBootTest
+class ExportacionTest {
+
+    @Autowired
+    private WebApplicationContext contexto;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    void crearMockMvc() {
+        mvc = MockMvcBuilders.webAppContextSetup(contexto).apply(springSecurity()).build();
+    }
+
+    @Test
+    void elTitularExportaSuHistorialComprimido() throws Exception {
+        Cuenta origen = cuentaService.findByUsuarioId(usuarioService.findByUsername("usuario6").getId()).get(0);
+        Cuenta destino = cuentaService.findByUsuarioId(usuarioService.findByUsername("usuario2").getId()).get(0);
+        for (int i = 0; i < 5; i++) {
+            cuentaService.registrarTransferencia(new Transaccion(null, new BigDecimal("1.25"), null, origen, destino));
+        }
+        int total = transaccionService.findByCuentaId(origen.getId()).size();
+
+        List<String> csv = exportar(get("/cuentas/" + origen.getId() + "/export").with(sesion("usuario6")),
+                "cuenta-" + origen.getId() + ".csv.gz");
+        assertEquals("id,fecha,monto,cuentaOrigenId,cuentaDestinoId", csv.get(0));
+        assertEquals(total, csv.size() - 1);
+        assertTrue(csv.get(csv.size() - 1).endsWith(",1.25," + origen.getId() + "," + destino.getId()));
+
+        List<String> ndjson = exportar(get("/cuentas/" + origen.getId() + "/export").param("formato", "ndjson")
+                .with(sesion("usuario6")), "cuenta-" + origen.getId() + ".ndjson.gz");
+        assertEquals(total, ndjson.size());
+        assertTrue(ndjson.get(0).startsWith("{\"id\":") && ndjson.get(0).contains("\"monto\":"));
+
+        // Otro usuario no puede exportarla; el formato y el intervalo se validan
+        mvc.perform(get("/cuentas/" + origen.getId() + "/export").with(sesion("usuario1")))
+                .andExpect(status().isForbidden());
+        mvc.perform(get("/cuentas/" + origen.getId() + "/export").param("formato", "xml").with(sesion("usuario6")))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/cuentas/" + origen.getId() + "/export").param("desde", "2024-02-01T00:00:00")
+                .param("hasta", "2024-01-01T00:00:00").with(sesion("usuario6")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void laExportacionDelBancoEsSoloParaAdministradores() throws Exception {
+        mvc.perform(get("/cuentas/export").with(sesion("usuario1")))
+                .andExpect(status().is3xxRedirection()); // A la página de error, como el resto de las páginas
+
+        LocalDateTime desde = LocalDateTime.now().minusYears(1);
+        LocalDateTime hasta = LocalDateTime.now().plusDays(1);
+        int total = transaccionService.findByFechaBetween(desde, hasta).size();
+        List<String> csv = exportar(get("/cuentas/export").param("desde", desde.toString())
+                .param("hasta", hasta.toString()).with(sesion("admin")), "banco.csv.gz");
+        assertEquals(total, csv.size() - 1);
+    }
+
+    private List<String> exportar(MockHttpServletRequestBuilder peticion, String archivo) throws Exception {
+        MvcResult iniciada = mvc.perform(peticion).andExpect(request().asyncStarted()).andReturn();
+        byte[] cuerpo = mvc.perform(asyncDispatch(iniciada))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"" + archivo + "\""))
+                .andReturn().getResponse().getContentAsByteArray();
+        return descomprimir(cuerpo).lines().toList();
+    }
+
+    private static String descomprimir(byte[] gzip) throws IOException {
+        try (InputStream entrada = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private RequestPostProcessor sesion(String username) {
+        return user(usuarioService.findAutenticadoById(usuarioService.findByUsername(username).getId()));
+    }
+}
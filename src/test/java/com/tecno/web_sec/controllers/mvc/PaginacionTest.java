@@ -0,0 +1,61 @@
+package com.tecno.web_sec.controllers.mvc;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.tecno.web_sec.service.CuentaService;
+import com.tecno.web_sec.service.UsuarioService;
+
+/**
+ * Comparte el contexto de {@code RepositoriosTest}; ver {@code ApiTest}.
+ */
+@SpringBootTest
+class PaginacionTest {
+
+    @Autowired
+    private WebApplicationContext contexto;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    void crearMockMvc() {
+        mvc = MockMvcBuilders.webAppContextSetup(contexto).apply(springSecurity()).build();
+    }
+
+    @Test
+    void elEnlaceSiguienteLlevaElTamanoUsado() throws Exception {
+        mvc.perform(get("/transacciones").param("tamano", "1000000").with(sesion("usuario6")))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("tamano", TransaccionController.TAMANO_MAXIMO));
+        mvc.perform(get("/transacciones").param("tamano", "-5").with(sesion("usuario6")))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("tamano", 1));
+
+        Long cuentaId = cuentaService.findByUsuarioId(usuarioService.findByUsername("usuario6").getId()).get(0).getId();
+        mvc.perform(get("/cuentas/" + cuentaId).param("tamano", "0").with(sesion("admin")))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("tamano", 1));
+    }
+
+    private RequestPostProcessor sesion(String username) {
+        return user(usuarioService.findAutenticadoById(usuarioService.findByUsername(username).getId()));
+    }
+}
@@ -0,0 +1,92 @@
+package com.tecno.web_sec.idempotencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CacheIdempotenciaTest {
+
+    private static final byte[] HUELLA = new byte[32];
+
+    private final AtomicLong reloj = new AtomicLong();
+    private SimpleMeterRegistry registry;
+    private CacheIdempotencia cache;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        // Cada respuesta de 100 bytes ocupa 100 + 64 + 2 * 2 + 32 = 200 bytes estimados
+        cache = new CacheIdempotencia(Duration.ofSeconds(60), 500, registry, reloj::get);
+    }
+
+    @Test
+    void lasRepeticionesRecibenLaRespuestaHastaQueVence() {
+        CacheIdempotencia.Entrada primera = new CacheIdempotencia.Entrada("k1", HUELLA);
+        assertNull(cache.reservar(primera));
+
+        // En curso: la repetición recibe la misma entrada, sin respuesta todavía
+        CacheIdempotencia.Entrada enCurso = cache.reservar(new CacheIdempotencia.Entrada("k1", HUELLA));
+        assertSame(primera, enCurso);
+        assertFalse(enCurso.getRespuesta().isDone());
+
+        cache.completar(primera, respuesta(100));
+        assertSame(primera, cache.reservar(new CacheIdempotencia.Entrada("k1", HUELLA)));
+        assertTrue(primera.getRespuesta().isDone());
+
+        reloj.addAndGet(Duration.ofSeconds(60).toNanos());
+        assertNull(cache.reservar(new CacheIdempotencia.Entrada("k1", HUELLA)));
+
+        assertEquals(2.0, contador("banco.idempotencia.peticiones", "resultado", "nueva"));
+        assertEquals(1.0, contador("banco.idempotencia.peticiones", "resultado", "coalescida"));
+        assertEquals(1.0, contador("banco.idempotencia.peticiones", "resultado", "repetida"));
+        assertEquals(1.0, contador("banco.idempotencia.desalojos", "causa", "vencida"));
+    }
+
+    @Test
+    void elLimiteDeBytesDesalojaLasMasAntiguas() {
+        for (int i = 1; i <= 3; i++) {
+            CacheIdempotencia.Entrada entrada = new CacheIdempotencia.Entrada("k" + i, HUELLA);
+            cache.reservar(entrada);
+            cache.completar(entrada, respuesta(100));
+        }
+        assertEquals(400, cache.getBytes()); // La primera salió para dejar lugar a la tercera
+        assertNull(cache.reservar(new CacheIdempotencia.Entrada("k1", HUELLA)));
+        assertSame(HUELLA, cache.reservar(new CacheIdempotencia.Entrada("k3", HUELLA)).getHuella());
+
+        // Una respuesta más grande que el límite se entrega pero no se guarda
+        CacheIdempotencia.Entrada grande = new CacheIdempotencia.Entrada("k4", HUELLA);
+        cache.reservar(grande);
+        cache.completar(grande, respuesta(1000));
+        assertTrue(grande.getRespuesta().isDone());
+        assertNull(cache.reservar(new CacheIdempotencia.Entrada("k4", HUELLA)));
+
+        // Una petición abandonada libera la clave
+        CacheIdempotencia.Entrada fallida = new CacheIdempotencia.Entrada("k5", HUELLA);
+        cache.reservar(fallida);
+        cache.abandonar(fallida, new IllegalStateException());
+        assertTrue(fallida.getRespuesta().isCompletedExceptionally());
+        assertNull(cache.reservar(new CacheIdempotencia.Entrada("k5", HUELLA)));
+
+        assertEquals(1.0, contador("banco.idempotencia.desalojos", "causa", "capacidad"));
+        assertEquals(1.0, contador("banco.idempotencia.desalojos", "causa", "tamano"));
+    }
+
+    private static CacheIdempotencia.Respuesta respuesta(int bytes) {
+        return new CacheIdempotencia.Respuesta(200, null, "application/json", List.of(), new byte[bytes]);
+    }
+
+    private double contador(String nombre, String etiqueta, String valor) {
+        return registry.get(nombre).tag(etiqueta, valor).counter().count();
+    }
+}
@@ -0,0 +1,188 @@
+package com.tecno.web_sec.idempotencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.DelegatingServletInputStream;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.jayway.jsonpath.JsonPath;
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.service.CuentaService;
+import com.tecno.web_sec.service.UsuarioService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+
+@SpringBootTest
+class IdempotenciaTest {
+
+    @Autowired
+    private WebApplicationContext contexto;
+
+    private MockMvc mvc;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @BeforeEach
+    void crearMockMvc() {
+        mvc = MockMvcBuilders.webAppContextSetup(contexto).apply(springSecurity()).build();
+    }
+
+    @Test
+    void lasRepeticionesConcurrentesSeAplicanUnaVez() throws Exception {
+        Cuenta origen = cuentaService.findByUsuarioId(usuarioService.findByUsername("usuario1").getId()).get(0);
+        Cuenta destino = cuentaService.findByUsuarioId(usuarioService.findByUsername("usuario2").getId()).get(0);
+        long saldo = origen.getSaldoCentavos();
+        String clave = UUID.randomUUID().toString();
+        String cuerpo = "{\"cuentaOrigenId\":" + origen.getId() + ",\"cuentaDestinoId\":" + destino.getId()
+                + ",\"monto\":2.50}";
+
+        Set<Integer> ids = new HashSet<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<String>> reintentos = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                reintentos.add(executor.submit(() -> mvc.perform(post("/api/v1/transacciones")
+                        .with(sesion("usuario1")).header(FiltroIdempotencia.ENCABEZADO, clave)
+                        .contentType(MediaType.APPLICATION_JSON).content(cuerpo))
+                        .andExpect(status().isCreated())
+                        .andReturn().getResponse().getContentAsString()));
+            }
+            for (Future<String> reintento : reintentos) {
+                ids.add(JsonPath.read(reintento.get(), "$.id"));
+            }
+        }
+        assertEquals(1, ids.size());
+        assertEquals(saldo - 250, origen.getSaldoCentavos());
+
+        mvc.perform(post("/api/v1/transacciones").with(sesion("usuario1")).header(FiltroIdempotencia.ENCABEZADO, clave)
+                .contentType(MediaType.APPLICATION_JSON).content(cuerpo))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(FiltroIdempotencia.REPETIDA, "true"))
+                .andExpect(header().string("Location", "/api/v1/transacciones/" + ids.iterator().next()))
+                .andExpect(jsonPath("$.monto").value(2.50));
+        // La misma clave con otro monto, o sin clave, es otra petición
+        mvc.perform(post("/api/v1/transacciones").with(sesion("usuario1")).header(FiltroIdempotencia.ENCABEZADO, clave)
+                .contentType(MediaType.APPLICATION_JSON).content(cuerpo.replace("2.50", "3.00")))
+                .andExpect(status().isUnprocessableEntity());
+        mvc.perform(post("/api/v1/transacciones").with(sesion("usuario1"))
+                .contentType(MediaType.APPLICATION_JSON).content(cuerpo))
+                .andExpect(status().isCreated());
+        assertEquals(saldo - 500, origen.getSaldoCentavos());
+    }
+
+    @Test
+    void elDepositoRepetidoRedirigeSinDepositarOtraVez() throws Exception {
+        Cuenta cuenta = cuentaService.findByUsuarioId(usuarioService.findByUsername("admin").getId()).get(0);
+        long saldo = cuenta.getSaldoCentavos();
+        String clave = UUID.randomUUID().toString();
+
+        for (int i = 0; i < 3; i++) {
+            mvc.perform(post("/cuentas/" + cuenta.getId() + "/depositar").with(sesion("admin"))
+                    .header(FiltroIdempotencia.ENCABEZADO, clave).param("monto", "10.00"))
+                    .andExpect(status().is3xxRedirection())
+                    .andExpect(redirectedUrl("/cuentas/" + cuenta.getId()));
+        }
+        assertEquals(saldo + 1000, cuenta.getSaldoCentavos());
+    }
+
+    @Test
+    void unCuerpoMayorQueElLimiteRecibe413SinLeerseEntero() throws Exception {
+        FiltroIdempotencia filtro = new FiltroIdempotencia(new CacheIdempotencia(Duration.ofMinutes(1), 100,
+                new SimpleMeterRegistry(), System::nanoTime), request -> true, Duration.ofSeconds(1));
+        AtomicInteger ejecutadas = new AtomicInteger();
+        FilterChain cadena = (request, response) -> ejecutadas.incrementAndGet();
+
+        MockHttpServletResponse grande = new MockHttpServletResponse();
+        filtro.doFilter(peticion(new byte[101]), grande, cadena);
+        assertEquals(413, grande.getStatus());
+
+        // Sin Content-Length (chunked) se corta la lectura en el límite más un byte
+        byte[] largo = new byte[10_000];
+        ByteArrayInputStream fuente = new ByteArrayInputStream(largo);
+        MockHttpServletRequest chunked = new MockHttpServletRequest("POST", "/api/v1/transacciones") {
+            @Override
+            public ServletInputStream getInputStream() {
+                return new DelegatingServletInputStream(fuente);
+            }
+        };
+        chunked.addHeader(FiltroIdempotencia.ENCABEZADO, "chunked");
+        MockHttpServletResponse sinLongitud = new MockHttpServletResponse();
+        filtro.doFilter(chunked, sinLongitud, cadena);
+        assertEquals(413, sinLongitud.getStatus());
+        assertEquals(largo.length - 101, fuente.available());
+        assertEquals(0, ejecutadas.get());
+
+        // Dentro del límite el controlador recibe el cuerpo, también con lectura asíncrona
+        List<String> eventos = new ArrayList<>();
+        filtro.doFilter(peticion("{\"monto\":1}".getBytes(StandardCharsets.UTF_8)), new MockHttpServletResponse(),
+                (request, response) -> {
+                    ServletInputStream entrada = request.getInputStream();
+                    entrada.setReadListener(new ReadListener() {
+                        @Override
+                        public void onDataAvailable() throws IOException {
+                            eventos.add(new String(entrada.readAllBytes(), StandardCharsets.UTF_8));
+                        }
+
+                        @Override
+                        public void onAllDataRead() {
+                            eventos.add("fin");
+                        }
+
+                        @Override
+                        public void onError(Throwable t) {
+                            eventos.add("error");
+                        }
+                    });
+                });
+        assertEquals(List.of("{\"monto\":1}", "fin"), eventos);
+    }
+
+    private static MockHttpServletRequest peticion(byte[] cuerpo) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/transacciones");
+        request.addHeader(FiltroIdempotencia.ENCABEZADO, UUID.randomUUID().toString());
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(cuerpo);
+        return request;
+    }
+
+    private RequestPostProcessor sesion(String username) {
+        return user(usuarioService.findAutenticadoById(usuarioService.findByUsername(username).getId()));
+    }
+}
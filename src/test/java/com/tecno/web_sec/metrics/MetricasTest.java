@@ -0,0 +1,81 @@
+package com.tecno.web_sec.metrics;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.service.CuentaService;
+import com.tecno.web_sec.service.UsuarioService;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class MetricasTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Test
+    void prometheusPublicaLasMetricasDelBanco() throws Exception {
+        Cuenta origen = cuentaService.findAll().get(0);
+        Cuenta destino = cuentaService.findAll().get(1);
+        cuentaService.transferir(origen.getId(), destino.getId(), new BigDecimal("1.00"));
+        mvc.perform(post("/login").param("username", "usuario1").param("password", "mala"));
+
+        // Solo las sondas de salud quedan abiertas
+        mvc.perform(get("/actuator/health")).andExpect(status().isOk());
+        mvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().exists("WWW-Authenticate"));
+        mvc.perform(get("/actuator/prometheus").with(httpBasic("usuario1", "123")))
+                .andExpect(status().isForbidden());
+
+        // El scraper no inicia sesión: se autentica en cada petición
+        mvc.perform(get("/actuator/prometheus").with(httpBasic("admin", "123")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "banco_servicio_seconds_bucket{class=\"CuentaServiceImpl\",exception=\"none\",method=\"transferir\"")))
+                .andExpect(content().string(containsString("banco_transferencias_total{resultado=\"ok\"}")))
+                .andExpect(content().string(containsString("banco_logins_total{resultado=\"fallo\"} 1.0")))
+                .andExpect(content().string(containsString("banco_almacen_tamano{almacen=\"cuentas\"}")))
+                .andExpect(content().string(containsString("banco_cuentas_candados_espera_seconds_bucket")));
+    }
+
+    @Test
+    void cadaPeticionDesglosaSusFasesEnServerTiming() throws Exception {
+        mvc.perform(get("/consultas").with(user(usuarioService.findAutenticadoById(
+                usuarioService.findByUsername("usuario1").getId()))))
+                .andExpect(status().isOk())
+                .andExpect(header().string(TiemposPeticionFiltro.SERVER_TIMING, allOf(
+                        containsString("seguridad;desc="), containsString("controlador;desc="),
+                        containsString("servicio;desc="), containsString("vista;desc="),
+                        containsString("total;dur="))));
+
+        // Sin sesión la petición no llega al controlador: todo es seguridad
+        mvc.perform(get("/consultas"))
+                .andExpect(header().string(TiemposPeticionFiltro.SERVER_TIMING,
+                        allOf(containsString("seguridad;desc="), containsString("total;dur="))));
+    }
+}
@@ -0,0 +1,185 @@
+package com.tecno.web_sec.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.CursorTransaccion;
+import com.tecno.web_sec.models.PaginaTransacciones;
+import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.service.impl.TransaccionServiceImpl;
+
+class ArchivoTransaccionesTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void lasConsultasLeenElArchivoYLaMemoria() throws IOException {
+        TransaccionServiceImpl servicio = servicio(abrir());
+        for (int i = 0; i < 200; i++) {
+            servicio.addTransaccion(new Transaccion(null, new BigDecimal(i + ".25"),
+                    INICIO.plusHours(i % 2 == 0 ? i : 200 - i).plusNanos(i * 1_000_000L),
+                    new Cuenta(1L + i % 3, null, null, null), new Cuenta(1L + i % 4, null, null, null)));
+        }
+        List<String> porCuenta = resumen(servicio.findByCuentaId(2L));
+        List<String> paginas = paginas(servicio, 7);
+        List<String> intervalo = resumen(servicio.findByFechaBetween(INICIO.plusHours(50), INICIO.plusHours(150)));
+
+        assertTrue(servicio.archivarAnterioresA(INICIO.plusHours(120)) > 100);
+        assertEquals(porCuenta, resumen(servicio.findByCuentaId(2L)));
+        assertEquals(paginas, paginas(servicio, 7));
+        assertEquals(intervalo, resumen(servicio.findByFechaBetween(INICIO.plusHours(50), INICIO.plusHours(150))));
+        assertEquals(200, servicio.findAll().size());
+        assertEquals(new BigDecimal("4.25"), servicio.findById(15L).getMonto());
+
+        // Eliminar una archivada deja una marca que sobrevive al reinicio
+        servicio.deleteTransaccion(15L);
+        assertThrows(RuntimeException.class, () -> servicio.findById(15L));
+        ArchivoTransacciones reabierto = abrir();
+        TransaccionServiceImpl otro = servicio(reabierto);
+        assertThrows(RuntimeException.class, () -> otro.findById(15L));
+        assertEquals(new BigDecimal("100.25"), otro.findById(111L).getMonto());
+        assertEquals(INICIO.plusHours(100).plusNanos(100_000_000L), otro.findById(111L).getFecha());
+        assertEquals(211L, otro.findAll().stream().mapToLong(Transaccion::getId).max().getAsLong() + 1);
+        reabierto.cerrar();
+    }
+
+    @Test
+    void elRecorridoFusionaElArchivoYLaMemoria() throws IOException {
+        ArchivoTransacciones archivo = abrir();
+        TransaccionServiceImpl servicio = servicio(archivo);
+        for (int i = 0; i < 100; i++) {
+            servicio.addTransaccion(new Transaccion(null, new BigDecimal(i + ".50"), INICIO.plusHours(i),
+                    new Cuenta(1L + i % 3, null, null, null), new Cuenta(1L + i % 4, null, null, null)));
+        }
+        servicio.archivarAnterioresA(INICIO.plusHours(60));
+
+        LocalDateTime desde = INICIO.plusHours(30);
+        LocalDateTime hasta = INICIO.plusHours(80);
+        assertEquals(resumen(servicio.findByCuentaId(2L)), recorrido(servicio, 2L, null, null));
+        assertEquals(resumen(servicio.findByCuentaIdAndFechaBetween(2L, desde, hasta)),
+                recorrido(servicio, 2L, desde, hasta));
+        assertEquals(resumen(servicio.findByFechaBetween(desde, hasta)), recorrido(servicio, null, desde, hasta));
+        assertEquals(100, recorrido(servicio, null, null, null).size());
+        assertEquals(resumen(servicio.findByFechaBetween(INICIO, hasta)), recorrido(servicio, null, null, hasta));
+        assertThrows(IllegalArgumentException.class, () -> recorrido(servicio, 2L, hasta, desde));
+        archivo.cerrar();
+    }
+
+    @Test
+    void laRecuperacionNoDuplicaLasArchivadas() throws IOException {
+        ArchivoTransacciones archivo = abrir();
+        TransaccionServiceImpl servicio = servicio(archivo);
+        for (long id = 1; id <= 10; id++) {
+            servicio.restaurar(new RegistroWal.TransaccionGuardada(id, new BigDecimal("1.50"), INICIO.plusDays(id),
+                    id, id + 1));
+        }
+        servicio.archivarAnterioresA(INICIO.plusDays(6));
+
+        // El log todavía tiene los registros previos al archivado
+        TransaccionServiceImpl recuperado = servicio(archivo);
+        for (long id = 1; id <= 10; id++) {
+            recuperado.restaurar(new RegistroWal.TransaccionGuardada(id, new BigDecimal("1.50"),
+                    INICIO.plusDays(id), id, id + 1));
+        }
+        recuperado.restaurar(new RegistroWal.TransaccionEliminada(2L));
+        assertEquals(9, recuperado.findAll().size());
+        assertEquals(List.of(3L), recuperado.findByCuentaId(3L).stream().map(Transaccion::getId).toList());
+        assertEquals(Set.of(6L, 7L), Set.copyOf(recuperado.findByCuentaId(7L).stream()
+                .map(Transaccion::getId).toList()));
+        archivo.cerrar();
+    }
+
+    @Test
+    void losLotesSeFusionanYLosReemplazadosSeBorranAlAbrir() throws IOException {
+        ArchivoTransacciones archivo = abrir();
+        TransaccionServiceImpl servicio = servicio(archivo);
+        for (int i = 0; i < 64; i++) {
+            servicio.addTransaccion(new Transaccion(null, new BigDecimal(i + ".75"), INICIO.plusHours(i),
+                    new Cuenta(1L + i % 3, null, null, null), new Cuenta(1L + i % 4, null, null, null)));
+        }
+        List<String> todas = resumen(servicio.findByFechaBetween(INICIO, INICIO.plusHours(64)));
+        List<String> porCuenta = resumen(servicio.findByCuentaId(2L));
+
+        for (int hora = 1; hora <= 64; hora++) {
+            servicio.archivarAnterioresA(INICIO.plusHours(hora)); // Un lote de una fila por hora
+        }
+        List<Path> lotes = lotes();
+        assertTrue(lotes.size() <= 7, "Lotes sin fusionar: " + lotes);
+        assertEquals(todas, resumen(servicio.findByFechaBetween(INICIO, INICIO.plusHours(64))));
+        assertEquals(porCuenta, resumen(servicio.findByCuentaId(2L)));
+
+        // Una caída entre la fusión y el borrado deja también un lote ya fusionado
+        Path fusionado = lotes.get(0);
+        Files.copy(fusionado, directorio.resolve("lote-0000000001.col"));
+        ArchivoTransacciones reabierto = abrir();
+        TransaccionServiceImpl otro = servicio(reabierto);
+        assertEquals(lotes, lotes());
+        assertEquals(64, otro.findAll().size());
+        assertEquals(porCuenta, resumen(otro.findByCuentaId(2L)));
+        reabierto.cerrar();
+        archivo.cerrar();
+    }
+
+    private List<Path> lotes() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.filter(archivo -> archivo.getFileName().toString().startsWith("lote-")).sorted()
+                    .toList();
+        }
+    }
+
+    private ArchivoTransacciones abrir() throws IOException {
+        ArchivoTransacciones archivo = new ArchivoTransacciones(true, directorio);
+        archivo.abrir();
+        return archivo;
+    }
+
+    private static TransaccionServiceImpl servicio(ArchivoTransacciones archivo) {
+        TransaccionServiceImpl servicio = new TransaccionServiceImpl();
+        ReflectionTestUtils.setField(servicio, "archivo", archivo);
+        servicio.inicializar();
+        return servicio;
+    }
+
+    private static List<String> paginas(TransaccionServiceImpl servicio, int tamano) {
+        List<String> filas = new ArrayList<>();
+        CursorTransaccion cursor = null;
+        do {
+            PaginaTransacciones pagina = servicio.findPageByCuentaIds(List.of(1L, 2L), cursor, tamano);
+            filas.addAll(resumen(pagina.transacciones()));
+            cursor = pagina.siguiente();
+        } while (cursor != null);
+        return filas;
+    }
+
+    private static List<String> recorrido(TransaccionServiceImpl servicio, Long cuentaId, LocalDateTime desde,
+            LocalDateTime hasta) {
+        List<Transaccion> transacciones = new ArrayList<>();
+        servicio.forEachByCuentaIdAndFechaBetween(cuentaId, desde, hasta, transacciones::add);
+        return resumen(transacciones);
+    }
+
+    private static List<String> resumen(List<Transaccion> transacciones) {
+        return transacciones.stream()
+                .map(t -> t.getId() + "|" + t.getMonto() + "|" + t.getFecha() + "|" + t.getCuentaOrigen().getId())
+                .toList();
+    }
+}
@@ -0,0 +1,164 @@
+package com.tecno.web_sec.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.models.Usuario;
+import com.tecno.web_sec.repository.CuentaRepository;
+import com.tecno.web_sec.service.impl.CuentaServiceImpl;
+import com.tecno.web_sec.service.impl.TransaccionServiceImpl;
+import com.tecno.web_sec.service.impl.UsuarioServiceImpl;
+
+class SnapshotWalTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void losSegmentosRotanPorTamano() throws IOException {
+        WriteAheadLog wal = abrir(4096);
+        for (long id = 1; id <= 2000; id++) {
+            wal.append(new RegistroWal.CuentaEliminada(id));
+        }
+        wal.awaitDurable(2000);
+        wal.cerrar();
+
+        WriteAheadLog reabierto = abrir(4096);
+        assertTrue(reabierto.segmentos().size() > 1);
+        List<RegistroWal> leidos = new ArrayList<>();
+        assertEquals(2000, reabierto.recorrer(leidos::add));
+        assertEquals(new RegistroWal.CuentaEliminada(2000L), leidos.get(1999));
+        assertEquals(2001, reabierto.append(new RegistroWal.CuentaEliminada(2001L)));
+        reabierto.cerrar();
+    }
+
+    @Test
+    void laRecuperacionCargaElSnapshotYElLogPosterior() throws Exception {
+        WriteAheadLog wal = abrir(1 << 20);
+        Banco original = new Banco(wal);
+        original.usuarios.restaurar(new RegistroWal.UsuarioGuardado(7L, "ana", "123", "USER")); // Dato inicial
+        Usuario ana = original.usuarios.findById(7L);
+        ana.setRole("ADMIN");
+        original.usuarios.updateUsuario(ana);
+        for (long id = 1; id <= 32; id++) {
+            original.cuentas.addCuenta(new Cuenta(id, "Cuenta " + id, new BigDecimal("1000.00"),
+                    (id % 4 == 0) ? ana : null));
+        }
+
+        // El snapshot se toma mientras siguen llegando transferencias
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < 4; h++) {
+            long semilla = h;
+            tareas.add(executor.submit(() -> transferir(original.cuentas, new SplittableRandom(semilla), 300)));
+        }
+        long lsn = new SnapshotWal(wal, original.almacenes(), true).tomar();
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        executor.shutdown();
+
+        // Cambios que solo quedan en el log posterior al snapshot
+        original.cuentas.deleteCuenta(4L);
+        transferir(original.cuentas, new SplittableRandom(99), 50);
+        original.transacciones.deleteTransaccion(original.transacciones.findAll().get(0).getId());
+        wal.cerrar();
+
+        assertTrue(lsn > 0);
+        assertFalse(Files.exists(directorio.resolve("wal-00000000000000000000.log")));
+
+        WriteAheadLog reabierto = abrir(1 << 20);
+        Banco recuperado = new Banco(WriteAheadLog.deshabilitado());
+        recuperado.cuentas.addCuenta(new Cuenta(999L, "Inicial", BigDecimal.ONE, null)); // Datos iniciales
+        new RecuperacionWal(reabierto, recuperado.almacenes(), 4).recuperar();
+        reabierto.cerrar();
+
+        assertEquals(saldos(original.cuentas), saldos(recuperado.cuentas));
+        assertThrows(RuntimeException.class, () -> recuperado.cuentas.findById(999L));
+        assertEquals(7, recuperado.cuentas.findByUsuarioId(ana.getId()).size());
+        assertEquals(7, recuperado.usuarios.findById(ana.getId()).getCuentas().size());
+        assertEquals(original.transacciones.findAll().size(), recuperado.transacciones.findAll().size());
+        for (Transaccion transaccion : recuperado.transacciones.findAll()) {
+            if (transaccion.getCuentaOrigen().getId() != 4L) {
+                assertNotNull(transaccion.getCuentaOrigen().getNombre());
+            }
+        }
+    }
+
+    private static void transferir(CuentaServiceImpl cuentaService, SplittableRandom random, int cantidad) {
+        for (int i = 0; i < cantidad; i++) {
+            long origen = random.nextLong(1, 33);
+            long destino = random.nextLong(1, 33);
+            try {
+                cuentaService.registrarTransferencia(new Transaccion(null, new BigDecimal(random.nextInt(1, 100)),
+                        null, new Cuenta(origen, null, null, null), new Cuenta(destino, null, null, null)));
+            } catch (RuntimeException e) {
+                // Cuenta eliminada, misma cuenta o saldo insuficiente
+            }
+        }
+    }
+
+    private static Map<Long, BigDecimal> saldos(CuentaServiceImpl cuentaService) {
+        Map<Long, BigDecimal> saldos = new TreeMap<>();
+        for (Cuenta cuenta : cuentaService.findAll()) {
+            saldos.put(cuenta.getId(), cuenta.getSaldo());
+        }
+        return saldos;
+    }
+
+    private WriteAheadLog abrir(long segmentoBytes) throws IOException {
+        WriteAheadLog wal = new WriteAheadLog(true, directorio, false, segmentoBytes);
+        wal.abrir();
+        return wal;
+    }
+
+    /**
+     * Los tres almacenes conectados como en el contexto de Spring.
+     */
+    private static final class Banco {
+
+        final UsuarioServiceImpl usuarios = new UsuarioServiceImpl();
+        final CuentaServiceImpl cuentas = new CuentaServiceImpl();
+        final TransaccionServiceImpl transacciones = new TransaccionServiceImpl();
+
+        Banco(WriteAheadLog wal) {
+            CuentaRepository repositorio = new CuentaRepository(); // Compartido, como en el contexto de Spring
+            ReflectionTestUtils.setField(usuarios, "passwordEncoder", NoOpPasswordEncoder.getInstance());
+            ReflectionTestUtils.setField(usuarios, "cuentas", repositorio);
+            ReflectionTestUtils.setField(cuentas, "cuentas", repositorio);
+            ReflectionTestUtils.setField(usuarios, "wal", wal);
+            ReflectionTestUtils.setField(cuentas, "wal", wal);
+            ReflectionTestUtils.setField(cuentas, "usuarioService", usuarios);
+            ReflectionTestUtils.setField(cuentas, "transaccionService", transacciones);
+            ReflectionTestUtils.setField(transacciones, "wal", wal);
+            ReflectionTestUtils.setField(transacciones, "cuentas", repositorio);
+        }
+
+        List<Restaurable> almacenes() {
+            return List.of(usuarios, cuentas, transacciones);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.tecno.web_sec.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.service.UsuarioService;
+import com.tecno.web_sec.service.impl.CuentaServiceImpl;
+import com.tecno.web_sec.service.impl.TransaccionServiceImpl;
+
+class WriteAheadLogTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLogTest.class);
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void losRegistrosSobrevivenAlReinicio() throws IOException {
+        List<RegistroWal> escritos = List.of(
+                new RegistroWal.UsuarioGuardado(7L, "usuario7", "{noop}123", "USER"),
+                new RegistroWal.CuentaGuardada(1L, "Cuenta A", new BigDecimal("1000.00"), 7L),
+                new RegistroWal.CuentaGuardada(2L, null, new BigDecimal("0.00"), null),
+                new RegistroWal.SaldoActualizado(1L, 90_050L),
+                new RegistroWal.Transferencia(1L, 80_050L, 2L, 10_000L),
+                new RegistroWal.TransaccionGuardada(11L, new BigDecimal("100.00"),
+                        LocalDateTime.of(2024, 5, 1, 10, 30, 15, 123_456_789), 1L, 2L),
+                new RegistroWal.TransaccionEliminada(11L),
+                new RegistroWal.TransferenciaRegistrada(new RegistroWal.Transferencia(2L, 9_000L, 1L, 81_050L),
+                        new RegistroWal.TransaccionGuardada(12L, new BigDecimal("10.00"),
+                                LocalDateTime.of(2024, 5, 1, 10, 31), 2L, 1L)),
+                new RegistroWal.CuentaEliminada(2L),
+                new RegistroWal.UsuarioEliminado(7L));
+
+        WriteAheadLog wal = abrir();
+        try (WriteAheadLog.Grupo grupo = wal.grupo()) {
+            escritos.forEach(wal::append);
+            assertEquals(escritos.size(), grupo.ultimoLsn()); // Todos en el mismo grupo
+        }
+        wal.cerrar();
+
+        List<RegistroWal> leidos = new ArrayList<>();
+        WriteAheadLog reabierto = abrir();
+        assertEquals(escritos.size(), reabierto.recorrer(leidos::add));
+        assertEquals(escritos, leidos);
+        reabierto.cerrar();
+    }
+
+    @Test
+    void descartaLaColaIncompletaDeUnaCaida() throws IOException {
+        WriteAheadLog wal = abrir();
+        for (long id = 1; id <= 3; id++) {
+            wal.awaitDurable(wal.append(new RegistroWal.CuentaEliminada(id)));
+        }
+        wal.cerrar();
+
+        // Simula un registro a medio escribir: longitud y CRC sin los datos
+        Path archivo = wal.segmentos().get(0);
+        long valido = Files.size(archivo);
+        Files.write(archivo, new byte[] { 0, 0, 0, 9, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        WriteAheadLog reabierto = abrir();
+        assertEquals(valido, Files.size(archivo));
+        reabierto.awaitDurable(reabierto.append(new RegistroWal.CuentaEliminada(4L)));
+        reabierto.cerrar();
+
+        List<RegistroWal> leidos = new ArrayList<>();
+        WriteAheadLog otraVez = abrir();
+        assertEquals(4, otraVez.recorrer(leidos::add));
+        assertEquals(new RegistroWal.CuentaEliminada(4L), leidos.get(3));
+        otraVez.cerrar();
+    }
+
+    @Test
+    void lasTransferenciasConcurrentesSeRecuperanDelLog() throws Exception {
+        int numCuentas = 64;
+        int hilos = 8;
+        int transferenciasPorHilo = 500;
+
+        WriteAheadLog wal = abrir();
+        CuentaServiceImpl cuentaService = servicioCuentas(wal);
+        for (long id = 1; id <= numCuentas; id++) {
+            cuentaService.addCuenta(new Cuenta(id, "Cuenta " + id, new BigDecimal("1000.00"), null));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        List<Future<?>> tareas = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int h = 0; h < hilos; h++) {
+            long semilla = h;
+            tareas.add(executor.submit(() -> {
+                SplittableRandom random = new SplittableRandom(semilla);
+                for (int i = 0; i < transferenciasPorHilo; i++) {
+                    long origen = random.nextLong(1, numCuentas + 1L);
+                    long destino = random.nextLong(1, numCuentas + 1L);
+                    if (origen == destino) {
+                        continue;
+                    }
+                    try {
+                        cuentaService.registrarTransferencia(new Transaccion(null,
+                                new BigDecimal(random.nextInt(1, 200)), null,
+                                new Cuenta(origen, null, null, null), new Cuenta(destino, null, null, null)));
+                    } catch (RuntimeException e) {
+                        // Saldo insuficiente: no deja registro
+                    }
+                }
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        executor.shutdown();
+        logger.info("WAL con fsync: {} transferencias confirmadas/s", (long) (hilos * transferenciasPorHilo / segundos));
+        wal.cerrar();
+
+        // Reconstruye el estado desde cero a partir del log
+        WriteAheadLog reabierto = abrir();
+        CuentaServiceImpl recuperado = servicioCuentas(WriteAheadLog.deshabilitado());
+        TransaccionServiceImpl transacciones = new TransaccionServiceImpl();
+        reabierto.recorrer(registro -> {
+            recuperado.restaurar(registro);
+            transacciones.restaurar(registro);
+        });
+        reabierto.cerrar();
+
+        for (Cuenta cuenta : cuentaService.findAll()) {
+            assertEquals(cuenta.getSaldo(), recuperado.findById(cuenta.getId()).getSaldo());
+        }
+        assertEquals(numCuentas, recuperado.findAll().size());
+        // Cada saldo recuperado viene con su transacción en el mismo registro
+        TransaccionServiceImpl originales = (TransaccionServiceImpl) ReflectionTestUtils.getField(cuentaService,
+                "transaccionService");
+        assertEquals(originales.findAll().size(), transacciones.findAll().size());
+    }
+
+    @Test
+    void unFalloDelEscritorRechazaLosCambiosSiguientes() throws IOException {
+        WriteAheadLog wal = abrir();
+        CuentaServiceImpl cuentaService = servicioCuentas(wal);
+        cuentaService.addCuenta(new Cuenta(1L, "Cuenta A", new BigDecimal("10.00"), null));
+        cuentaService.addCuenta(new Cuenta(2L, "Cuenta B", new BigDecimal("10.00"), null));
+
+        // El escritor falla al escribir el próximo lote
+        ((FileChannel) ReflectionTestUtils.getField(wal, "canal")).close();
+        assertThrows(UncheckedIOException.class, () -> cuentaService.depositar(1L, BigDecimal.ONE));
+
+        // Desde ahí el log no entrega números de secuencia y los servicios no tocan la memoria
+        assertThrows(UncheckedIOException.class, () -> wal.append(new RegistroWal.CuentaEliminada(1L)));
+        assertThrows(UncheckedIOException.class, wal::grupo);
+        assertThrows(UncheckedIOException.class, () -> cuentaService.transferir(1L, 2L, BigDecimal.ONE));
+        assertThrows(UncheckedIOException.class, () -> cuentaService.transferirLote(List.of(
+                new Transaccion(null, BigDecimal.ONE, null, new Cuenta(1L, null, null, null),
+                        new Cuenta(2L, null, null, null)))));
+        assertEquals(1100L, cuentaService.findById(1L).getSaldoCentavos());
+        assertEquals(1000L, cuentaService.findById(2L).getSaldoCentavos());
+        wal.cerrar();
+    }
+
+    private WriteAheadLog abrir() throws IOException {
+        WriteAheadLog wal = new WriteAheadLog(true, directorio, true, 1 << 20);
+        wal.abrir();
+        return wal;
+    }
+
+    private static CuentaServiceImpl servicioCuentas(WriteAheadLog wal) {
+        CuentaServiceImpl cuentaService = new CuentaServiceImpl();
+        TransaccionServiceImpl transaccionService = new TransaccionServiceImpl();
+        ReflectionTestUtils.setField(transaccionService, "wal", wal);
+        ReflectionTestUtils.setField(cuentaService, "wal", wal);
+        ReflectionTestUtils.setField(cuentaService, "usuarioService", mock(UsuarioService.class));
+        ReflectionTestUtils.setField(cuentaService, "transaccionService", transaccionService);
+        return cuentaService;
+    }
+}
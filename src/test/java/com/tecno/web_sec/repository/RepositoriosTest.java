@@ -0,0 +1,120 @@
+package com.tecno.web_sec.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Usuario;
+import com.tecno.web_sec.security.UsuarioAutenticado;
+import com.tecno.web_sec.service.CuentaService;
+import com.tecno.web_sec.service.UsuarioService;
+
+@SpringBootTest
+class RepositoriosTest {
+
+    private static final Pattern FILA_HISTOGRAMA = Pattern.compile("^\\s*\\d+:\\s+(\\d+)\\s+\\d+\\s+(\\S+)");
+
+    @Autowired
+    private ApplicationContext contexto;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private UsuarioRepository usuarios;
+
+    @Autowired
+    private CuentaRepository cuentas;
+
+    @Test
+    void elLoginYLosControladoresUsanElMismoServicio() {
+        assertEquals(1, contexto.getBeansOfType(UserDetailsService.class).size());
+        assertEquals(1, contexto.getBeansOfType(UsuarioService.class).size());
+        assertSame(usuarioService, contexto.getBean(UserDetailsService.class));
+
+        UsuarioAutenticado sesion = (UsuarioAutenticado) contexto.getBean(UserDetailsService.class)
+                .loadUserByUsername("usuario1");
+        assertSame(usuarioService.findByUsername("usuario1"), usuarioService.findById(sesion.getUsuarioId()));
+    }
+
+    @Test
+    void cadaUsuarioYCadaCuentaExisteUnaSolaVez() throws Exception {
+        // Los servicios y el grafo de objetos apuntan a las mismas instancias
+        for (Usuario usuario : usuarioService.findAll()) {
+            for (Cuenta cuenta : usuario.getCuentas()) {
+                assertSame(cuenta, cuentaService.findById(cuenta.getId()));
+                assertSame(usuario, cuenta.getUsuario());
+            }
+        }
+        for (Cuenta cuenta : cuentaService.findAll()) {
+            assertSame(cuenta.getUsuario(), usuarioService.findById(cuenta.getUsuario().getId()));
+        }
+
+        // En el heap no hay más instancias vivas que las de los almacenes
+        Map<String, Long> instancias = histogramaDelHeap();
+        assumeTrue(!instancias.isEmpty(), "La JVM no ofrece el histograma de clases");
+        assertEquals(usuarios.count(), instancias.getOrDefault(Usuario.class.getName(), 0L));
+        assertEquals(cuentas.count(), instancias.getOrDefault(Cuenta.class.getName(), 0L));
+    }
+
+    @Test
+    void lasPaginasRecorrenLosIndicesEnOrdenDeId() {
+        List<Long> cuentasPorPaginas = new ArrayList<>();
+        for (List<Cuenta> pagina = cuentas.findPagina(null, 2); !pagina.isEmpty();
+                pagina = cuentas.findPagina(pagina.get(pagina.size() - 1).getId(), 2)) {
+            pagina.forEach(cuenta -> cuentasPorPaginas.add(cuenta.getId()));
+        }
+        assertEquals(cuentas.findAll().stream().map(Cuenta::getId).sorted().toList(), cuentasPorPaginas);
+
+        List<Long> usuariosPorPaginas = new ArrayList<>();
+        for (List<Usuario> pagina = usuarios.findPagina(null, 3); !pagina.isEmpty();
+                pagina = usuarios.findPagina(pagina.get(pagina.size() - 1).getId(), 3)) {
+            pagina.forEach(usuario -> usuariosPorPaginas.add(usuario.getId()));
+        }
+        assertEquals(usuarios.findAll().stream().map(Usuario::getId).toList(), usuariosPorPaginas);
+        assertEquals(List.of(), cuentas.findPagina(Long.MAX_VALUE, 2));
+    }
+
+    /**
+     * Instancias vivas por clase según el comando {@code GC.class_histogram},
+     * que antes de contar hace una recolección completa.
+     */
+    private static Map<String, Long> histogramaDelHeap() throws Exception {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        ObjectName diagnostico = new ObjectName("com.sun.management:type=DiagnosticCommand");
+        Map<String, Long> instancias = new HashMap<>();
+        if (!servidor.isRegistered(diagnostico)) {
+            return instancias;
+        }
+        String histograma = (String) servidor.invoke(diagnostico, "gcClassHistogram", new Object[] { null },
+                new String[] { String[].class.getName() });
+        for (String linea : histograma.split("\n")) {
+            Matcher fila = FILA_HISTOGRAMA.matcher(linea);
+            if (fila.find()) {
+                instancias.put(fila.group(2), Long.parseLong(fila.group(1)));
+            }
+        }
+        return instancias;
+    }
+}
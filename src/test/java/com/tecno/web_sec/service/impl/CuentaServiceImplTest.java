@@ -0,0 +1,380 @@
+package com.tecno.web_sec.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.tecno.web_sec.metrics.MetricasBanco;
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.ResultadoTransferencia;
+import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.models.Usuario;
+import com.tecno.web_sec.service.TransaccionService;
+import com.tecno.web_sec.service.UsuarioService;
+
+class CuentaServiceImplTest {
+
+    private CuentaServiceImpl cuentaService;
+    private TransaccionService transaccionService;
+    private UsuarioService usuarioService;
+    private Usuario usuario1;
+    private Usuario usuario2;
+
+    @BeforeEach
+    void setUp() {
+        cuentaService = new CuentaServiceImpl();
+        transaccionService = mock(TransaccionService.class);
+        usuarioService = mock(UsuarioService.class);
+        ReflectionTestUtils.setField(cuentaService, "usuarioService", usuarioService);
+        ReflectionTestUtils.setField(cuentaService, "transaccionService", transaccionService);
+        usuario1 = new Usuario(1L, "usuario1", "123", "USER", new ArrayList<>());
+        usuario2 = new Usuario(2L, "usuario2", "123", "USER", new ArrayList<>());
+        when(usuarioService.findById(1L)).thenReturn(usuario1);
+        when(usuarioService.findById(2L)).thenReturn(usuario2);
+    }
+
+    @Test
+    void findByIdUsaElIndicePrimario() {
+        Cuenta cuenta = new Cuenta(10L, "Cuenta A", new BigDecimal("100.00"), usuario1);
+        cuentaService.addCuenta(cuenta);
+
+        assertSame(cuenta, cuentaService.findById(10L));
+        assertThrows(RuntimeException.class, () -> cuentaService.findById(11L));
+    }
+
+    @Test
+    void addCuentaAsignaIdSiNoLoTiene() {
+        cuentaService.addCuenta(new Cuenta(5L, "Cuenta A", BigDecimal.ZERO, usuario1));
+        Cuenta nueva = new Cuenta(null, "Cuenta B", BigDecimal.ZERO, usuario1);
+        cuentaService.addCuenta(nueva);
+
+        assertEquals(6L, nueva.getId());
+    }
+
+    @Test
+    void findByUsuarioIdSigueLosCambiosDePropietario() {
+        cuentaService.addCuenta(new Cuenta(1L, "Cuenta A", BigDecimal.ZERO, usuario1));
+        cuentaService.addCuenta(new Cuenta(2L, "Cuenta B", BigDecimal.ZERO, usuario1));
+        cuentaService.addCuenta(new Cuenta(3L, "Cuenta C", BigDecimal.ZERO, usuario2));
+
+        assertEquals(2, cuentaService.findByUsuarioId(1L).size());
+
+        cuentaService.updateCuenta(new Cuenta(2L, "Cuenta B", BigDecimal.ZERO, usuario2));
+        assertEquals(1, cuentaService.findByUsuarioId(1L).size());
+        assertEquals(2, cuentaService.findByUsuarioId(2L).size());
+        verify(usuarioService).removeCuentaFromUsuario(1L, 2L);
+
+        cuentaService.deleteCuenta(3L);
+        assertEquals(1, cuentaService.findByUsuarioId(2L).size());
+        assertTrue(cuentaService.findByUsuarioId(99L).isEmpty());
+
+        // La búsqueda verificada usa el mismo índice
+        assertEquals("Cuenta A", cuentaService.findByIdForUsuario(1L, 1L).orElseThrow().getNombre());
+        assertThrows(AccessDeniedException.class, () -> cuentaService.findByIdForUsuario(2L, 1L));
+        assertTrue(cuentaService.findByIdForUsuario(2L, 2L).isPresent());
+        assertTrue(cuentaService.findByIdForUsuario(3L, 2L).isEmpty());
+    }
+
+    @Test
+    void editarElNombreConservaElSaldoYElPropietario() {
+        Cuenta cuenta = new Cuenta(1L, "Cuenta A", new BigDecimal("250.00"), usuario1);
+        cuentaService.addCuenta(cuenta);
+
+        // El formulario de edición solo envía el ID y el nombre
+        Cuenta formulario = new Cuenta();
+        formulario.setId(1L);
+        formulario.setNombre("Ahorros");
+        cuentaService.updateCuenta(formulario);
+
+        assertSame(cuenta, cuentaService.findById(1L));
+        assertEquals("Ahorros", cuenta.getNombre());
+        assertEquals(new BigDecimal("250.00"), cuenta.getSaldo());
+        assertSame(usuario1, cuenta.getUsuario());
+        assertEquals(List.of(cuenta), cuentaService.findByUsuarioId(1L));
+        verify(usuarioService, never()).removeCuentaFromUsuario(1L, 1L);
+    }
+
+    @Test
+    void transferenciasConcurrentesConservanElDineroTotal() throws Exception {
+        transferirConcurrentemente();
+    }
+
+    @Test
+    void ledgerSecuenciadoConservaElDineroTotal() throws Exception {
+        ReflectionTestUtils.setField(cuentaService, "ledgerSecuenciado", true);
+        ReflectionTestUtils.setField(cuentaService, "ledgerParticiones", 2);
+        ReflectionTestUtils.setField(cuentaService, "ledgerCapacidad", 1024);
+        cuentaService.init();
+        try {
+            transferirConcurrentemente();
+        } finally {
+            cuentaService.shutdown();
+        }
+    }
+
+    @Test
+    void unErrorEnElEscritorDelLedgerFallaLasPeticionesEnLugarDeColgarlas() {
+        ReflectionTestUtils.setField(cuentaService, "ledgerSecuenciado", true);
+        ReflectionTestUtils.setField(cuentaService, "ledgerEspera", Duration.ofSeconds(5));
+        cuentaService.init();
+        try {
+            cuentaService.addCuenta(new Cuenta(1L, "Cuenta A", new BigDecimal("10.00"), null));
+            cuentaService.addCuenta(new Cuenta(2L, "Cuenta B", new BigDecimal("10.00"), null));
+            doThrow(new AssertionError("Falla del aplicador")).when(transaccionService).addTransaccionSinLog(any());
+
+            IllegalStateException error = assertThrows(IllegalStateException.class,
+                    () -> cuentaService.registrarTransferencia(new Transaccion(null, BigDecimal.ONE, null,
+                            new Cuenta(1L, null, null, null), new Cuenta(2L, null, null, null))));
+            assertInstanceOf(AssertionError.class, error.getCause());
+
+            // La partición quedó detenida: los comandos siguientes se rechazan
+            IllegalStateException detenido = assertThrows(IllegalStateException.class,
+                    () -> cuentaService.depositar(1L, BigDecimal.ONE));
+            assertInstanceOf(AssertionError.class, detenido.getCause());
+        } finally {
+            cuentaService.shutdown();
+        }
+    }
+
+    @Test
+    void unaPeticionVencidaSoloFallaSiSuComandoSeCancelo() throws Exception {
+        ReflectionTestUtils.setField(cuentaService, "ledgerSecuenciado", true);
+        ReflectionTestUtils.setField(cuentaService, "ledgerEspera", Duration.ofMillis(50));
+        cuentaService.init();
+        CountDownLatch aplicando = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            cuentaService.addCuenta(new Cuenta(1L, "Cuenta A", new BigDecimal("10.00"), null));
+            cuentaService.addCuenta(new Cuenta(2L, "Cuenta B", new BigDecimal("10.00"), null));
+            when(transaccionService.addTransaccionSinLog(any())).thenAnswer(invocacion -> {
+                aplicando.countDown();
+                liberar.await(); // El escritor queda ocupado con esta transferencia
+                return null;
+            });
+            Future<Transaccion> tomada = executor.submit(() -> cuentaService.registrarTransferencia(
+                    new Transaccion(null, BigDecimal.ONE, null, new Cuenta(1L, null, null, null),
+                            new Cuenta(2L, null, null, null))));
+            assertTrue(aplicando.await(5, TimeUnit.SECONDS));
+
+            // El depósito vence en la cola: se cancela y no se aplicará
+            assertThrows(IllegalStateException.class, () -> cuentaService.depositar(1L, new BigDecimal("5.00")));
+            Thread.sleep(100); // La transferencia tomada también supera la espera
+            liberar.countDown();
+
+            // La transferencia ya estaba en el escritor: la petición espera y no falla
+            tomada.get(5, TimeUnit.SECONDS);
+            cuentaService.depositar(2L, BigDecimal.ONE);
+            assertEquals(900L, cuentaService.findById(1L).getSaldoCentavos());
+            assertEquals(1200L, cuentaService.findById(2L).getSaldoCentavos());
+        } finally {
+            liberar.countDown();
+            cuentaService.shutdown();
+        }
+    }
+
+    @Test
+    void registrarTransferenciaAplicaSaldoYTransaccionJuntos() {
+        cuentaService.addCuenta(new Cuenta(1L, "Cuenta A", new BigDecimal("10.00"), null));
+        cuentaService.addCuenta(new Cuenta(2L, "Cuenta B", new BigDecimal("10.00"), null));
+
+        Transaccion transaccion = new Transaccion(null, new BigDecimal("4.00"), null,
+                new Cuenta(1L, null, null, null), new Cuenta(2L, null, null, null));
+        cuentaService.registrarTransferencia(transaccion);
+
+        verify(transaccionService).addTransaccionSinLog(transaccion);
+        assertSame(cuentaService.findById(1L), transaccion.getCuentaOrigen());
+        assertEquals(0, new BigDecimal("6.00").compareTo(cuentaService.findById(1L).getSaldo()));
+
+        Transaccion sinSaldo = new Transaccion(null, new BigDecimal("7.00"), null,
+                new Cuenta(1L, null, null, null), new Cuenta(2L, null, null, null));
+        assertThrows(RuntimeException.class, () -> cuentaService.registrarTransferencia(sinSaldo));
+        verify(transaccionService, never()).addTransaccionSinLog(sinSaldo);
+
+        // Si la transacción no se puede registrar, los saldos vuelven atrás
+        Transaccion rechazada = new Transaccion(null, new BigDecimal("1.00"), null,
+                new Cuenta(1L, null, null, null), new Cuenta(2L, null, null, null));
+        doThrow(new IllegalStateException("Sin espacio")).when(transaccionService).addTransaccionSinLog(rechazada);
+        assertThrows(IllegalStateException.class, () -> cuentaService.registrarTransferencia(rechazada));
+        assertEquals(600L, cuentaService.findById(1L).getSaldoCentavos());
+        assertEquals(1400L, cuentaService.findById(2L).getSaldoCentavos());
+    }
+
+    @Test
+    void elLoteAplicaCadaFilaEnOrdenEntreBloques() {
+        ReflectionTestUtils.setField(cuentaService, "filasPorBloque", 2);
+        cuentaService.addCuenta(new Cuenta(1L, "Cuenta A", new BigDecimal("10.00"), null));
+        cuentaService.addCuenta(new Cuenta(2L, "Cuenta B", new BigDecimal("10.00"), null));
+
+        List<Transaccion> lote = List.of(transferencia(1L, 2L, "6.00"),
+                transferencia(1L, 2L, "5.00"), // Saldo insuficiente tras la primera fila
+                transferencia(2L, 1L, "3.00"), // Usa el saldo que dejó la primera fila
+                transferencia(1L, 99L, "1.00"),
+                transferencia(1L, 2L, "0.00"),
+                transferencia(1L, 2L, "7.00"));
+        List<ResultadoTransferencia> resultados = cuentaService.transferirLote(lote);
+
+        assertEquals(6, resultados.size());
+        assertSame(lote.get(0), resultados.get(0).transaccion());
+        assertEquals("Saldo insuficiente en la cuenta de origen", resultados.get(1).error());
+        assertTrue(resultados.get(2).isAplicada());
+        assertEquals("Cuenta not found", resultados.get(3).error());
+        assertEquals("El monto debe ser un número positivo.", resultados.get(4).error());
+        assertTrue(resultados.get(5).isAplicada());
+        assertFalse(resultados.get(1).isAplicada());
+        verify(transaccionService).addTransaccionSinLog(lote.get(5));
+        verify(transaccionService, never()).addTransaccionSinLog(lote.get(1));
+        assertEquals(0L, cuentaService.findById(1L).getSaldoCentavos());
+        assertEquals(2000L, cuentaService.findById(2L).getSaldoCentavos());
+    }
+
+    private static Transaccion transferencia(long origen, long destino, String monto) {
+        return new Transaccion(null, new BigDecimal(monto), null, new Cuenta(origen, null, null, null),
+                new Cuenta(destino, null, null, null));
+    }
+
+    private void transferirConcurrentemente() throws Exception {
+        int numCuentas = 16;
+        for (long id = 101; id <= 100 + numCuentas; id++) {
+            Usuario titular = (id % 2 == 0) ? usuario1 : usuario2;
+            Cuenta cuenta = new Cuenta(id, "Cuenta " + id, new BigDecimal("1000.00"), titular);
+            cuentaService.addCuenta(cuenta);
+            titular.getCuentas().add(cuenta); // El servicio de usuarios es un mock
+        }
+        BigDecimal totalInicial = totalBanco();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int hilo = 0; hilo < 8; hilo++) {
+                SplittableRandom random = new SplittableRandom(hilo);
+                tareas.add(executor.submit(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        long origen = random.nextLong(101, 101 + numCuentas);
+                        long destino = random.nextLong(101, 101 + numCuentas);
+                        try {
+                            cuentaService.transferir(origen, destino, new BigDecimal(random.nextInt(1, 300)));
+                        } catch (RuntimeException e) {
+                            // Saldo insuficiente: la transferencia se rechaza completa
+                        }
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(0, totalInicial.compareTo(totalBanco()));
+        for (Cuenta cuenta : cuentaService.findAll()) {
+            assertTrue(cuenta.getSaldo().signum() >= 0);
+        }
+        // Los totales acumulados coinciden con la suma completa
+        assertEquals(usuario1.recalcularSaldoCentavos(), usuario1.getSaldoCentavos());
+        assertEquals(usuario2.recalcularSaldoCentavos(), usuario2.getSaldoCentavos());
+        assertEquals(100_000L * numCuentas, usuario1.getSaldoCentavos() + usuario2.getSaldoCentavos());
+    }
+
+    @Test
+    void elSaldoDelUsuarioSigueAltasBajasYMovimientos() {
+        Cuenta cuentaA = new Cuenta(1L, "Cuenta A", new BigDecimal("10.00"), usuario1);
+        Cuenta cuentaB = new Cuenta(2L, "Cuenta B", new BigDecimal("5.50"), usuario1);
+        cuentaService.addCuenta(cuentaA);
+        cuentaService.addCuenta(cuentaB);
+        usuario1.getCuentas().add(cuentaA);
+        usuario1.getCuentas().add(cuentaB);
+        assertEquals(new BigDecimal("15.50"), usuario1.getSaldo());
+
+        cuentaService.depositar(1L, new BigDecimal("2.25"));
+        cuentaService.retirar(2L, new BigDecimal("0.50"));
+        assertEquals(new BigDecimal("17.25"), usuario1.getSaldo());
+
+        usuario1.getCuentas().removeIf(cuenta -> cuenta.getId().equals(1L));
+        assertEquals(new BigDecimal("5.00"), usuario1.getSaldo());
+        cuentaService.depositar(1L, new BigDecimal("100.00")); // Ya no es del usuario
+        assertEquals(500L, usuario1.getSaldoCentavos());
+
+        // El verificador corrige un total que se desvió
+        ReflectionTestUtils.setField(usuario1, "saldoTotal", 1L);
+        assertEquals(499L, usuario1.verificarSaldo());
+        assertEquals(0L, usuario1.verificarSaldo());
+        assertEquals(500L, usuario1.getSaldoCentavos());
+    }
+
+    @Test
+    void transferenciaSinSaldoNoModificaNingunaCuenta() {
+        cuentaService.addCuenta(new Cuenta(1L, "Cuenta A", new BigDecimal("10.00"), null));
+        cuentaService.addCuenta(new Cuenta(2L, "Cuenta B", new BigDecimal("10.00"), null));
+
+        assertThrows(RuntimeException.class, () -> cuentaService.transferir(1L, 2L, new BigDecimal("10.01")));
+        assertEquals(0, new BigDecimal("10.00").compareTo(cuentaService.findById(1L).getSaldo()));
+        assertEquals(0, new BigDecimal("10.00").compareTo(cuentaService.findById(2L).getSaldo()));
+    }
+
+    @Test
+    void losMontosSeValidanEnCentavos() {
+        cuentaService.addCuenta(new Cuenta(1L, "Cuenta A", new BigDecimal("10.00"), null));
+        cuentaService.addCuenta(new Cuenta(2L, "Cuenta B", new BigDecimal(Long.MAX_VALUE).movePointLeft(2), null));
+
+        // Más de dos decimales o un saldo que desborda: no se mueve nada
+        assertThrows(IllegalArgumentException.class, () -> cuentaService.transferir(1L, 2L, new BigDecimal("0.005")));
+        assertThrows(IllegalArgumentException.class, () -> cuentaService.transferir(1L, 2L, new BigDecimal("0.01")));
+        assertEquals(new BigDecimal("10.00"), cuentaService.findById(1L).getSaldo());
+
+        cuentaService.transferir(2L, 1L, new BigDecimal("2.5"));
+        assertEquals(1250L, cuentaService.findById(1L).getSaldoCentavos());
+        assertEquals(new BigDecimal("12.50"), cuentaService.findById(1L).getSaldo());
+    }
+
+    @Test
+    void lasTransferenciasSeCuentanPorResultado() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(cuentaService, "metricas", new MetricasBanco(registry));
+        cuentaService.addCuenta(new Cuenta(1L, "Cuenta A", new BigDecimal("10.00"), null));
+        cuentaService.addCuenta(new Cuenta(2L, "Cuenta B", new BigDecimal("10.00"), null));
+
+        cuentaService.transferir(1L, 2L, new BigDecimal("4.00"));
+        cuentaService.transferir(2L, 1L, new BigDecimal("1.00"));
+        assertThrows(RuntimeException.class, () -> cuentaService.transferir(1L, 2L, new BigDecimal("100.00")));
+        assertThrows(RuntimeException.class, () -> cuentaService.transferir(1L, 99L, new BigDecimal("1.00")));
+
+        assertEquals(2.0, registry.get("banco.transferencias").tag("resultado", "ok").counter().count());
+        assertEquals(1.0,
+                registry.get("banco.transferencias").tag("resultado", "saldo_insuficiente").counter().count());
+        assertEquals(1.0, registry.get("banco.transferencias").tag("resultado", "no_encontrada").counter().count());
+    }
+
+    private BigDecimal totalBanco() {
+        return cuentaService.findAll().stream()
+                .map(Cuenta::getSaldo)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
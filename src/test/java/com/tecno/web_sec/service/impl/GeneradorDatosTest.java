@@ -0,0 +1,107 @@
+package com.tecno.web_sec.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.repository.CuentaRepository;
+
+class GeneradorDatosTest {
+
+    private static final LocalDateTime DESDE = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime HASTA = DESDE.plusDays(30);
+
+    @Test
+    void laMismaSemillaGeneraLosMismosDatosConCualquierNumeroDeHilos() {
+        Banco unHilo = new Banco();
+        Banco cuatroHilos = new Banco();
+        GeneradorDatos.Resumen resumen = unHilo.generador
+                .generar(new GeneradorDatos.Parametros(300, 3, 150_000, 7L, 1, DESDE, HASTA));
+        cuatroHilos.generador.generar(new GeneradorDatos.Parametros(300, 3, 150_000, 7L, 4, DESDE, HASTA));
+
+        assertEquals(300, resumen.usuarios());
+        assertEquals(900, resumen.cuentas());
+        assertEquals(150_000, resumen.transacciones());
+        assertEquals(306, unHilo.usuarios.findAll().size()); // Más los usuarios de demostración
+        assertEquals(906, unHilo.cuentas.findAll().size());
+        assertEquals(150_000, unHilo.transacciones.findAll().size());
+
+        assertEquals(cuentas(unHilo), cuentas(cuatroHilos));
+        assertEquals(transacciones(unHilo), transacciones(cuatroHilos));
+        assertEquals(unHilo.usuarios.getSaldoTotalUsuario(unHilo.usuarios.findByUsername("cliente300").getId()),
+                cuatroHilos.usuarios
+                        .getSaldoTotalUsuario(cuatroHilos.usuarios.findByUsername("cliente300").getId()));
+
+        for (Transaccion transaccion : unHilo.transacciones.findAll()) {
+            assertNotEquals(transaccion.getCuentaOrigen().getId(), transaccion.getCuentaDestino().getId());
+            assertTrue(!transaccion.getFecha().isBefore(DESDE) && transaccion.getFecha().isBefore(HASTA));
+            assertTrue(transaccion.getMonto().signum() > 0);
+        }
+    }
+
+    @Test
+    void otraSemillaGeneraOtrosDatosYNoSeRepiteSobreLosExistentes() {
+        Banco banco = new Banco();
+        Banco otro = new Banco();
+        banco.generador.generar(new GeneradorDatos.Parametros(50, 2, 1_000, 1L, 2, DESDE, HASTA));
+        otro.generador.generar(new GeneradorDatos.Parametros(50, 2, 1_000, 2L, 2, DESDE, HASTA));
+        assertNotEquals(cuentas(banco), cuentas(otro));
+
+        // Los usuarios ya existen: no se genera nada más
+        GeneradorDatos.Resumen repetido = banco.generador
+                .generar(new GeneradorDatos.Parametros(50, 2, 1_000, 1L, 2, DESDE, HASTA));
+        assertEquals(0, repetido.usuarios());
+        assertEquals(56, banco.usuarios.findAll().size());
+        assertEquals(1_000, banco.transacciones.findAll().size());
+    }
+
+    private static List<String> cuentas(Banco banco) {
+        return banco.cuentas.findAll().stream().sorted(Comparator.comparing(Cuenta::getId))
+                .map(c -> c.getId() + ":" + c.getUsuario().getUsername() + ":" + c.getSaldo())
+                .collect(Collectors.toList());
+    }
+
+    // Los IDs de transacción dependen del orden de llegada; el contenido no
+    private static List<String> transacciones(Banco banco) {
+        return banco.transacciones.findAll().stream()
+                .map(t -> t.getFecha() + ":" + t.getCuentaOrigen().getId() + ":" + t.getCuentaDestino().getId()
+                        + ":" + t.getMonto())
+                .sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * Servicios conectados entre sí como en la aplicación, sin Spring.
+     */
+    private static final class Banco {
+
+        final UsuarioServiceImpl usuarios = new UsuarioServiceImpl();
+        final CuentaServiceImpl cuentas = new CuentaServiceImpl();
+        final TransaccionServiceImpl transacciones = new TransaccionServiceImpl();
+        final GeneradorDatos generador = new GeneradorDatos();
+
+        Banco() {
+            CuentaRepository repositorio = new CuentaRepository();
+            ReflectionTestUtils.setField(usuarios, "cuentas", repositorio);
+            ReflectionTestUtils.setField(cuentas, "cuentas", repositorio);
+            ReflectionTestUtils.setField(transacciones, "cuentas", repositorio);
+            ReflectionTestUtils.setField(usuarios, "passwordEncoder", NoOpPasswordEncoder.getInstance());
+            usuarios.init();
+            ReflectionTestUtils.setField(cuentas, "usuarioService", usuarios);
+            ReflectionTestUtils.setField(cuentas, "transaccionService", transacciones);
+            ReflectionTestUtils.setField(generador, "usuarioService", usuarios);
+            ReflectionTestUtils.setField(generador, "cuentaService", cuentas);
+            ReflectionTestUtils.setField(generador, "transaccionService", transacciones);
+        }
+    }
+}
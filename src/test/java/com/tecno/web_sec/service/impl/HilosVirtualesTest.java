@@ -0,0 +1,101 @@
+package com.tecno.web_sec.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Transaccion;
+import com.tecno.web_sec.persistence.WriteAheadLog;
+import com.tecno.web_sec.repository.CuentaRepository;
+
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Con {@code spring.threads.virtual.enabled=true} cada petición corre en un
+ * hilo virtual. Los candados de los servicios y la espera del log son
+ * {@code ReentrantLock} y {@code Condition}, así que bloquearse en ellos no
+ * fija el hilo virtual a su portador; JFR reportaría cada caso como un evento
+ * {@code jdk.VirtualThreadPinned}, igual que {@code -Djdk.tracePinnedThreads}.
+ */
+class HilosVirtualesTest {
+
+    private static final String CONTROL = "control-synchronized";
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void transferirYRegistrarNoFijanLosHilosVirtuales() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(true, directorio, true, 1 << 20);
+        wal.abrir();
+        CuentaServiceImpl cuentaService = new CuentaServiceImpl();
+        TransaccionServiceImpl transaccionService = new TransaccionServiceImpl();
+        CuentaRepository repositorio = new CuentaRepository();
+        ReflectionTestUtils.setField(cuentaService, "cuentas", repositorio);
+        ReflectionTestUtils.setField(cuentaService, "wal", wal);
+        ReflectionTestUtils.setField(cuentaService, "transaccionService", transaccionService);
+        ReflectionTestUtils.setField(transaccionService, "cuentas", repositorio);
+        ReflectionTestUtils.setField(transaccionService, "wal", wal);
+        // Pocas cuentas: casi todas las transferencias esperan un candado o el fsync
+        for (long id = 1; id <= 4; id++) {
+            cuentaService.addCuenta(new Cuenta(id, "Cuenta " + id, new BigDecimal("1000000.00"), null));
+        }
+
+        List<String> fijados = new ArrayList<>();
+        try (RecordingStream eventos = new RecordingStream()) {
+            eventos.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            eventos.onEvent("jdk.VirtualThreadPinned", evento -> {
+                synchronized (fijados) {
+                    fijados.add(evento.getThread("eventThread").getJavaName());
+                }
+            });
+            eventos.startAsync();
+
+            try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("transferencia-", 0).factory())) {
+                List<Future<?>> tareas = new ArrayList<>();
+                for (int i = 0; i < 2000; i++) {
+                    SplittableRandom random = new SplittableRandom(i);
+                    tareas.add(executor.submit(() -> {
+                        long origen = random.nextLong(1, 5);
+                        long destino = 1 + origen % 4;
+                        cuentaService.registrarTransferencia(new Transaccion(null, new BigDecimal("1.00"), null,
+                                new Cuenta(origen, null, null, null), new Cuenta(destino, null, null, null)));
+                        transaccionService.findByCuentaId(origen);
+                    }));
+                }
+                // Control: un monitor sí fija el hilo mientras duerme
+                tareas.add(executor.submit(() -> {
+                    Thread.currentThread().setName(CONTROL);
+                    Object monitor = new Object();
+                    synchronized (monitor) {
+                        Thread.sleep(20);
+                    }
+                    return null;
+                }));
+                for (Future<?> tarea : tareas) {
+                    tarea.get();
+                }
+            }
+            eventos.stop(); // Entrega los eventos pendientes
+        } finally {
+            wal.cerrar();
+        }
+
+        assertEquals(List.of(CONTROL), fijados);
+        assertEquals(2000, transaccionService.findAll().size());
+    }
+}
@@ -0,0 +1,106 @@
+package com.tecno.web_sec.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.CursorTransaccion;
+import com.tecno.web_sec.models.PaginaTransacciones;
+import com.tecno.web_sec.models.Transaccion;
+
+class TransaccionServiceImplTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private TransaccionServiceImpl transaccionService;
+    private Cuenta cuentaA;
+    private Cuenta cuentaB;
+    private Cuenta cuentaC;
+
+    @BeforeEach
+    void setUp() {
+        transaccionService = new TransaccionServiceImpl();
+        cuentaA = new Cuenta(1L, "Cuenta A", BigDecimal.ZERO, null);
+        cuentaB = new Cuenta(2L, "Cuenta B", BigDecimal.ZERO, null);
+        cuentaC = new Cuenta(3L, "Cuenta C", BigDecimal.ZERO, null);
+    }
+
+    private Transaccion registrar(Cuenta origen, Cuenta destino, int minuto) {
+        Transaccion transaccion = new Transaccion(null, BigDecimal.ONE, INICIO.plusMinutes(minuto), origen, destino);
+        transaccionService.addTransaccion(transaccion);
+        return transaccion;
+    }
+
+    @Test
+    void findByCuentaIdDevuelveSoloLaListaDeLaCuentaEnOrdenCronologico() {
+        Transaccion t1 = registrar(cuentaA, cuentaB, 5);
+        registrar(cuentaB, cuentaC, 6);
+        Transaccion t3 = registrar(cuentaC, cuentaA, 1);
+
+        assertEquals(List.of(t3, t1), transaccionService.findByCuentaId(1L));
+        assertEquals(2, transaccionService.findByCuentaId(2L).size());
+        assertTrue(transaccionService.findByCuentaId(99L).isEmpty());
+    }
+
+    @Test
+    void deleteTransaccionLaQuitaDeAmbasCuentas() {
+        Transaccion t1 = registrar(cuentaA, cuentaB, 0);
+
+        transaccionService.deleteTransaccion(t1.getId());
+
+        assertTrue(transaccionService.findByCuentaId(1L).isEmpty());
+        assertTrue(transaccionService.findByCuentaId(2L).isEmpty());
+        assertTrue(transaccionService.findAll().isEmpty());
+    }
+
+    @Test
+    void findByFechaBetweenUsaElIndiceTemporal() {
+        registrar(cuentaA, cuentaB, 1);
+        Transaccion t2 = registrar(cuentaB, cuentaC, 2);
+        Transaccion t3 = registrar(cuentaC, cuentaA, 3);
+        registrar(cuentaA, cuentaB, 4);
+
+        assertEquals(List.of(t2, t3),
+                transaccionService.findByFechaBetween(INICIO.plusMinutes(2), INICIO.plusMinutes(3)));
+        assertEquals(List.of(t3),
+                transaccionService.findByCuentaIdAndFechaBetween(1L, INICIO.plusMinutes(2), INICIO.plusMinutes(3)));
+    }
+
+    @Test
+    void findPageByCuentaIdRecorreElHistorialConCursor() {
+        Transaccion t1 = registrar(cuentaA, cuentaB, 1);
+        Transaccion t2 = registrar(cuentaA, cuentaB, 2);
+        Transaccion t3 = registrar(cuentaA, cuentaB, 3);
+
+        PaginaTransacciones primera = transaccionService.findPageByCuentaId(1L, null, 2);
+        assertEquals(List.of(t3, t2), primera.transacciones());
+
+        CursorTransaccion cursor = CursorTransaccion.parse(primera.siguiente().toString());
+        PaginaTransacciones segunda = transaccionService.findPageByCuentaId(1L, cursor, 2);
+        assertEquals(List.of(t1), segunda.transacciones());
+        assertNull(segunda.siguiente());
+    }
+
+    @Test
+    void findPageByCuentaIdsFusionaSinDuplicarTransferenciasPropias() {
+        Transaccion t1 = registrar(cuentaA, cuentaB, 1); // Entre dos cuentas del mismo usuario
+        Transaccion t2 = registrar(cuentaC, cuentaA, 2);
+        Transaccion t3 = registrar(cuentaB, cuentaC, 3);
+
+        PaginaTransacciones primera = transaccionService.findPageByCuentaIds(List.of(1L, 2L), null, 2);
+        assertEquals(List.of(t3, t2), primera.transacciones());
+
+        PaginaTransacciones segunda = transaccionService.findPageByCuentaIds(List.of(1L, 2L),
+                primera.siguiente(), 2);
+        assertEquals(List.of(t1), segunda.transacciones());
+        assertNull(segunda.siguiente());
+    }
+}
@@ -0,0 +1,189 @@
+package com.tecno.web_sec.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tecno.web_sec.models.Cuenta;
+import com.tecno.web_sec.models.Usuario;
+import com.tecno.web_sec.persistence.RegistroWal;
+import com.tecno.web_sec.security.UsuarioAutenticado;
+
+class UsuarioServiceImplTest {
+
+    private UsuarioServiceImpl usuarioService;
+
+    @BeforeEach
+    void setUp() {
+        usuarioService = new UsuarioServiceImpl();
+        ReflectionTestUtils.setField(usuarioService, "passwordEncoder", NoOpPasswordEncoder.getInstance());
+        usuarioService.init();
+    }
+
+    @Test
+    void addUsuarioIndexaPorNombreEId() {
+        Usuario nuevo = new Usuario(null, "cliente", "secreto", null, new ArrayList<>());
+        usuarioService.addUsuario(nuevo);
+
+        assertSame(nuevo, usuarioService.findByUsername("cliente"));
+        assertSame(nuevo, usuarioService.findById(nuevo.getId()));
+        assertEquals("ROLE_USER",
+                usuarioService.loadUserByUsername("cliente").getAuthorities().iterator().next().getAuthority());
+        assertThrows(RuntimeException.class,
+                () -> usuarioService.addUsuario(new Usuario(null, "cliente", "otro", null, new ArrayList<>())));
+        assertEquals(7, usuarioService.findAll().size());
+    }
+
+    @Test
+    void losIndicesSiguenCambiosDeNombreYBajas() {
+        Usuario usuario1 = usuarioService.findByUsername("usuario1");
+        List<Cuenta> cuentas = List.copyOf(usuario1.getCuentas());
+        BigDecimal total = usuarioService.getSaldoTotalUsuario(usuario1.getId());
+        // El formulario de edición no trae las cuentas
+        Usuario renombrado = new Usuario(usuario1.getId(), "cliente1", usuario1.getPassword(), "USER",
+                new ArrayList<>());
+        usuarioService.updateUsuario(renombrado);
+
+        assertThrows(UsernameNotFoundException.class, () -> usuarioService.findByUsername("usuario1"));
+        assertSame(usuario1, usuarioService.findByUsername("cliente1"));
+        assertSame(usuario1, usuarioService.findById(usuario1.getId()));
+        assertEquals("cliente1", usuario1.getUsername());
+        assertEquals(cuentas, usuario1.getCuentas());
+        assertEquals(total, usuarioService.getSaldoTotalUsuario(usuario1.getId()));
+
+        // Un nombre en uso por otro usuario se rechaza
+        Usuario duplicado = new Usuario(usuario1.getId(), "admin", "123", "USER", new ArrayList<>());
+        assertThrows(RuntimeException.class, () -> usuarioService.updateUsuario(duplicado));
+        assertEquals("cliente1", usuarioService.findById(usuario1.getId()).getUsername());
+
+        usuarioService.deleteUsuario(usuario1.getId());
+        assertThrows(UsernameNotFoundException.class, () -> usuarioService.findByUsername("cliente1"));
+        assertThrows(RuntimeException.class, () -> usuarioService.findById(usuario1.getId()));
+
+        // La recuperación también mantiene los índices
+        usuarioService.restaurar(new RegistroWal.UsuarioGuardado(2L, "cliente2", "123", "USER"));
+        assertThrows(UsernameNotFoundException.class, () -> usuarioService.findByUsername("usuario2"));
+        assertEquals(2L, usuarioService.findByUsername("cliente2").getId());
+    }
+
+    @Test
+    void elUsuarioAutenticadoDejaDeEstarVigenteAlCambiarSusCuentas() {
+        UsuarioAutenticado sesion = (UsuarioAutenticado) usuarioService.loadUserByUsername("usuario1");
+        UsuarioAutenticado otraSesion = (UsuarioAutenticado) usuarioService.loadUserByUsername("usuario1");
+        assertEquals(1L, sesion.getUsuarioId());
+        assertEquals(List.of(1L), sesion.getCuentaIds());
+        assertTrue(sesion.esTitularDe(1L));
+        assertFalse(sesion.esTitularDe(2L));
+        assertTrue(sesion.isVigente());
+
+        // Un cambio en otro usuario no afecta la sesión
+        usuarioService.addCuentaToUsuario(2L, new Cuenta(7L, "Cuenta G", BigDecimal.TEN, null));
+        assertTrue(sesion.isVigente());
+
+        // Todas las sesiones del usuario se marcan, y la recarga ve la cuenta nueva
+        usuarioService.addCuentaToUsuario(1L, new Cuenta(8L, "Cuenta H", BigDecimal.TEN, null));
+        assertFalse(sesion.isVigente());
+        assertFalse(otraSesion.isVigente());
+        UsuarioAutenticado recargada = usuarioService.findAutenticadoById(1L);
+        assertTrue(recargada.isVigente());
+        assertEquals(List.of(1L, 8L), recargada.getCuentaIds());
+
+        usuarioService.removeCuentaFromUsuario(1L, 1L);
+        assertFalse(recargada.isVigente());
+        assertEquals(List.of(8L), usuarioService.findAutenticadoById(1L).getCuentaIds());
+
+        // Un cambio de nombre o rol también invalida
+        UsuarioAutenticado antes = usuarioService.findAutenticadoById(1L);
+        Usuario usuario1 = usuarioService.findById(1L);
+        usuarioService.updateUsuario(new Usuario(1L, "usuario1", usuario1.getPassword(), "ADMIN",
+                new ArrayList<>(usuario1.getCuentas())));
+        assertFalse(antes.isVigente());
+        assertEquals("ROLE_ADMIN",
+                usuarioService.findAutenticadoById(1L).getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void altasConcurrentesDelMismoUsuarioNoPierdenCuentas() throws Exception {
+        Usuario usuario1 = usuarioService.findById(1L);
+        int inicial = usuario1.getCuentas().size();
+        BigDecimal total = usuarioService.getSaldoTotalUsuario(1L);
+        AtomicBoolean terminado = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            // Un inicio de sesión recorre la lista mientras otras peticiones la cambian
+            Future<?> lector = executor.submit(() -> {
+                while (!terminado.get()) {
+                    usuarioService.findAutenticadoById(1L);
+                }
+            });
+            List<Future<?>> altas = new ArrayList<>();
+            for (int h = 0; h < 4; h++) {
+                long primero = 1000L + h * 5000L;
+                altas.add(executor.submit(() -> {
+                    for (long id = primero; id < primero + 5000; id++) {
+                        usuarioService.addCuentaToUsuario(1L, new Cuenta(id, "Cuenta " + id, BigDecimal.ONE, null));
+                    }
+                }));
+            }
+            for (Future<?> alta : altas) {
+                alta.get();
+            }
+            terminado.set(true);
+            lector.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(inicial + 20000, usuario1.getCuentas().size());
+        assertEquals(inicial + 20000, usuarioService.findAutenticadoById(1L).getCuentaIds().size());
+        assertEquals(total.add(new BigDecimal("20000")), usuarioService.getSaldoTotalUsuario(1L));
+        assertEquals(0, usuarioService.verificarSaldos());
+    }
+
+    @Test
+    void unRecorridoNoVeLosCambiosPosterioresDeLaLista() {
+        Usuario usuario1 = usuarioService.findById(1L);
+        List<Cuenta> cuentas = usuario1.getCuentas();
+        List<Cuenta> antes = List.copyOf(cuentas);
+        BigDecimal total = usuarioService.getSaldoTotalUsuario(1L);
+        Iterator<Cuenta> recorrido = cuentas.iterator();
+
+        Cuenta primera = new Cuenta(900L, "Cuenta 900", BigDecimal.ONE, null);
+        Cuenta ultima = new Cuenta(901L, "Cuenta 901", BigDecimal.TEN, null);
+        cuentas.add(0, primera);
+        cuentas.add(ultima);
+        Cuenta reemplazada = cuentas.set(1, new Cuenta(902L, "Cuenta 902", BigDecimal.TWO, null));
+        assertSame(antes.get(0), reemplazada);
+        assertTrue(cuentas.remove(primera));
+
+        List<Cuenta> recorridas = new ArrayList<>();
+        recorrido.forEachRemaining(recorridas::add);
+        assertEquals(antes, recorridas);
+        assertEquals(antes.size() + 1, cuentas.size());
+        assertSame(ultima, cuentas.get(cuentas.size() - 1));
+        assertEquals(total.subtract(reemplazada.getSaldo()).add(new BigDecimal("12")),
+                usuarioService.getSaldoTotalUsuario(1L));
+
+        assertTrue(cuentas.removeIf(cuenta -> cuenta.getId() >= 900L));
+        assertEquals(antes.subList(1, antes.size()), cuentas);
+        assertEquals(total.subtract(reemplazada.getSaldo()), usuarioService.getSaldoTotalUsuario(1L));
+        assertThrows(IndexOutOfBoundsException.class, () -> cuentas.get(cuentas.size()));
+    }
+}